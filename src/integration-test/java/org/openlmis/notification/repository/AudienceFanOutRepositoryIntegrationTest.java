@@ -0,0 +1,128 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.Lists;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import org.junit.Test;
+import org.openlmis.notification.domain.AudienceFanOut;
+import org.openlmis.notification.domain.Broadcast;
+import org.openlmis.notification.domain.BroadcastMessage;
+import org.openlmis.notification.service.NotificationChannel;
+import org.openlmis.notification.web.notification.AudienceDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class AudienceFanOutRepositoryIntegrationTest
+    extends BaseCrudRepositoryIntegrationTest<AudienceFanOut, UUID> {
+
+  @Autowired
+  private AudienceFanOutRepository repository;
+
+  @Autowired
+  private BroadcastRepository broadcastRepository;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Override
+  CrudRepository<AudienceFanOut, UUID> getRepository() {
+    return repository;
+  }
+
+  @Override
+  AudienceFanOut generateInstance() {
+    Broadcast broadcast = broadcastRepository.save(new Broadcast(Lists.newArrayList(
+        new BroadcastMessage(NotificationChannel.EMAIL, "body", "subject", null)), false));
+
+    return new AudienceFanOut(broadcast,
+        new AudienceDto(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), null));
+  }
+
+  @Test
+  public void shouldClaimOldestUnfinishedFanOuts() {
+    AudienceFanOut finished = saveFanOut(3);
+    finished.pageSent(10, true);
+    AudienceFanOut oldest = saveFanOut(2);
+    AudienceFanOut older = saveFanOut(1);
+    saveFanOut(0);
+
+    entityManager.flush();
+    entityManager.clear();
+
+    List<AudienceFanOut> claimed = repository.claim(ZonedDateTime.now(), 2);
+
+    assertThat(claimed)
+        .extracting(AudienceFanOut::getId)
+        .containsExactly(oldest.getId(), older.getId());
+  }
+
+  @Test
+  public void shouldNotClaimLeasedFanOutsOrFanOutsWaitingForRetry() {
+    AudienceFanOut leased = saveFanOut(4);
+    leased.claim("owner", ZonedDateTime.now().plusMinutes(1));
+    AudienceFanOut waiting = saveFanOut(3);
+    waiting.registerFailedAttempt();
+    waiting.retryAt(ZonedDateTime.now().plusMinutes(1));
+    AudienceFanOut expired = saveFanOut(2);
+    expired.claim("owner", ZonedDateTime.now().minusMinutes(1));
+    AudienceFanOut due = saveFanOut(1);
+    due.registerFailedAttempt();
+    due.retryAt(ZonedDateTime.now().minusMinutes(1));
+
+    entityManager.flush();
+    entityManager.clear();
+
+    List<AudienceFanOut> claimed = repository.claim(ZonedDateTime.now(), 10);
+
+    assertThat(claimed)
+        .extracting(AudienceFanOut::getId)
+        .containsExactly(expired.getId(), due.getId());
+  }
+
+  @Test
+  public void shouldSaveProgressOfFanOut() {
+    AudienceFanOut fanOut = saveFanOut(0);
+    fanOut.pageSent(10, false);
+    fanOut.abandon("invalid right");
+
+    entityManager.flush();
+    entityManager.clear();
+
+    AudienceFanOut found = repository.findById(fanOut.getId()).orElse(null);
+
+    assertThat(found).isNotNull();
+    assertThat(found.getNextPage()).isEqualTo(1);
+    assertThat(found.getRecipientCount()).isEqualTo(10);
+    assertThat(found.isFinished()).isTrue();
+    assertThat(found.getError()).isEqualTo("invalid right");
+  }
+
+  private AudienceFanOut saveFanOut(int minutesAgo) {
+    AudienceFanOut fanOut = generateInstance();
+    ReflectionTestUtils.setField(fanOut, "createdDate",
+        ZonedDateTime.now().minusMinutes(minutesAgo));
+
+    return repository.save(fanOut);
+  }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.Lists;
+import java.util.Set;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import org.junit.Test;
+import org.openlmis.notification.domain.Broadcast;
+import org.openlmis.notification.domain.BroadcastMessage;
+import org.openlmis.notification.domain.Notification;
+import org.openlmis.notification.service.NotificationChannel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.repository.CrudRepository;
+
+public class BroadcastRepositoryIntegrationTest
+    extends BaseCrudRepositoryIntegrationTest<Broadcast, UUID> {
+
+  @Autowired
+  private BroadcastRepository repository;
+
+  @Autowired
+  private NotificationRepository notificationRepository;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Override
+  CrudRepository<Broadcast, UUID> getRepository() {
+    return repository;
+  }
+
+  @Override
+  Broadcast generateInstance() {
+    return new Broadcast(Lists.newArrayList(
+        new BroadcastMessage(NotificationChannel.EMAIL, "body", "subject", null),
+        new BroadcastMessage(NotificationChannel.SMS, "body", null, null)), false);
+  }
+
+  @Test
+  public void shouldSaveNotificationsThatReferToBroadcast() {
+    Broadcast broadcast = repository.save(generateInstance());
+    Notification notification = notificationRepository
+        .save(new Notification(UUID.randomUUID(), broadcast));
+
+    entityManager.flush();
+    entityManager.clear();
+
+    Notification found = notificationRepository.findById(notification.getId()).orElse(null);
+    Broadcast foundBroadcast = repository.findById(broadcast.getId()).orElse(null);
+
+    assertThat(found).isNotNull();
+    assertThat(found.getBroadcastId()).isEqualTo(broadcast.getId());
+    assertThat(found.getMessages()).isEmpty();
+    assertThat(foundBroadcast.getMessages())
+        .extracting(BroadcastMessage::getChannel)
+        .containsExactlyInAnyOrder(NotificationChannel.EMAIL, NotificationChannel.SMS);
+  }
+
+  @Test
+  public void shouldFindRecipientsThatReceivedBroadcast() {
+    Broadcast broadcast = repository.save(generateInstance());
+    Broadcast other = repository.save(generateInstance());
+    UUID recipient = UUID.randomUUID();
+    UUID otherRecipient = UUID.randomUUID();
+    UUID newRecipient = UUID.randomUUID();
+
+    notificationRepository.save(new Notification(recipient, broadcast));
+    notificationRepository.save(new Notification(otherRecipient, other));
+
+    Set<UUID> found = notificationRepository.findBroadcastRecipients(broadcast.getId(),
+        Lists.newArrayList(recipient, otherRecipient, newRecipient));
+
+    assertThat(found).containsExactly(recipient);
+  }
+
+}
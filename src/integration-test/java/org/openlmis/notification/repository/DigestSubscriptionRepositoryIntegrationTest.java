@@ -17,19 +17,25 @@ package org.openlmis.notification.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.junit.Before;
 import org.junit.Test;
 import org.openlmis.notification.domain.DigestConfiguration;
 import org.openlmis.notification.domain.DigestSubscription;
 import org.openlmis.notification.domain.UserContactDetails;
+import org.openlmis.notification.service.NotificationChannel;
 import org.openlmis.notification.testutils.DigestConfigurationDataBuilder;
 import org.openlmis.notification.testutils.DigestSubscriptionDataBuilder;
+import org.openlmis.notification.testutils.PostponeMessageDataBuilder;
 import org.openlmis.notification.util.UserContactDetailsDataBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.repository.CrudRepository;
@@ -48,6 +54,12 @@ public class DigestSubscriptionRepositoryIntegrationTest
   @Autowired
   private DigestConfigurationRepository digestConfigurationRepository;
 
+  @Autowired
+  private PostponeMessageRepository postponeMessageRepository;
+
+  @Autowired
+  private PostponedDigestRepository postponedDigestRepository;
+
   private Map<UUID, List<DigestSubscription>> userSubscriptions;
 
   @Override
@@ -96,6 +108,25 @@ public class DigestSubscriptionRepositoryIntegrationTest
     assertThat(subscriptions2).hasSize(userSubscriptions.get(user2).size());
   }
 
+  @Test
+  public void shouldFindSubscriptionsOfManyUsers() {
+    // given
+    Iterator<UUID> idIterator = userSubscriptions.keySet().iterator();
+    UUID user1 = idIterator.next();
+    idIterator.next();
+    UUID user2 = idIterator.next();
+
+    // when
+    List<DigestSubscription> subscriptions = repository
+        .getUsersSubscriptions(Arrays.asList(user1, user2));
+
+    // then
+    assertThat(subscriptions)
+        .hasSize(userSubscriptions.get(user1).size() + userSubscriptions.get(user2).size())
+        .extracting(item -> item.getUserContactDetails().getId())
+        .containsOnly(user1, user2);
+  }
+
   @Test
   public void shouldDeleteUserSubscriptions() {
     // given
@@ -189,4 +220,105 @@ public class DigestSubscriptionRepositoryIntegrationTest
     // then
     assertThat(found).isNull();
   }
+
+  @Test
+  public void shouldScheduleDigestOnlyOnce() {
+    // given
+    DigestSubscription subscription = userSubscriptions.values().iterator().next().get(0);
+    ZonedDateTime nextRunAt = ZonedDateTime.now().plusHours(1).truncatedTo(ChronoUnit.SECONDS);
+
+    // when
+    int first = repository.scheduleDigest(subscription.getId(), nextRunAt);
+    int second = repository.scheduleDigest(subscription.getId(), nextRunAt.plusHours(1));
+
+    // then
+    assertThat(first).isEqualTo(1);
+    assertThat(second).isEqualTo(0);
+    assertThat(repository.findEarliestNextRun())
+        .hasValueSatisfying(earliest -> assertThat(earliest.toInstant())
+            .isEqualTo(nextRunAt.toInstant()));
+  }
+
+  @Test
+  public void shouldClaimDueDigest() {
+    // given
+    Iterator<List<DigestSubscription>> iterator = userSubscriptions.values().iterator();
+    DigestSubscription due = iterator.next().get(0);
+    DigestSubscription notDue = iterator.next().get(0);
+
+    ZonedDateTime now = ZonedDateTime.now();
+    repository.scheduleDigest(due.getId(), now.minusMinutes(1));
+    repository.scheduleDigest(notDue.getId(), now.plusMinutes(1));
+
+    // when
+    DigestSubscription claimed = repository.claimDueDigest(now);
+
+    // then
+    assertThat(claimed).isEqualTo(due);
+  }
+
+  @Test
+  public void shouldNotClaimDigestAfterNextRunHasBeenCleared() {
+    // given
+    DigestSubscription subscription = userSubscriptions.values().iterator().next().get(0);
+    ZonedDateTime now = ZonedDateTime.now();
+
+    repository.scheduleDigest(subscription.getId(), now.minusMinutes(1));
+
+    // when
+    repository.clearNextRun(subscription.getId());
+
+    // then
+    assertThat(repository.claimDueDigest(now)).isNull();
+    assertThat(repository.findEarliestNextRun()).isEmpty();
+  }
+
+  @Test
+  public void shouldStreamUnscheduledSubscriptionsWithPostponeMessages() {
+    // given
+    Iterator<List<DigestSubscription>> iterator = userSubscriptions.values().iterator();
+    DigestSubscription unscheduled = iterator.next().get(0);
+    DigestSubscription scheduled = iterator.next().get(0);
+
+    postpone(unscheduled);
+    postpone(scheduled);
+    repository.scheduleDigest(scheduled.getId(), ZonedDateTime.now());
+
+    // when
+    List<DigestSubscription> found;
+
+    try (Stream<DigestSubscription> stream = repository.streamUnscheduledWithPostponeMessages()) {
+      found = stream.collect(Collectors.toList());
+    }
+
+    // then
+    assertThat(found).containsExactly(unscheduled);
+  }
+
+  @Test
+  public void shouldStreamUnscheduledSubscriptionsWithAccumulatedPostponeMessages() {
+    // given
+    DigestSubscription unscheduled = userSubscriptions.values().iterator().next().get(0);
+
+    postponedDigestRepository.accumulate(
+        unscheduled.getUserContactDetails().getReferenceDataUserId(),
+        unscheduled.getDigestConfiguration().getId(), NotificationChannel.EMAIL, "subject");
+
+    // when
+    List<DigestSubscription> found;
+
+    try (Stream<DigestSubscription> stream = repository.streamUnscheduledWithPostponeMessages()) {
+      found = stream.collect(Collectors.toList());
+    }
+
+    // then
+    assertThat(found).containsExactly(unscheduled);
+  }
+
+  private void postpone(DigestSubscription subscription) {
+    postponeMessageRepository.saveAndFlush(new PostponeMessageDataBuilder()
+        .withUserId(subscription.getUserContactDetails().getReferenceDataUserId())
+        .withConfiguration(subscription.getDigestConfiguration())
+        .buildAsNew());
+  }
 }
@@ -0,0 +1,142 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_USER_CONTACT_DETAILS_NOT_FOUND;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import org.junit.Test;
+import org.openlmis.notification.domain.Notification;
+import org.openlmis.notification.domain.NotificationIntake;
+import org.openlmis.notification.i18n.Message;
+import org.openlmis.notification.service.NotificationChannel;
+import org.openlmis.notification.util.NotificationDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.repository.CrudRepository;
+
+public class NotificationIntakeRepositoryIntegrationTest
+    extends BaseCrudRepositoryIntegrationTest<NotificationIntake, UUID> {
+
+  @Autowired
+  private NotificationIntakeRepository repository;
+
+  @Autowired
+  private NotificationRepository notificationRepository;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Override
+  CrudRepository<NotificationIntake, UUID> getRepository() {
+    return repository;
+  }
+
+  @Override
+  NotificationIntake generateInstance() {
+    return new NotificationIntake(saveNotification(), ZonedDateTime.now());
+  }
+
+  @Override
+  protected void assertBefore(NotificationIntake instance) {
+    assertThat(instance.getId()).isNotNull();
+  }
+
+  @Test
+  public void shouldAddNotification() {
+    UUID notificationId = saveNotification();
+
+    repository.add(notificationId, ZonedDateTime.now());
+
+    assertThat(repository.existsById(notificationId)).isTrue();
+  }
+
+  @Test
+  public void shouldClaimOldestNotifications() {
+    UUID oldest = saveNotification();
+    UUID older = saveNotification();
+    UUID newest = saveNotification();
+
+    repository.add(newest, ZonedDateTime.now());
+    repository.add(oldest, ZonedDateTime.now().minusMinutes(2));
+    repository.add(older, ZonedDateTime.now().minusMinutes(1));
+
+    List<NotificationIntake> claimed = repository.claim(ZonedDateTime.now(), 2);
+
+    assertThat(claimed)
+        .extracting(NotificationIntake::getNotificationId)
+        .containsExactly(oldest, older);
+  }
+
+  @Test
+  public void shouldNotClaimLeasedOrRejectedNotifications() {
+    NotificationIntake leased = generateInstance();
+    leased.claim("owner", ZonedDateTime.now().plusMinutes(1));
+    NotificationIntake expired = generateInstance();
+    expired.claim("owner", ZonedDateTime.now().minusMinutes(1));
+    NotificationIntake rejected = generateInstance();
+    rejected.reject(new Message(ERROR_USER_CONTACT_DETAILS_NOT_FOUND), ZonedDateTime.now());
+
+    repository.saveAll(Arrays.asList(leased, expired, rejected));
+    repository.flush();
+
+    List<NotificationIntake> claimed = repository.claim(ZonedDateTime.now(), 10);
+
+    assertThat(claimed)
+        .extracting(NotificationIntake::getNotificationId)
+        .containsExactly(expired.getNotificationId());
+  }
+
+  @Test
+  public void shouldKeepReasonOfRejection() {
+    NotificationIntake rejected = generateInstance();
+    rejected.reject(new Message(ERROR_USER_CONTACT_DETAILS_NOT_FOUND), ZonedDateTime.now());
+    repository.saveAndFlush(rejected);
+    entityManager.clear();
+
+    NotificationIntake found = repository.findById(rejected.getNotificationId()).orElse(null);
+
+    assertThat(found).isNotNull();
+    assertThat(found.isRejected()).isTrue();
+    assertThat(found.getRejectionReason())
+        .isEqualTo(new Message(ERROR_USER_CONTACT_DETAILS_NOT_FOUND));
+  }
+
+  @Test
+  public void shouldRemoveNotificationFromIntakeWhenNotificationIsRemoved() {
+    UUID notificationId = saveNotification();
+    repository.add(notificationId, ZonedDateTime.now());
+
+    notificationRepository.deleteById(notificationId);
+    entityManager.flush();
+    entityManager.clear();
+
+    assertThat(repository.existsById(notificationId)).isFalse();
+  }
+
+  private UUID saveNotification() {
+    Notification notification = new NotificationDataBuilder()
+        .withEmptyMessage(NotificationChannel.EMAIL)
+        .buildAsNew();
+
+    return notificationRepository.saveAndFlush(notification).getId();
+  }
+
+}
@@ -175,6 +175,33 @@ public class NotificationRepositoryIntegrationTest
         .contains(Arrays.copyOfRange(notifications, 10, 17));
   }
 
+  @Test
+  public void shouldNotFindNotificationsThatAreInIntake() {
+    Notification accepted = generateInstance(userId1);
+    accepted.addToIntake();
+    accepted = repository.saveAndFlush(accepted);
+
+    NotificationRepositoryCustom.SearchParams searchParams =
+        new TestSearchParams(userId1, null, null);
+
+    Page<Notification> search = repository.search(searchParams, pageable);
+    assertThat(search.getContent())
+        .hasSize(10)
+        .doesNotContain(accepted);
+  }
+
+  @Test
+  public void shouldFindAllNotificationsThatAreNotInIntake() {
+    Notification accepted = generateInstance(userId1);
+    accepted.addToIntake();
+    accepted = repository.saveAndFlush(accepted);
+
+    Page<Notification> page = repository.findAllByInIntakeFalse(pageable);
+    assertThat(page.getContent())
+        .hasSize(notifications.length)
+        .doesNotContain(accepted);
+  }
+
   @Getter
   @AllArgsConstructor
   private static final class TestSearchParams
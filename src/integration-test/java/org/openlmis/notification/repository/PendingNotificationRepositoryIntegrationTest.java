@@ -17,6 +17,7 @@ package org.openlmis.notification.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.time.ZonedDateTime;
 import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
@@ -95,4 +96,89 @@ public class PendingNotificationRepositoryIntegrationTest
     assertThat(notificationExists).isTrue();
   }
 
+  @Test
+  public void shouldClaimOldestPendingNotifications() {
+    List<PendingNotification> claimed = repository
+        .claimPendingNotifications(ZonedDateTime.now(), 2);
+
+    assertThat(claimed)
+        .extracting(PendingNotification::getId)
+        .containsExactly(pendingNotifications.get(0).getId(), pendingNotifications.get(1).getId());
+  }
+
+  @Test
+  public void shouldNotClaimLeasedPendingNotifications() {
+    PendingNotification leased = pendingNotifications.get(0);
+    leased.claim("owner", ZonedDateTime.now().plusMinutes(5));
+    repository.saveAndFlush(leased);
+
+    List<PendingNotification> claimed = repository
+        .claimPendingNotifications(ZonedDateTime.now(), COUNT);
+
+    assertThat(claimed)
+        .extracting(PendingNotification::getId)
+        .hasSize(COUNT - 1)
+        .doesNotContain(leased.getId());
+  }
+
+  @Test
+  public void shouldClaimPendingNotificationsWithExpiredLease() {
+    PendingNotification expired = pendingNotifications.get(0);
+    expired.claim("owner", ZonedDateTime.now().minusMinutes(5));
+    repository.saveAndFlush(expired);
+
+    List<PendingNotification> claimed = repository
+        .claimPendingNotifications(ZonedDateTime.now(), 1);
+
+    assertThat(claimed)
+        .extracting(PendingNotification::getId)
+        .containsExactly(expired.getId());
+  }
+
+  @Test
+  public void shouldNotClaimPendingNotificationsThatAreNotDueYet() {
+    PendingNotification postponed = pendingNotifications.get(0);
+    postponed.registerFailedAttempt();
+    postponed.retryAt(ZonedDateTime.now().plusMinutes(5));
+    repository.saveAndFlush(postponed);
+
+    List<PendingNotification> claimed = repository
+        .claimPendingNotifications(ZonedDateTime.now(), COUNT);
+
+    assertThat(claimed)
+        .extracting(PendingNotification::getId)
+        .hasSize(COUNT - 1)
+        .doesNotContain(postponed.getId());
+  }
+
+  @Test
+  public void shouldClaimPendingNotificationsThatAreDueForRetry() {
+    PendingNotification due = pendingNotifications.get(0);
+    due.registerFailedAttempt();
+    due.retryAt(ZonedDateTime.now().minusMinutes(5));
+    repository.saveAndFlush(due);
+
+    List<PendingNotification> claimed = repository
+        .claimPendingNotifications(ZonedDateTime.now(), 1);
+
+    assertThat(claimed)
+        .extracting(PendingNotification::getId)
+        .containsExactly(due.getId());
+  }
+
+  @Test
+  public void shouldDeleteOnlyNotificationsClaimedByGivenOwner() {
+    PendingNotification leased = pendingNotifications.get(0);
+    leased.claim("owner", ZonedDateTime.now().plusMinutes(5));
+    repository.saveAndFlush(leased);
+
+    int deletedByOther = repository
+        .deleteClaimed(leased.getNotificationId(), leased.getChannel(), "other");
+    int deletedByOwner = repository
+        .deleteClaimed(leased.getNotificationId(), leased.getChannel(), "owner");
+
+    assertThat(deletedByOther).isZero();
+    assertThat(deletedByOwner).isOne();
+  }
+
 }
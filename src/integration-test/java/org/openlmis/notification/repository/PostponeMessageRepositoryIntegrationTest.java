@@ -17,17 +17,23 @@ package org.openlmis.notification.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import javax.persistence.EntityManager;
 import org.junit.Test;
 import org.openlmis.notification.domain.DigestConfiguration;
 import org.openlmis.notification.domain.PostponeMessage;
 import org.openlmis.notification.domain.UserContactDetails;
+import org.openlmis.notification.service.DigestSummary;
+import org.openlmis.notification.service.NotificationChannel;
 import org.openlmis.notification.testutils.DigestConfigurationDataBuilder;
 import org.openlmis.notification.testutils.PostponeMessageDataBuilder;
 import org.openlmis.notification.util.UserContactDetailsDataBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 public class PostponeMessageRepositoryIntegrationTest
     extends BaseCrudRepositoryIntegrationTest<PostponeMessage, UUID> {
@@ -44,6 +50,9 @@ public class PostponeMessageRepositoryIntegrationTest
   @Autowired
   private EntityManager entityManager;
 
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
   @Override
   CrudRepository<PostponeMessage, UUID> getRepository() {
     return repository;
@@ -81,4 +90,91 @@ public class PostponeMessageRepositoryIntegrationTest
     assertThat(configurationExists).isTrue();
   }
 
+  @Test
+  public void shouldFindChannelsOfPostponeMessagesOfUserAndConfiguration() {
+    // given
+    PostponeMessage message = repository.save(generateInstance());
+    repository.save(newMessage(message, NotificationChannel.SMS));
+    repository.save(newMessage(message, NotificationChannel.EMAIL));
+    repository.save(generateInstance());
+
+    // when
+    List<NotificationChannel> channels = repository
+        .findChannels(message.getUserId(), message.getConfiguration().getId());
+
+    // then
+    assertThat(channels).containsExactly(NotificationChannel.EMAIL, NotificationChannel.SMS);
+  }
+
+  @Test
+  public void shouldDrainPostponeMessagesOfUserConfigurationAndChannel() {
+    // given
+    PostponeMessage message = repository.save(generateInstance());
+    PostponeMessage other = repository.save(newMessage(message, NotificationChannel.EMAIL));
+    PostponeMessage sms = repository.save(newMessage(message, NotificationChannel.SMS));
+    PostponeMessage otherUser = repository.save(generateInstance());
+    entityManager.flush();
+    entityManager.clear();
+
+    // when
+    DigestSummary digest = repository.drain(message.getUserId(),
+        message.getConfiguration().getId(), NotificationChannel.EMAIL);
+
+    // then
+    assertThat(digest.getCount()).isEqualTo(2);
+    assertThat(digest.getSubject()).isIn(message.getSubject(), other.getSubject());
+
+    assertThat(repository.existsById(message.getId())).isFalse();
+    assertThat(repository.existsById(other.getId())).isFalse();
+    assertThat(repository.existsById(sms.getId())).isTrue();
+    assertThat(repository.existsById(otherUser.getId())).isTrue();
+  }
+
+  @Test
+  public void shouldReturnEmptySummaryIfThereAreNoPostponeMessagesToDrain() {
+    // when
+    DigestSummary digest = repository
+        .drain(UUID.randomUUID(), UUID.randomUUID(), NotificationChannel.EMAIL);
+
+    // then
+    assertThat(digest.getCount()).isZero();
+    assertThat(digest.getSubject()).isNull();
+  }
+
+  @Test
+  public void shouldLockDigestUntilTheEndOfTransaction() throws Exception {
+    // given
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    UUID userId = UUID.randomUUID();
+    UUID configurationId = UUID.randomUUID();
+
+    // when
+    boolean locked = repository.tryLockDigest(userId, configurationId);
+    boolean lockedAgain = repository.tryLockDigest(userId, configurationId);
+
+    // then
+    // other instances use their own connections so the lock is checked from another thread
+    Boolean lockedByOther = CompletableFuture
+        .supplyAsync(() -> transaction
+            .execute(status -> repository.tryLockDigest(userId, configurationId)))
+        .get();
+    Boolean otherLockedByOther = CompletableFuture
+        .supplyAsync(() -> transaction
+            .execute(status -> repository.tryLockDigest(userId, UUID.randomUUID())))
+        .get();
+
+    assertThat(locked).isTrue();
+    assertThat(lockedAgain).isTrue();
+    assertThat(lockedByOther).isFalse();
+    assertThat(otherLockedByOther).isTrue();
+  }
+
+  private PostponeMessage newMessage(PostponeMessage message, NotificationChannel channel) {
+    return new PostponeMessageDataBuilder()
+        .withConfiguration(message.getConfiguration())
+        .withUserId(message.getUserId())
+        .withChannel(channel)
+        .buildAsNew();
+  }
+
 }
@@ -0,0 +1,145 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlmis.notification.domain.DigestConfiguration;
+import org.openlmis.notification.domain.PostponedDigest;
+import org.openlmis.notification.domain.UserContactDetails;
+import org.openlmis.notification.service.DigestSummary;
+import org.openlmis.notification.service.NotificationChannel;
+import org.openlmis.notification.testutils.DigestConfigurationDataBuilder;
+import org.openlmis.notification.util.UserContactDetailsDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.repository.CrudRepository;
+
+public class PostponedDigestRepositoryIntegrationTest
+    extends BaseCrudRepositoryIntegrationTest<PostponedDigest, UUID> {
+
+  @Autowired
+  private DigestConfigurationRepository digestConfigurationRepository;
+
+  @Autowired
+  private UserContactDetailsRepository userContactDetailsRepository;
+
+  @Autowired
+  private PostponedDigestRepository repository;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  private UUID userId;
+  private UUID configurationId;
+
+  @Override
+  CrudRepository<PostponedDigest, UUID> getRepository() {
+    return repository;
+  }
+
+  @Override
+  PostponedDigest generateInstance() {
+    UserContactDetails contactDetails = new UserContactDetailsDataBuilder().build();
+    userContactDetailsRepository.save(contactDetails);
+
+    DigestConfiguration configuration = new DigestConfigurationDataBuilder().buildAsNew();
+    digestConfigurationRepository.save(configuration);
+
+    return new PostponedDigest(configuration, contactDetails.getReferenceDataUserId(),
+        NotificationChannel.EMAIL, 1, "subject", ZonedDateTime.now(), ZonedDateTime.now());
+  }
+
+  @Before
+  public void setUp() {
+    PostponedDigest digest = generateInstance();
+
+    userId = digest.getUserId();
+    configurationId = digest.getConfiguration().getId();
+  }
+
+  @Test
+  public void shouldAccumulatePostponeMessages() {
+    // when
+    repository.accumulate(userId, configurationId, NotificationChannel.EMAIL, "first");
+    repository.accumulate(userId, configurationId, NotificationChannel.EMAIL, "second");
+    repository.accumulate(userId, configurationId, NotificationChannel.SMS, null);
+    entityManager.clear();
+
+    // then
+    List<PostponedDigest> digests = repository.findAll();
+    assertThat(digests).hasSize(2);
+
+    PostponedDigest email = digests
+        .stream()
+        .filter(digest -> digest.getChannel() == NotificationChannel.EMAIL)
+        .findFirst()
+        .orElseThrow(IllegalStateException::new);
+
+    assertThat(email.getUserId()).isEqualTo(userId);
+    assertThat(email.getCount()).isEqualTo(2);
+    assertThat(email.getFirstSubject()).isEqualTo("first");
+    assertThat(email.getLastModifiedDate()).isAfterOrEqualTo(email.getCreatedDate());
+  }
+
+  @Test
+  public void shouldFindChannelsOfAccumulatedPostponeMessages() {
+    // given
+    repository.accumulate(userId, configurationId, NotificationChannel.SMS, null);
+    repository.accumulate(userId, configurationId, NotificationChannel.EMAIL, "subject");
+    UUID otherUserId = generateInstance().getUserId();
+    repository.accumulate(otherUserId, configurationId, NotificationChannel.EMAIL, null);
+
+    // when
+    List<NotificationChannel> channels = repository.findChannels(userId, configurationId);
+
+    // then
+    assertThat(channels).containsExactly(NotificationChannel.EMAIL, NotificationChannel.SMS);
+  }
+
+  @Test
+  public void shouldDrainAccumulatedPostponeMessages() {
+    // given
+    repository.accumulate(userId, configurationId, NotificationChannel.EMAIL, "first");
+    repository.accumulate(userId, configurationId, NotificationChannel.EMAIL, "second");
+    repository.accumulate(userId, configurationId, NotificationChannel.SMS, null);
+
+    // when
+    DigestSummary digest = repository
+        .drain(userId, configurationId, NotificationChannel.EMAIL);
+
+    // then
+    assertThat(digest).isEqualTo(new DigestSummary(2, "first"));
+    assertThat(repository.findChannels(userId, configurationId))
+        .containsExactly(NotificationChannel.SMS);
+  }
+
+  @Test
+  public void shouldReturnEmptySummaryIfThereAreNoAccumulatedPostponeMessages() {
+    // when
+    DigestSummary digest = repository
+        .drain(userId, configurationId, NotificationChannel.EMAIL);
+
+    // then
+    assertThat(digest).isEqualTo(new DigestSummary(0, null));
+  }
+
+}
@@ -50,6 +50,7 @@ import org.openlmis.notification.repository.DigestSubscriptionRepository;
 import org.openlmis.notification.repository.NotificationRepository;
 import org.openlmis.notification.repository.PendingNotificationRepository;
 import org.openlmis.notification.repository.UserContactDetailsRepository;
+import org.openlmis.notification.service.referencedata.TogglzFeatureCache;
 import org.openlmis.notification.service.referencedata.TogglzFeatureDto;
 import org.openlmis.notification.service.referencedata.TogglzReferenceDataService;
 import org.openlmis.notification.testutils.DigestConfigurationDataBuilder;
@@ -98,6 +99,12 @@ public class NotificationToSendFlowIntegrationTest {
   @MockBean
   private TogglzReferenceDataService togglzReferenceDataService;
 
+  @Autowired
+  private TogglzFeatureCache togglzFeatureCache;
+
+  @Autowired
+  private DigestConfigurationRegistry digestConfigurationRegistry;
+
   @Autowired
   private NotificationRepository notificationRepository;
 
@@ -116,6 +123,9 @@ public class NotificationToSendFlowIntegrationTest {
   @Autowired
   private NotificationToSendRetriever retriever;
 
+  @Autowired
+  private PendingNotificationService pendingNotificationService;
+
   @Autowired
   private EntityManager entityManager;
 
@@ -147,8 +157,10 @@ public class NotificationToSendFlowIntegrationTest {
   public void setUp() {
     TransactionTemplate template = new TransactionTemplate(transactionManager);
     template.execute(new DatabaseInitializer());
+    digestConfigurationRegistry.refresh();
 
     given(togglzReferenceDataService.findAll()).willReturn(Lists.newArrayList(digestFeature));
+    togglzFeatureCache.invalidate();
   }
 
   @After
@@ -330,6 +342,10 @@ public class NotificationToSendFlowIntegrationTest {
     private void retrieveFirstPendingNotification() {
       message = retriever.retrieve();
 
+      // the poller acknowledges the notification once the flow has handled it
+      pendingNotificationService.acknowledge(message.getPayload().getId(),
+          message.getHeaders().get(CHANNEL_TO_USE_HEADER, NotificationChannel.class));
+
       correctContactDetails = userContactDetails
           .stream()
           .filter(details -> Objects.equals(message.getPayload().getUserId(), details.getId()))
@@ -0,0 +1,75 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.web;
+
+import static org.hamcrest.Matchers.containsString;
+
+import com.jayway.restassured.RestAssured;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+public class ActuatorIntegrationTest extends BaseWebIntegrationTest {
+
+  private static final String PROMETHEUS_URL = "/actuator/prometheus";
+  private static final String METRICS_URL = "/actuator/metrics";
+
+  @Test
+  public void shouldReturnPrometheusMetricsForServiceToken() {
+    RestAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, SERVICE_ACCESS_TOKEN_HEADER)
+        .when()
+        .get(PROMETHEUS_URL)
+        .then()
+        .statusCode(HttpStatus.OK.value())
+        .body(containsString("jvm_memory_used_bytes"));
+  }
+
+  @Test
+  public void shouldReturnMetricNamesForServiceToken() {
+    RestAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, SERVICE_ACCESS_TOKEN_HEADER)
+        .when()
+        .get(METRICS_URL)
+        .then()
+        .statusCode(HttpStatus.OK.value())
+        .body(containsString("notification.user.cache.requests"));
+  }
+
+  @Test
+  public void shouldNotReturnMetricsForUserToken() {
+    RestAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, USER_ACCESS_TOKEN_HEADER)
+        .when()
+        .get(PROMETHEUS_URL)
+        .then()
+        .statusCode(HttpStatus.FORBIDDEN.value());
+  }
+
+  @Test
+  public void shouldNotReturnMetricsWithoutToken() {
+    RestAssured
+        .given()
+        .when()
+        .get(METRICS_URL)
+        .then()
+        .statusCode(HttpStatus.UNAUTHORIZED.value());
+  }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.web.failednotification;
+
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willDoNothing;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.verify;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_FAILED_NOTIFICATION_NOT_FOUND;
+import static org.openlmis.notification.i18n.MessageKeys.PERMISSION_MISSING;
+
+import guru.nidi.ramltester.junit.RamlMatchers;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import org.apache.http.HttpStatus;
+import org.assertj.core.util.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlmis.notification.domain.FailedNotification;
+import org.openlmis.notification.domain.Notification;
+import org.openlmis.notification.domain.PendingNotification;
+import org.openlmis.notification.service.NotificationChannel;
+import org.openlmis.notification.util.NotificationDataBuilder;
+import org.openlmis.notification.web.BaseWebIntegrationTest;
+import org.openlmis.notification.web.MissingPermissionException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+@SuppressWarnings({"PMD.TooManyMethods"})
+public class FailedNotificationControllerIntegrationTest extends BaseWebIntegrationTest {
+
+  private static final String RESOURCE_URL = "/api/failedNotifications";
+  private static final String REQUEUE_URL = RESOURCE_URL + "/{id}/requeue";
+
+  private Notification notification = new NotificationDataBuilder()
+      .withEmptyMessage(NotificationChannel.EMAIL)
+      .build();
+
+  private FailedNotification failedNotification = new FailedNotification(
+      new PendingNotification(notification, NotificationChannel.EMAIL), ZonedDateTime.now());
+
+  private UUID failedNotificationId = UUID.randomUUID();
+
+  @Before
+  public void setUp() {
+    failedNotification.setId(failedNotificationId);
+
+    given(failedNotificationRepository.findAll(any(Pageable.class)))
+        .willReturn(new PageImpl<>(Lists.newArrayList(failedNotification)));
+    given(failedNotificationRepository.findById(failedNotificationId))
+        .willReturn(Optional.of(failedNotification));
+
+    willDoNothing().given(permissionService).canManageFailedNotifications();
+  }
+
+  @Test
+  public void shouldGetFailedNotifications() {
+    // when
+    startUserRequest()
+        .when()
+        .get(RESOURCE_URL)
+        .then()
+        .statusCode(HttpStatus.SC_OK)
+        .body("content", hasSize(1))
+        .body("content.id", hasItems(failedNotificationId.toString()))
+        .body("content.notificationId", hasItems(notification.getId().toString()));
+
+    // then
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnUnauthorizedForGetFailedNotificationsIfTokenIsInvalid() {
+    // when
+    startRequest(null)
+        .when()
+        .get(RESOURCE_URL)
+        .then()
+        .statusCode(HttpStatus.SC_UNAUTHORIZED);
+
+    // then
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnForbiddenForGetFailedNotificationsIfUserHasNoCorrectRight() {
+    // given
+    MissingPermissionException exception = new MissingPermissionException("test");
+    willThrow(exception).given(permissionService).canManageFailedNotifications();
+
+    // when
+    startUserRequest()
+        .when()
+        .get(RESOURCE_URL)
+        .then()
+        .statusCode(HttpStatus.SC_FORBIDDEN)
+        .body(MESSAGE_KEY, is(PERMISSION_MISSING));
+
+    // then
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldRequeueFailedNotification() {
+    // when
+    startUserRequest()
+        .pathParam("id", failedNotificationId)
+        .when()
+        .post(REQUEUE_URL)
+        .then()
+        .statusCode(HttpStatus.SC_OK);
+
+    // then
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+    verify(pendingNotificationRepository).save(any(PendingNotification.class));
+    verify(failedNotificationRepository).delete(failedNotification);
+  }
+
+  @Test
+  public void shouldReturnUnauthorizedForRequeueIfTokenIsInvalid() {
+    // when
+    startRequest(null)
+        .pathParam("id", failedNotificationId)
+        .when()
+        .post(REQUEUE_URL)
+        .then()
+        .statusCode(HttpStatus.SC_UNAUTHORIZED);
+
+    // then
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnForbiddenForRequeueIfUserHasNoCorrectRight() {
+    // given
+    MissingPermissionException exception = new MissingPermissionException("test");
+    willThrow(exception).given(permissionService).canManageFailedNotifications();
+
+    // when
+    startUserRequest()
+        .pathParam("id", failedNotificationId)
+        .when()
+        .post(REQUEUE_URL)
+        .then()
+        .statusCode(HttpStatus.SC_FORBIDDEN)
+        .body(MESSAGE_KEY, is(PERMISSION_MISSING));
+
+    // then
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnNotFoundForRequeueIfFailedNotificationDoesNotExist() {
+    // given
+    given(failedNotificationRepository.findById(failedNotificationId))
+        .willReturn(Optional.empty());
+
+    // when
+    startUserRequest()
+        .pathParam("id", failedNotificationId)
+        .when()
+        .post(REQUEUE_URL)
+        .then()
+        .statusCode(HttpStatus.SC_NOT_FOUND)
+        .body(MESSAGE_KEY, is(ERROR_FAILED_NOTIFICATION_NOT_FOUND));
+
+    // then
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.web.notification;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_BROADCAST_REQUEST_RECIPIENTS_EMPTY;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_USER_CONTACT_DETAILS_NOT_FOUND;
+import static org.openlmis.notification.i18n.MessageKeys.PERMISSION_MISSING_GENERIC;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+import com.google.common.collect.ImmutableMap;
+import com.jayway.restassured.response.Response;
+import guru.nidi.ramltester.junit.RamlMatchers;
+import java.util.Collections;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlmis.notification.domain.AudienceFanOut;
+import org.openlmis.notification.domain.Broadcast;
+import org.openlmis.notification.i18n.Message;
+import org.openlmis.notification.service.AudienceFanOutService;
+import org.openlmis.notification.service.BroadcastService;
+import org.openlmis.notification.service.NotificationService;
+import org.openlmis.notification.web.BaseWebIntegrationTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+public class BroadcastControllerIntegrationTest extends BaseWebIntegrationTest {
+
+  private static final String RESOURCE_URL = "/api/broadcasts";
+  private static final UUID VALID_RECIPIENT = UUID.randomUUID();
+  private static final UUID INVALID_RECIPIENT = UUID.randomUUID();
+
+  @MockBean
+  private NotificationService notificationService;
+
+  @MockBean
+  private BroadcastService broadcastService;
+
+  @MockBean
+  private AudienceFanOutService audienceFanOutService;
+
+  private BroadcastDto broadcast = new BroadcastDto();
+
+  @Before
+  public void setUp() {
+    broadcast.getRecipients().add(VALID_RECIPIENT);
+    broadcast.getRecipients().add(INVALID_RECIPIENT);
+    broadcast.addMessage("email", new MessageDto("subject", "body", null, null));
+
+    given(notificationService.findInvalidRecipients(any())).willReturn(ImmutableMap.of(
+        INVALID_RECIPIENT, new Message(ERROR_USER_CONTACT_DETAILS_NOT_FOUND)));
+    given(broadcastService.send(any(Broadcast.class), any())).willAnswer(invocation -> {
+      Broadcast saved = invocation.getArgument(0);
+      saved.setId(UUID.randomUUID());
+      return Collections.emptyList();
+    });
+    given(audienceFanOutService.send(any(Broadcast.class), any())).willAnswer(invocation -> {
+      Broadcast saved = invocation.getArgument(0);
+      saved.setId(UUID.randomUUID());
+      return new AudienceFanOut(saved, invocation.getArgument(1));
+    });
+  }
+
+  @Test
+  public void shouldSendBroadcastToValidRecipients() {
+    send(SERVICE_ACCESS_TOKEN_HEADER)
+        .then()
+        .statusCode(200)
+        .body("id", is(notNullValue()))
+        .body("recipientCount", is(1))
+        .body("rejectedRecipients." + INVALID_RECIPIENT + ".messageKey",
+            is(ERROR_USER_CONTACT_DETAILS_NOT_FOUND));
+
+    verify(broadcastService)
+        .send(any(Broadcast.class), eq(Collections.singletonList(VALID_RECIPIENT)));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldSendBroadcastOnceToDuplicatedRecipient() {
+    String body = "{\"recipients\": [\"" + VALID_RECIPIENT + "\", \"" + VALID_RECIPIENT
+        + "\"], \"messages\": {\"email\": {\"subject\": \"subject\", \"body\": \"body\"}}}";
+
+    startRequest(SERVICE_ACCESS_TOKEN_HEADER)
+        .header(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+        .body(body)
+        .when()
+        .post(RESOURCE_URL)
+        .then()
+        .statusCode(200)
+        .body("recipientCount", is(1));
+
+    verify(broadcastService)
+        .send(any(Broadcast.class), eq(Collections.singletonList(VALID_RECIPIENT)));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldNotSaveBroadcastIfThereAreNoValidRecipients() {
+    broadcast.getRecipients().remove(VALID_RECIPIENT);
+
+    send(SERVICE_ACCESS_TOKEN_HEADER)
+        .then()
+        .statusCode(200)
+        .body("id", is(nullValue()))
+        .body("recipientCount", is(0));
+
+    verify(broadcastService, never()).send(any(Broadcast.class), any());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldAcceptBroadcastToAudience() {
+    AudienceDto audience = new AudienceDto(UUID.randomUUID(), UUID.randomUUID(), null, null);
+    broadcast.getRecipients().clear();
+    broadcast.setAudience(audience);
+
+    send(SERVICE_ACCESS_TOKEN_HEADER)
+        .then()
+        .statusCode(202)
+        .body("id", is(notNullValue()))
+        .body("recipientCount", is(0));
+
+    verify(audienceFanOutService).send(any(Broadcast.class), eq(audience));
+    verify(broadcastService, never()).send(any(Broadcast.class), any());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldNotSendBroadcastWithoutRecipients() {
+    broadcast.getRecipients().clear();
+
+    send(SERVICE_ACCESS_TOKEN_HEADER)
+        .then()
+        .statusCode(400)
+        .body(MESSAGE_KEY, is(ERROR_BROADCAST_REQUEST_RECIPIENTS_EMPTY));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.validates());
+  }
+
+  @Test
+  public void shouldNotSendBroadcastForUserRequest() {
+    send(USER_ACCESS_TOKEN_HEADER)
+        .then()
+        .statusCode(403)
+        .body(MESSAGE_KEY, is(PERMISSION_MISSING_GENERIC));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.validates());
+  }
+
+  private Response send(String token) {
+    return startRequest(token)
+        .header(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+        .body(broadcast)
+        .when()
+        .post(RESOURCE_URL);
+  }
+
+}
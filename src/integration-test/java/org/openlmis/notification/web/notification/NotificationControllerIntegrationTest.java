@@ -17,26 +17,43 @@ package org.openlmis.notification.web.notification;
 
 import static java.util.Collections.singletonList;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_NOTIFICATION_NOT_FOUND;
 import static org.openlmis.notification.i18n.MessageKeys.ERROR_NOTIFICATION_REQUEST_FIELD_REQUIRED;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_USER_CONTACT_DETAILS_NOT_FOUND;
 import static org.openlmis.notification.i18n.MessageKeys.PERMISSION_MISSING_GENERIC;
 import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 import com.jayway.restassured.response.Response;
 import guru.nidi.ramltester.junit.RamlMatchers;
+import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import org.assertj.core.util.Lists;
 import org.junit.Before;
 import org.junit.Test;
+import org.openlmis.notification.domain.Broadcast;
+import org.openlmis.notification.domain.BroadcastMessage;
 import org.openlmis.notification.domain.Notification;
+import org.openlmis.notification.domain.NotificationIntake;
+import org.openlmis.notification.domain.NotificationMessage;
 import org.openlmis.notification.domain.UserContactDetails;
+import org.openlmis.notification.i18n.Message;
+import org.openlmis.notification.repository.NotificationIntakeRepository;
 import org.openlmis.notification.repository.NotificationRepository;
+import org.openlmis.notification.service.BroadcastService;
 import org.openlmis.notification.service.NotificationChannel;
 import org.openlmis.notification.service.PageDto;
+import org.openlmis.notification.service.referencedata.UserCache;
 import org.openlmis.notification.service.referencedata.UserDto;
 import org.openlmis.notification.service.referencedata.UserReferenceDataService;
 import org.openlmis.notification.testutils.UserDataBuilder;
@@ -53,6 +70,7 @@ import org.springframework.http.MediaType;
 @SuppressWarnings("PMD.TooManyMethods")
 public class NotificationControllerIntegrationTest extends BaseWebIntegrationTest {
   private static final String RESOURCE_URL = "/api/notifications";
+  private static final String BATCH_URL = RESOURCE_URL + "/batch";
   private static final UUID USER_ID = UUID.randomUUID();
   private static final String SUBJECT = "subject";
   private static final String CONTENT = "content";
@@ -60,9 +78,18 @@ public class NotificationControllerIntegrationTest extends BaseWebIntegrationTes
   @MockBean
   private NotificationRepository notificationRepository;
 
+  @MockBean
+  private NotificationIntakeRepository notificationIntakeRepository;
+
   @MockBean
   private UserReferenceDataService userReferenceDataService;
 
+  @MockBean
+  private UserCache userCache;
+
+  @MockBean
+  private BroadcastService broadcastService;
+
   private UserContactDetails contactDetails = new UserContactDetailsDataBuilder()
       .withReferenceDataUserId(USER_ID)
       .build();
@@ -81,7 +108,7 @@ public class NotificationControllerIntegrationTest extends BaseWebIntegrationTes
     
     given(userContactDetailsRepository.findById(USER_ID))
         .willReturn(Optional.of(contactDetails));
-    given(userReferenceDataService.findOne(USER_ID)).willReturn(user);
+    given(userCache.findOne(USER_ID)).willReturn(user);
   }
 
   @Test
@@ -95,6 +122,26 @@ public class NotificationControllerIntegrationTest extends BaseWebIntegrationTes
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldAcceptNotificationAsynchronously() {
+    given(notificationRepository.saveAndFlush(any(Notification.class))).willAnswer(invocation -> {
+      Notification saved = invocation.getArgument(0);
+      saved.setId(UUID.randomUUID());
+      return saved;
+    });
+
+    send(SERVICE_ACCESS_TOKEN_HEADER, true)
+        .then()
+        .statusCode(202)
+        .body("id", is(notNullValue()))
+        .body("error", is(nullValue()));
+
+    verify(notificationIntakeRepository).add(any(UUID.class), any(ZonedDateTime.class));
+    verify(userCache, never()).findOne(any(UUID.class));
+    verify(pendingNotificationRepository, never()).saveAll(any());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   @Test
   public void shouldNotSendMessageForInvalidNotification() {
     notification = new NotificationDataBuilder()
@@ -129,9 +176,47 @@ public class NotificationControllerIntegrationTest extends BaseWebIntegrationTes
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.validates());
   }
   
+  @Test
+  public void shouldSendNotificationsInBatch() {
+    given(userContactDetailsRepository.findAllById(any()))
+        .willReturn(Lists.newArrayList(contactDetails));
+    given(userReferenceDataService.findByIds(any()))
+        .willReturn(Lists.newArrayList(new UserDataBuilder().withId(USER_ID).build()));
+    given(notificationRepository.saveAll(any())).willAnswer(invocation -> {
+      List<Notification> saved = invocation.getArgument(0);
+      saved.forEach(notification -> notification.setId(UUID.randomUUID()));
+      return saved;
+    });
+
+    Notification invalid = new NotificationDataBuilder()
+        .withUserId(USER_ID)
+        .withMessage(NotificationChannel.EMAIL, null, SUBJECT)
+        .build();
+
+    sendBatch(SERVICE_ACCESS_TOKEN_HEADER, notification, invalid)
+        .then()
+        .statusCode(200)
+        .body("[0].id", is(notNullValue()))
+        .body("[0].error", is(nullValue()))
+        .body("[1].id", is(nullValue()))
+        .body("[1].error.messageKey", is(ERROR_NOTIFICATION_REQUEST_FIELD_REQUIRED));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldNotSendNotificationsInBatchForUserRequest() {
+    sendBatch(USER_ACCESS_TOKEN_HEADER, notification)
+        .then()
+        .statusCode(403)
+        .body(MESSAGE_KEY, is(PERMISSION_MISSING_GENERIC));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.validates());
+  }
+
   @Test
   public void getCollectionShouldGetPageOfNotifications() {
-    given(notificationRepository.findAll(any(Pageable.class)))
+    given(notificationRepository.findAllByInIntakeFalse(any(Pageable.class)))
         .willReturn(Pagination.getPage(singletonList(notification), pageRequest));
 
     PageDto notificationPage = startRequest(USER_ACCESS_TOKEN_HEADER)
@@ -146,6 +231,102 @@ public class NotificationControllerIntegrationTest extends BaseWebIntegrationTes
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void getCollectionShouldReturnMessagesOfBroadcastNotifications() {
+    Broadcast broadcast = new Broadcast(Lists.newArrayList(
+        new BroadcastMessage(NotificationChannel.EMAIL, CONTENT, SUBJECT, null)), false);
+    broadcast.setId(UUID.randomUUID());
+    Notification broadcastNotification = new Notification(USER_ID, broadcast);
+    broadcastNotification.setId(UUID.randomUUID());
+
+    given(notificationRepository.findAllByInIntakeFalse(any(Pageable.class)))
+        .willReturn(Pagination.getPage(singletonList(broadcastNotification), pageRequest));
+    given(broadcastService.getMessages(broadcast.getId()))
+        .willReturn(singletonList(new NotificationMessage(NotificationChannel.EMAIL, CONTENT,
+            SUBJECT)));
+
+    startRequest(USER_ACCESS_TOKEN_HEADER)
+        .when()
+        .get(RESOURCE_URL)
+        .then()
+        .statusCode(200)
+        .body("content[0].messages.email.body", is(CONTENT))
+        .body("content[0].messages.email.subject", is(SUBJECT));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnPendingStatusOfAcceptedNotification() {
+    given(notificationIntakeRepository.findById(notification.getId()))
+        .willReturn(Optional.of(new NotificationIntake(notification.getId(),
+            ZonedDateTime.now())));
+
+    getStatus(SERVICE_ACCESS_TOKEN_HEADER)
+        .then()
+        .statusCode(200)
+        .body("id", is(notification.getId().toString()))
+        .body("status", is("PENDING"))
+        .body("error", is(nullValue()));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnRejectedStatusWithReason() {
+    NotificationIntake intake = new NotificationIntake(notification.getId(), ZonedDateTime.now());
+    intake.reject(new Message(ERROR_USER_CONTACT_DETAILS_NOT_FOUND), ZonedDateTime.now());
+    given(notificationIntakeRepository.findById(notification.getId()))
+        .willReturn(Optional.of(intake));
+
+    getStatus(SERVICE_ACCESS_TOKEN_HEADER)
+        .then()
+        .statusCode(200)
+        .body("status", is("REJECTED"))
+        .body("error.messageKey", is(ERROR_USER_CONTACT_DETAILS_NOT_FOUND));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnAcceptedStatusOfProcessedNotification() {
+    given(notificationIntakeRepository.findById(notification.getId()))
+        .willReturn(Optional.empty());
+    given(notificationRepository.existsById(notification.getId())).willReturn(true);
+
+    getStatus(SERVICE_ACCESS_TOKEN_HEADER)
+        .then()
+        .statusCode(200)
+        .body("status", is("ACCEPTED"))
+        .body("error", is(nullValue()));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnNotFoundStatusOfMissingNotification() {
+    given(notificationIntakeRepository.findById(notification.getId()))
+        .willReturn(Optional.empty());
+    given(notificationRepository.existsById(notification.getId())).willReturn(false);
+
+    getStatus(SERVICE_ACCESS_TOKEN_HEADER)
+        .then()
+        .statusCode(404)
+        .body(MESSAGE_KEY, is(ERROR_NOTIFICATION_NOT_FOUND));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.validates());
+  }
+
+  @Test
+  public void shouldNotReturnStatusForUserRequest() {
+    getStatus(USER_ACCESS_TOKEN_HEADER)
+        .then()
+        .statusCode(403)
+        .body(MESSAGE_KEY, is(PERMISSION_MISSING_GENERIC));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.validates());
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void shouldNotAllowPaginationWithZeroSize() {
     Pageable page = PageRequest.of(0, 0);
@@ -174,14 +355,42 @@ public class NotificationControllerIntegrationTest extends BaseWebIntegrationTes
   }
 
   private Response send(String token) {
+    return send(token, false);
+  }
+
+  private Response send(String token, boolean async) {
     NotificationDto body = new NotificationDto();
     notification.export(body);
 
     return startRequest(token)
         .header(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+        .queryParam("async", async)
         .body(body)
         .when()
         .post(RESOURCE_URL);
   }
 
+  private Response getStatus(String token) {
+    return startRequest(token)
+        .pathParam("id", notification.getId())
+        .when()
+        .get(RESOURCE_URL + "/{id}/status");
+  }
+
+  private Response sendBatch(String token, Notification... notifications) {
+    List<NotificationDto> body = Lists.newArrayList();
+
+    for (Notification item : notifications) {
+      NotificationDto dto = new NotificationDto();
+      item.export(dto);
+      body.add(dto);
+    }
+
+    return startRequest(token)
+        .header(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+        .body(body)
+        .when()
+        .post(BATCH_URL);
+  }
+
 }
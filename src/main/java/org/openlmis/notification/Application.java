@@ -18,12 +18,16 @@ package org.openlmis.notification;
 import com.google.common.collect.Lists;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadPoolExecutor;
 import org.aopalliance.aop.Advice;
 import org.flywaydb.core.Flyway;
 import org.flywaydb.core.api.callback.Callback;
 import org.openlmis.notification.domain.Identifiable;
 import org.openlmis.notification.i18n.ExposedMessageSourceImpl;
+import org.openlmis.notification.service.DigestTrigger;
+import org.openlmis.notification.service.PendingNotificationAcknowledger;
+import org.openlmis.notification.service.PendingNotificationTrigger;
+import org.openlmis.notification.service.PostponeMessageRetriever;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -31,17 +35,18 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Profile;
 import org.springframework.integration.config.EnableIntegration;
 import org.springframework.integration.scheduling.PollerMetadata;
+import org.springframework.integration.transaction.DefaultTransactionSynchronizationFactory;
+import org.springframework.integration.transaction.PseudoTransactionManager;
 import org.springframework.scheduling.annotation.EnableAsync;
-import org.springframework.scheduling.support.PeriodicTrigger;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.interceptor.MatchAlwaysTransactionAttributeSource;
 import org.springframework.transaction.interceptor.TransactionInterceptor;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.servlet.LocaleResolver;
 import org.springframework.web.servlet.i18n.CookieLocaleResolver;
 
@@ -49,6 +54,7 @@ import org.springframework.web.servlet.i18n.CookieLocaleResolver;
 @EntityScan(basePackageClasses = {Identifiable.class})
 @EnableAsync
 @EnableIntegration
+@EnableScheduling
 public class Application {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(Application.class);
@@ -56,6 +62,15 @@ public class Application {
   @Value("${defaultLocale}")
   private Locale locale;
 
+  @Value("${notificationToSend.workers}")
+  private int notificationToSendWorkers;
+
+  @Value("${notificationToSend.batchSize}")
+  private int notificationToSendBatchSize;
+
+  @Value("${digest.batchSize}")
+  private int digestBatchSize;
+
   public static void main(String[] args) {
     System.setProperty("mail.mime.splitlongparameters", "false");
     SpringApplication.run(Application.class, args);
@@ -112,27 +127,62 @@ public class Application {
   }
 
   /**
-   * Creates a metadata that will be used to create a default poller.
+   * Creates a metadata that will be used to create a default poller. Each poll cycle is executed
+   * by one of the notification workers and drains up to the batch size of pending notifications.
+   * Polls claim notifications when new pending notifications are added, right after a poll that
+   * claimed a full batch and in the idle interval. Notifications are sent outside of any database
+   * transaction; the pseudo transaction is only used to acknowledge a notification or record its
+   * failure when it has been handled.
    */
   @Bean(name = PollerMetadata.DEFAULT_POLLER)
-  public PollerMetadata defaultPoller(PlatformTransactionManager transactionManager) {
+  public PollerMetadata defaultPoller(PendingNotificationAcknowledger acknowledger,
+      PendingNotificationTrigger trigger) {
     List<Advice> adviceChain = Lists.newArrayList();
-    adviceChain.add(new TransactionInterceptor(transactionManager,
+    adviceChain.add(new TransactionInterceptor(new PseudoTransactionManager(),
         new MatchAlwaysTransactionAttributeSource()));
 
-    PeriodicTrigger trigger = new PeriodicTrigger(1, TimeUnit.SECONDS);
-    trigger.setFixedRate(false);
-    trigger.setInitialDelay(0);
+    PollerMetadata metadata = new PollerMetadata();
+    metadata.setAdviceChain(adviceChain);
+    metadata.setTrigger(trigger);
+    metadata.setMaxMessagesPerPoll(notificationToSendBatchSize);
+    metadata.setTaskExecutor(notificationToSendExecutor());
+    metadata.setTransactionSynchronizationFactory(
+        new DefaultTransactionSynchronizationFactory(acknowledger));
+
+    return metadata;
+  }
+
+  /**
+   * Creates a metadata of the poller that sends due digests. Each digest is retrieved and sent in
+   * its own transaction, so the postponed messages of a digest are only removed when the digest
+   * has been sent. Polls are executed when the earliest scheduled digest becomes due.
+   */
+  @Bean(name = PostponeMessageRetriever.DIGEST_POLLER)
+  public PollerMetadata digestPoller(PlatformTransactionManager transactionManager,
+      DigestTrigger trigger) {
+    List<Advice> adviceChain = Lists.newArrayList();
+    adviceChain.add(new TransactionInterceptor(transactionManager,
+        new MatchAlwaysTransactionAttributeSource()));
 
     PollerMetadata metadata = new PollerMetadata();
     metadata.setAdviceChain(adviceChain);
     metadata.setTrigger(trigger);
+    metadata.setMaxMessagesPerPoll(digestBatchSize);
 
     return metadata;
   }
 
-  @Bean
-  public RestTemplate restTemplate(RestTemplateBuilder builder) {
-    return builder.build();
+  private ThreadPoolTaskExecutor notificationToSendExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(notificationToSendWorkers);
+    executor.setMaxPoolSize(notificationToSendWorkers);
+    executor.setQueueCapacity(notificationToSendWorkers);
+    executor.setThreadNamePrefix("notification-to-send-");
+    executor.setDaemon(true);
+    // all workers are busy so the next trigger will try again
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+    executor.initialize();
+
+    return executor;
   }
 }
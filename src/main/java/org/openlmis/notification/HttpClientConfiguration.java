@@ -0,0 +1,116 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Configures the HTTP client used for all requests to other services (reference data, auth and
+ * the SMS API). Connections are kept alive in a pool per host and reused, so requests do not
+ * wait for a new TCP connection (and TLS handshake) each time. The
+ * {@code notification.http.pool.connections} metric shows how many connections are leased,
+ * available and pending.
+ */
+@Configuration
+public class HttpClientConfiguration {
+
+  static final String CONNECTIONS_METRIC = "notification.http.pool.connections";
+  static final String MAX_CONNECTIONS_METRIC = "notification.http.pool.max";
+
+  /**
+   * Creates the pool of connections and registers its metrics.
+   */
+  @Bean(destroyMethod = "shutdown")
+  public PoolingHttpClientConnectionManager httpConnectionManager(MeterRegistry meterRegistry,
+      @Value("${http.client.maxConnections}") int maxConnections,
+      @Value("${http.client.maxConnectionsPerHost}") int maxConnectionsPerHost) {
+    PoolingHttpClientConnectionManager connectionManager =
+        new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(maxConnections);
+    connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+
+    registerGauge(meterRegistry, connectionManager, "leased", PoolStats::getLeased);
+    registerGauge(meterRegistry, connectionManager, "available", PoolStats::getAvailable);
+    registerGauge(meterRegistry, connectionManager, "pending", PoolStats::getPending);
+
+    Gauge
+        .builder(MAX_CONNECTIONS_METRIC, connectionManager,
+            manager -> manager.getTotalStats().getMax())
+        .description("Maximum number of connections to other services")
+        .register(meterRegistry);
+
+    return connectionManager;
+  }
+
+  /**
+   * Creates the HTTP client that uses the pool of connections.
+   */
+  @Bean(destroyMethod = "close")
+  public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager connectionManager,
+      @Value("${http.client.connectTimeoutMillis}") int connectTimeoutMillis,
+      @Value("${http.client.readTimeoutMillis}") int readTimeoutMillis,
+      @Value("${http.client.connectionRequestTimeoutMillis}") int connectionRequestTimeoutMillis,
+      @Value("${http.client.idleConnectionTimeoutSeconds}") long idleConnectionTimeoutSeconds) {
+    RequestConfig requestConfig = RequestConfig
+        .custom()
+        .setConnectTimeout(connectTimeoutMillis)
+        .setSocketTimeout(readTimeoutMillis)
+        .setConnectionRequestTimeout(connectionRequestTimeoutMillis)
+        .build();
+
+    return HttpClients
+        .custom()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(requestConfig)
+        // connections closed by the other side are removed before they are reused
+        .evictExpiredConnections()
+        .evictIdleConnections(idleConnectionTimeoutSeconds, TimeUnit.SECONDS)
+        .build();
+  }
+
+  @Bean
+  public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient httpClient) {
+    return builder
+        .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
+        .build();
+  }
+
+  private void registerGauge(MeterRegistry meterRegistry,
+      PoolingHttpClientConnectionManager connectionManager, String state,
+      ToDoubleFunction<PoolStats> value) {
+    Gauge
+        .builder(CONNECTIONS_METRIC, connectionManager,
+            manager -> value.applyAsDouble(manager.getTotalStats()))
+        .tag("state", state)
+        .description("Number of connections to other services")
+        .register(meterRegistry);
+  }
+
+}
@@ -59,6 +59,9 @@ public class ResourceServerSecurityConfiguration implements ResourceServerConfig
   @Value("${cors.allowedMethods}")
   private String[] allowedMethods;
 
+  @Value("${auth.server.clientId}")
+  private String serviceTokenClientId;
+
   @Override
   public void configure(ResourceServerSecurityConfigurer resources) throws Exception {
     resources.resourceId("notification");
@@ -91,6 +94,13 @@ public class ResourceServerSecurityConfiguration implements ResourceServerConfig
             "/notification/docs/**",
             "/api/userContactDetails/*/verifications/*"
         ).permitAll()
+        // metrics can only be read with a service token
+        .antMatchers(
+            "/actuator/metrics",
+            "/actuator/metrics/**",
+            "/actuator/prometheus"
+        ).access("#oauth2.isClient() and authentication.getOAuth2Request().getClientId() == '"
+            + serviceTokenClientId + "'")
         .antMatchers("/**").fullyAuthenticated();
   }
 
@@ -99,6 +109,9 @@ public class ResourceServerSecurityConfiguration implements ResourceServerConfig
    * @param checkTokenUrl url to check tokens against
    * @param clientId client's id
    * @param clientSecret client's secret
+   * @param invalidTokenRetryLimit how many times an invalid token is checked again
+   * @param tokenCacheMaxSize the maximum number of valid tokens kept in memory
+   * @param tokenCacheTimeToLiveSeconds the maximum time a valid token is kept in memory
    * @return token services
    */
   @Bean
@@ -107,8 +120,11 @@ public class ResourceServerSecurityConfiguration implements ResourceServerConfig
       @Value("${auth.server.url}") String checkTokenUrl,
       @Value("${auth.server.clientId}") String clientId,
       @Value("${auth.server.clientSecret}") String clientSecret,
-      @Value("${auth.server.invalidToken.retryLimit}") int invalidTokenRetryLimit) {
-    final RemoteTokenServices remoteTokenServices = new CustomTokenServices(invalidTokenRetryLimit);
+      @Value("${auth.server.invalidToken.retryLimit}") int invalidTokenRetryLimit,
+      @Value("${auth.server.tokenCache.maxSize}") long tokenCacheMaxSize,
+      @Value("${auth.server.tokenCache.timeToLiveSeconds}") long tokenCacheTimeToLiveSeconds) {
+    final RemoteTokenServices remoteTokenServices = new CustomTokenServices(
+        invalidTokenRetryLimit, tokenCacheMaxSize, tokenCacheTimeToLiveSeconds);
     remoteTokenServices.setCheckTokenEndpointUrl(checkTokenUrl);
     remoteTokenServices.setClientId(clientId);
     remoteTokenServices.setClientSecret(clientSecret);
@@ -0,0 +1,179 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.domain;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Progress of sending a broadcast to all users that have a right (optionally limited to a
+ * program, supervisory node or warehouse). Recipients are resolved page by page and the number
+ * of the next page is saved together with notifications of each page, so the fan-out continues
+ * where it stopped after a failure or a restart. A fan-out is leased by one service instance
+ * while its next page is requested, and a page that could not be requested is retried later.
+ */
+@Getter
+@Entity
+@Table(name = "audience_fan_outs")
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true, exclude = "broadcast")
+@ToString(callSuper = true, exclude = "broadcast")
+public class AudienceFanOut extends BaseEntity {
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "broadcastId", nullable = false)
+  private Broadcast broadcast;
+
+  @Column(nullable = false)
+  private UUID rightId;
+
+  private UUID programId;
+
+  private UUID supervisoryNodeId;
+
+  private UUID warehouseId;
+
+  @Column(nullable = false)
+  private int nextPage;
+
+  @Column(nullable = false)
+  private int recipientCount;
+
+  @Column(columnDefinition = "timestamp with time zone", nullable = false)
+  private ZonedDateTime createdDate;
+
+  @Column(columnDefinition = "timestamp with time zone")
+  private ZonedDateTime finishedDate;
+
+  @Column(columnDefinition = TEXT_COLUMN_DEFINITION)
+  private String error;
+
+  private String claimedBy;
+
+  @Column(columnDefinition = "timestamp with time zone")
+  private ZonedDateTime leaseUntil;
+
+  @Column(nullable = false)
+  private int attemptCount;
+
+  @Column(columnDefinition = "timestamp with time zone")
+  private ZonedDateTime nextAttemptAt;
+
+  /**
+   * Creates a new fan-out of the given broadcast to the given audience.
+   *
+   * @param broadcast saved broadcast
+   * @param audience importer (DTO) of the audience
+   */
+  public AudienceFanOut(Broadcast broadcast, Importer audience) {
+    this.broadcast = broadcast;
+    this.rightId = audience.getRightId();
+    this.programId = audience.getProgramId();
+    this.supervisoryNodeId = audience.getSupervisoryNodeId();
+    this.warehouseId = audience.getWarehouseId();
+    this.createdDate = ZonedDateTime.now();
+  }
+
+  public boolean isFinished() {
+    return null != finishedDate;
+  }
+
+  /**
+   * Marks this fan-out as claimed by the given owner until the lease expires. Other owners can
+   * claim it again only after that time.
+   */
+  public void claim(String owner, ZonedDateTime leaseExpiration) {
+    this.claimedBy = owner;
+    this.leaseUntil = leaseExpiration;
+  }
+
+  public boolean isClaimedBy(String owner) {
+    return null != owner && owner.equals(claimedBy);
+  }
+
+  /**
+   * Records that a page of the audience has been sent to the given number of recipients.
+   *
+   * @param recipients number of recipients from the page
+   * @param last whether it was the last page of the audience
+   */
+  public void pageSent(int recipients, boolean last) {
+    this.recipientCount += recipients;
+    this.nextPage++;
+    this.attemptCount = 0;
+    this.nextAttemptAt = null;
+    release();
+
+    if (last) {
+      this.finishedDate = ZonedDateTime.now();
+    }
+  }
+
+  /**
+   * Stops the fan-out because the audience cannot be resolved. Recipients from the pages that
+   * have been sent already still receive the broadcast.
+   *
+   * @param reason description of the problem
+   */
+  public void abandon(String reason) {
+    this.error = reason;
+    this.finishedDate = ZonedDateTime.now();
+    release();
+  }
+
+  /**
+   * Records a failed attempt to request the next page and releases the lease.
+   */
+  public void registerFailedAttempt() {
+    this.attemptCount++;
+    release();
+  }
+
+  /**
+   * Postpones the next attempt to request the next page. The fan-out will not be claimed before
+   * that time.
+   */
+  public void retryAt(ZonedDateTime nextAttempt) {
+    this.nextAttemptAt = nextAttempt;
+  }
+
+  private void release() {
+    this.claimedBy = null;
+    this.leaseUntil = null;
+  }
+
+  public interface Importer {
+
+    UUID getRightId();
+
+    UUID getProgramId();
+
+    UUID getSupervisoryNodeId();
+
+    UUID getWarehouseId();
+  }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.domain;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import javax.persistence.CascadeType;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.OneToMany;
+import javax.persistence.Table;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Messages sent to many users at once. The messages are stored only once and each recipient gets
+ * a {@link Notification} that refers to the broadcast instead of having its own messages.
+ */
+@Getter
+@Entity
+@Table(name = "broadcasts")
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class Broadcast extends BaseEntity {
+
+  @OneToMany(cascade = CascadeType.ALL, mappedBy = "broadcast", orphanRemoval = true,
+      fetch = FetchType.EAGER)
+  private List<BroadcastMessage> messages;
+
+  private Boolean important;
+
+  @Column(columnDefinition = "timestamp with time zone", nullable = false)
+  private ZonedDateTime createdDate;
+
+  /**
+   * Creates a new broadcast with the given messages.
+   *
+   * @param messages messages list
+   * @param important important flag
+   */
+  public Broadcast(List<BroadcastMessage> messages, Boolean important) {
+    this.messages = messages;
+    this.messages.forEach(message -> message.setBroadcast(this));
+    this.important = important;
+    this.createdDate = ZonedDateTime.now();
+  }
+
+  /**
+   * Construct new broadcast based on an importer (DTO).
+   *
+   * @param importer importer (DTO) to use
+   * @return new broadcast
+   */
+  public static Broadcast newInstance(Importer importer) {
+    return new Broadcast(importer.getMessages(), importer.getImportant());
+  }
+
+  public interface Importer {
+
+    List<BroadcastMessage> getMessages();
+
+    Boolean getImportant();
+  }
+
+}
@@ -19,7 +19,9 @@ import static org.openlmis.notification.i18n.MessageKeys.ERROR_DIGEST_SUBSCRIPTI
 import static org.openlmis.notification.i18n.MessageKeys.ERROR_INVALID_CRON_EXPRESSION_IN_SUBSCRIPTION;
 import static org.openlmis.notification.i18n.MessageKeys.ERROR_MISSING_CRON_EXPRESSION;
 
+import java.time.ZonedDateTime;
 import java.util.UUID;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
@@ -65,6 +67,11 @@ public final class DigestSubscription extends BaseEntity {
   @Getter
   private Boolean useDigest;
 
+  // when the next digest should be sent, null if there are no postponed messages to send
+  @Getter
+  @Column(columnDefinition = "timestamp with time zone")
+  private ZonedDateTime nextRunAt;
+
   /**
    * Creates new instance of {@link DigestSubscription}.
    *
@@ -96,7 +103,7 @@ public final class DigestSubscription extends BaseEntity {
     }
 
     return new DigestSubscription(userContactDetails, digestConfiguration, cronExpression,
-      preferredChannel, useDigest);
+      preferredChannel, useDigest, null);
   }
 
   /**
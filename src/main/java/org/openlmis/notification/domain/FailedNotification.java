@@ -0,0 +1,110 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.domain;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Type;
+import org.openlmis.notification.service.NotificationChannel;
+
+@Getter
+@Entity
+@Table(name = "failed_notifications")
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true, exclude = "notification")
+@ToString(callSuper = true, exclude = "notification")
+public class FailedNotification extends BaseEntity {
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @Type(type = UUID_TYPE)
+  @JoinColumn(name = "notificationId", nullable = false)
+  private Notification notification;
+
+  @Column(nullable = false)
+  @Enumerated(value = EnumType.STRING)
+  private NotificationChannel channel;
+
+  @Column(nullable = false)
+  private int attemptCount;
+
+  @Column(columnDefinition = "timestamp with time zone", nullable = false)
+  private ZonedDateTime createdDate;
+
+  @Column(columnDefinition = "timestamp with time zone", nullable = false)
+  private ZonedDateTime failedDate;
+
+  /**
+   * Creates a new instance based on a pending notification that could not be delivered.
+   */
+  public FailedNotification(PendingNotification pending, ZonedDateTime failedDate) {
+    this.notification = pending.getNotification();
+    this.channel = pending.getChannel();
+    this.attemptCount = pending.getAttemptCount();
+    this.createdDate = pending.getCreatedDate();
+    this.failedDate = failedDate;
+  }
+
+  /**
+   * Creates a new pending notification so the failed notification is sent again.
+   */
+  public PendingNotification requeue() {
+    return new PendingNotification(notification, channel);
+  }
+
+  /**
+   * Exports current status of the object.
+   */
+  public void export(Exporter exporter) {
+    exporter.setId(getId());
+    exporter.setNotificationId(notification.getId());
+    exporter.setUserId(notification.getUserId());
+    exporter.setChannel(channel);
+    exporter.setAttemptCount(attemptCount);
+    exporter.setCreatedDate(createdDate);
+    exporter.setFailedDate(failedDate);
+  }
+
+  public interface Exporter {
+
+    void setId(UUID id);
+
+    void setNotificationId(UUID notificationId);
+
+    void setUserId(UUID userId);
+
+    void setChannel(NotificationChannel channel);
+
+    void setAttemptCount(int attemptCount);
+
+    void setCreatedDate(ZonedDateTime createdDate);
+
+    void setFailedDate(ZonedDateTime failedDate);
+
+  }
+
+}
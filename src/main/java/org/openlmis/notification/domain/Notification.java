@@ -16,6 +16,7 @@
 package org.openlmis.notification.domain;
 
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import javax.persistence.CascadeType;
@@ -50,6 +51,12 @@ public class Notification extends BaseEntity {
   @Getter
   private ZonedDateTime createdDate;
 
+  @Getter
+  private UUID broadcastId;
+
+  @Getter
+  private boolean inIntake;
+
   /**
    * Default constructor.
    * 
@@ -65,6 +72,37 @@ public class Notification extends BaseEntity {
     this.createdDate = ZonedDateTime.now();
   }
 
+  /**
+   * Creates a notification of the given broadcast. The notification has no messages of its own,
+   * they are read from the broadcast when the notification is sent.
+   *
+   * @param userId user id
+   * @param broadcast saved broadcast
+   */
+  public Notification(UUID userId, Broadcast broadcast) {
+    this.userId = userId;
+    this.messages = new ArrayList<>();
+    this.important = broadcast.getImportant();
+    this.createdDate = ZonedDateTime.now();
+    this.broadcastId = broadcast.getId();
+  }
+
+  public boolean isBroadcast() {
+    return null != broadcastId;
+  }
+
+  /**
+   * Marks this notification as accepted asynchronously. It is not returned by searches until its
+   * recipient has been checked and it is removed from the intake.
+   */
+  public void addToIntake() {
+    this.inIntake = true;
+  }
+
+  public void removeFromIntake() {
+    this.inIntake = false;
+  }
+
   /**
    * Construct new notification based on an importer (DTO).
    *
@@ -85,6 +123,7 @@ public class Notification extends BaseEntity {
     exporter.setMessages(messages);
     exporter.setImportant(important);
     exporter.setCreatedDate(createdDate);
+    exporter.setBroadcastId(broadcastId);
   }
   
   public interface Importer {
@@ -105,5 +144,7 @@ public class Notification extends BaseEntity {
     void setImportant(Boolean important);
     
     void setCreatedDate(ZonedDateTime createdDate);
+
+    void setBroadcastId(UUID broadcastId);
   }
 }
@@ -0,0 +1,104 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.domain;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Type;
+import org.openlmis.notification.i18n.Message;
+
+/**
+ * A notification that has been accepted asynchronously. Its recipient has not been checked yet
+ * and its messages have not been added to the sending queue. A notification whose recipient
+ * cannot receive notifications stays in the intake as rejected, so its sender can find out why
+ * it has not been sent.
+ */
+@Getter
+@Entity
+@Table(name = "notification_intake")
+@NoArgsConstructor
+@EqualsAndHashCode(of = "notificationId")
+@ToString
+public class NotificationIntake implements Identifiable<UUID> {
+
+  @Id
+  @Type(type = BaseEntity.UUID_TYPE)
+  private UUID notificationId;
+
+  @Column(columnDefinition = "timestamp with time zone", nullable = false)
+  private ZonedDateTime createdDate;
+
+  private String claimedBy;
+
+  @Column(columnDefinition = "timestamp with time zone")
+  private ZonedDateTime leaseUntil;
+
+  @Column(columnDefinition = "timestamp with time zone")
+  private ZonedDateTime rejectedDate;
+
+  @Column(columnDefinition = "text")
+  private String error;
+
+  public NotificationIntake(UUID notificationId, ZonedDateTime createdDate) {
+    this.notificationId = notificationId;
+    this.createdDate = createdDate;
+  }
+
+  /**
+   * Marks this notification as claimed by the given owner until the lease expires. Other owners
+   * can claim it again only after that time.
+   */
+  public void claim(String owner, ZonedDateTime leaseExpiration) {
+    this.claimedBy = owner;
+    this.leaseUntil = leaseExpiration;
+  }
+
+  public boolean isClaimedBy(String owner) {
+    return null != owner && owner.equals(claimedBy);
+  }
+
+  /**
+   * Rejects this notification and releases the lease. Only the key of the given error is kept.
+   */
+  public void reject(Message reason, ZonedDateTime date) {
+    this.error = reason.getKey();
+    this.rejectedDate = date;
+    this.claimedBy = null;
+    this.leaseUntil = null;
+  }
+
+  public boolean isRejected() {
+    return null != rejectedDate;
+  }
+
+  public Message getRejectionReason() {
+    return null == error ? null : new Message(error);
+  }
+
+  @Override
+  public UUID getId() {
+    return notificationId;
+  }
+
+}
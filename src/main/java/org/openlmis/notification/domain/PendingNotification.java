@@ -27,8 +27,6 @@ import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.MapsId;
-import javax.persistence.NamedQueries;
-import javax.persistence.NamedQuery;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
 import lombok.AllArgsConstructor;
@@ -45,18 +43,8 @@ import org.openlmis.notification.service.NotificationChannel;
 @NoArgsConstructor
 @EqualsAndHashCode(of = "id")
 @ToString(exclude = "notification")
-@NamedQueries({
-    @NamedQuery(name = "PendingNotification.getPendingNotifications",
-        query = "SELECT p"
-            + " FROM PendingNotification p"
-            + " INNER JOIN FETCH p.notification"
-            + " ORDER BY p.createdDate ASC")
-})
 public class PendingNotification implements Identifiable<PendingNotificationId> {
 
-  public static final String GET_PENDING_NOTIFICATIONS_NAMED_QUERY =
-      "PendingNotification.getPendingNotifications";
-
   @EmbeddedId
   private PendingNotificationId id;
 
@@ -69,6 +57,17 @@ public class PendingNotification implements Identifiable<PendingNotificationId>
   @Getter
   private ZonedDateTime createdDate;
 
+  private String claimedBy;
+
+  @Column(columnDefinition = "timestamp with time zone")
+  private ZonedDateTime leaseUntil;
+
+  @Column(nullable = false)
+  private int attemptCount;
+
+  @Column(columnDefinition = "timestamp with time zone")
+  private ZonedDateTime nextAttemptAt;
+
   /**
    * Creates a new instance based on passed parameters.
    */
@@ -86,6 +85,55 @@ public class PendingNotification implements Identifiable<PendingNotificationId>
     return id.channel;
   }
 
+  /**
+   * Marks this notification as claimed by the given owner until the lease expires. Other owners
+   * can claim it again only after that time. If the previous lease has expired without the
+   * notification being released (for example because sending it crashed the worker), that
+   * attempt is counted as failed.
+   */
+  public void claim(String owner, ZonedDateTime leaseExpiration) {
+    if (null != claimedBy) {
+      this.attemptCount++;
+    }
+
+    this.claimedBy = owner;
+    this.leaseUntil = leaseExpiration;
+  }
+
+  public boolean isLeaseExpired(ZonedDateTime now) {
+    return null == leaseUntil || leaseUntil.isBefore(now);
+  }
+
+  public boolean isClaimedBy(String owner) {
+    return null != owner && owner.equals(claimedBy);
+  }
+
+  /**
+   * Records a failed delivery attempt and releases the lease.
+   */
+  public void registerFailedAttempt() {
+    this.attemptCount++;
+    this.claimedBy = null;
+    this.leaseUntil = null;
+  }
+
+  /**
+   * Releases the lease without recording a failed attempt. The notification will not be claimed
+   * again before the given time.
+   */
+  public void postpone(ZonedDateTime nextAttempt) {
+    this.claimedBy = null;
+    this.leaseUntil = null;
+    this.nextAttemptAt = nextAttempt;
+  }
+
+  /**
+   * Postpones the next delivery attempt. The notification will not be claimed before that time.
+   */
+  public void retryAt(ZonedDateTime nextAttempt) {
+    this.nextAttemptAt = nextAttempt;
+  }
+
   @Embeddable
   @NoArgsConstructor
   @AllArgsConstructor
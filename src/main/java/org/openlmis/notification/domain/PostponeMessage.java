@@ -22,8 +22,6 @@ import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
-import javax.persistence.NamedQueries;
-import javax.persistence.NamedQuery;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
 import lombok.AllArgsConstructor;
@@ -40,20 +38,8 @@ import org.openlmis.notification.service.NotificationChannel;
 @AllArgsConstructor
 @EqualsAndHashCode(callSuper = true)
 @ToString(exclude = "configuration")
-@NamedQueries({
-    @NamedQuery(name = "PostponeMessage.getPostponeMessages",
-        query = "SELECT p"
-            + " FROM PostponeMessage p"
-            + " INNER JOIN FETCH p.configuration AS c"
-            + " WHERE c.id = :configurationId"
-            + "   AND p.userId = :userId"
-            + "   AND p.channel = :channel")
-})
 public class PostponeMessage extends BaseEntity {
 
-  public static final String GET_POSTPONE_MESSAGES_NAMED_QUERY =
-      "PostponeMessage.getPostponeMessages";
-
   @OneToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "configurationId", nullable = false)
   private DigestConfiguration configuration;
@@ -0,0 +1,76 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.domain;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.openlmis.notification.service.NotificationChannel;
+
+/**
+ * Number of postponed messages of one user, digest configuration and channel. Used instead of
+ * storing each postponed message when the digest accumulator is enabled. Rows are inserted and
+ * updated with a single upsert statement (see
+ * {@link org.openlmis.notification.repository.PostponedDigestRepository}).
+ */
+@Getter
+@Entity
+@Table(name = "postponed_digests",
+    uniqueConstraints = @UniqueConstraint(
+        name = "unq_postponed_digests_userid_configurationid_channel",
+        columnNames = {"userId", "configurationId", "channel"}))
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@ToString(exclude = "configuration")
+public class PostponedDigest extends BaseEntity {
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "configurationId", nullable = false)
+  private DigestConfiguration configuration;
+
+  @Column(nullable = false)
+  private UUID userId;
+
+  @Column(nullable = false)
+  @Enumerated(value = EnumType.STRING)
+  private NotificationChannel channel;
+
+  @Column(nullable = false)
+  private int count;
+
+  @Column(columnDefinition = TEXT_COLUMN_DEFINITION)
+  private String firstSubject;
+
+  @Column(columnDefinition = "timestamp with time zone", nullable = false)
+  private ZonedDateTime createdDate;
+
+  @Column(columnDefinition = "timestamp with time zone", nullable = false)
+  private ZonedDateTime lastModifiedDate;
+}
@@ -46,6 +46,10 @@ public class Message {
     this.params = messageParameters;
   }
 
+  public String getKey() {
+    return key;
+  }
+
   @Override
   public String toString() {
     return key + ": " + StringUtils.join(params, ", ");
@@ -32,6 +32,7 @@ public abstract class MessageKeys {
   private static final String SEARCH = "search";
   private static final String DIGEST_CONFIGURATION = "digestConfiguration";
   private static final String DIGEST_SUBSCRIPTION = "digestSubscription";
+  private static final String FAILED_NOTIFICATION = "failedNotification";
 
 
   private static final String AUTHENTICATION = "authentication";
@@ -47,6 +48,7 @@ public abstract class MessageKeys {
   private static final String SERVICE_PREFIX = "notification";
   private static final String ERROR_PREFIX = SERVICE_PREFIX + ".error";
   private static final String NOTIFICATION_REQUEST = ERROR_PREFIX + ".notificationRequest";
+  private static final String BROADCAST_REQUEST = ERROR_PREFIX + ".broadcastRequest";
 
   public static final String ERROR_CONTEXTUAL_STATE_NULL =
       ERROR_PREFIX + ".validation.contextualState.null";
@@ -65,6 +67,12 @@ public abstract class MessageKeys {
   public static final String ERROR_NOTIFICATION_REQUEST_MESSAGES_EMPTY =
       join(NOTIFICATION_REQUEST, MESSAGES, "empty");
 
+  public static final String ERROR_BROADCAST_REQUEST_NULL = join(BROADCAST_REQUEST, "null");
+  public static final String ERROR_BROADCAST_REQUEST_RECIPIENTS_EMPTY =
+      join(BROADCAST_REQUEST, "recipients", "empty");
+  public static final String ERROR_BROADCAST_REQUEST_RECIPIENTS_AND_AUDIENCE =
+      join(BROADCAST_REQUEST, "recipientsAndAudience");
+
   public static final String ERROR_UNSUPPORTED_NOTIFICATION_CHANNEL =
       join(NOTIFICATION_REQUEST, NOTIFICATION_CHANNEL, UNSUPPORTED);
 
@@ -117,6 +125,9 @@ public abstract class MessageKeys {
   public static final String ERROR_SEND_SMS_FAILURE =
       join(ERROR_PREFIX, "sendSms", "failure");
 
+  public static final String ERROR_SEND_SMS_UNAVAILABLE =
+      join(ERROR_PREFIX, "sendSms", "unavailable");
+
   public static final String ERROR_ADD_EMAIL_ATTACHMENT_FAILURE =
       join(ERROR_PREFIX, "add email attachment", "failure");
 
@@ -144,6 +155,12 @@ public abstract class MessageKeys {
   public static final String ERROR_DIGEST_CONFIGURATION_NOT_FOUND =
       join(ERROR_PREFIX, DIGEST_CONFIGURATION, NOT_FOUND);
 
+  public static final String ERROR_FAILED_NOTIFICATION_NOT_FOUND =
+      join(ERROR_PREFIX, FAILED_NOTIFICATION, NOT_FOUND);
+
+  public static final String ERROR_NOTIFICATION_NOT_FOUND =
+      join(ERROR_PREFIX, NOTIFICATION, NOT_FOUND);
+
   public static final String ERROR_DIGEST_SUBSCRIPTION_INVALID_CHANNEL_FOR_DIGEST =
       join(ERROR_PREFIX, DIGEST_SUBSCRIPTION, INVALID_CHANNEL_FOR_DIGEST);
 
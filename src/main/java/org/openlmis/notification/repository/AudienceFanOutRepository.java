@@ -0,0 +1,45 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.repository;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.openlmis.notification.domain.AudienceFanOut;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface AudienceFanOutRepository extends JpaRepository<AudienceFanOut, UUID> {
+
+  /**
+   * Locks the oldest unfinished fan-outs that are due for the next page and are not leased (or
+   * whose lease has expired) for the current transaction. Fan-outs that are already locked by
+   * other transactions (other service instances) are skipped, and so are fan-outs waiting for a
+   * retry, so they do not hold back newer fan-outs.
+   */
+  @Query(value = "SELECT f.*"
+      + " FROM notification.audience_fan_outs AS f"
+      + " WHERE f.finishedDate IS NULL"
+      + "   AND (f.leaseUntil IS NULL OR f.leaseUntil < :now)"
+      + "   AND (f.nextAttemptAt IS NULL OR f.nextAttemptAt <= :now)"
+      + " ORDER BY f.createdDate ASC"
+      + " LIMIT :limit"
+      + " FOR UPDATE SKIP LOCKED",
+      nativeQuery = true)
+  List<AudienceFanOut> claim(@Param("now") ZonedDateTime now, @Param("limit") int limit);
+
+}
@@ -15,14 +15,23 @@
 
 package org.openlmis.notification.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import org.openlmis.notification.domain.DigestConfiguration;
 import org.openlmis.notification.domain.DigestSubscription;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 @SuppressWarnings("PMD.AvoidDuplicateLiterals")
 public interface DigestSubscriptionRepository extends JpaRepository<DigestSubscription, UUID> {
@@ -34,6 +43,13 @@ public interface DigestSubscriptionRepository extends JpaRepository<DigestSubscr
       + " WHERE u.referenceDataUserId = :userId")
   List<DigestSubscription> getUserSubscriptions(@Param("userId") UUID userId);
 
+  @Query("SELECT DISTINCT s"
+      + " FROM DigestSubscription AS s"
+      + " INNER JOIN FETCH s.userContactDetails AS u"
+      + " INNER JOIN FETCH s.digestConfiguration AS c"
+      + " WHERE u.referenceDataUserId IN :userIds")
+  List<DigestSubscription> getUsersSubscriptions(@Param("userIds") Collection<UUID> userIds);
+
   @Query("SELECT CASE WHEN count(s) = 1 THEN TRUE ELSE FALSE END"
       + " FROM DigestSubscription AS s"
       + " WHERE s.userContactDetails.referenceDataUserId = :userId"
@@ -53,4 +69,68 @@ public interface DigestSubscriptionRepository extends JpaRepository<DigestSubscr
   @Modifying(clearAutomatically = true)
   void deleteUserSubscriptions(@Param("userId") UUID userId);
 
+  /**
+   * Sets the time of the next digest unless the digest has already been scheduled. The change is
+   * committed right away if there is no transaction.
+   *
+   * @return 1 if the digest has been scheduled, otherwise 0.
+   */
+  @Query("UPDATE DigestSubscription AS s"
+      + " SET s.nextRunAt = :nextRunAt"
+      + " WHERE s.id = :id"
+      + "   AND s.nextRunAt IS NULL")
+  @Modifying
+  @Transactional
+  int scheduleDigest(@Param("id") UUID id, @Param("nextRunAt") ZonedDateTime nextRunAt);
+
+  @Query("UPDATE DigestSubscription AS s"
+      + " SET s.nextRunAt = :nextRunAt"
+      + " WHERE s.id = :id")
+  @Modifying
+  void updateNextRun(@Param("id") UUID id, @Param("nextRunAt") ZonedDateTime nextRunAt);
+
+  @Query("UPDATE DigestSubscription AS s"
+      + " SET s.nextRunAt = NULL"
+      + " WHERE s.id = :id")
+  @Modifying
+  void clearNextRun(@Param("id") UUID id);
+
+  /**
+   * Locks the subscription whose digest has been due for the longest time for the current
+   * transaction. Subscriptions locked by other transactions (other service instances) are
+   * skipped, so concurrent callers never receive the same subscription.
+   */
+  @Query(value = "SELECT s.*"
+      + " FROM notification.digest_subscriptions AS s"
+      + " WHERE s.nextRunAt <= :now"
+      + " ORDER BY s.nextRunAt ASC"
+      + " LIMIT 1"
+      + " FOR UPDATE SKIP LOCKED",
+      nativeQuery = true)
+  DigestSubscription claimDueDigest(@Param("now") ZonedDateTime now);
+
+  @Query("SELECT MIN(s.nextRunAt) FROM DigestSubscription AS s")
+  Optional<ZonedDateTime> findEarliestNextRun();
+
+  /**
+   * Streams subscriptions that have postponed messages (stored separately or accumulated) but no
+   * scheduled digest. The stream has to be consumed in a transaction and closed afterwards.
+   */
+  @Query("SELECT s"
+      + " FROM DigestSubscription AS s"
+      + " WHERE s.nextRunAt IS NULL"
+      + "   AND s.cronExpression IS NOT NULL"
+      + "   AND (EXISTS ("
+      + "       SELECT p.id"
+      + "       FROM PostponeMessage AS p"
+      + "       WHERE p.userId = s.userContactDetails.referenceDataUserId"
+      + "         AND p.configuration = s.digestConfiguration)"
+      + "     OR EXISTS ("
+      + "       SELECT d.id"
+      + "       FROM PostponedDigest AS d"
+      + "       WHERE d.userId = s.userContactDetails.referenceDataUserId"
+      + "         AND d.configuration = s.digestConfiguration))")
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "100"))
+  Stream<DigestSubscription> streamUnscheduledWithPostponeMessages();
+
 }
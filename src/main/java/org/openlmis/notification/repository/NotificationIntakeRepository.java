@@ -0,0 +1,57 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.repository;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.openlmis.notification.domain.NotificationIntake;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface NotificationIntakeRepository extends JpaRepository<NotificationIntake, UUID> {
+
+  /**
+   * Adds the notification to the intake with a plain insert. Saving a new instance with an
+   * assigned ID would select it first.
+   */
+  @Query(value = "INSERT INTO notification.notification_intake (notificationId, createdDate)"
+      + " VALUES (:notificationId, :createdDate)",
+      nativeQuery = true)
+  @Modifying
+  @Transactional
+  void add(@Param("notificationId") UUID notificationId,
+      @Param("createdDate") ZonedDateTime createdDate);
+
+  /**
+   * Locks the oldest accepted notifications that have not been rejected and are not leased (or
+   * whose lease has expired) for the current transaction. Rows that are already locked by other
+   * transactions (other service instances) are skipped.
+   */
+  @Query(value = "SELECT i.*"
+      + " FROM notification.notification_intake AS i"
+      + " WHERE i.rejectedDate IS NULL"
+      + "   AND (i.leaseUntil IS NULL OR i.leaseUntil < :now)"
+      + " ORDER BY i.createdDate ASC"
+      + " LIMIT :limit"
+      + " FOR UPDATE SKIP LOCKED",
+      nativeQuery = true)
+  List<NotificationIntake> claim(@Param("now") ZonedDateTime now, @Param("limit") int limit);
+
+}
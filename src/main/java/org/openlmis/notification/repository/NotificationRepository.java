@@ -15,12 +15,33 @@
 
 package org.openlmis.notification.repository;
 
+import java.util.Collection;
+import java.util.Set;
 import java.util.UUID;
 import org.openlmis.notification.domain.Notification;
 import org.openlmis.notification.repository.custom.NotificationRepositoryCustom;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface NotificationRepository
     extends JpaRepository<Notification, UUID>, NotificationRepositoryCustom {
 
+  /**
+   * Returns notifications that are not in the intake (their recipients have been checked).
+   */
+  Page<Notification> findAllByInIntakeFalse(Pageable pageable);
+
+  /**
+   * Returns those of the given users that have already received the given broadcast.
+   */
+  @Query("SELECT n.userId"
+      + " FROM Notification AS n"
+      + " WHERE n.broadcastId = :broadcastId"
+      + "   AND n.userId IN (:userIds)")
+  Set<UUID> findBroadcastRecipients(@Param("broadcastId") UUID broadcastId,
+      @Param("userIds") Collection<UUID> userIds);
+
 }
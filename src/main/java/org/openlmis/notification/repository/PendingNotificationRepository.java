@@ -15,11 +15,44 @@
 
 package org.openlmis.notification.repository;
 
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
 import org.openlmis.notification.domain.PendingNotification;
 import org.openlmis.notification.domain.PendingNotification.PendingNotificationId;
+import org.openlmis.notification.service.NotificationChannel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+@SuppressWarnings("PMD.AvoidDuplicateLiterals")
 public interface PendingNotificationRepository
     extends JpaRepository<PendingNotification, PendingNotificationId> {
 
+  /**
+   * Locks the oldest pending notifications that are due for delivery and are not leased (or whose
+   * lease has expired) for the current transaction. Rows that are already locked by other
+   * transactions (other workers or service instances) are skipped, so concurrent callers never
+   * receive the same notification.
+   */
+  @Query(value = "SELECT p.*"
+      + " FROM notification.pending_notifications AS p"
+      + " WHERE (p.leaseUntil IS NULL OR p.leaseUntil < :now)"
+      + "   AND (p.nextAttemptAt IS NULL OR p.nextAttemptAt <= :now)"
+      + " ORDER BY p.createdDate ASC"
+      + " LIMIT :limit"
+      + " FOR UPDATE SKIP LOCKED",
+      nativeQuery = true)
+  List<PendingNotification> claimPendingNotifications(@Param("now") ZonedDateTime now,
+      @Param("limit") int limit);
+
+  @Query("DELETE FROM PendingNotification AS p"
+      + " WHERE p.id.notificationId = :notificationId"
+      + "   AND p.id.channel = :channel"
+      + "   AND p.claimedBy = :claimedBy")
+  @Modifying
+  int deleteClaimed(@Param("notificationId") UUID notificationId,
+      @Param("channel") NotificationChannel channel, @Param("claimedBy") String claimedBy);
+
 }
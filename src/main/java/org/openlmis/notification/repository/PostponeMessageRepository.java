@@ -15,10 +15,48 @@
 
 package org.openlmis.notification.repository;
 
+import com.google.common.hash.Hashing;
+import java.util.List;
 import java.util.UUID;
 import org.openlmis.notification.domain.PostponeMessage;
+import org.openlmis.notification.repository.custom.PostponeMessageRepositoryCustom;
+import org.openlmis.notification.service.NotificationChannel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface PostponeMessageRepository extends JpaRepository<PostponeMessage, UUID> {
+public interface PostponeMessageRepository
+    extends JpaRepository<PostponeMessage, UUID>, PostponeMessageRepositoryCustom {
+
+  @Query("SELECT DISTINCT p.channel"
+      + " FROM PostponeMessage AS p"
+      + " WHERE p.userId = :userId"
+      + "   AND p.configuration.id = :configurationId"
+      + " ORDER BY p.channel")
+  List<NotificationChannel> findChannels(@Param("userId") UUID userId,
+      @Param("configurationId") UUID configurationId);
+
+  /**
+   * Tries to obtain a transaction level advisory lock for the digest of the given user and digest
+   * configuration. The lock is released when the current transaction ends. The lock key is a
+   * 64-bit hash of both IDs, so digests of different users practically never share a lock.
+   *
+   * @return true if the lock has been obtained, false if another transaction holds it.
+   */
+  default boolean tryLockDigest(UUID userId, UUID configurationId) {
+    long key = Hashing.murmur3_128()
+        .newHasher()
+        .putLong(userId.getMostSignificantBits())
+        .putLong(userId.getLeastSignificantBits())
+        .putLong(configurationId.getMostSignificantBits())
+        .putLong(configurationId.getLeastSignificantBits())
+        .hash()
+        .asLong();
+
+    return tryAdvisoryLock(key);
+  }
+
+  @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+  boolean tryAdvisoryLock(@Param("key") long key);
 
 }
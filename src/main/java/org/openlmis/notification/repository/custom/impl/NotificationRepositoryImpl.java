@@ -33,6 +33,8 @@ public class NotificationRepositoryImpl
 
   /**
    * Method returns all matching notifications. If all parameters are null, returns notifications.
+   * Notifications that are still in the intake (their recipients have not been checked yet or
+   * they have been rejected) are never returned.
    *
    * @return Page of notifications.
    */
@@ -77,7 +79,7 @@ public class NotificationRepositoryImpl
   private Predicate getFilters(CriteriaBuilder builder, Root<Notification> root,
       SearchParams searchParams) {
 
-    Predicate predicate = builder.conjunction();
+    Predicate predicate = builder.isFalse(root.get("inIntake"));
     predicate = addEqualFilter(predicate, builder, root, "userId", searchParams.getUserId());
     predicate = addDateRangeFilter(predicate, builder, root, "createdDate",
         searchParams.getSendingDateFrom(), searchParams.getSendingDateTo());
@@ -0,0 +1,60 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.repository.custom.impl;
+
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.openlmis.notification.repository.custom.PostponeMessageRepositoryCustom;
+import org.openlmis.notification.service.DigestSummary;
+import org.openlmis.notification.service.NotificationChannel;
+import org.springframework.transaction.annotation.Transactional;
+
+public class PostponeMessageRepositoryImpl implements PostponeMessageRepositoryCustom {
+
+  private static final String DRAIN_SQL = "WITH drained AS ("
+      + " DELETE FROM notification.postpone_message"
+      + " WHERE userId = :userId"
+      + "   AND configurationId = :configurationId"
+      + "   AND channel = :channel"
+      + " RETURNING subject)"
+      + " SELECT count(*), (array_agg(subject))[1]"
+      + " FROM drained";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Removes postponed messages of the given user, digest configuration and channel in a single
+   * statement. Only the number of removed messages and the subject of the first one are returned,
+   * so message bodies are never loaded.
+   *
+   * @return summary of removed messages, its count is zero if there were no messages.
+   */
+  @Override
+  @Transactional
+  public DigestSummary drain(UUID userId, UUID configurationId, NotificationChannel channel) {
+    Object[] result = (Object[]) entityManager
+        .createNativeQuery(DRAIN_SQL)
+        .setParameter("userId", userId)
+        .setParameter("configurationId", configurationId)
+        .setParameter("channel", channel.name())
+        .getSingleResult();
+
+    return new DigestSummary(((Number) result[0]).intValue(), (String) result[1]);
+  }
+
+}
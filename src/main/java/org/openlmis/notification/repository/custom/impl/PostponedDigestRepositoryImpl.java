@@ -0,0 +1,91 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.repository.custom.impl;
+
+import java.util.List;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StringType;
+import org.openlmis.notification.repository.custom.PostponedDigestRepositoryCustom;
+import org.openlmis.notification.service.DigestSummary;
+import org.openlmis.notification.service.NotificationChannel;
+import org.springframework.transaction.annotation.Transactional;
+
+public class PostponedDigestRepositoryImpl implements PostponedDigestRepositoryCustom {
+
+  private static final String ACCUMULATE_SQL = "INSERT INTO notification.postponed_digests AS d"
+      + " (id, configurationId, userId, channel, count, firstSubject, createdDate,"
+      + "   lastModifiedDate)"
+      + " VALUES (:id, :configurationId, :userId, :channel, 1, :subject, now(), now())"
+      + " ON CONFLICT (userId, configurationId, channel)"
+      + " DO UPDATE SET count = d.count + 1, lastModifiedDate = now()";
+
+  private static final String DRAIN_SQL = "DELETE FROM notification.postponed_digests"
+      + " WHERE userId = :userId"
+      + "   AND configurationId = :configurationId"
+      + "   AND channel = :channel"
+      + " RETURNING count, firstSubject";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Adds a postponed message to the digest of the given user, digest configuration and channel
+   * in a single statement. The subject of the first message and the time of the first and the
+   * last message are kept.
+   */
+  @Override
+  @Transactional
+  public void accumulate(UUID userId, UUID configurationId, NotificationChannel channel,
+      String subject) {
+    entityManager
+        .createNativeQuery(ACCUMULATE_SQL)
+        .unwrap(NativeQuery.class)
+        .setParameter("id", UUID.randomUUID())
+        .setParameter("configurationId", configurationId)
+        .setParameter("userId", userId)
+        .setParameter("channel", channel.name())
+        // the type is set explicitly because the subject can be null
+        .setParameter("subject", subject, StringType.INSTANCE)
+        .executeUpdate();
+  }
+
+  /**
+   * Removes the digest of the given user, digest configuration and channel.
+   *
+   * @return summary of the removed digest, its count is zero if there was no digest.
+   */
+  @Override
+  @Transactional
+  public DigestSummary drain(UUID userId, UUID configurationId, NotificationChannel channel) {
+    List<?> result = entityManager
+        .createNativeQuery(DRAIN_SQL)
+        .setParameter("userId", userId)
+        .setParameter("configurationId", configurationId)
+        .setParameter("channel", channel.name())
+        .getResultList();
+
+    if (result.isEmpty()) {
+      return new DigestSummary(0, null);
+    }
+
+    Object[] digest = (Object[]) result.get(0);
+    return new DigestSummary(((Number) digest[0]).intValue(), (String) digest[1]);
+  }
+
+}
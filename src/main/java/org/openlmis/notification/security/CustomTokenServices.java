@@ -15,22 +15,102 @@
 
 package org.openlmis.notification.security;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import lombok.AllArgsConstructor;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
 import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.RemoteTokenServices;
 
+/**
+ * Checks access tokens in the auth service and keeps valid tokens in memory, so requests with
+ * the same token do not require a request to the auth service. A token is kept until it
+ * expires (the {@code exp} claim returned by the auth service), but not longer than the maximum
+ * time to live, so revoked tokens are rejected after that time. Only hashes of tokens are kept.
+ * When several requests with the same token arrive at once, the token is checked only once.
+ * Invalid tokens are not kept.
+ */
 public class CustomTokenServices extends RemoteTokenServices {
 
   private int invalidTokenRetryLimit;
+  private long maxTimeToLiveMillis;
+
+  private final Cache<String, CachedAuthentication> cache;
 
   public CustomTokenServices(int invalidTokenRetryLimit) {
+    this(invalidTokenRetryLimit, 0, 0);
+  }
+
+  /**
+   * Creates new token services that keep up to the given number of valid tokens.
+   *
+   * @param invalidTokenRetryLimit how many times an invalid token is checked again
+   * @param cacheMaxSize           the maximum number of kept tokens
+   * @param maxTimeToLiveSeconds   the maximum time a valid token is kept
+   */
+  public CustomTokenServices(int invalidTokenRetryLimit, long cacheMaxSize,
+      long maxTimeToLiveSeconds) {
     super();
     this.invalidTokenRetryLimit = invalidTokenRetryLimit;
+    this.maxTimeToLiveMillis = TimeUnit.SECONDS.toMillis(maxTimeToLiveSeconds);
+    this.cache = CacheBuilder
+        .newBuilder()
+        .maximumSize(cacheMaxSize)
+        .expireAfterWrite(maxTimeToLiveSeconds, TimeUnit.SECONDS)
+        .build();
+  }
+
+  @Override
+  public void setAccessTokenConverter(AccessTokenConverter accessTokenConverter) {
+    super.setAccessTokenConverter(new ExpirationReadingConverter(accessTokenConverter));
   }
 
   @Override
   public OAuth2Authentication loadAuthentication(String accessToken) {
-    return loadAuthentication(accessToken, 0);
+    String key = Hashing.sha256().hashString(accessToken, StandardCharsets.UTF_8).toString();
+    CachedAuthentication cached = cache.getIfPresent(key);
+
+    if (null != cached && cached.isExpired()) {
+      cache.asMap().remove(key, cached);
+      cached = null;
+    }
+
+    try {
+      if (null == cached) {
+        // concurrent requests with the same token wait for the first check to be done
+        cached = cache.get(key, () -> load(accessToken));
+      }
+    } catch (ExecutionException | UncheckedExecutionException exp) {
+      if (exp.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) exp.getCause();
+      }
+
+      throw new IllegalStateException(exp.getCause());
+    }
+
+    // the authentication is modified for each request, so every request gets its own copy
+    return new OAuth2Authentication(cached.authentication.getOAuth2Request(),
+        cached.authentication.getUserAuthentication());
+  }
+
+  private CachedAuthentication load(String accessToken) {
+    OAuth2Authentication authentication = loadAuthentication(accessToken, 0);
+    long expiresAt = System.currentTimeMillis() + maxTimeToLiveMillis;
+
+    if (authentication.getDetails() instanceof TokenExpiration) {
+      long expiration = ((TokenExpiration) authentication.getDetails()).expiresAt;
+      expiresAt = Math.min(expiresAt, expiration);
+    }
+
+    return new CachedAuthentication(authentication, expiresAt);
   }
 
   private OAuth2Authentication loadAuthentication(String accessToken, int attempt) {
@@ -46,4 +126,53 @@ public class CustomTokenServices extends RemoteTokenServices {
       }
     }
   }
-}
\ No newline at end of file
+
+  @AllArgsConstructor
+  private static final class CachedAuthentication {
+    private final OAuth2Authentication authentication;
+    private final long expiresAt;
+
+    boolean isExpired() {
+      return System.currentTimeMillis() >= expiresAt;
+    }
+  }
+
+  @AllArgsConstructor
+  private static final class TokenExpiration {
+    private final long expiresAt;
+  }
+
+  /**
+   * Reads the expiration time of a token from the response of the auth service. The response is
+   * only available to the converter, so the time is passed in details of the authentication.
+   */
+  @AllArgsConstructor
+  private static final class ExpirationReadingConverter implements AccessTokenConverter {
+    private final AccessTokenConverter delegate;
+
+    @Override
+    public Map<String, ?> convertAccessToken(OAuth2AccessToken token,
+        OAuth2Authentication authentication) {
+      return delegate.convertAccessToken(token, authentication);
+    }
+
+    @Override
+    public OAuth2AccessToken extractAccessToken(String value, Map<String, ?> map) {
+      return delegate.extractAccessToken(value, map);
+    }
+
+    @Override
+    public OAuth2Authentication extractAuthentication(Map<String, ?> map) {
+      OAuth2Authentication authentication = delegate.extractAuthentication(map);
+      Object expiration = map.get(EXP);
+
+      if (expiration instanceof Number) {
+        authentication.setDetails(new TokenExpiration(
+            TimeUnit.SECONDS.toMillis(((Number) expiration).longValue())));
+      }
+
+      return authentication;
+    }
+  }
+
+}
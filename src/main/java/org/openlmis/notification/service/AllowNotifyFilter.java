@@ -16,13 +16,13 @@
 package org.openlmis.notification.service;
 
 import static org.apache.commons.lang3.BooleanUtils.isTrue;
+import static org.openlmis.notification.service.NotificationToSendRetriever.DELIVERY_CONTEXT_HEADER;
 import static org.openlmis.notification.service.NotificationToSendRetriever.IMPORTANT_HEADER;
 import static org.openlmis.notification.service.NotificationToSendRetriever.RECIPIENT_HEADER;
 import static org.openlmis.notification.service.NotificationToSendRetriever.START_CHANNEL;
 
 import java.util.UUID;
 import org.openlmis.notification.domain.UserContactDetails;
-import org.openlmis.notification.repository.UserContactDetailsRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,16 +38,17 @@ public class AllowNotifyFilter {
   static final String ALLOW_NOTIFY_CHANNEL = "notificationToSend.allowNotify";
 
   @Autowired
-  private UserContactDetailsRepository userContactDetailsRepository;
+  private DeliveryContextService deliveryContextService;
 
   /**
    * Checks if user should get a notification.
    */
   @Filter(inputChannel = START_CHANNEL, outputChannel = ALLOW_NOTIFY_CHANNEL)
   public boolean accept(@Header(RECIPIENT_HEADER) UUID recipient,
-      @Header(value = IMPORTANT_HEADER, required = false) Boolean important) {
-    UserContactDetails userContactDetails = userContactDetailsRepository.findById(recipient)
-        .orElse(null);
+      @Header(value = IMPORTANT_HEADER, required = false) Boolean important,
+      @Header(value = DELIVERY_CONTEXT_HEADER, required = false) DeliveryContext context) {
+    UserContactDetails userContactDetails = deliveryContextService
+        .getContactDetails(context, recipient);
 
     if (null == userContactDetails) {
       LOGGER.error("Can't send notification to a user with id {}"
@@ -0,0 +1,79 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import org.openlmis.notification.domain.AudienceFanOut;
+import org.openlmis.notification.service.referencedata.UserDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically sends pages of broadcasts to their audiences until there are no unfinished
+ * fan-outs. Several service instances can do it at the same time because each page is sent
+ * while the fan-out is leased. Pages are requested from the reference data service outside of
+ * any transaction, so no database connection is held while the service responds.
+ */
+@Component
+public class AudienceFanOutProcessor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AudienceFanOutProcessor.class);
+
+  @Autowired
+  private AudienceFanOutService audienceFanOutService;
+
+  /**
+   * Sends all pages of unfinished fan-outs.
+   */
+  @Scheduled(fixedDelayString = "${audience.intervalMillis}")
+  public void process() {
+    try {
+      boolean sent;
+
+      do {
+        sent = sendNextPage();
+      } while (sent);
+    } catch (RuntimeException exp) {
+      // the page is retried when the lease on its fan-out expires
+      LOGGER.error("Unable to send broadcasts to audiences", exp);
+    }
+  }
+
+  private boolean sendNextPage() {
+    AudienceFanOut fanOut = audienceFanOutService.claim().orElse(null);
+
+    if (null == fanOut) {
+      return false;
+    }
+
+    Page<UserDto> page;
+
+    try {
+      page = audienceFanOutService.findNextPage(fanOut);
+    } catch (RuntimeException exp) {
+      // the fan-out is retried later, so other fan-outs are sent in the meantime
+      audienceFanOutService.fail(fanOut.getId(), exp);
+      return true;
+    }
+
+    audienceFanOutService.sendPage(fanOut.getId(), page);
+    return true;
+  }
+
+}
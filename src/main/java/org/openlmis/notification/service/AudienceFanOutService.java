@@ -0,0 +1,234 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.openlmis.notification.domain.AudienceFanOut;
+import org.openlmis.notification.domain.Broadcast;
+import org.openlmis.notification.domain.UserContactDetails;
+import org.openlmis.notification.repository.AudienceFanOutRepository;
+import org.openlmis.notification.repository.BroadcastRepository;
+import org.openlmis.notification.repository.NotificationRepository;
+import org.openlmis.notification.repository.UserContactDetailsRepository;
+import org.openlmis.notification.service.referencedata.UserDto;
+import org.openlmis.notification.service.referencedata.UserReferenceDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Sends broadcasts to all users that have a right. The users are resolved by the reference data
+ * service page by page in the background (see {@link AudienceFanOutProcessor}), so only one page
+ * of an audience is kept in memory. A fan-out is claimed in a short transaction, its next page is
+ * requested without any transaction and then the page is added to the sending queue in another
+ * transaction together with the progress of the fan-out.
+ */
+@Service
+public class AudienceFanOutService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AudienceFanOutService.class);
+
+  private final String owner = UUID.randomUUID().toString();
+
+  @Autowired
+  private AudienceFanOutRepository audienceFanOutRepository;
+
+  @Autowired
+  private BroadcastRepository broadcastRepository;
+
+  @Autowired
+  private NotificationRepository notificationRepository;
+
+  @Autowired
+  private UserContactDetailsRepository userContactDetailsRepository;
+
+  @Autowired
+  private UserReferenceDataService userReferenceDataService;
+
+  @Autowired
+  private BroadcastService broadcastService;
+
+  @Value("${audience.pageSize}")
+  private int pageSize;
+
+  @Value("${audience.leaseSeconds}")
+  private long leaseSeconds;
+
+  @Value("${audience.retry.maxAttempts}")
+  private int maxAttempts;
+
+  @Value("${audience.retry.initialDelaySeconds}")
+  private long initialDelaySeconds;
+
+  @Value("${audience.retry.maxDelaySeconds}")
+  private long maxDelaySeconds;
+
+  /**
+   * Saves the given broadcast and schedules sending it to the given audience.
+   *
+   * @return the saved fan-out
+   */
+  @Transactional
+  public AudienceFanOut send(Broadcast broadcast, AudienceFanOut.Importer audience) {
+    broadcastRepository.save(broadcast);
+    return audienceFanOutRepository.save(new AudienceFanOut(broadcast, audience));
+  }
+
+  /**
+   * Claims the oldest unfinished fan-out that is due for its next page. The claim is a lease of
+   * this service instance, so the page can be requested without holding a transaction. If the
+   * fan-out is not updated before the lease expires, it is claimed again.
+   *
+   * @return the claimed fan-out or an empty optional if there are no unfinished fan-outs
+   */
+  @Transactional
+  public Optional<AudienceFanOut> claim() {
+    ZonedDateTime now = ZonedDateTime.now();
+    List<AudienceFanOut> claimed = audienceFanOutRepository.claim(now, 1);
+
+    if (claimed.isEmpty()) {
+      return Optional.empty();
+    }
+
+    AudienceFanOut fanOut = claimed.get(0);
+    fanOut.claim(owner, now.plusSeconds(leaseSeconds));
+
+    return Optional.of(fanOut);
+  }
+
+  /**
+   * Requests the next page of users of the given fan-out from the reference data service.
+   */
+  public Page<UserDto> findNextPage(AudienceFanOut fanOut) {
+    return userReferenceDataService.findByRight(fanOut.getRightId(), fanOut.getProgramId(),
+        fanOut.getSupervisoryNodeId(), fanOut.getWarehouseId(),
+        PageRequest.of(fanOut.getNextPage(), pageSize));
+  }
+
+  /**
+   * Sends the broadcast of the given claimed fan-out to users from the given page and saves the
+   * progress of the fan-out. Users that are not active, have no contact details or have already
+   * received the broadcast are skipped.
+   */
+  @Transactional
+  public void sendPage(UUID fanOutId, Page<UserDto> page) {
+    AudienceFanOut fanOut = findClaimed(fanOutId);
+
+    if (null == fanOut) {
+      return;
+    }
+
+    Set<UUID> recipients = findRecipients(fanOut.getBroadcast(), page.getContent());
+    broadcastService.addRecipients(fanOut.getBroadcast(), recipients);
+    fanOut.pageSent(recipients.size(), page.isLast() || !page.hasContent());
+
+    LOGGER.debug("Sent page {} of fan-out {} to {} recipients", page.getNumber(),
+        fanOut.getId(), recipients.size());
+  }
+
+  /**
+   * Records that the next page of the given claimed fan-out could not be requested. If the
+   * reference data service rejected the request, the fan-out is abandoned. Otherwise the page is
+   * retried after an exponentially growing delay, and the fan-out is abandoned when the maximum
+   * number of attempts is reached. Fan-outs waiting for a retry do not block other fan-outs.
+   */
+  @Transactional
+  public void fail(UUID fanOutId, RuntimeException error) {
+    AudienceFanOut fanOut = findClaimed(fanOutId);
+
+    if (null == fanOut) {
+      return;
+    }
+
+    if (error instanceof DataRetrievalException
+        && ((DataRetrievalException) error).getStatus().is4xxClientError()) {
+      LOGGER.error("Unable to resolve the audience of fan-out {}, abandoning it",
+          fanOutId, error);
+      fanOut.abandon(error.getMessage());
+      return;
+    }
+
+    fanOut.registerFailedAttempt();
+
+    if (fanOut.getAttemptCount() >= maxAttempts) {
+      LOGGER.error("Resolving the audience of fan-out {} failed {} times, abandoning it",
+          fanOutId, fanOut.getAttemptCount(), error);
+      fanOut.abandon(error.getMessage());
+      return;
+    }
+
+    ZonedDateTime nextAttempt = ZonedDateTime.now()
+        .plusSeconds(getRetryDelay(fanOut.getAttemptCount()));
+    fanOut.retryAt(nextAttempt);
+    LOGGER.warn("Unable to resolve the audience of fan-out {}, it will be retried at {}",
+        fanOutId, nextAttempt, error);
+  }
+
+  private AudienceFanOut findClaimed(UUID fanOutId) {
+    AudienceFanOut fanOut = audienceFanOutRepository.findById(fanOutId).orElse(null);
+
+    if (null == fanOut || !fanOut.isClaimedBy(owner)) {
+      LOGGER.warn("The lease on fan-out {} has been lost before its page was processed",
+          fanOutId);
+      return null;
+    }
+
+    return fanOut;
+  }
+
+  private long getRetryDelay(int attemptCount) {
+    // the delay doubles with each attempt, the shift is limited to avoid overflow
+    long delay = initialDelaySeconds << Math.min(attemptCount - 1, 30);
+    return Math.min(delay, maxDelaySeconds);
+  }
+
+  private Set<UUID> findRecipients(Broadcast broadcast, List<UserDto> users) {
+    Set<UUID> active = users
+        .stream()
+        .filter(UserDto::isActive)
+        .map(UserDto::getId)
+        .collect(Collectors.toSet());
+
+    if (active.isEmpty()) {
+      return active;
+    }
+
+    Set<UUID> recipients = userContactDetailsRepository
+        .findAllById(active)
+        .stream()
+        .map(UserContactDetails::getId)
+        .collect(Collectors.toSet());
+
+    if (!recipients.isEmpty()) {
+      // the audience could have changed between pages, so users may appear again
+      recipients.removeAll(notificationRepository
+          .findBroadcastRecipients(broadcast.getId(), recipients));
+    }
+
+    return recipients;
+  }
+
+}
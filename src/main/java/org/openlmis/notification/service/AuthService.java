@@ -17,23 +17,44 @@ package org.openlmis.notification.service;
 
 import static org.openlmis.notification.service.request.RequestHelper.createUri;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
 import org.apache.commons.codec.binary.Base64;
 import org.openlmis.notification.service.request.RequestParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestOperations;
-import org.springframework.web.client.RestTemplate;
 
+/**
+ * Obtains access tokens of this service from the auth service. The token is kept in memory and
+ * replaced in the background shortly before it expires (based on {@code expires_in} from the auth
+ * service), so callers only wait for a token when there is none yet, when it has expired or when
+ * it has been rejected. Only one refresh is done at a time.
+ */
 @Service
 public class AuthService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AuthService.class);
+
   private static final String ACCESS_TOKEN = "access_token";
+  private static final String EXPIRES_IN = "expires_in";
+
+  // how long to wait before the next attempt when a background refresh failed
+  private static final long REFRESH_RETRY_MILLIS = 10_000;
 
   @Value("${auth.server.clientId}")
   private String clientId;
@@ -44,15 +65,107 @@ public class AuthService {
   @Value("${auth.server.authorizationUrl}")
   private String authorizationUrl;
 
-  private RestOperations restTemplate = new RestTemplate();
+  @Value("${auth.server.tokenRefreshMarginSeconds}")
+  private long refreshMarginSeconds;
+
+  @Autowired
+  private RestOperations restTemplate;
+
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+
+  private ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+      .setNameFormat("auth-token-refresh")
+      .setDaemon(true)
+      .build());
+
+  private volatile Token token;
+  private volatile long nextRefreshAt;
 
   /**
    * Retrieves access token from the auth service.
    *
    * @return token.
    */
-  @Cacheable("token")
   public String obtainAccessToken() {
+    Token current = token;
+    long now = System.currentTimeMillis();
+
+    if (null == current || now >= current.expiresAt) {
+      return load().value;
+    }
+
+    if (now >= nextRefreshAt) {
+      scheduleRefresh();
+    }
+
+    return current.value;
+  }
+
+  /**
+   * Removes the current token, for example because it has been rejected. The next call of
+   * {@link #obtainAccessToken()} waits for a new token.
+   */
+  public synchronized void clearTokenCache() {
+    token = null;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private synchronized Token load() {
+    Token current = token;
+
+    // other threads could have loaded a new token while this one was waiting
+    if (null == current || System.currentTimeMillis() >= current.expiresAt) {
+      current = fetch();
+      update(current);
+    }
+
+    return current;
+  }
+
+  private void scheduleRefresh() {
+    if (!refreshing.compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      executor.execute(this::refresh);
+    } catch (RejectedExecutionException exp) {
+      // the application is shutting down
+      refreshing.set(false);
+    }
+  }
+
+  private void refresh() {
+    try {
+      update(fetch());
+    } catch (RuntimeException exp) {
+      // the current token is still valid, so it is used until the next attempt
+      nextRefreshAt = System.currentTimeMillis() + REFRESH_RETRY_MILLIS;
+      LOGGER.warn("Could not refresh the access token, retrying in {} ms",
+          REFRESH_RETRY_MILLIS, exp);
+    } finally {
+      refreshing.set(false);
+    }
+  }
+
+  private synchronized void update(Token loaded) {
+    token = loaded;
+
+    if (Long.MAX_VALUE == loaded.expiresAt) {
+      nextRefreshAt = Long.MAX_VALUE;
+    } else {
+      // refresh before the token expires, but not before half of its lifetime has passed
+      long lifetime = loaded.expiresAt - loaded.fetchedAt;
+      long margin = Math.min(TimeUnit.SECONDS.toMillis(refreshMarginSeconds), lifetime / 2);
+      nextRefreshAt = loaded.expiresAt - margin;
+    }
+  }
+
+  private Token fetch() {
     String plainCreds = clientId + ":" + clientSecret;
     byte[] plainCredsBytes = plainCreds.getBytes();
     byte[] base64CredsBytes = Base64.encodeBase64(plainCredsBytes);
@@ -67,15 +180,27 @@ public class AuthService {
         .init()
         .set("grant_type", "client_credentials");
 
+    long fetchedAt = System.currentTimeMillis();
     ResponseEntity<?> response = restTemplate.exchange(
         createUri(authorizationUrl, params), HttpMethod.POST, request, Object.class
     );
 
-    return ((Map<String, String>) response.getBody()).get(ACCESS_TOKEN);
+    Map<String, Object> body = (Map<String, Object>) response.getBody();
+    Object expiresIn = body.get(EXPIRES_IN);
+
+    // without the expiration time the token is used until it is rejected
+    long expiresAt = expiresIn instanceof Number
+        ? fetchedAt + TimeUnit.SECONDS.toMillis(((Number) expiresIn).longValue())
+        : Long.MAX_VALUE;
+
+    return new Token((String) body.get(ACCESS_TOKEN), fetchedAt, expiresAt);
   }
 
-  @CacheEvict(cacheNames = "token", allEntries = true)
-  public void clearTokenCache() {
-    // Intentionally blank
+  @AllArgsConstructor
+  private static final class Token {
+    private final String value;
+    private final long fetchedAt;
+    private final long expiresAt;
   }
+
 }
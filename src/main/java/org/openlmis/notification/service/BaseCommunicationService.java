@@ -24,28 +24,38 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import org.openlmis.notification.service.request.RequestHeaders;
 import org.openlmis.notification.service.request.RequestHelper;
 import org.openlmis.notification.service.request.RequestParameters;
+import org.openlmis.notification.service.request.SplitRequestExecutor;
+import org.openlmis.notification.util.DynamicPageTypeReference;
 import org.openlmis.notification.util.Merger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestOperations;
-import org.springframework.web.client.RestTemplate;
 
 @SuppressWarnings("PMD.TooManyMethods")
 public abstract class BaseCommunicationService<T> {
 
-  protected RestOperations restTemplate = new RestTemplate();
+  @Autowired
+  protected RestOperations restTemplate;
 
   @Autowired
   protected AuthService authService;
 
+  @Autowired
+  private SplitRequestExecutor splitRequestExecutor;
+
   @Value("${request.maxUrlLength}")
   private int maxUrlLength;
 
@@ -96,11 +106,8 @@ public abstract class BaseCommunicationService<T> {
       Class<E[]> type) {
     HttpEntity<Object> entity = RequestHelper
         .createEntity(payload, RequestHeaders.init().setAuth(authService.obtainAccessToken()));
-    List<E[]> arrays = new ArrayList<>();
-
-    for (URI uri : RequestHelper.splitRequest(url, parameters, maxUrlLength)) {
-      arrays.add(restTemplate.exchange(uri, method, entity, type).getBody());
-    }
+    List<E[]> arrays = executeAll(url, parameters,
+        uri -> restTemplate.exchange(uri, method, entity, type).getBody());
 
     E[] body = Merger
         .ofArrays(arrays)
@@ -110,6 +117,54 @@ public abstract class BaseCommunicationService<T> {
     return new ResponseEntity<>(body, HttpStatus.OK);
   }
 
+  /**
+   * Return a page of reference data T objects. If the URL would be too long, the request is split
+   * into several requests and their pages are merged.
+   *
+   * @param resourceUrl Endpoint url.
+   * @param parameters  Map of query parameters.
+   * @return a page of reference data T objects.
+   */
+  protected Page<T> getPage(String resourceUrl, RequestParameters parameters) {
+    String url = getServiceUrl() + getUrl() + resourceUrl;
+
+    try {
+      ResponseEntity<PageDto<T>> responseEntity = runWithTokenRetry(
+          () -> doPageRequest(url, parameters, getResultClass())
+      );
+
+      return responseEntity.getBody();
+    } catch (HttpStatusCodeException ex) {
+      throw buildDataRetrievalException(ex);
+    }
+  }
+
+  private <E> ResponseEntity<PageDto<E>> doPageRequest(String url, RequestParameters parameters,
+      Class<E> type) {
+    HttpEntity<Object> entity = createEntity();
+    ParameterizedTypeReference<PageDto<E>> parameterizedType =
+        new DynamicPageTypeReference<>(type);
+    List<PageDto<E>> pages = executeAll(url, parameters,
+        uri -> restTemplate.exchange(uri, HttpMethod.GET, entity, parameterizedType).getBody());
+
+    PageDto<E> body = Merger
+        .ofPages(pages)
+        .withDefaultValue(PageDto::new)
+        .merge();
+
+    return new ResponseEntity<>(body, HttpStatus.OK);
+  }
+
+  private <R> List<R> executeAll(String url, RequestParameters parameters,
+      Function<URI, R> request) {
+    List<Supplier<R>> requests = Arrays
+        .stream(RequestHelper.splitRequest(url, parameters, maxUrlLength))
+        .map(uri -> (Supplier<R>) () -> request.apply(uri))
+        .collect(Collectors.toList());
+
+    return splitRequestExecutor.executeAll(requests);
+  }
+
   protected <P> ResponseEntity<P> runWithTokenRetry(HttpTask<P> task) {
     try {
       return task.run();
@@ -0,0 +1,142 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.openlmis.notification.domain.Broadcast;
+import org.openlmis.notification.domain.BroadcastMessage;
+import org.openlmis.notification.domain.Notification;
+import org.openlmis.notification.domain.NotificationMessage;
+import org.openlmis.notification.domain.PendingNotification;
+import org.openlmis.notification.repository.BroadcastRepository;
+import org.openlmis.notification.repository.NotificationRepository;
+import org.openlmis.notification.repository.PendingNotificationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Sends the same messages to many users. The messages are saved once and every recipient only
+ * gets a notification that refers to them, so the size of a broadcast grows with the number of
+ * recipients only by a few small rows.
+ *
+ * <p>Messages of broadcasts are read through a cache when notifications are sent. Broadcasts are
+ * never changed, so cached messages do not have to be invalidated.
+ */
+@Service
+public class BroadcastService {
+
+  private final BroadcastRepository broadcastRepository;
+  private final NotificationRepository notificationRepository;
+  private final PendingNotificationRepository pendingNotificationRepository;
+  private final LoadingCache<UUID, Map<NotificationChannel, NotificationMessage>> messages;
+
+  /**
+   * Creates a new instance of the service.
+   */
+  @Autowired
+  public BroadcastService(BroadcastRepository broadcastRepository,
+      NotificationRepository notificationRepository,
+      PendingNotificationRepository pendingNotificationRepository,
+      @Value("${broadcast.cache.maxSize}") long cacheMaxSize) {
+    this.broadcastRepository = broadcastRepository;
+    this.notificationRepository = notificationRepository;
+    this.pendingNotificationRepository = pendingNotificationRepository;
+    this.messages = CacheBuilder
+        .newBuilder()
+        .maximumSize(cacheMaxSize)
+        .build(CacheLoader.from(this::loadMessages));
+  }
+
+  /**
+   * Saves the given broadcast and adds its messages to the sending queue of each recipient.
+   *
+   * @return notifications of the recipients
+   */
+  @Transactional
+  public List<Notification> send(Broadcast broadcast, Collection<UUID> recipients) {
+    broadcastRepository.save(broadcast);
+    return addRecipients(broadcast, recipients);
+  }
+
+  /**
+   * Adds messages of the given saved broadcast to the sending queue of each recipient. A recipient
+   * that is passed several times gets a single notification.
+   *
+   * @return notifications of the recipients
+   */
+  @Transactional
+  public List<Notification> addRecipients(Broadcast broadcast, Collection<UUID> recipients) {
+    List<Notification> notifications = recipients
+        .stream()
+        .distinct()
+        .map(recipient -> new Notification(recipient, broadcast))
+        .collect(Collectors.toList());
+
+    notificationRepository.saveAll(notifications);
+
+    List<PendingNotification> pendingNotifications = notifications
+        .stream()
+        .flatMap(notification -> broadcast
+            .getMessages()
+            .stream()
+            .map(message -> new PendingNotification(notification, message.getChannel())))
+        .collect(Collectors.toList());
+
+    pendingNotificationRepository.saveAll(pendingNotifications);
+
+    return notifications;
+  }
+
+  /**
+   * Returns the message of the given broadcast for the given channel.
+   *
+   * @return the message or null if the broadcast has no message for the channel
+   */
+  public NotificationMessage getMessage(UUID broadcastId, NotificationChannel channel) {
+    return messages.getUnchecked(broadcastId).get(channel);
+  }
+
+  /**
+   * Returns all messages of the given broadcast.
+   *
+   * @return the messages or an empty list if the broadcast does not exist
+   */
+  public List<NotificationMessage> getMessages(UUID broadcastId) {
+    return ImmutableList.copyOf(messages.getUnchecked(broadcastId).values());
+  }
+
+  private Map<NotificationChannel, NotificationMessage> loadMessages(UUID broadcastId) {
+    return broadcastRepository
+        .findById(broadcastId)
+        .map(Broadcast::getMessages)
+        .orElseGet(ImmutableList::of)
+        .stream()
+        .collect(ImmutableMap.toImmutableMap(BroadcastMessage::getChannel,
+            BroadcastMessage::toNotificationMessage));
+  }
+
+}
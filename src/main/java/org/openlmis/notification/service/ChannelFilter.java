@@ -15,6 +15,7 @@
 
 package org.openlmis.notification.service;
 
+import static org.openlmis.notification.service.NotificationToSendRetriever.DELIVERY_CONTEXT_HEADER;
 import static org.openlmis.notification.service.NotificationToSendRetriever.RECIPIENT_HEADER;
 import static org.openlmis.notification.service.NotificationTransformer.CHANNEL_HEADER;
 import static org.openlmis.notification.service.NotificationTransformer.TAG_HEADER;
@@ -23,7 +24,6 @@ import java.util.Optional;
 import java.util.UUID;
 import java.util.function.Predicate;
 import org.openlmis.notification.domain.DigestSubscription;
-import org.openlmis.notification.repository.DigestSubscriptionRepository;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,7 +41,7 @@ public class ChannelFilter {
   static final String FILTER_CHANNEL = "notificationToSend.filter";
 
   @Autowired
-  private DigestSubscriptionRepository repository;
+  private DeliveryContextService deliveryContextService;
 
   /**
    * Checks if user prefers the channel for the given notification.
@@ -49,10 +49,12 @@ public class ChannelFilter {
   @Filter(inputChannel = FILTER_CHANNEL, outputChannel = READY_TO_SEND_CHANNEL)
   public boolean accept(@Header(RECIPIENT_HEADER) UUID recipient,
       @Header(CHANNEL_HEADER) NotificationChannel channel,
-      @Header(value = TAG_HEADER, required = false) String messageTag) {
+      @Header(value = TAG_HEADER, required = false) String messageTag,
+      @Header(value = DELIVERY_CONTEXT_HEADER, required = false) DeliveryContext context) {
     XLOGGER.entry(recipient, channel, messageTag);
 
-    Optional<DigestSubscription> subscriptionForTag = repository.getUserSubscriptions(recipient)
+    Optional<DigestSubscription> subscriptionForTag = deliveryContextService
+        .getSubscriptions(context, recipient)
         .stream()
         .filter(buildTagMatcher(messageTag))
         .findFirst();
@@ -0,0 +1,44 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import java.util.List;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.openlmis.notification.domain.DigestSubscription;
+import org.openlmis.notification.domain.UserContactDetails;
+
+/**
+ * Everything that is needed to deliver a notification to its recipient. It is loaded once when
+ * the notification is claimed and passed through the sending flow as a message header, so the
+ * filters and handlers do not have to read the same data from the database again.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public final class DeliveryContext {
+  private final UUID recipient;
+
+  // null if the recipient has no contact details
+  private final UserContactDetails contactDetails;
+
+  private final List<DigestSubscription> subscriptions;
+
+}
@@ -0,0 +1,97 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.openlmis.notification.domain.DigestSubscription;
+import org.openlmis.notification.domain.UserContactDetails;
+import org.openlmis.notification.repository.DigestSubscriptionRepository;
+import org.openlmis.notification.repository.UserContactDetailsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Loads {@link DeliveryContext}s of notification recipients. Messages that do not carry a
+ * context (for example digests) fall back to reading the data from the database.
+ */
+@Service
+public class DeliveryContextService {
+
+  @Autowired
+  private UserContactDetailsRepository userContactDetailsRepository;
+
+  @Autowired
+  private DigestSubscriptionRepository digestSubscriptionRepository;
+
+  /**
+   * Loads contexts of all given recipients at once.
+   */
+  public Map<UUID, DeliveryContext> load(Collection<UUID> recipients) {
+    Set<UUID> ids = new HashSet<>(recipients);
+
+    if (ids.isEmpty()) {
+      return Collections.emptyMap();
+    }
+
+    Map<UUID, UserContactDetails> contactDetails = userContactDetailsRepository
+        .findAllById(ids)
+        .stream()
+        .collect(Collectors.toMap(UserContactDetails::getId, Function.identity()));
+
+    Map<UUID, List<DigestSubscription>> subscriptions = digestSubscriptionRepository
+        .getUsersSubscriptions(ids)
+        .stream()
+        .collect(Collectors.groupingBy(item -> item.getUserContactDetails().getId()));
+
+    return ids
+        .stream()
+        .collect(Collectors.toMap(Function.identity(), id -> new DeliveryContext(id,
+            contactDetails.get(id), subscriptions.getOrDefault(id, Collections.emptyList()))));
+  }
+
+  /**
+   * Returns contact details of the recipient from the context or from the database if the
+   * context is not available.
+   */
+  public UserContactDetails getContactDetails(DeliveryContext context, UUID recipient) {
+    if (null != context) {
+      return context.getContactDetails();
+    }
+
+    return userContactDetailsRepository.findById(recipient).orElse(null);
+  }
+
+  /**
+   * Returns digest subscriptions of the recipient from the context or from the database if the
+   * context is not available.
+   */
+  public List<DigestSubscription> getSubscriptions(DeliveryContext context, UUID recipient) {
+    if (null != context) {
+      return context.getSubscriptions();
+    }
+
+    return digestSubscriptionRepository.getUserSubscriptions(recipient);
+  }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import org.openlmis.notification.domain.DigestConfiguration;
+import org.openlmis.notification.repository.DigestConfigurationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps all digest configurations in memory. Configurations are loaded right after the start and
+ * then reloaded in the refresh interval. A configuration that has been added since the last
+ * refresh is read from the database on first use and causes an immediate refresh. Tags and IDs
+ * that do not exist in the database are remembered until the next refresh, so messages with an
+ * unknown tag do not query the database each time. They are kept in the same snapshot as the
+ * configurations, so a refresh replaces both at once.
+ */
+@Component
+public class DigestConfigurationRegistry {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DigestConfigurationRegistry.class);
+
+  // the number of unknown tags and IDs that are remembered, the least recently used are dropped
+  static final long MAX_MISSING_KEYS = 1000;
+
+  @Autowired
+  private DigestConfigurationRepository digestConfigurationRepository;
+
+  private volatile Snapshot snapshot = new Snapshot(Collections.emptyList());
+
+  /**
+   * Finds a digest configuration with the given tag.
+   *
+   * @return the configuration or null if it does not exist.
+   */
+  public DigestConfiguration findByTag(String tag) {
+    Snapshot current = snapshot;
+    DigestConfiguration configuration = current.byTag.get(tag);
+
+    if (null != configuration || null != current.missingTags.getIfPresent(tag)) {
+      return configuration;
+    }
+
+    if (null == digestConfigurationRepository.findByTag(tag)) {
+      current.missingTags.put(tag, Boolean.TRUE);
+      return null;
+    }
+
+    refresh();
+    return snapshot.byTag.get(tag);
+  }
+
+  /**
+   * Finds a digest configuration with the given ID.
+   *
+   * @return the configuration or null if it does not exist.
+   */
+  public DigestConfiguration findById(UUID id) {
+    Snapshot current = snapshot;
+    DigestConfiguration configuration = current.byId.get(id);
+
+    if (null != configuration || null != current.missingIds.getIfPresent(id)) {
+      return configuration;
+    }
+
+    if (!digestConfigurationRepository.existsById(id)) {
+      current.missingIds.put(id, Boolean.TRUE);
+      return null;
+    }
+
+    refresh();
+    return snapshot.byId.get(id);
+  }
+
+  /**
+   * Reloads all digest configurations from the database.
+   */
+  @Scheduled(initialDelay = 0,
+      fixedDelayString = "#{${digestConfiguration.refreshIntervalSeconds} * 1000}")
+  public synchronized void refresh() {
+    List<DigestConfiguration> configurations = digestConfigurationRepository.findAll();
+
+    // the new snapshot has no misses, so they are checked again against the loaded configurations
+    snapshot = new Snapshot(configurations);
+
+    LOGGER.debug("Loaded {} digest configurations", configurations.size());
+  }
+
+  private static final class Snapshot {
+    private final ImmutableMap<String, DigestConfiguration> byTag;
+    private final ImmutableMap<UUID, DigestConfiguration> byId;
+    private final Cache<String, Boolean> missingTags = newMissingKeys();
+    private final Cache<UUID, Boolean> missingIds = newMissingKeys();
+
+    Snapshot(List<DigestConfiguration> configurations) {
+      this.byId = configurations
+          .stream()
+          .collect(ImmutableMap.toImmutableMap(DigestConfiguration::getId, Function.identity()));
+      this.byTag = configurations
+          .stream()
+          .collect(ImmutableMap.toImmutableMap(DigestConfiguration::getTag,
+              Function.identity()));
+    }
+
+    private static <K> Cache<K, Boolean> newMissingKeys() {
+      return CacheBuilder
+          .newBuilder()
+          .maximumSize(MAX_MISSING_KEYS)
+          .build();
+    }
+  }
+
+}
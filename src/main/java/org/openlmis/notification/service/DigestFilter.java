@@ -18,17 +18,15 @@ package org.openlmis.notification.service;
 import static org.apache.commons.lang3.BooleanUtils.isTrue;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.openlmis.notification.service.ChannelFilter.READY_TO_SEND_CHANNEL;
+import static org.openlmis.notification.service.NotificationToSendRetriever.DELIVERY_CONTEXT_HEADER;
 import static org.openlmis.notification.service.NotificationToSendRetriever.IMPORTANT_HEADER;
 import static org.openlmis.notification.service.NotificationToSendRetriever.RECIPIENT_HEADER;
 import static org.openlmis.notification.service.NotificationTransformer.TAG_HEADER;
 
+import java.util.Objects;
 import java.util.UUID;
-import org.openlmis.notification.domain.DigestConfiguration;
 import org.openlmis.notification.domain.DigestSubscription;
-import org.openlmis.notification.repository.DigestConfigurationRepository;
-import org.openlmis.notification.repository.DigestSubscriptionRepository;
-import org.openlmis.notification.service.referencedata.TogglzFeatureDto;
-import org.openlmis.notification.service.referencedata.TogglzReferenceDataService;
+import org.openlmis.notification.service.referencedata.TogglzFeatureCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -47,13 +45,10 @@ public class DigestFilter {
   static final String CONSOLIDATE_NOTIFICATIONS = "CONSOLIDATE_NOTIFICATIONS";
 
   @Autowired
-  private TogglzReferenceDataService togglzReferenceDataService;
+  private TogglzFeatureCache togglzFeatureCache;
 
   @Autowired
-  private DigestConfigurationRepository digestConfigurationRepository;
-
-  @Autowired
-  private DigestSubscriptionRepository digestSubscriptionRepository;
+  private DeliveryContextService deliveryContextService;
 
   /**
    * Checks if the notification should be sent now or postpone for later.
@@ -61,13 +56,14 @@ public class DigestFilter {
   @Router(inputChannel = READY_TO_SEND_CHANNEL)
   public String route(@Header(RECIPIENT_HEADER) UUID recipient,
       @Header(value = IMPORTANT_HEADER, required = false) Boolean important,
-      @Header(value = TAG_HEADER, required = false) String tag) {
+      @Header(value = TAG_HEADER, required = false) String tag,
+      @Header(value = DELIVERY_CONTEXT_HEADER, required = false) DeliveryContext context) {
     if (isTrue(important)) {
       LOGGER.debug("The important flag is set");
       return SEND_NOW_PREPARE_CHANNEL;
     }
 
-    if (!isFeatureActive()) {
+    if (!togglzFeatureCache.isActive(CONSOLIDATE_NOTIFICATIONS)) {
       LOGGER.warn("Digest feature is disabled");
       return SEND_NOW_PREPARE_CHANNEL;
     }
@@ -77,14 +73,13 @@ public class DigestFilter {
       return SEND_NOW_PREPARE_CHANNEL;
     }
 
-    DigestConfiguration configuration = digestConfigurationRepository.findByTag(tag);
-
-    if (null == configuration) {
-      LOGGER.info("Digest configuration for tag {} does not exist", tag);
-      return SEND_NOW_PREPARE_CHANNEL;
-    }
-
-    DigestSubscription subscription = digestSubscriptionRepository.findBy(recipient, configuration);
+    // a subscription can only exist for a tag that has a digest configuration
+    DigestSubscription subscription = deliveryContextService
+        .getSubscriptions(context, recipient)
+        .stream()
+        .filter(item -> Objects.equals(tag, item.getDigestConfiguration().getTag()))
+        .findFirst()
+        .orElse(null);
 
     if (null == subscription) {
       LOGGER.info("A notification for a user {} with {} tag will be sent now", recipient, tag);
@@ -100,14 +95,4 @@ public class DigestFilter {
     return SEND_NOW_POSTPONE_CHANNEL;
   }
 
-  private boolean isFeatureActive() {
-    return togglzReferenceDataService
-        .findAll()
-        .stream()
-        .filter(feature -> CONSOLIDATE_NOTIFICATIONS.equals(feature.getName()))
-        .findFirst()
-        .map(TogglzFeatureDto::isEnabled)
-        .orElse(false);
-  }
-
 }
@@ -22,17 +22,14 @@ import static org.openlmis.notification.service.NotificationTransformer.CHANNEL_
 import static org.openlmis.notification.service.PostponeMessageRetriever.CONFIGURATION_ID_HEADER;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 import org.apache.commons.text.StringSubstitutor;
 import org.openlmis.notification.domain.DigestConfiguration;
 import org.openlmis.notification.domain.NotificationMessage;
-import org.openlmis.notification.domain.PostponeMessage;
 import org.openlmis.notification.i18n.Message;
 import org.openlmis.notification.i18n.MessageService;
-import org.openlmis.notification.repository.DigestConfigurationRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -48,7 +45,7 @@ public class DigestNotificationCreator {
   private static final Logger LOGGER = LoggerFactory.getLogger(DigestNotificationCreator.class);
 
   @Autowired
-  private DigestConfigurationRepository digestConfigurationRepository;
+  private DigestConfigurationRegistry digestConfigurationRegistry;
 
   @Autowired
   private MessageService messageService;
@@ -57,16 +54,15 @@ public class DigestNotificationCreator {
   private String serviceUrl;
 
   /**
-   * Creates a digest message based on postpone messages.
+   * Creates a digest message based on a summary of postpone messages.
    */
   @Transformer(inputChannel = AGGREGATE_POSTPONE_CHANNEL, outputChannel = SEND_NOW_PREPARE_CHANNEL)
   public org.springframework.messaging.Message createDigestNotification(
-      List<PostponeMessage> postponeMessages,
+      DigestSummary digest,
       @Header(RECIPIENT_HEADER) UUID recipient,
       @Header(CONFIGURATION_ID_HEADER) UUID configurationId,
       @Header(CHANNEL_HEADER) NotificationChannel channel) {
-    DigestConfiguration configuration = digestConfigurationRepository.findById(configurationId)
-        .orElse(null);
+    DigestConfiguration configuration = digestConfigurationRegistry.findById(configurationId);
 
     if (Objects.isNull(configuration)) {
       LOGGER.error("Can't find digest configuration with id: {}", configurationId);
@@ -75,11 +71,11 @@ public class DigestNotificationCreator {
 
     Map<String, String> valuesMap = new HashMap<>();
     valuesMap.put("serviceUrl", serviceUrl);
-    valuesMap.put("count", String.valueOf(postponeMessages.size()));
+    valuesMap.put("count", String.valueOf(digest.getCount()));
 
     StringSubstitutor sub = new StringSubstitutor(valuesMap);
 
-    String subject = postponeMessages.get(0).getSubject();
+    String subject = digest.getSubject();
 
     String messageKey = configuration.getMessage();
     String messageBody = messageService.localize(new Message(messageKey)).asMessage();
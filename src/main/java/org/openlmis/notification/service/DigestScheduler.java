@@ -0,0 +1,158 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import org.openlmis.notification.domain.DigestSubscription;
+import org.openlmis.notification.repository.DigestSubscriptionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.support.CronSequenceGenerator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Keeps the time of the next digest of each subscription in the database. A digest is scheduled
+ * for the next time matching the cron expression of the subscription when a message is postponed
+ * and it is sent by the digest poller (see {@link PostponeMessageRetriever}) once it becomes due.
+ * The number of scheduled tasks does not depend on the number of subscriptions.
+ *
+ * <p>Most users keep the default cron expression, so their digests would become due at the same
+ * time. When a spread window is set, the digests of each user are shifted by a fixed offset
+ * within the window that is derived from the user ID, so the digests are sent evenly across the
+ * window and a user always gets their digests at the same time.
+ */
+@Service
+public class DigestScheduler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DigestScheduler.class);
+
+  @Autowired
+  private DigestSubscriptionRepository digestSubscriptionRepository;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Value("${time.zoneId}")
+  private String timeZoneId;
+
+  @Value("${digest.spreadWindowSeconds}")
+  private long spreadWindowSeconds;
+
+  /**
+   * Schedules the next digest of the given subscription unless it has been already scheduled.
+   */
+  public void schedule(DigestSubscription subscription) {
+    if (null == subscription.getCronExpression()) {
+      return;
+    }
+
+    digestSubscriptionRepository.scheduleDigest(subscription.getId(), getNextRun(subscription));
+  }
+
+  /**
+   * Schedules the next digests of the given subscriptions. Used when subscriptions have been
+   * replaced, so messages that had been postponed before are not left behind.
+   */
+  public void schedule(Collection<DigestSubscription> subscriptions) {
+    subscriptions.forEach(this::schedule);
+  }
+
+  /**
+   * Schedules digests of subscriptions that have postponed messages but no scheduled digest, for
+   * example when the service stopped right after a message had been postponed or when messages
+   * had been postponed before digests were scheduled in the database. Subscriptions are streamed,
+   * so a large backlog is not loaded into memory at once.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional
+  public void scheduleMissingDigests() {
+    AtomicLong count = new AtomicLong();
+
+    try (Stream<DigestSubscription> subscriptions = digestSubscriptionRepository
+        .streamUnscheduledWithPostponeMessages()) {
+      subscriptions.forEach(subscription -> {
+        schedule(subscription);
+        // keeps the persistence context small
+        entityManager.detach(subscription);
+        count.incrementAndGet();
+      });
+    }
+
+    LOGGER.info("Scheduled {} digests with postponed messages", count);
+  }
+
+  /**
+   * Claims the subscription whose digest is due. The digest is moved to the next time matching
+   * the cron expression in a separate transaction, so if sending the digest fails, it is sent
+   * again at that time.
+   *
+   * @return the claimed subscription or null if there are no due digests.
+   */
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public DigestSubscription claim() {
+    DigestSubscription subscription = digestSubscriptionRepository
+        .claimDueDigest(ZonedDateTime.now());
+
+    if (null == subscription) {
+      return null;
+    }
+
+    if (null == subscription.getCronExpression()) {
+      digestSubscriptionRepository.clearNextRun(subscription.getId());
+    } else {
+      digestSubscriptionRepository.updateNextRun(subscription.getId(), getNextRun(subscription));
+    }
+
+    return subscription;
+  }
+
+  private ZonedDateTime getNextRun(DigestSubscription subscription) {
+    TimeZone timeZone = TimeZone.getTimeZone(timeZoneId);
+    Duration offset = getOffset(subscription.getUserContactDetails().getReferenceDataUserId());
+
+    // the next shifted time is the next time matching the cron expression after the current
+    // time shifted back, so a digest that is due later in the current window is not skipped
+    Date next = new CronSequenceGenerator(subscription.getCronExpression(), timeZone)
+        .next(Date.from(Instant.now().minus(offset)));
+
+    return ZonedDateTime.ofInstant(next.toInstant().plus(offset), timeZone.toZoneId());
+  }
+
+  Duration getOffset(UUID userId) {
+    if (spreadWindowSeconds <= 0) {
+      return Duration.ZERO;
+    }
+
+    long hash = userId.getMostSignificantBits() ^ userId.getLeastSignificantBits();
+    return Duration.ofSeconds(Math.floorMod(hash, spreadWindowSeconds));
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.openlmis.notification.repository.DigestSubscriptionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Schedules polls for due digests. After each poll the next poll is scheduled for the time when
+ * the earliest scheduled digest becomes due, but not later than after the idle interval, so
+ * digests scheduled in the meantime (also by other service instances) are not missed. The trigger
+ * never blocks the scheduler thread, which is shared by all pollers.
+ */
+@Component
+public class DigestTrigger implements Trigger {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DigestTrigger.class);
+
+  private final DigestSubscriptionRepository digestSubscriptionRepository;
+  private final long idleIntervalMillis;
+
+  public DigestTrigger(DigestSubscriptionRepository digestSubscriptionRepository,
+      @Value("${digest.idleIntervalSeconds}") long idleIntervalSeconds) {
+    this.digestSubscriptionRepository = digestSubscriptionRepository;
+    this.idleIntervalMillis = TimeUnit.SECONDS.toMillis(idleIntervalSeconds);
+  }
+
+  @Override
+  public Date nextExecutionTime(TriggerContext triggerContext) {
+    if (null == triggerContext.lastCompletionTime()) {
+      // the first poll is executed right after the start
+      return new Date();
+    }
+
+    return new Date(findNextRun());
+  }
+
+  private long findNextRun() {
+    long idleUntil = System.currentTimeMillis() + idleIntervalMillis;
+
+    try {
+      return digestSubscriptionRepository
+          .findEarliestNextRun()
+          .map(earliest -> Math.min(earliest.toInstant().toEpochMilli(), idleUntil))
+          .orElse(idleUntil);
+    } catch (RuntimeException exp) {
+      // an exception would stop the poller
+      LOGGER.warn("Could not find the next digest, polling again in {} ms",
+          idleIntervalMillis, exp);
+      return idleUntil;
+    }
+  }
+
+}
@@ -20,36 +20,22 @@ import static org.openlmis.notification.service.NotificationToSendRetriever.RECI
 import static org.openlmis.notification.service.NotificationTransformer.CHANNEL_HEADER;
 import static org.openlmis.notification.service.NotificationTransformer.TAG_HEADER;
 
-import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Table;
-import java.util.Map;
-import java.util.TimeZone;
 import java.util.UUID;
-import javax.persistence.EntityManager;
 import org.openlmis.notification.domain.DigestConfiguration;
 import org.openlmis.notification.domain.DigestSubscription;
 import org.openlmis.notification.domain.NotificationMessage;
 import org.openlmis.notification.domain.PostponeMessage;
-import org.openlmis.notification.repository.DigestConfigurationRepository;
 import org.openlmis.notification.repository.DigestSubscriptionRepository;
 import org.openlmis.notification.repository.PostponeMessageRepository;
+import org.openlmis.notification.repository.PostponedDigestRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.integration.annotation.MessageEndpoint;
 import org.springframework.integration.annotation.ServiceActivator;
-import org.springframework.integration.endpoint.AbstractEndpoint;
-import org.springframework.integration.endpoint.SourcePollingChannelAdapter;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.scheduling.support.CronTrigger;
-import org.springframework.transaction.PlatformTransactionManager;
-import org.springframework.transaction.interceptor.MatchAlwaysTransactionAttributeSource;
-import org.springframework.transaction.interceptor.TransactionInterceptor;
 
 @MessageEndpoint
 public class DigestionService {
@@ -58,11 +44,8 @@ public class DigestionService {
 
   static final String AGGREGATE_POSTPONE_CHANNEL = "notificationToSend.sendNow.postpone.aggregate";
 
-  @Value("${time.zoneId}")
-  private String timeZoneId;
-
   @Autowired
-  private DigestConfigurationRepository digestConfigurationRepository;
+  private DigestConfigurationRegistry digestConfigurationRegistry;
 
   @Autowired
   private DigestSubscriptionRepository digestSubscriptionRepository;
@@ -71,24 +54,13 @@ public class DigestionService {
   private PostponeMessageRepository postponeMessageRepository;
 
   @Autowired
-  private PlatformTransactionManager transactionManager;
-
-  @Autowired
-  private EntityManager entityManager;
+  private PostponedDigestRepository postponedDigestRepository;
 
   @Autowired
-  private BeanFactory beanFactory;
+  private DigestScheduler digestScheduler;
 
-  private Table<UUID, String, SourcePollingChannelAdapter> adapters;
-
-  public DigestionService() {
-    this(HashBasedTable.create());
-  }
-
-  @VisibleForTesting
-  DigestionService(Table<UUID, String, SourcePollingChannelAdapter> adapters) {
-    this.adapters = adapters;
-  }
+  @Value("${digest.accumulate}")
+  private boolean accumulate;
 
   /**
    * Handle postpone notifications.
@@ -97,7 +69,7 @@ public class DigestionService {
   public final void handleMessage(@Payload NotificationMessage message,
       @Header(CHANNEL_HEADER) NotificationChannel channel,
       @Header(RECIPIENT_HEADER) UUID recipient, @Header(TAG_HEADER) String tag) {
-    DigestConfiguration configuration = digestConfigurationRepository.findByTag(tag);
+    DigestConfiguration configuration = digestConfigurationRegistry.findByTag(tag);
 
     if (null == configuration) {
       LOGGER.warn("Digest configuration for tag {} does not exist", tag);
@@ -111,48 +83,17 @@ public class DigestionService {
       return;
     }
 
-    String sendTime = subscription.getCronExpression();
-
-    postponeMessageRepository.saveAndFlush(
-        new PostponeMessage(configuration, message.getBody(),
-            message.getSubject(), recipient, channel));
-
-    if (!adapters.contains(recipient, tag)) {
-      setPollingAdapter(channel, configuration, recipient, sendTime);
+    if (accumulate) {
+      // the digest only needs the number of messages and the first subject
+      postponedDigestRepository
+          .accumulate(recipient, configuration.getId(), channel, message.getSubject());
+    } else {
+      postponeMessageRepository.saveAndFlush(
+          new PostponeMessage(configuration, message.getBody(),
+              message.getSubject(), recipient, channel));
     }
-  }
-
-  @VisibleForTesting
-  void setPollingAdapter(NotificationChannel channel, DigestConfiguration configuration,
-      UUID recipient, String cronExpression) {
-    SourcePollingChannelAdapter adapter = new SourcePollingChannelAdapter();
-
-    adapter.setOutputChannelName(AGGREGATE_POSTPONE_CHANNEL);
-
-    adapter.setSource(new PostponeMessageRetriever(entityManager,
-        channel, configuration.getId(), recipient));
-
-    adapter.setAdviceChain(Lists.newArrayList(new TransactionInterceptor(
-        transactionManager, new MatchAlwaysTransactionAttributeSource())));
-
-    adapter.setTrigger(new CronTrigger(cronExpression, TimeZone.getTimeZone(timeZoneId)));
-    adapter.setBeanFactory(beanFactory);
-
-    adapter.afterPropertiesSet();
-
-    adapter.start();
-
-    adapters.put(recipient, configuration.getTag(), adapter);
-  }
-
-  /**
-   * Drops all existing polling adapters for the given user.
-   */
-  public void dropExistingPollingAdapters(UUID userId) {
-    Map<String, SourcePollingChannelAdapter> row = adapters.row(userId);
 
-    row.values().forEach(AbstractEndpoint::stop);
-    row.clear();
+    digestScheduler.schedule(subscription);
   }
 
 }
@@ -17,6 +17,7 @@ package org.openlmis.notification.service;
 
 import static org.apache.commons.lang3.BooleanUtils.isTrue;
 import static org.openlmis.notification.service.NotificationChannelRouter.EMAIL_SEND_NOW_CHANNEL;
+import static org.openlmis.notification.service.NotificationToSendRetriever.DELIVERY_CONTEXT_HEADER;
 import static org.openlmis.notification.service.NotificationToSendRetriever.IMPORTANT_HEADER;
 import static org.openlmis.notification.service.NotificationToSendRetriever.RECIPIENT_HEADER;
 
@@ -24,7 +25,6 @@ import java.util.UUID;
 import org.apache.commons.lang3.StringUtils;
 import org.openlmis.notification.domain.NotificationMessage;
 import org.openlmis.notification.domain.UserContactDetails;
-import org.openlmis.notification.repository.UserContactDetailsRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -39,7 +39,7 @@ public class EmailNotificationChannelHandler {
   private static final String SIMAM = "simam";
 
   @Autowired
-  private UserContactDetailsRepository userContactDetailsRepository;
+  private DeliveryContextService deliveryContextService;
 
   @Autowired
   private EmailSender emailSender;
@@ -50,9 +50,10 @@ public class EmailNotificationChannelHandler {
   @ServiceActivator(inputChannel = EMAIL_SEND_NOW_CHANNEL)
   public void handle(NotificationMessage payload,
       @Header(RECIPIENT_HEADER) UUID recipient,
-      @Header(value = IMPORTANT_HEADER, required = false) Boolean important) {
-    UserContactDetails contactDetails = userContactDetailsRepository.findById(recipient)
-        .orElse(null);
+      @Header(value = IMPORTANT_HEADER, required = false) Boolean important,
+      @Header(value = DELIVERY_CONTEXT_HEADER, required = false) DeliveryContext context) {
+    UserContactDetails contactDetails = deliveryContextService
+        .getContactDetails(context, recipient);
 
     String tag = payload.getTag();
     Boolean isHtml = !StringUtils.isEmpty(tag) && tag.equals(SIMAM);
@@ -24,8 +24,8 @@ import org.openlmis.notification.domain.EmailVerificationToken;
 import org.openlmis.notification.domain.UserContactDetails;
 import org.openlmis.notification.i18n.ExposedMessageSource;
 import org.openlmis.notification.repository.EmailVerificationTokenRepository;
+import org.openlmis.notification.service.referencedata.UserCache;
 import org.openlmis.notification.service.referencedata.UserDto;
-import org.openlmis.notification.service.referencedata.UserReferenceDataService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
@@ -45,7 +45,7 @@ public class EmailVerificationNotifier {
   private EmailSender emailSender;
 
   @Autowired
-  private UserReferenceDataService userReferenceDataService;
+  private UserCache userCache;
   
   @Value("${publicUrl}")
   private String publicUrl;
@@ -90,7 +90,7 @@ public class EmailVerificationNotifier {
 
   private void sendEmail(UserContactDetails contactDetails, String email,
       EmailVerificationToken token, Locale locale) {
-    UserDto referenceDataUser = userReferenceDataService
+    UserDto referenceDataUser = userCache
         .findOne(contactDetails.getReferenceDataUserId());
 
     String[] bodyMsgArgs = {
@@ -0,0 +1,84 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.openlmis.notification.domain.Notification;
+import org.openlmis.notification.i18n.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically checks recipients of notifications that were accepted asynchronously. The intake
+ * is processed in batches until it is empty, so bursts are drained without waiting for the next
+ * run. Several service instances can process the intake at the same time because each batch only
+ * claims entries that are not leased by other instances. Recipients of a batch are checked
+ * outside of any transaction, so no database connection is held while the reference data service
+ * responds.
+ */
+@Component
+public class NotificationIntakeProcessor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(NotificationIntakeProcessor.class);
+
+  @Autowired
+  private NotificationService notificationService;
+
+  @Value("${notificationIntake.batchSize}")
+  private int batchSize;
+
+  /**
+   * Processes all notifications that are waiting in the intake.
+   */
+  @Scheduled(fixedDelayString = "${notificationIntake.intervalMillis}")
+  public void process() {
+    try {
+      int processed;
+
+      do {
+        processed = processBatch();
+        LOGGER.debug("Processed {} accepted notifications", processed);
+      } while (processed >= batchSize);
+    } catch (RuntimeException exp) {
+      // the batch stays in the intake and is claimed again when its lease expires
+      LOGGER.error("Unable to process accepted notifications", exp);
+    }
+  }
+
+  private int processBatch() {
+    List<Notification> notifications = notificationService.claimIntake(batchSize);
+
+    if (notifications.isEmpty()) {
+      return 0;
+    }
+
+    Map<UUID, Message> invalidRecipients = notificationService.findInvalidRecipients(notifications
+        .stream()
+        .map(Notification::getUserId)
+        .collect(Collectors.toSet()));
+
+    notificationService.completeIntake(notifications, invalidRecipients);
+    return notifications.size();
+  }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_USER_CONTACT_DETAILS_NOT_FOUND;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_USER_NOT_ACTIVE_OR_NOT_FOUND;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.openlmis.notification.domain.Notification;
+import org.openlmis.notification.domain.NotificationIntake;
+import org.openlmis.notification.domain.PendingNotification;
+import org.openlmis.notification.domain.UserContactDetails;
+import org.openlmis.notification.i18n.Message;
+import org.openlmis.notification.repository.NotificationIntakeRepository;
+import org.openlmis.notification.repository.NotificationRepository;
+import org.openlmis.notification.repository.PendingNotificationRepository;
+import org.openlmis.notification.repository.UserContactDetailsRepository;
+import org.openlmis.notification.service.referencedata.UserDto;
+import org.openlmis.notification.service.referencedata.UserReferenceDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Accepts many notifications at once. Recipients are checked with one query for their contact
+ * details and one (split if needed) request to the reference data service, and notifications are
+ * saved in one transaction, so the inserts can be batched.
+ *
+ * <p>Notifications can be also accepted asynchronously. They are saved (with their messages and
+ * attachments) together with an intake entry right away, so only checking their recipients and
+ * adding them to the sending queue is deferred. Recipients are checked later in batches (see
+ * {@link NotificationIntakeProcessor}). A batch is claimed in one short transaction and completed
+ * in another one, so no rows are locked while the recipients are checked.
+ */
+@Service
+public class NotificationService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(NotificationService.class);
+
+  private final String owner = UUID.randomUUID().toString();
+
+  @Autowired
+  private UserContactDetailsRepository userContactDetailsRepository;
+
+  @Autowired
+  private UserReferenceDataService userReferenceDataService;
+
+  @Autowired
+  private NotificationRepository notificationRepository;
+
+  @Autowired
+  private PendingNotificationRepository pendingNotificationRepository;
+
+  @Autowired
+  private NotificationIntakeRepository notificationIntakeRepository;
+
+  @Value("${notificationIntake.leaseSeconds}")
+  private long intakeLeaseSeconds;
+
+  /**
+   * Checks whether notifications can be sent to the given recipients. A recipient has to have
+   * contact details and has to be an active user.
+   *
+   * @param recipients IDs of users to check
+   * @return errors of recipients that cannot receive notifications, keyed by the recipient ID
+   */
+  public Map<UUID, Message> findInvalidRecipients(Collection<UUID> recipients) {
+    Set<UUID> withContactDetails = userContactDetailsRepository
+        .findAllById(recipients)
+        .stream()
+        .map(UserContactDetails::getReferenceDataUserId)
+        .collect(Collectors.toSet());
+
+    Map<UUID, UserDto> users = userReferenceDataService
+        .findByIds(withContactDetails)
+        .stream()
+        .collect(Collectors.toMap(UserDto::getId, Function.identity(), (one, other) -> one));
+
+    Map<UUID, Message> errors = new HashMap<>();
+
+    for (UUID recipient : recipients) {
+      UserDto user = users.get(recipient);
+
+      if (!withContactDetails.contains(recipient)) {
+        errors.put(recipient, new Message(ERROR_USER_CONTACT_DETAILS_NOT_FOUND));
+      } else if (null == user || !user.isActive()) {
+        errors.put(recipient, new Message(ERROR_USER_NOT_ACTIVE_OR_NOT_FOUND));
+      }
+    }
+
+    return errors;
+  }
+
+  /**
+   * Saves the given notifications and adds their messages to the sending queue.
+   */
+  @Transactional
+  public void saveAll(List<Notification> notifications) {
+    notificationRepository.saveAll(notifications);
+    addToSendingQueue(notifications);
+  }
+
+  /**
+   * Saves the given notification with its messages and attachments without checking its
+   * recipient. The recipient is checked and the messages are added to the sending queue by
+   * {@link NotificationIntakeProcessor}.
+   *
+   * @return ID of the saved notification
+   */
+  @Transactional
+  public UUID accept(Notification notification) {
+    notification.addToIntake();
+    notificationRepository.saveAndFlush(notification);
+    notificationIntakeRepository.add(notification.getId(), ZonedDateTime.now());
+
+    return notification.getId();
+  }
+
+  /**
+   * Claims up to the given number of the oldest accepted notifications whose recipients have not
+   * been checked yet. The claim is a lease of this service instance, so the recipients can be
+   * checked without holding a transaction. If the notifications are not completed before the
+   * lease expires (for example because the recipients could not be checked), they are claimed
+   * again.
+   *
+   * @return the claimed notifications
+   */
+  @Transactional
+  public List<Notification> claimIntake(int limit) {
+    ZonedDateTime now = ZonedDateTime.now();
+    ZonedDateTime leaseUntil = now.plusSeconds(intakeLeaseSeconds);
+
+    List<NotificationIntake> intake = notificationIntakeRepository.claim(now, limit);
+
+    if (intake.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    intake.forEach(entry -> entry.claim(owner, leaseUntil));
+
+    return notificationRepository.findAllById(intake
+        .stream()
+        .map(NotificationIntake::getNotificationId)
+        .collect(Collectors.toList()));
+  }
+
+  /**
+   * Completes the given notifications claimed by {@link #claimIntake(int)}. Messages of
+   * notifications with valid recipients are added to the sending queue and the notifications
+   * are removed from the intake. Other notifications stay in the intake as rejected. Notifications
+   * whose lease has been lost in the meantime are skipped, because another service instance
+   * processes them.
+   *
+   * @param notifications the claimed notifications
+   * @param invalidRecipients errors of recipients that cannot receive notifications
+   */
+  @Transactional
+  public void completeIntake(List<Notification> notifications,
+      Map<UUID, Message> invalidRecipients) {
+    Map<UUID, UUID> recipients = notifications
+        .stream()
+        .collect(Collectors.toMap(Notification::getId, Notification::getUserId));
+
+    ZonedDateTime now = ZonedDateTime.now();
+    List<NotificationIntake> accepted = new ArrayList<>();
+
+    for (NotificationIntake entry : notificationIntakeRepository.findAllById(recipients.keySet())) {
+      UUID notificationId = entry.getNotificationId();
+
+      if (!entry.isClaimedBy(owner)) {
+        LOGGER.warn("The lease on accepted notification {} has been lost before"
+            + " its recipient was checked", notificationId);
+        continue;
+      }
+
+      Message error = invalidRecipients.get(recipients.get(notificationId));
+
+      if (null == error) {
+        accepted.add(entry);
+      } else {
+        LOGGER.warn("Rejecting notification {}: {}", notificationId, error);
+        entry.reject(error, now);
+      }
+    }
+
+    List<Notification> acceptedNotifications = notificationRepository.findAllById(accepted
+        .stream()
+        .map(NotificationIntake::getNotificationId)
+        .collect(Collectors.toList()));
+    acceptedNotifications.forEach(Notification::removeFromIntake);
+
+    addToSendingQueue(acceptedNotifications);
+    notificationIntakeRepository.deleteInBatch(accepted);
+  }
+
+  private void addToSendingQueue(List<Notification> notifications) {
+    List<PendingNotification> pendingNotifications = notifications
+        .stream()
+        .flatMap(notification -> notification
+            .getMessages()
+            .stream()
+            .map(message -> new PendingNotification(notification, message.getChannel())))
+        .collect(Collectors.toList());
+
+    pendingNotificationRepository.saveAll(pendingNotifications);
+  }
+
+}
@@ -15,52 +15,76 @@
 
 package org.openlmis.notification.service;
 
-import com.google.common.annotations.VisibleForTesting;
-import javax.persistence.EntityManager;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import org.openlmis.notification.domain.Notification;
 import org.openlmis.notification.domain.PendingNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.integration.annotation.InboundChannelAdapter;
 import org.springframework.integration.annotation.MessageEndpoint;
-import org.springframework.integration.jpa.core.JpaExecutor;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.messaging.Message;
 
 @MessageEndpoint
 public class NotificationToSendRetriever {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(NotificationToSendRetriever.class);
+
   static final String START_CHANNEL = "notificationToSend.start";
 
   static final String RECIPIENT_HEADER = "recipient";
   static final String IMPORTANT_HEADER = "important";
   static final String CHANNEL_TO_USE_HEADER = "channelToUse";
+  static final String DELIVERY_CONTEXT_HEADER = "deliveryContext";
+  static final String RECEIPT_HEADER = "pendingNotificationReceipt";
 
-  private JpaExecutor jpaExecutor;
+  private final Queue<ClaimedNotification> claimed = new ConcurrentLinkedQueue<>();
 
-  @Autowired
-  public NotificationToSendRetriever(EntityManager entityManager) {
-    prepareJpaExecutor(entityManager);
-  }
+  private PendingNotificationService pendingNotificationService;
+  private DeliveryContextService deliveryContextService;
+  private PendingNotificationTrigger trigger;
+  private int batchSize;
 
-  @VisibleForTesting
-  NotificationToSendRetriever(JpaExecutor jpaExecutor) {
-    this.jpaExecutor = jpaExecutor;
+  /**
+   * Creates a new instance of the retriever.
+   */
+  @Autowired
+  public NotificationToSendRetriever(PendingNotificationService pendingNotificationService,
+      DeliveryContextService deliveryContextService, PendingNotificationTrigger trigger,
+      @Value("${notificationToSend.batchSize}") int batchSize) {
+    this.pendingNotificationService = pendingNotificationService;
+    this.deliveryContextService = deliveryContextService;
+    this.trigger = trigger;
+    this.batchSize = batchSize;
   }
 
   /**
-   * Finds the first notification that should be sent.
+   * Returns the next claimed notification that should be sent. If there are no claimed
+   * notifications left, a new batch is claimed together with delivery contexts of its recipients.
+   * The notification is removed from the queue by {@link PendingNotificationAcknowledger} once it
+   * has been handled, unless a handler has deferred its {@link PendingNotificationReceipt}.
    */
   @InboundChannelAdapter(
       channel = START_CHANNEL,
       autoStartup = "${notificationToSend.autoStartup:true}")
   public Message<Notification> retrieve() {
-    Object item = jpaExecutor.poll();
+    ClaimedNotification next = nextClaimed();
 
-    if (!(item instanceof PendingNotification)) {
+    if (null == next) {
       return null;
     }
 
-    PendingNotification pending = (PendingNotification) item;
+    PendingNotification pending = next.getPending();
     Notification notification = pending.getNotification();
 
     return MessageBuilder
@@ -68,22 +92,60 @@ public class NotificationToSendRetriever {
         .setHeader(RECIPIENT_HEADER, notification.getUserId())
         .setHeader(IMPORTANT_HEADER, notification.getImportant())
         .setHeader(CHANNEL_TO_USE_HEADER, pending.getChannel())
+        .setHeader(DELIVERY_CONTEXT_HEADER, next.getContext())
+        .setHeader(RECEIPT_HEADER,
+            new PendingNotificationReceipt(notification.getId(), pending.getChannel()))
         .build();
   }
 
-  private void prepareJpaExecutor(EntityManager entityManager) {
-    jpaExecutor = new JpaExecutor(entityManager);
+  private ClaimedNotification nextClaimed() {
+    if (claimed.isEmpty() && trigger.isDue()) {
+      claimBatch();
+    }
+
+    ClaimedNotification next;
+
+    while (null != (next = claimed.poll())) {
+      if (!next.getPending().isLeaseExpired(ZonedDateTime.now())) {
+        return next;
+      }
+
+      // another worker could have claimed it already so it must not be sent from here
+      LOGGER.warn("The lease on notification {} has expired before it was sent",
+          next.getPending().getNotificationId());
+    }
+
+    return null;
+  }
+
+  private void claimBatch() {
+    List<PendingNotification> batch = pendingNotificationService.claim(batchSize);
+
+    if (batch.isEmpty()) {
+      return;
+    }
 
-    jpaExecutor.setEntityClass(PendingNotification.class);
-    jpaExecutor.setNamedQuery(PendingNotification.GET_PENDING_NOTIFICATIONS_NAMED_QUERY);
+    Map<UUID, DeliveryContext> contexts = deliveryContextService.load(batch
+        .stream()
+        .map(pending -> pending.getNotification().getUserId())
+        .collect(Collectors.toSet()));
 
-    jpaExecutor.setExpectSingleResult(true);
-    jpaExecutor.setMaxNumberOfResults(1);
+    for (PendingNotification pending : batch) {
+      UUID recipient = pending.getNotification().getUserId();
+      claimed.add(new ClaimedNotification(pending, contexts.get(recipient)));
+    }
 
-    jpaExecutor.setUsePayloadAsParameterSource(true);
+    if (batch.size() >= batchSize) {
+      // there are probably more notifications waiting so another worker can start right away
+      trigger.wakeUp();
+    }
+  }
 
-    jpaExecutor.setDeleteAfterPoll(true);
-    jpaExecutor.setFlush(true);
-    jpaExecutor.setClearOnFlush(true);
+  @Getter
+  @AllArgsConstructor
+  private static final class ClaimedNotification {
+    private final PendingNotification pending;
+    private final DeliveryContext context;
   }
+
 }
@@ -24,6 +24,7 @@ import org.openlmis.notification.domain.Notification;
 import org.openlmis.notification.domain.NotificationMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.integration.annotation.MessageEndpoint;
 import org.springframework.integration.annotation.Transformer;
 import org.springframework.integration.support.MessageBuilder;
@@ -37,8 +38,12 @@ public class NotificationTransformer {
   static final String CHANNEL_HEADER = "channel";
   static final String TAG_HEADER = "tag";
 
+  @Autowired
+  private BroadcastService broadcastService;
+
   /**
    * Split single notification into several messages. Skips messages that have been sent.
+   * Messages of broadcast notifications are read from the (cached) broadcast.
    */
   @Transformer(inputChannel = ALLOW_NOTIFY_CHANNEL, outputChannel = FILTER_CHANNEL)
   public Message extractNotificationMessage(Message<?> message) {
@@ -47,12 +52,14 @@ public class NotificationTransformer {
         .get(CHANNEL_TO_USE_HEADER, NotificationChannel.class);
 
     Notification notification = (Notification) message.getPayload();
-    NotificationMessage notificationMessage = notification
-        .getMessages()
-        .stream()
-        .filter(item -> Objects.equals(channel, item.getChannel()))
-        .findFirst()
-        .orElse(null);
+    NotificationMessage notificationMessage = notification.isBroadcast()
+        ? broadcastService.getMessage(notification.getBroadcastId(), channel)
+        : notification
+            .getMessages()
+            .stream()
+            .filter(item -> Objects.equals(channel, item.getChannel()))
+            .findFirst()
+            .orElse(null);
 
     if (null == notificationMessage) {
       LOGGER.warn("Can't extract a notification message for channel: {}", channel);
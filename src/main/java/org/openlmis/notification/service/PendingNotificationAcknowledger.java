@@ -0,0 +1,77 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static org.openlmis.notification.service.NotificationToSendRetriever.CHANNEL_TO_USE_HEADER;
+import static org.openlmis.notification.service.NotificationToSendRetriever.RECEIPT_HEADER;
+
+import org.openlmis.notification.domain.Notification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.integration.transaction.IntegrationResourceHolder;
+import org.springframework.integration.transaction.TransactionSynchronizationProcessor;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+/**
+ * Completes leases on pending notifications after the poller has passed a notification through
+ * the sending flow. A notification that was handled without errors is removed from the queue and
+ * a failure of a notification is recorded, so it can be retried later. Notifications whose
+ * {@link PendingNotificationReceipt} has been deferred by a handler are completed by that handler.
+ */
+@Component
+public class PendingNotificationAcknowledger implements TransactionSynchronizationProcessor {
+
+  @Autowired
+  private PendingNotificationService pendingNotificationService;
+
+  @Override
+  public void processBeforeCommit(IntegrationResourceHolder holder) {
+    // nothing to do before the flow completes
+  }
+
+  @Override
+  public void processAfterCommit(IntegrationResourceHolder holder) {
+    Message<?> message = holder.getMessage();
+
+    if (null != message && !isDeferred(message)) {
+      Notification notification = (Notification) message.getPayload();
+      pendingNotificationService.acknowledge(notification.getId(), getChannel(message));
+    }
+  }
+
+  @Override
+  public void processAfterRollback(IntegrationResourceHolder holder) {
+    Message<?> message = holder.getMessage();
+
+    if (null != message && !isDeferred(message)) {
+      Notification notification = (Notification) message.getPayload();
+      pendingNotificationService.fail(notification.getId(), getChannel(message));
+    }
+  }
+
+  private boolean isDeferred(Message<?> message) {
+    PendingNotificationReceipt receipt = message
+        .getHeaders()
+        .get(RECEIPT_HEADER, PendingNotificationReceipt.class);
+
+    return null != receipt && receipt.isDeferred();
+  }
+
+  private NotificationChannel getChannel(Message<?> message) {
+    return message.getHeaders().get(CHANNEL_TO_USE_HEADER, NotificationChannel.class);
+  }
+
+}
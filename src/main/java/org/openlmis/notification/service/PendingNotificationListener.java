@@ -0,0 +1,145 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.apache.commons.lang3.ArrayUtils;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listens for notifications that the database sends when new pending notifications are inserted
+ * (see the pending_notifications_notify trigger) and wakes up the poller, so a new notification
+ * is sent right after it has been committed. One connection from the pool is dedicated to
+ * listening while the listener is running.
+ */
+@Component
+public class PendingNotificationListener implements SmartLifecycle {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PendingNotificationListener.class);
+
+  static final String CHANNEL = "pending_notifications";
+
+  private static final int WAIT_MILLIS = (int) TimeUnit.SECONDS.toMillis(5);
+  private static final long RECONNECT_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+  @Autowired
+  private DataSource dataSource;
+
+  @Autowired
+  private PendingNotificationTrigger trigger;
+
+  @Value("${notificationToSend.listen.enabled}")
+  private boolean enabled;
+
+  @Value("${notificationToSend.autoStartup:true}")
+  private boolean autoStartup;
+
+  private volatile boolean running;
+  private Thread listener;
+
+  @Override
+  public synchronized void start() {
+    if (running) {
+      return;
+    }
+
+    running = true;
+    listener = new Thread(this::listen, "notification-to-send-listener");
+    listener.setDaemon(true);
+    listener.start();
+  }
+
+  @Override
+  public synchronized void stop() {
+    running = false;
+
+    if (null != listener) {
+      listener.interrupt();
+      listener = null;
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public boolean isAutoStartup() {
+    return enabled && autoStartup;
+  }
+
+  private void listen() {
+    while (running) {
+      try (Connection connection = dataSource.getConnection()) {
+        listen(connection);
+      } catch (SQLException exp) {
+        LOGGER.warn("Listening for new pending notifications failed, retrying in {} ms",
+            RECONNECT_DELAY_MILLIS, exp);
+        // polls are still executed in the idle interval, so nothing is lost in the meantime
+        sleep();
+      }
+    }
+  }
+
+  private void listen(Connection connection) throws SQLException {
+    execute(connection, "LISTEN " + CHANNEL);
+    LOGGER.info("Listening for new pending notifications");
+
+    // notifications could have been added while nobody was listening
+    trigger.wakeUp();
+
+    PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+    while (running) {
+      PGNotification[] notifications = pgConnection.getNotifications(WAIT_MILLIS);
+
+      if (ArrayUtils.isNotEmpty(notifications)) {
+        trigger.wakeUp();
+      }
+    }
+
+    // the connection is returned to the pool so it must not receive notifications anymore
+    execute(connection, "UNLISTEN " + CHANNEL);
+  }
+
+  private void execute(Connection connection, String sql) throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(sql);
+    }
+  }
+
+  private void sleep() {
+    try {
+      Thread.sleep(RECONNECT_DELAY_MILLIS);
+    } catch (InterruptedException exp) {
+      Thread.currentThread().interrupt();
+      running = false;
+    }
+  }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import java.util.UUID;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Identifies the pending notification that is passed through the sending flow. It is added to
+ * the polled message as a header, so a handler that completes the delivery later (for example
+ * after several SMS have been sent together) can take over the acknowledgement from
+ * {@link PendingNotificationAcknowledger}.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class PendingNotificationReceipt {
+  private final UUID notificationId;
+  private final NotificationChannel channel;
+
+  private volatile boolean deferred;
+
+  /**
+   * Marks that the notification will be acknowledged or failed by the caller once it has been
+   * delivered, so it must not be completed when the flow ends.
+   */
+  public void defer() {
+    deferred = true;
+  }
+
+}
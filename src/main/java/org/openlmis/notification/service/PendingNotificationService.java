@@ -0,0 +1,194 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_FAILED_NOTIFICATION_NOT_FOUND;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.hibernate.Hibernate;
+import org.openlmis.notification.domain.FailedNotification;
+import org.openlmis.notification.domain.PendingNotification;
+import org.openlmis.notification.domain.PendingNotification.PendingNotificationId;
+import org.openlmis.notification.repository.FailedNotificationRepository;
+import org.openlmis.notification.repository.PendingNotificationRepository;
+import org.openlmis.notification.web.NotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Manages leases on pending notifications. A notification is claimed in a short transaction, sent
+ * without any transaction and then acknowledged (removed) or released in another short
+ * transaction. If the owner of a lease crashes, the notification can be claimed again after the
+ * lease expires, which counts as a failed attempt. Notifications that could not be sent are
+ * retried with a backoff and finally moved to the failed notifications.
+ */
+@Service
+public class PendingNotificationService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PendingNotificationService.class);
+
+  private final String owner = UUID.randomUUID().toString();
+
+  @Autowired
+  private PendingNotificationRepository pendingNotificationRepository;
+
+  @Autowired
+  private FailedNotificationRepository failedNotificationRepository;
+
+  @Value("${notificationToSend.leaseSeconds}")
+  private long leaseSeconds;
+
+  @Value("${notificationToSend.retry.maxAttempts}")
+  private int maxAttempts;
+
+  @Value("${notificationToSend.retry.initialDelaySeconds}")
+  private long initialDelaySeconds;
+
+  @Value("${notificationToSend.retry.maxDelaySeconds}")
+  private long maxDelaySeconds;
+
+  /**
+   * Claims up to the given number of the oldest pending notifications that are not leased by
+   * other workers. Related notifications are fully loaded so they can be used outside of the
+   * transaction. Notifications whose leases have expired too many times (for example because
+   * sending them crashes the worker) are moved to the failed notifications instead.
+   */
+  @Transactional
+  public List<PendingNotification> claim(int limit) {
+    ZonedDateTime now = ZonedDateTime.now();
+    ZonedDateTime leaseUntil = now.plusSeconds(leaseSeconds);
+
+    List<PendingNotification> claimed = new ArrayList<>();
+
+    for (PendingNotification pending : pendingNotificationRepository
+        .claimPendingNotifications(now, limit)) {
+      pending.claim(owner, leaseUntil);
+
+      if (pending.getAttemptCount() >= maxAttempts) {
+        LOGGER.error("Sending notification {} for channel {} did not complete {} times,"
+            + " giving up", pending.getNotificationId(), pending.getChannel(),
+            pending.getAttemptCount());
+        failedNotificationRepository.save(new FailedNotification(pending, now));
+        pendingNotificationRepository.delete(pending);
+        continue;
+      }
+
+      Hibernate.initialize(pending.getNotification());
+      claimed.add(pending);
+    }
+
+    LOGGER.debug("Claimed {} pending notifications until {}", claimed.size(), leaseUntil);
+    return claimed;
+  }
+
+  /**
+   * Removes the given notification from the queue if it is still leased by this service instance.
+   */
+  @Transactional
+  public void acknowledge(UUID notificationId, NotificationChannel channel) {
+    int deleted = pendingNotificationRepository.deleteClaimed(notificationId, channel, owner);
+
+    if (0 == deleted) {
+      LOGGER.warn("The lease on notification {} for channel {} has been lost before"
+          + " the notification was acknowledged", notificationId, channel);
+    }
+  }
+
+  /**
+   * Records a failed delivery of the given notification. The notification is returned to the
+   * queue and retried after an exponentially growing delay. When the maximum number of attempts
+   * is reached, it is moved to the failed notifications, so it no longer blocks other
+   * notifications.
+   */
+  @Transactional
+  public void fail(UUID notificationId, NotificationChannel channel) {
+    PendingNotification pending = pendingNotificationRepository
+        .findById(new PendingNotificationId(notificationId, channel))
+        .orElse(null);
+
+    if (null == pending || !pending.isClaimedBy(owner)) {
+      LOGGER.warn("The lease on notification {} for channel {} has been lost before"
+          + " the failure was recorded", notificationId, channel);
+      return;
+    }
+
+    ZonedDateTime now = ZonedDateTime.now();
+    pending.registerFailedAttempt();
+
+    if (pending.getAttemptCount() >= maxAttempts) {
+      LOGGER.error("Sending notification {} for channel {} failed {} times, giving up",
+          notificationId, channel, pending.getAttemptCount());
+      failedNotificationRepository.save(new FailedNotification(pending, now));
+      pendingNotificationRepository.delete(pending);
+      return;
+    }
+
+    ZonedDateTime nextAttempt = now.plusSeconds(getRetryDelay(pending.getAttemptCount()));
+    LOGGER.warn("Sending notification {} for channel {} failed, it will be retried at {}",
+        notificationId, channel, nextAttempt);
+    pending.retryAt(nextAttempt);
+  }
+
+  /**
+   * Returns the given notification to the queue without counting it as a failed attempt, for
+   * example when the notification could not be sent because the provider of its channel is
+   * temporarily unavailable. The notification will not be claimed before the given time.
+   */
+  @Transactional
+  public void postpone(UUID notificationId, NotificationChannel channel,
+      ZonedDateTime nextAttempt) {
+    PendingNotification pending = pendingNotificationRepository
+        .findById(new PendingNotificationId(notificationId, channel))
+        .orElse(null);
+
+    if (null == pending || !pending.isClaimedBy(owner)) {
+      LOGGER.warn("The lease on notification {} for channel {} has been lost before"
+          + " it was postponed", notificationId, channel);
+      return;
+    }
+
+    LOGGER.info("Sending notification {} for channel {} has been postponed until {}",
+        notificationId, channel, nextAttempt);
+    pending.postpone(nextAttempt);
+  }
+
+  /**
+   * Moves the given failed notification back to the queue of pending notifications.
+   */
+  @Transactional
+  public void requeue(UUID failedNotificationId) {
+    FailedNotification failed = failedNotificationRepository
+        .findById(failedNotificationId)
+        .orElseThrow(() -> new NotFoundException(ERROR_FAILED_NOTIFICATION_NOT_FOUND));
+
+    pendingNotificationRepository.save(failed.requeue());
+    failedNotificationRepository.delete(failed);
+  }
+
+  private long getRetryDelay(int attemptCount) {
+    // the delay doubles with each attempt, the shift is limited to avoid overflow
+    long delay = initialDelaySeconds << Math.min(attemptCount - 1, 30);
+    return Math.min(delay, maxDelaySeconds);
+  }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Schedules polls for pending notifications. Instead of claiming notifications at a fixed rate,
+ * a poll claims them only after {@link #wakeUp()} has been called (when new pending notifications
+ * have been added or when the previous poll claimed a full batch) or when the idle interval has
+ * elapsed. The idle polls pick up notifications whose retry became due and any notification that
+ * was missed.
+ *
+ * <p>The trigger never blocks the scheduler thread, which is shared by all pollers. It schedules
+ * polls in a short check interval and each poll asks {@link #isDue()} whether it should claim
+ * notifications, so a wake-up is noticed within that interval without querying the database.
+ */
+@Component
+public class PendingNotificationTrigger implements Trigger {
+
+  static final long CHECK_INTERVAL_MILLIS = 100;
+
+  private final long idleIntervalMillis;
+
+  // the first poll claims notifications right after the start
+  private boolean awake = true;
+  private long nextIdlePollAt;
+
+  public PendingNotificationTrigger(
+      @Value("${notificationToSend.idleIntervalSeconds}") long idleIntervalSeconds) {
+    this.idleIntervalMillis = TimeUnit.SECONDS.toMillis(idleIntervalSeconds);
+  }
+
+  @Override
+  public Date nextExecutionTime(TriggerContext triggerContext) {
+    Date lastCompletion = triggerContext.lastCompletionTime();
+
+    return null == lastCompletion
+        ? new Date()
+        : new Date(lastCompletion.getTime() + CHECK_INTERVAL_MILLIS);
+  }
+
+  /**
+   * Checks whether a poll should claim pending notifications, because the trigger has been woken
+   * up or the idle interval has elapsed since the last claim. Only the first poll after a wake-up
+   * gets true, so several wake-ups before the poll are coalesced into a single claim.
+   */
+  public synchronized boolean isDue() {
+    long now = System.currentTimeMillis();
+
+    if (!awake && now < nextIdlePollAt) {
+      return false;
+    }
+
+    awake = false;
+    nextIdlePollAt = now + idleIntervalMillis;
+    return true;
+  }
+
+  /**
+   * Requests the next poll to claim pending notifications. Several calls before the poll are
+   * coalesced into a single claim.
+   */
+  public synchronized void wakeUp() {
+    awake = true;
+  }
+
+}
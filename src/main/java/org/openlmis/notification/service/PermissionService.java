@@ -15,12 +15,10 @@
 
 package org.openlmis.notification.service;
 
-import static org.apache.commons.lang3.BooleanUtils.isNotTrue;
-
 import java.util.UUID;
+import org.openlmis.notification.service.referencedata.RightCache;
 import org.openlmis.notification.service.referencedata.RightDto;
 import org.openlmis.notification.service.referencedata.UserDto;
-import org.openlmis.notification.service.referencedata.UserReferenceDataService;
 import org.openlmis.notification.util.AuthenticationHelper;
 import org.openlmis.notification.web.MissingPermissionException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,9 +31,10 @@ import org.springframework.stereotype.Service;
 @SuppressWarnings("PMD.TooManyMethods")
 public class PermissionService {
   private static final String USERS_MANAGE = "USERS_MANAGE";
+  private static final String SYSTEM_SETTINGS_MANAGE = "SYSTEM_SETTINGS_MANAGE";
 
   @Autowired
-  private UserReferenceDataService userReferenceDataService;
+  private RightCache rightCache;
 
   @Autowired
   private AuthenticationHelper authenticationHelper;
@@ -73,6 +72,15 @@ public class PermissionService {
     }
   }
 
+  /**
+   * Checks whether current request has access to inspect and requeue failed notifications.
+   */
+  public void canManageFailedNotifications() {
+    if (hasNoPermission(SYSTEM_SETTINGS_MANAGE, true)) {
+      throw new MissingPermissionException(SYSTEM_SETTINGS_MANAGE);
+    }
+  }
+
   private boolean isCurrentUser(UUID userId) {
     if (null == userId) {
       return false;
@@ -106,11 +114,8 @@ public class PermissionService {
   private boolean isNotValidUserToken(String rightName) {
     UserDto user = authenticationHelper.getCurrentUser();
     RightDto right = authenticationHelper.getRight(rightName);
-    ResultDto<Boolean> result =  userReferenceDataService.hasRight(
-        user.getId(), right.getId(), null, null, null
-    );
 
-    return null == result || isNotTrue(result.getResult());
+    return !rightCache.hasRight(user.getId(), right.getId(), null, null, null);
   }
 
   private boolean isNotValidServiceToken(OAuth2Authentication authentication) {
@@ -15,115 +15,127 @@
 
 package org.openlmis.notification.service;
 
+import static org.openlmis.notification.service.DigestionService.AGGREGATE_POSTPONE_CHANNEL;
 import static org.openlmis.notification.service.NotificationToSendRetriever.RECIPIENT_HEADER;
 import static org.openlmis.notification.service.NotificationTransformer.CHANNEL_HEADER;
 
-import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
+import java.time.ZonedDateTime;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.UUID;
-import javax.persistence.EntityManager;
-import org.openlmis.notification.domain.PostponeMessage;
-import org.springframework.integration.core.MessageSource;
-import org.springframework.integration.jpa.core.JpaExecutor;
-import org.springframework.integration.jpa.support.parametersource.ParameterSource;
+import org.openlmis.notification.domain.DigestSubscription;
+import org.openlmis.notification.repository.DigestSubscriptionRepository;
+import org.openlmis.notification.repository.PostponeMessageRepository;
+import org.openlmis.notification.repository.PostponedDigestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.integration.annotation.InboundChannelAdapter;
+import org.springframework.integration.annotation.MessageEndpoint;
+import org.springframework.integration.annotation.Poller;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 
-class PostponeMessageRetriever implements MessageSource<List<PostponeMessage>> {
+/**
+ * Retrieves postponed messages of due digests. Each message contains a summary of postponed
+ * messages of one user, digest configuration and channel. The postponed messages are removed in
+ * the transaction of the poll, so they are kept if the digest could not be sent.
+ *
+ * <p>Several instances of the service can retrieve digests at the same time. Due digests are
+ * claimed with {@code SKIP LOCKED} and the postponed messages of a user and digest configuration
+ * are drained under an advisory lock, so a digest is sent by exactly one instance even if the
+ * subscriptions of the user have been replaced in the meantime.
+ */
+@MessageEndpoint
+public class PostponeMessageRetriever {
 
-  static final String CONFIGURATION_ID_HEADER = "configurationId";
+  private static final Logger LOGGER = LoggerFactory.getLogger(PostponeMessageRetriever.class);
 
-  private JpaExecutor jpaExecutor;
+  static final String CONFIGURATION_ID_HEADER = "configurationId";
+  public static final String DIGEST_POLLER = "digestPoller";
 
-  private NotificationChannel channel;
-  private UUID configurationId;
-  private UUID userId;
+  @Autowired
+  private DigestScheduler digestScheduler;
 
-  PostponeMessageRetriever(EntityManager entityManager,
-      NotificationChannel channel, UUID configurationId, UUID userId) {
-    this((JpaExecutor) null, channel, configurationId, userId);
-    prepareJpaExecutor(entityManager);
-  }
+  @Autowired
+  private DigestSubscriptionRepository digestSubscriptionRepository;
 
-  @VisibleForTesting
-  PostponeMessageRetriever(JpaExecutor jpaExecutor, NotificationChannel channel,
-      UUID configurationId, UUID userId) {
-    this.jpaExecutor = jpaExecutor;
-    this.channel = channel;
-    this.configurationId = configurationId;
-    this.userId = userId;
-  }
+  @Autowired
+  private PostponeMessageRepository postponeMessageRepository;
 
-  @Override
-  public Message<List<PostponeMessage>> receive() {
-    Object polled = jpaExecutor.poll();
+  @Autowired
+  private PostponedDigestRepository postponedDigestRepository;
 
-    if (null == polled) {
-      return null;
-    }
+  /**
+   * Retrieves postponed messages of the next due digest.
+   *
+   * @return a message with a summary of postponed messages or null if there are no due digests.
+   */
+  @InboundChannelAdapter(
+      channel = AGGREGATE_POSTPONE_CHANNEL,
+      poller = @Poller(DIGEST_POLLER),
+      autoStartup = "${digest.autoStartup:true}")
+  public Message<DigestSummary> retrieve() {
+    DigestSubscription subscription = digestScheduler.claim();
 
-    List<PostponeMessage> collection = Lists.newArrayList();
+    while (null != subscription) {
+      Message<DigestSummary> message = drain(subscription);
 
-    if (polled instanceof PostponeMessage) {
-      collection.add((PostponeMessage) polled);
-    } else if (polled instanceof Collection) {
-      for (Object o : (Collection) polled) {
-        collection.add((PostponeMessage) o);
+      if (null != message) {
+        return message;
       }
-    }
 
-    if (collection.isEmpty()) {
-      return null;
+      subscription = digestScheduler.claim();
     }
 
-    return MessageBuilder
-        .withPayload(collection)
-        .setHeader(RECIPIENT_HEADER, userId)
-        .setHeader(CONFIGURATION_ID_HEADER, configurationId)
-        .setHeader(CHANNEL_HEADER, channel)
-        .build();
+    return null;
   }
 
-  private void prepareJpaExecutor(EntityManager entityManager) {
-    jpaExecutor = new JpaExecutor(entityManager);
+  private Message<DigestSummary> drain(DigestSubscription subscription) {
+    UUID userId = subscription.getUserContactDetails().getReferenceDataUserId();
+    UUID configurationId = subscription.getDigestConfiguration().getId();
 
-    jpaExecutor.setEntityClass(PostponeMessage.class);
-    jpaExecutor.setNamedQuery(PostponeMessage.GET_POSTPONE_MESSAGES_NAMED_QUERY);
-
-    MapParameterSource parameterSource = new MapParameterSource();
-    parameterSource.add(CONFIGURATION_ID_HEADER, configurationId);
-    parameterSource.add("channel", channel);
-    parameterSource.add("userId", userId);
-
-    jpaExecutor.setParameterSource(parameterSource);
-    jpaExecutor.setExpectSingleResult(false);
-
-    jpaExecutor.setDeleteAfterPoll(true);
-    jpaExecutor.setFlush(true);
-    jpaExecutor.setClearOnFlush(true);
-  }
+    if (!postponeMessageRepository.tryLockDigest(userId, configurationId)) {
+      // another instance is sending the digest right now, the claim has already moved the
+      // subscription to its next run so messages postponed in the meantime are not lost
+      LOGGER.debug("Digest {} of user {} is being sent by another instance",
+          configurationId, userId);
+      return null;
+    }
 
-  private static final class MapParameterSource implements ParameterSource {
+    // the row lock prevents other instances from draining the same messages and makes
+    // concurrently postponed messages schedule the digest again once this transaction ends
+    digestSubscriptionRepository.clearNextRun(subscription.getId());
 
-    private Map<String, Object> params = Maps.newHashMap();
+    // messages can be stored in both ways if the digest accumulator has been switched on or off
+    SortedSet<NotificationChannel> channels = new TreeSet<>(postponeMessageRepository
+        .findChannels(userId, configurationId));
+    channels.addAll(postponedDigestRepository.findChannels(userId, configurationId));
 
-    @Override
-    public boolean hasValue(String paramName) {
-      return params.containsKey(paramName);
+    if (channels.isEmpty()) {
+      return null;
     }
 
-    @Override
-    public Object getValue(String paramName) {
-      return params.get(paramName);
+    if (channels.size() > 1) {
+      // messages for other channels are sent in separate digests right after this one
+      digestSubscriptionRepository.scheduleDigest(subscription.getId(), ZonedDateTime.now());
     }
 
-    void add(String paramName, Object paramValue) {
-      params.put(paramName, paramValue);
+    NotificationChannel channel = channels.first();
+    DigestSummary digest = postponeMessageRepository
+        .drain(userId, configurationId, channel)
+        .add(postponedDigestRepository.drain(userId, configurationId, channel));
+
+    if (digest.getCount() == 0) {
+      return null;
     }
+
+    return MessageBuilder
+        .withPayload(digest)
+        .setHeader(RECIPIENT_HEADER, userId)
+        .setHeader(CONFIGURATION_ID_HEADER, configurationId)
+        .setHeader(CHANNEL_HEADER, channel)
+        .build();
   }
 
 }
@@ -0,0 +1,158 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stops requests to the SMS provider after several consecutive failures, so an outage or
+ * throttling of the provider does not make every pending SMS fail. While the circuit is open,
+ * requests are rejected without calling the provider. When the open interval elapses, a single
+ * request is let through as a probe: if it succeeds the circuit is closed again, otherwise it is
+ * opened for another interval.
+ */
+@Component
+public class SmsCircuitBreaker {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SmsCircuitBreaker.class);
+
+  static final String STATE_METRIC = "notification.sms.circuitBreaker.state";
+  static final String CALLS_METRIC = "notification.sms.circuitBreaker.calls";
+
+  enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final int failureThreshold;
+  private final long openMillis;
+  private final LongSupplier currentTimeMillis;
+
+  private final Counter successes;
+  private final Counter failures;
+  private final Counter rejections;
+
+  // guarded by this
+  private State state = State.CLOSED;
+  private int consecutiveFailures;
+  private long openUntil;
+  private boolean probing;
+
+  /**
+   * Creates a new instance of the circuit breaker and registers its metrics.
+   */
+  @Autowired
+  public SmsCircuitBreaker(MeterRegistry meterRegistry,
+      @Value("${sms.circuitBreaker.failureThreshold}") int failureThreshold,
+      @Value("${sms.circuitBreaker.openSeconds}") long openSeconds) {
+    this(meterRegistry, failureThreshold, openSeconds, System::currentTimeMillis);
+  }
+
+  SmsCircuitBreaker(MeterRegistry meterRegistry, int failureThreshold, long openSeconds,
+      LongSupplier currentTimeMillis) {
+    this.failureThreshold = Math.max(failureThreshold, 1);
+    this.openMillis = TimeUnit.SECONDS.toMillis(openSeconds);
+    this.currentTimeMillis = currentTimeMillis;
+
+    this.successes = meterRegistry.counter(CALLS_METRIC, "result", "success");
+    this.failures = meterRegistry.counter(CALLS_METRIC, "result", "failure");
+    this.rejections = meterRegistry.counter(CALLS_METRIC, "result", "rejected");
+
+    for (State value : State.values()) {
+      Gauge
+          .builder(STATE_METRIC, this, breaker -> value == breaker.getState() ? 1 : 0)
+          .tag("state", value.name().toLowerCase(Locale.ENGLISH))
+          .description("Whether the circuit of the SMS provider is in the given state")
+          .register(meterRegistry);
+    }
+  }
+
+  /**
+   * Checks if a request to the SMS provider can be sent now. A caller that has been allowed to
+   * send a request must report its result with {@link #onSuccess()} or {@link #onFailure()}.
+   *
+   * @return true if the request can be sent
+   */
+  synchronized boolean tryAcquire() {
+    if (State.OPEN == state && currentTimeMillis.getAsLong() >= openUntil) {
+      LOGGER.info("Sending a probe request to the SMS provider");
+      state = State.HALF_OPEN;
+    }
+
+    if (State.CLOSED == state || (State.HALF_OPEN == state && !probing)) {
+      probing = State.HALF_OPEN == state;
+      return true;
+    }
+
+    rejections.increment();
+    return false;
+  }
+
+  /**
+   * Records that the SMS provider has handled a request.
+   */
+  synchronized void onSuccess() {
+    successes.increment();
+    consecutiveFailures = 0;
+    probing = false;
+
+    if (State.CLOSED != state) {
+      LOGGER.info("The SMS provider is available again");
+      state = State.CLOSED;
+    }
+  }
+
+  /**
+   * Records that a request to the SMS provider has failed because the provider is unavailable or
+   * it throttles requests.
+   */
+  synchronized void onFailure() {
+    failures.increment();
+    ++consecutiveFailures;
+    probing = false;
+
+    if (State.HALF_OPEN == state || consecutiveFailures >= failureThreshold) {
+      LOGGER.warn("Requests to the SMS provider failed {} times in a row, they are suspended"
+          + " for {} ms", consecutiveFailures, openMillis);
+      state = State.OPEN;
+      openUntil = currentTimeMillis.getAsLong() + openMillis;
+    }
+  }
+
+  /**
+   * Returns how long callers that have been rejected should wait before they try again. While
+   * a probe request is in progress, they wait for another open interval.
+   */
+  synchronized Duration getRetryDelay() {
+    long remaining = openUntil - currentTimeMillis.getAsLong();
+    return Duration.ofMillis(remaining > 0 ? remaining : openMillis);
+  }
+
+  synchronized State getState() {
+    return state;
+  }
+
+}
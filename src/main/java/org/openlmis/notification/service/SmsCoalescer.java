@@ -0,0 +1,243 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Groups SMS with the same text that are sent within a short window and sends them to all their
+ * recipients in a single request to the SMS API, so a mass alert does not need a request for
+ * each recipient. A batch is sent when the window since its first SMS elapses or when it reaches
+ * the maximum number of recipients.
+ *
+ * <p>The pending notifications of a batch are acknowledged or failed one by one when the batch
+ * has been sent. If the SMS provider rejects the batch, it is split in halves that are sent
+ * separately, so only the notifications of the rejected recipients fail. If the SMS provider is
+ * unavailable, they are postponed without counting a failed attempt. If the service stops before
+ * that, their leases expire and they are sent again.
+ */
+@Component
+public class SmsCoalescer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SmsCoalescer.class);
+
+  static final String BATCH_SIZE_METRIC = "notification.sms.batch.recipients";
+
+  // batches that still accept recipients, by the text of the message
+  private final Map<String, Batch> openBatches = new HashMap<>();
+
+  private final SmsSender smsSender;
+  private final PendingNotificationService pendingNotificationService;
+  private final long windowMillis;
+  private final int maxRecipients;
+
+  private final ScheduledExecutorService executor;
+  private final DistributionSummary batchSizes;
+
+  /**
+   * Creates a new instance of the coalescer and registers its metrics.
+   */
+  public SmsCoalescer(SmsSender smsSender, PendingNotificationService pendingNotificationService,
+      MeterRegistry meterRegistry,
+      @Value("${sms.coalesce.windowMillis}") long windowMillis,
+      @Value("${sms.coalesce.maxRecipients}") int maxRecipients,
+      @Value("${notificationToSend.workers}") int workers) {
+    this.smsSender = smsSender;
+    this.pendingNotificationService = pendingNotificationService;
+    this.windowMillis = windowMillis;
+    this.maxRecipients = maxRecipients;
+    this.executor = Executors.newScheduledThreadPool(workers, new ThreadFactoryBuilder()
+        .setNameFormat("sms-sender-%d")
+        .setDaemon(true)
+        .build());
+
+    this.batchSizes = DistributionSummary
+        .builder(BATCH_SIZE_METRIC)
+        .description("Number of recipients of SMS sent in a single request")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Sends the message to the given phone number. If the message belongs to a pending
+   * notification, it is added to a batch and the receipt is deferred, so the notification is
+   * acknowledged when the batch has been sent. Otherwise, or if coalescing is disabled, the
+   * message is sent right away.
+   */
+  void send(String phoneNumber, String message, PendingNotificationReceipt receipt) {
+    if (null == receipt) {
+      smsSender.sendMessage(phoneNumber, message);
+      batchSizes.record(1);
+      return;
+    }
+
+    if (windowMillis <= 0) {
+      try {
+        smsSender.sendMessage(phoneNumber, message);
+        batchSizes.record(1);
+      } catch (SmsUnavailableException exp) {
+        receipt.defer();
+        postpone(Collections.singletonList(receipt), exp);
+      }
+
+      return;
+    }
+
+    Batch full = null;
+
+    synchronized (this) {
+      Batch batch = openBatches.get(message);
+
+      if (null == batch) {
+        Batch created = new Batch(message);
+        executor.schedule(() -> close(created), windowMillis, TimeUnit.MILLISECONDS);
+        openBatches.put(message, created);
+        batch = created;
+      }
+
+      batch.add(phoneNumber, receipt);
+      receipt.defer();
+
+      if (batch.size() >= maxRecipients) {
+        openBatches.remove(message);
+        full = batch;
+      }
+    }
+
+    if (null != full) {
+      Batch toSend = full;
+      executor.execute(() -> sendBatch(toSend));
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private void close(Batch batch) {
+    synchronized (this) {
+      if (!openBatches.remove(batch.getMessage(), batch)) {
+        // the batch was full and it has been sent already
+        return;
+      }
+    }
+
+    sendBatch(batch);
+  }
+
+  private void sendBatch(Batch batch) {
+    sendBatch(batch.getMessage(), batch.getPhoneNumbers(), batch.getReceipts());
+  }
+
+  private void sendBatch(String message, List<String> phoneNumbers,
+      List<PendingNotificationReceipt> receipts) {
+    try {
+      smsSender.sendMessage(phoneNumbers, message);
+      batchSizes.record(phoneNumbers.size());
+    } catch (SmsUnavailableException exp) {
+      postpone(receipts, exp);
+      return;
+    } catch (SmsRejectedException exp) {
+      if (phoneNumbers.size() > 1) {
+        // the request could have been rejected because of a single recipient
+        LOGGER.warn("SMS to {} recipients has been rejected, sending it in two parts",
+            phoneNumbers.size());
+        int half = phoneNumbers.size() / 2;
+        sendBatch(message, phoneNumbers.subList(0, half), receipts.subList(0, half));
+        sendBatch(message, phoneNumbers.subList(half, phoneNumbers.size()),
+            receipts.subList(half, receipts.size()));
+        return;
+      }
+
+      fail(receipts, exp);
+      return;
+    } catch (RuntimeException exp) {
+      fail(receipts, exp);
+      return;
+    }
+
+    LOGGER.debug("Sent SMS to {} recipients", phoneNumbers.size());
+    complete(receipts, receipt -> pendingNotificationService
+        .acknowledge(receipt.getNotificationId(), receipt.getChannel()));
+  }
+
+  private void fail(List<PendingNotificationReceipt> receipts, RuntimeException exp) {
+    LOGGER.error("Could not send SMS to {} recipients", receipts.size(), exp);
+    complete(receipts, receipt -> pendingNotificationService
+        .fail(receipt.getNotificationId(), receipt.getChannel()));
+  }
+
+  private void postpone(List<PendingNotificationReceipt> receipts,
+      SmsUnavailableException exp) {
+    // the provider has not been called, so the attempt does not count as failed
+    ZonedDateTime nextAttempt = ZonedDateTime.now().plus(exp.getRetryDelay());
+    LOGGER.info("SMS provider is unavailable, {} SMS will be sent at {}",
+        receipts.size(), nextAttempt);
+
+    complete(receipts, receipt -> pendingNotificationService
+        .postpone(receipt.getNotificationId(), receipt.getChannel(), nextAttempt));
+  }
+
+  private void complete(List<PendingNotificationReceipt> receipts,
+      Consumer<PendingNotificationReceipt> action) {
+    for (PendingNotificationReceipt receipt : receipts) {
+      try {
+        action.accept(receipt);
+      } catch (RuntimeException exp) {
+        // the notification will be sent again when its lease expires
+        LOGGER.error("Could not complete pending notification {}",
+            receipt.getNotificationId(), exp);
+      }
+    }
+  }
+
+  @Getter
+  @RequiredArgsConstructor
+  private static final class Batch {
+    private final String message;
+    private final List<String> phoneNumbers = new ArrayList<>();
+    private final List<PendingNotificationReceipt> receipts = new ArrayList<>();
+
+    void add(String phoneNumber, PendingNotificationReceipt receipt) {
+      phoneNumbers.add(phoneNumber);
+      receipts.add(receipt);
+    }
+
+    int size() {
+      return phoneNumbers.size();
+    }
+  }
+
+}
@@ -17,12 +17,13 @@ package org.openlmis.notification.service;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.openlmis.notification.service.NotificationChannelRouter.SMS_SEND_NOW_CHANNEL;
+import static org.openlmis.notification.service.NotificationToSendRetriever.DELIVERY_CONTEXT_HEADER;
+import static org.openlmis.notification.service.NotificationToSendRetriever.RECEIPT_HEADER;
 import static org.openlmis.notification.service.NotificationToSendRetriever.RECIPIENT_HEADER;
 
 import java.util.UUID;
 import org.openlmis.notification.domain.NotificationMessage;
 import org.openlmis.notification.domain.UserContactDetails;
-import org.openlmis.notification.repository.UserContactDetailsRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,22 +37,25 @@ public class SmsNotificationChannelHandler {
       .getLogger(SmsNotificationChannelHandler.class);
 
   @Autowired
-  private UserContactDetailsRepository userContactDetailsRepository;
+  private DeliveryContextService deliveryContextService;
 
   @Autowired
-  private SmsSender smsSender;
+  private SmsCoalescer smsCoalescer;
 
   /**
-   * Tries to send a notification to a user by using email channel.
+   * Tries to send a notification to a user by using SMS channel. SMS with the same text may be
+   * sent together with SMS to other users (see {@link SmsCoalescer}).
    */
   @ServiceActivator(inputChannel = SMS_SEND_NOW_CHANNEL)
   public void handle(NotificationMessage payload,
-      @Header(RECIPIENT_HEADER) UUID recipient) {
-    UserContactDetails contactDetails = userContactDetailsRepository.findById(recipient)
-        .orElse(null);
+      @Header(RECIPIENT_HEADER) UUID recipient,
+      @Header(value = DELIVERY_CONTEXT_HEADER, required = false) DeliveryContext context,
+      @Header(value = RECEIPT_HEADER, required = false) PendingNotificationReceipt receipt) {
+    UserContactDetails contactDetails = deliveryContextService
+        .getContactDetails(context, recipient);
 
     if (null != contactDetails && shouldSendMessage(contactDetails)) {
-      smsSender.sendMessage(contactDetails.getPhoneNumber(), payload.getBody());
+      smsCoalescer.send(contactDetails.getPhoneNumber(), payload.getBody(), receipt);
     }
   }
 
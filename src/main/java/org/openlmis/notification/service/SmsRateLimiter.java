@@ -0,0 +1,120 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits the rate of requests to the SMS provider with a token bucket. The bucket holds up to the
+ * burst size of tokens and is refilled at the configured rate. Each request takes a token; when
+ * the bucket is empty the caller waits until its token has been refilled, so short bursts are sent
+ * right away and longer ones are spread to the allowed rate instead of being throttled by the
+ * provider.
+ */
+@Component
+public class SmsRateLimiter {
+
+  static final String TOKENS_METRIC = "notification.sms.rateLimiter.tokens";
+  static final String WAIT_METRIC = "notification.sms.rateLimiter.wait";
+
+  private final double tokensPerNano;
+  private final double burst;
+  private final LongSupplier nanoTime;
+
+  private final Timer waits;
+
+  // guarded by this, negative when callers are waiting for tokens
+  private double tokens;
+  private long refilledAt;
+
+  /**
+   * Creates a new instance of the rate limiter and registers its metrics.
+   */
+  @Autowired
+  public SmsRateLimiter(MeterRegistry meterRegistry,
+      @Value("${sms.rateLimit.requestsPerSecond}") double requestsPerSecond,
+      @Value("${sms.rateLimit.burst}") int burst) {
+    this(meterRegistry, requestsPerSecond, burst, System::nanoTime);
+  }
+
+  SmsRateLimiter(MeterRegistry meterRegistry, double requestsPerSecond, int burst,
+      LongSupplier nanoTime) {
+    this.tokensPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+    this.burst = Math.max(burst, 1);
+    this.nanoTime = nanoTime;
+    this.tokens = this.burst;
+    this.refilledAt = nanoTime.getAsLong();
+
+    this.waits = Timer
+        .builder(WAIT_METRIC)
+        .description("Time spent waiting for the rate limit before sending an SMS request")
+        .register(meterRegistry);
+
+    Gauge
+        .builder(TOKENS_METRIC, this, SmsRateLimiter::getAvailableTokens)
+        .description("Number of SMS requests that can be sent right away")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Takes a token from the bucket, waiting until it is available if necessary.
+   *
+   * @throws InterruptedException if the thread has been interrupted while waiting
+   */
+  void acquire() throws InterruptedException {
+    long waitNanos = reserve();
+    waits.record(waitNanos, TimeUnit.NANOSECONDS);
+
+    if (waitNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+
+  /**
+   * Takes a token from the bucket and returns how long the caller has to wait until the token
+   * has been refilled.
+   */
+  synchronized long reserve() {
+    if (tokensPerNano <= 0) {
+      // the rate is not limited
+      return 0;
+    }
+
+    refill();
+    tokens -= 1;
+
+    return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+  }
+
+  synchronized double getAvailableTokens() {
+    refill();
+    return Math.max(tokens, 0);
+  }
+
+  private void refill() {
+    long now = nanoTime.getAsLong();
+    tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+    refilledAt = now;
+  }
+
+}
@@ -18,6 +18,8 @@ package org.openlmis.notification.service;
 import static org.openlmis.notification.i18n.MessageKeys.ERROR_SEND_SMS_FAILURE;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.slf4j.profiler.Profiler;
@@ -25,9 +27,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
@@ -39,6 +43,12 @@ public class SmsSender {
   @Autowired
   RestTemplate restTemplate;
 
+  @Autowired
+  private SmsRateLimiter rateLimiter;
+
+  @Autowired
+  private SmsCircuitBreaker circuitBreaker;
+
   @Value("${sms.send.api.url}")
   private String smsSendApiUrl;
 
@@ -46,18 +56,46 @@ public class SmsSender {
   private String smsSendApiToken;
 
   void sendMessage(String toPhoneNumber, String message) {
-    XLOGGER.entry(toPhoneNumber, message);
+    sendMessage(Collections.singletonList(toPhoneNumber), message);
+  }
+
+  /**
+   * Sends the same message to all given phone numbers in a single request. The caller is
+   * responsible for not passing more phone numbers than the SMS API accepts at once. Requests are
+   * limited by {@link SmsRateLimiter} and they are not sent at all while {@link SmsCircuitBreaker}
+   * is open; {@link SmsUnavailableException} is thrown in that case. If the provider rejects the
+   * request itself, {@link SmsRejectedException} is thrown.
+   */
+  void sendMessage(List<String> toPhoneNumbers, String message) {
+    XLOGGER.entry(toPhoneNumbers, message);
     Profiler profiler = new Profiler("SEND_SMS_MESSAGE");
     profiler.setLogger(XLOGGER);
 
     profiler.start("PREPARE_HTTP_REQUEST");
-    String toUrn = "tel:" + toPhoneNumber;
-    SmsRequestDto payload = new SmsRequestDto(message, Collections.singletonList(toUrn));
+    List<String> toUrns = toPhoneNumbers
+        .stream()
+        .map(phoneNumber -> "tel:" + phoneNumber)
+        .collect(Collectors.toList());
+    SmsRequestDto payload = new SmsRequestDto(message, toUrns);
     HttpHeaders headers = new HttpHeaders();
     headers.setContentType(MediaType.APPLICATION_JSON);
     headers.set("Authorization", "Token " + smsSendApiToken);
     HttpEntity<SmsRequestDto> request = new HttpEntity<>(payload, headers);
 
+    profiler.start("WAIT_FOR_SMS_SEND_API");
+    try {
+      rateLimiter.acquire();
+    } catch (InterruptedException exp) {
+      Thread.currentThread().interrupt();
+      throw stop(profiler, new ServerException(exp, ERROR_SEND_SMS_FAILURE));
+    }
+
+    // the circuit is checked after waiting for the rate limit, because it could have opened
+    // in the meantime
+    if (!circuitBreaker.tryAcquire()) {
+      throw stop(profiler, new SmsUnavailableException(circuitBreaker.getRetryDelay()));
+    }
+
     profiler.start("POST_TO_SMS_SEND_API");
     SmsRequestDto requestBody = request.getBody();
     XLOGGER.debug("request, url = {}, body = {}", smsSendApiUrl, requestBody.toString());
@@ -72,16 +110,39 @@ public class SmsSender {
       responseBody = response.getBody();
       XLOGGER.debug("Send successful, status code was {}, response = {}", responseCode,
           responseBody);
+      circuitBreaker.onSuccess();
     } catch (RestClientException rce) {
-      NotificationException exception = new ServerException(rce, ERROR_SEND_SMS_FAILURE);
+      if (!isProviderFailure(rce)) {
+        // the provider is available, it has rejected this request only
+        circuitBreaker.onSuccess();
+        throw stop(profiler, new SmsRejectedException(rce));
+      }
+
+      circuitBreaker.onFailure();
+      throw stop(profiler, new ServerException(rce, ERROR_SEND_SMS_FAILURE));
+    } catch (RuntimeException exp) {
+      circuitBreaker.onFailure();
+      throw exp;
+    }
 
-      XLOGGER.throwing(exception);
-      profiler.stop().log();
+    profiler.stop().log();
+    XLOGGER.exit();
+  }
 
-      throw exception;
+  private boolean isProviderFailure(RestClientException exp) {
+    if (exp instanceof HttpStatusCodeException) {
+      HttpStatus status = ((HttpStatusCodeException) exp).getStatusCode();
+      return HttpStatus.TOO_MANY_REQUESTS == status || status.is5xxServerError();
     }
 
+    // the provider could not be reached or it has returned an unknown status
+    return true;
+  }
+
+  private NotificationException stop(Profiler profiler, NotificationException exception) {
+    XLOGGER.throwing(exception);
     profiler.stop().log();
-    XLOGGER.exit();
+
+    return exception;
   }
 }
@@ -0,0 +1,36 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_SEND_SMS_UNAVAILABLE;
+
+import java.time.Duration;
+import lombok.Getter;
+
+/**
+ * Indicates that an SMS has not been sent because requests to the SMS provider are suspended
+ * after its recent failures (see {@link SmsCircuitBreaker}). The SMS should be sent again after
+ * the retry delay.
+ */
+@Getter
+public class SmsUnavailableException extends ServerException {
+  private final Duration retryDelay;
+
+  public SmsUnavailableException(Duration retryDelay) {
+    super(null, ERROR_SEND_SMS_UNAVAILABLE);
+    this.retryDelay = retryDelay;
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service.referencedata;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.openlmis.notification.service.ResultDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps rights and results of right checks from the reference data service in memory, so
+ * permission checks of the same user do not require requests to the reference data service.
+ * Rights are found by their names, which do not change, so they are kept as long as the service
+ * runs. Results of right checks are kept for a short time, so granted or revoked rights are
+ * noticed after the time to live.
+ */
+@Component
+public class RightCache {
+
+  static final String REQUESTS_METRIC = "notification.right.cache.requests";
+
+  private final RightReferenceDataService rightReferenceDataService;
+  private final UserReferenceDataService userReferenceDataService;
+
+  private final Map<String, RightDto> rights = new ConcurrentHashMap<>();
+  private final Cache<RightCheck, Boolean> decisions;
+
+  private final Counter rightHits;
+  private final Counter rightMisses;
+  private final Counter decisionHits;
+  private final Counter decisionMisses;
+
+  /**
+   * Creates a new instance of the cache and registers its metrics.
+   */
+  public RightCache(RightReferenceDataService rightReferenceDataService,
+      UserReferenceDataService userReferenceDataService, MeterRegistry meterRegistry,
+      @Value("${right.cache.maxSize}") long maxSize,
+      @Value("${right.cache.timeToLiveSeconds}") long timeToLiveSeconds) {
+    this.rightReferenceDataService = rightReferenceDataService;
+    this.userReferenceDataService = userReferenceDataService;
+    this.decisions = CacheBuilder
+        .newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(timeToLiveSeconds, TimeUnit.SECONDS)
+        .build();
+
+    this.rightHits = meterRegistry.counter(REQUESTS_METRIC, "type", "right", "result", "hit");
+    this.rightMisses = meterRegistry.counter(REQUESTS_METRIC, "type", "right", "result", "miss");
+    this.decisionHits = meterRegistry
+        .counter(REQUESTS_METRIC, "type", "decision", "result", "hit");
+    this.decisionMisses = meterRegistry
+        .counter(REQUESTS_METRIC, "type", "decision", "result", "miss");
+  }
+
+  /**
+   * Finds the right with the given name.
+   *
+   * @param name right name
+   * @return right related with the name or {@code null}.
+   */
+  public RightDto findRight(String name) {
+    RightDto right = rights.get(name);
+
+    if (null != right) {
+      rightHits.increment();
+      return right;
+    }
+
+    rightMisses.increment();
+    right = rightReferenceDataService.findRight(name);
+
+    if (null != right) {
+      // rights that do not exist are not remembered because they can be added later
+      rights.putIfAbsent(name, right);
+    }
+
+    return right;
+  }
+
+  /**
+   * Checks if user has a right with certain criteria.
+   *
+   * @param user      id of user to check for right
+   * @param right     right to check
+   * @param program   program to check (for supervision rights, can be {@code null})
+   * @param facility  facility to check (for supervision rights, can be {@code null})
+   * @param warehouse warehouse to check (for fulfillment rights, can be {@code null})
+   * @return true if the user has the right
+   */
+  public boolean hasRight(UUID user, UUID right, UUID program, UUID facility, UUID warehouse) {
+    RightCheck check = new RightCheck(user, right, program, facility, warehouse);
+    Boolean cached = decisions.getIfPresent(check);
+
+    if (null != cached) {
+      decisionHits.increment();
+      return cached;
+    }
+
+    decisionMisses.increment();
+
+    try {
+      // concurrent checks of the same right wait for the first one to be done
+      return decisions.get(check, () -> load(check));
+    } catch (ExecutionException | UncheckedExecutionException exp) {
+      if (exp.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) exp.getCause();
+      }
+
+      throw new IllegalStateException(exp.getCause());
+    }
+  }
+
+  /**
+   * Removes all rights and results of right checks from the cache.
+   */
+  public void invalidate() {
+    rights.clear();
+    decisions.invalidateAll();
+  }
+
+  private boolean load(RightCheck check) {
+    ResultDto<Boolean> result = userReferenceDataService.hasRight(check.user, check.right,
+        check.program, check.facility, check.warehouse);
+
+    return null != result && Boolean.TRUE.equals(result.getResult());
+  }
+
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  private static final class RightCheck {
+    private final UUID user;
+    private final UUID right;
+    private final UUID program;
+    private final UUID facility;
+    private final UUID warehouse;
+  }
+
+}
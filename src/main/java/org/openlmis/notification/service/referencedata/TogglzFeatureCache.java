@@ -0,0 +1,215 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service.referencedata;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps feature flags from the reference data service in memory, so checking a flag does not
+ * require a request to the reference data service. The flags are loaded in the background when
+ * the application is ready and features are treated as disabled until they have been loaded, so
+ * no check waits for the reference data service. Flags older than the time to live are refreshed
+ * in the background and the last known values are used until the refresh succeeds.
+ */
+@Component
+public class TogglzFeatureCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TogglzFeatureCache.class);
+
+  static final String REQUESTS_METRIC = "notification.togglz.cache.requests";
+  static final String REFRESHES_METRIC = "notification.togglz.cache.refreshes";
+  static final String AGE_METRIC = "notification.togglz.cache.age";
+
+  private final TogglzReferenceDataService togglzReferenceDataService;
+  private final long timeToLiveMillis;
+
+  private final Counter hits;
+  private final Counter staleHits;
+  private final Counter misses;
+  private final Counter refreshes;
+  private final Counter failedRefreshes;
+
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+  private final AtomicBoolean invalidated = new AtomicBoolean();
+
+  private ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+      .setNameFormat("togglz-cache-refresh")
+      .setDaemon(true)
+      .build());
+
+  private volatile Snapshot snapshot;
+  private volatile long nextRefreshAt;
+
+  /**
+   * Creates a new instance of the cache and registers its metrics.
+   */
+  public TogglzFeatureCache(TogglzReferenceDataService togglzReferenceDataService,
+      MeterRegistry meterRegistry,
+      @Value("${togglz.cache.timeToLiveSeconds}") long timeToLiveSeconds) {
+    this.togglzReferenceDataService = togglzReferenceDataService;
+    this.timeToLiveMillis = TimeUnit.SECONDS.toMillis(timeToLiveSeconds);
+
+    this.hits = meterRegistry.counter(REQUESTS_METRIC, "result", "hit");
+    this.staleHits = meterRegistry.counter(REQUESTS_METRIC, "result", "stale");
+    this.misses = meterRegistry.counter(REQUESTS_METRIC, "result", "miss");
+    this.refreshes = meterRegistry.counter(REFRESHES_METRIC, "result", "success");
+    this.failedRefreshes = meterRegistry.counter(REFRESHES_METRIC, "result", "failure");
+
+    TimeGauge
+        .builder(AGE_METRIC, this, TimeUnit.MILLISECONDS, TogglzFeatureCache::getAge)
+        .description("Time since the feature flags have been loaded")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Loads the feature flags in the background when the application is ready, so they are usually
+   * available before the first check.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    scheduleRefresh();
+  }
+
+  /**
+   * Checks if the given feature is enabled. Features unknown to the reference data service are
+   * treated as disabled, as are all features until the flags have been loaded.
+   */
+  public boolean isActive(String name) {
+    Snapshot current = snapshot;
+    long now = System.currentTimeMillis();
+
+    if (now >= nextRefreshAt) {
+      scheduleRefresh();
+    }
+
+    if (null == current) {
+      misses.increment();
+      return false;
+    }
+
+    if (now - current.loadedAt > timeToLiveMillis) {
+      staleHits.increment();
+    } else {
+      hits.increment();
+    }
+
+    return current.features.getOrDefault(name, false);
+  }
+
+  /**
+   * Refreshes the feature flags in the background. The loaded flags are used until the refresh
+   * succeeds.
+   */
+  public void invalidate() {
+    // a refresh that is already running could have fetched the flags before they changed
+    invalidated.set(true);
+    scheduleRefresh();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private void scheduleRefresh() {
+    if (!refreshing.compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      executor.execute(this::refresh);
+    } catch (RejectedExecutionException exp) {
+      // the application is shutting down
+      refreshing.set(false);
+    }
+  }
+
+  private void refresh() {
+    invalidated.set(false);
+
+    try {
+      update(fetch());
+    } catch (RuntimeException exp) {
+      // try again after the time to live and use the last known values until then
+      nextRefreshAt = System.currentTimeMillis() + timeToLiveMillis;
+
+      if (null == snapshot) {
+        LOGGER.warn("Could not load feature flags, all features are disabled", exp);
+      } else {
+        LOGGER.warn("Could not refresh feature flags, using values loaded {} ms ago",
+            getAge(), exp);
+      }
+    } finally {
+      refreshing.set(false);
+    }
+
+    if (invalidated.get()) {
+      scheduleRefresh();
+    }
+  }
+
+  private Snapshot fetch() {
+    try {
+      Map<String, Boolean> features = togglzReferenceDataService
+          .findAll()
+          .stream()
+          .collect(Collectors.toMap(TogglzFeatureDto::getName, TogglzFeatureDto::isEnabled,
+              (first, second) -> second));
+
+      refreshes.increment();
+      return new Snapshot(Collections.unmodifiableMap(features), System.currentTimeMillis());
+    } catch (RuntimeException exp) {
+      failedRefreshes.increment();
+      throw exp;
+    }
+  }
+
+  private void update(Snapshot loaded) {
+    snapshot = loaded;
+    nextRefreshAt = loaded.loadedAt + timeToLiveMillis;
+  }
+
+  private double getAge() {
+    Snapshot current = snapshot;
+    return null == current ? Double.NaN : System.currentTimeMillis() - current.loadedAt;
+  }
+
+  @AllArgsConstructor
+  private static final class Snapshot {
+    private final Map<String, Boolean> features;
+    private final long loadedAt;
+  }
+
+}
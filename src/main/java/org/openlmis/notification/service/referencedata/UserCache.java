@@ -0,0 +1,157 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service.referencedata;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps users from the reference data service in memory, so looking up the same user again (for
+ * example for each notification sent to the user or for each permission check of the user) does
+ * not require a request to the reference data service. Users are kept for the time to live and
+ * users that do not exist are remembered for a shorter time. When several threads look up the
+ * same user that is not in the cache, only one of them sends a request and the others wait for
+ * its result.
+ */
+@Component
+public class UserCache {
+
+  static final String REQUESTS_METRIC = "notification.user.cache.requests";
+  static final String LOADS_METRIC = "notification.user.cache.loads";
+  static final String SIZE_METRIC = "notification.user.cache.size";
+
+  private final UserReferenceDataService userReferenceDataService;
+  private final long notFoundTimeToLiveMillis;
+
+  private final Cache<UUID, CachedUser> cache;
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter found;
+  private final Counter notFound;
+  private final Counter failures;
+
+  /**
+   * Creates a new instance of the cache and registers its metrics.
+   */
+  public UserCache(UserReferenceDataService userReferenceDataService,
+      MeterRegistry meterRegistry,
+      @Value("${user.cache.maxSize}") long maxSize,
+      @Value("${user.cache.timeToLiveSeconds}") long timeToLiveSeconds,
+      @Value("${user.cache.notFoundTimeToLiveSeconds}") long notFoundTimeToLiveSeconds) {
+    this.userReferenceDataService = userReferenceDataService;
+    this.notFoundTimeToLiveMillis = TimeUnit.SECONDS.toMillis(notFoundTimeToLiveSeconds);
+    this.cache = CacheBuilder
+        .newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(timeToLiveSeconds, TimeUnit.SECONDS)
+        .build();
+
+    this.hits = meterRegistry.counter(REQUESTS_METRIC, "result", "hit");
+    this.misses = meterRegistry.counter(REQUESTS_METRIC, "result", "miss");
+    this.found = meterRegistry.counter(LOADS_METRIC, "result", "found");
+    this.notFound = meterRegistry.counter(LOADS_METRIC, "result", "notFound");
+    this.failures = meterRegistry.counter(LOADS_METRIC, "result", "failure");
+
+    Gauge
+        .builder(SIZE_METRIC, cache, Cache::size)
+        .description("Number of users (including the ones that do not exist) in the cache")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Finds the user with the given ID.
+   *
+   * @param id ID of the user
+   * @return the user or {@code null} if the user does not exist
+   */
+  public UserDto findOne(UUID id) {
+    CachedUser cached = cache.getIfPresent(id);
+
+    if (null != cached && cached.isExpired()) {
+      // other threads may have replaced the expired entry already
+      cache.asMap().remove(id, cached);
+      cached = null;
+    }
+
+    if (null != cached) {
+      hits.increment();
+      return cached.user;
+    }
+
+    misses.increment();
+
+    try {
+      // concurrent look ups of the same user wait for the first one to be loaded
+      return cache.get(id, () -> load(id)).user;
+    } catch (ExecutionException | UncheckedExecutionException exp) {
+      if (exp.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) exp.getCause();
+      }
+
+      throw new IllegalStateException(exp.getCause());
+    }
+  }
+
+  /**
+   * Removes the user with the given ID from the cache. The next look up of the user sends a
+   * request to the reference data service.
+   */
+  public void invalidate(UUID id) {
+    cache.invalidate(id);
+  }
+
+  private CachedUser load(UUID id) {
+    UserDto user;
+
+    try {
+      user = userReferenceDataService.findOne(id);
+    } catch (RuntimeException exp) {
+      // errors are not cached, so the next look up sends a request again
+      failures.increment();
+      throw exp;
+    }
+
+    if (null == user) {
+      notFound.increment();
+      return new CachedUser(null, System.currentTimeMillis() + notFoundTimeToLiveMillis);
+    }
+
+    found.increment();
+    return new CachedUser(user, Long.MAX_VALUE);
+  }
+
+  @AllArgsConstructor
+  private static final class CachedUser {
+    private final UserDto user;
+    private final long expiresAt;
+
+    boolean isExpired() {
+      return System.currentTimeMillis() >= expiresAt;
+    }
+  }
+
+}
@@ -15,10 +15,15 @@
 
 package org.openlmis.notification.service.referencedata;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 import org.openlmis.notification.service.ResultDto;
 import org.openlmis.notification.service.request.RequestParameters;
 import org.openlmis.notification.util.BooleanUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -39,6 +44,40 @@ public class UserReferenceDataService extends BaseReferenceDataService<UserDto>
     return UserDto[].class;
   }
 
+  /**
+   * Finds users with the given IDs in a single request (or a few requests if there are too many
+   * IDs to fit in one URL). Users that do not exist are not returned.
+   *
+   * @param ids IDs of users to find
+   * @return found users
+   */
+  public List<UserDto> findByIds(Collection<UUID> ids) {
+    if (ids.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    return getPage("", RequestParameters.init().set("id", ids).set("size", ids.size()))
+        .getContent();
+  }
+
+  /**
+   * Finds a page of users that have a right with certain criteria.
+   *
+   * @param right     right the users must have
+   * @param program   program of the right (for supervision rights, can be {@code null})
+   * @param node      supervisory node of the right (for supervision rights, can be {@code null})
+   * @param warehouse warehouse of the right (for fulfillment rights, can be {@code null})
+   * @param pageable  page to find
+   * @return found users
+   */
+  public Page<UserDto> findByRight(UUID right, UUID program, UUID node, UUID warehouse,
+      Pageable pageable) {
+    return getPage("rightSearch", RequestParameters.init()
+        .set("rightId", right).set("programId", program)
+        .set("supervisoryNodeId", node).set("warehouseId", warehouse)
+        .set("page", pageable.getPageNumber()).set("size", pageable.getPageSize()));
+  }
+
   /**
    * Check if user has a right with certain criteria.
    *
@@ -0,0 +1,104 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service.request;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Executes requests that have been split because their URL would be too long (see
+ * {@link RequestHelper#splitRequest}) at the same time, so the time of the whole request depends
+ * on the slowest part and not on the number of parts. The number of parts executed at once is
+ * limited by the size of a pool shared by all services.
+ */
+@Component
+public class SplitRequestExecutor {
+
+  private final ExecutorService executor;
+
+  /**
+   * Creates a new executor that executes up to the given number of requests at once.
+   */
+  public SplitRequestExecutor(@Value("${request.parallelism}") int parallelism) {
+    this.executor = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+        .setNameFormat("split-request-%d")
+        .setDaemon(true)
+        .build());
+  }
+
+  /**
+   * Executes the given requests and returns their results in the same order. When one of the
+   * requests fails, requests that have not been started yet are cancelled and the error is
+   * passed to the caller without waiting for the other requests.
+   *
+   * @param requests parts of a request
+   * @return results of the parts
+   */
+  public <R> List<R> executeAll(List<Supplier<R>> requests) {
+    if (requests.size() == 1) {
+      // there is nothing to do in parallel
+      return Collections.singletonList(requests.get(0).get());
+    }
+
+    List<CompletableFuture<R>> futures = requests
+        .stream()
+        .map(request -> CompletableFuture.supplyAsync(request, executor))
+        .collect(Collectors.toList());
+
+    CompletableFuture<Object> failed = new CompletableFuture<>();
+    futures.forEach(future -> future.whenComplete((result, exp) -> {
+      if (null != exp) {
+        failed.completeExceptionally(exp);
+      }
+    }));
+
+    try {
+      CompletableFuture
+          .anyOf(CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])), failed)
+          .join();
+    } catch (CompletionException exp) {
+      // requests that are already running are not interrupted, their results are ignored
+      futures.forEach(future -> future.cancel(false));
+
+      if (exp.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) exp.getCause();
+      }
+
+      throw exp;
+    }
+
+    return futures
+        .stream()
+        .map(CompletableFuture::join)
+        .collect(Collectors.toList());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+}
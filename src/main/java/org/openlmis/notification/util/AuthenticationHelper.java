@@ -18,10 +18,10 @@ package org.openlmis.notification.util;
 import static org.openlmis.notification.i18n.MessageKeys.USER_NOT_FOUND;
 
 import java.util.UUID;
+import org.openlmis.notification.service.referencedata.RightCache;
 import org.openlmis.notification.service.referencedata.RightDto;
-import org.openlmis.notification.service.referencedata.RightReferenceDataService;
+import org.openlmis.notification.service.referencedata.UserCache;
 import org.openlmis.notification.service.referencedata.UserDto;
-import org.openlmis.notification.service.referencedata.UserReferenceDataService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
@@ -31,10 +31,10 @@ import org.springframework.stereotype.Component;
 public class AuthenticationHelper {
 
   @Autowired
-  private UserReferenceDataService userReferenceDataService;
+  private UserCache userCache;
 
   @Autowired
-  private RightReferenceDataService rightReferenceDataService;
+  private RightCache rightCache;
 
   /**
    * Method returns current user based on Spring context
@@ -50,7 +50,7 @@ public class AuthenticationHelper {
 
     if (!authentication.isClientOnly()) {
       UUID userId = (UUID) authentication.getPrincipal();
-      user = userReferenceDataService.findOne(userId);
+      user = userCache.findOne(userId);
 
       if (user == null) {
         throw new AuthenticationException(USER_NOT_FOUND, userId.toString());
@@ -68,7 +68,7 @@ public class AuthenticationHelper {
    * @throws AuthenticationException if right cannot be found.
    */
   public RightDto getRight(String name) {
-    RightDto right = rightReferenceDataService.findRight(name);
+    RightDto right = rightCache.findRight(name);
 
     if (null == right) {
       throw new AuthenticationException("Right with name \"" + name + "\" not found");
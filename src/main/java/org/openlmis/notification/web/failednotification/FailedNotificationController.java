@@ -0,0 +1,102 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.web.failednotification;
+
+import static org.openlmis.notification.web.failednotification.FailedNotificationController.RESOURCE_URL;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.openlmis.notification.domain.FailedNotification;
+import org.openlmis.notification.repository.FailedNotificationRepository;
+import org.openlmis.notification.service.PendingNotificationService;
+import org.openlmis.notification.service.PermissionService;
+import org.openlmis.notification.util.Pagination;
+import org.openlmis.notification.web.BaseController;
+import org.slf4j.profiler.Profiler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+@Transactional
+@RestController
+@RequestMapping(RESOURCE_URL)
+public class FailedNotificationController extends BaseController {
+
+  public static final String RESOURCE_URL = API_PREFIX + "/failedNotifications";
+
+  @Autowired
+  private FailedNotificationRepository failedNotificationRepository;
+
+  @Autowired
+  private PendingNotificationService pendingNotificationService;
+
+  @Autowired
+  private PermissionService permissionService;
+
+  /**
+   * Gets a page of {@link FailedNotificationDto}.
+   */
+  @GetMapping
+  public Page<FailedNotificationDto> getFailedNotifications(Pageable pageable) {
+    Profiler profiler = getProfiler("GET_FAILED_NOTIFICATIONS", pageable);
+
+    profiler.start("CHECK_PERMISSION");
+    permissionService.canManageFailedNotifications();
+
+    profiler.start("CALL_DB");
+    Page<FailedNotification> page = failedNotificationRepository.findAll(pageable);
+
+    profiler.start("CONVERT_TO_DTO");
+    List<FailedNotificationDto> content = page
+        .getContent()
+        .stream()
+        .map(FailedNotificationDto::newInstance)
+        .collect(Collectors.toList());
+
+    profiler.start("CREATE_PAGE");
+    Page<FailedNotificationDto> pageDto = Pagination
+        .getPage(content, pageable, page.getTotalElements());
+
+    return stopProfilerAndReturnValue(profiler, pageDto);
+  }
+
+  /**
+   * Moves the failed notification with the given id back to the queue of pending notifications.
+   */
+  @PostMapping("/{id}/requeue")
+  @ResponseStatus(HttpStatus.OK)
+  public void requeueFailedNotification(@PathVariable("id") UUID id) {
+    Profiler profiler = getProfiler("REQUEUE_FAILED_NOTIFICATION", id);
+
+    profiler.start("CHECK_PERMISSION");
+    permissionService.canManageFailedNotifications();
+
+    profiler.start("REQUEUE");
+    pendingNotificationService.requeue(id);
+
+    profiler.stop().log();
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.web.notification;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.openlmis.notification.domain.Broadcast;
+import org.openlmis.notification.i18n.Message;
+import org.openlmis.notification.i18n.Message.LocalizedMessage;
+import org.openlmis.notification.i18n.MessageService;
+import org.openlmis.notification.service.AudienceFanOutService;
+import org.openlmis.notification.service.BroadcastService;
+import org.openlmis.notification.service.NotificationService;
+import org.openlmis.notification.service.PermissionService;
+import org.openlmis.notification.web.ValidationException;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.slf4j.profiler.Profiler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.WebDataBinder;
+import org.springframework.web.bind.annotation.InitBinder;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api")
+public class BroadcastController {
+
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(BroadcastController.class);
+
+  @Autowired
+  private BroadcastDtoValidator broadcastValidator;
+
+  @Autowired
+  private PermissionService permissionService;
+
+  @Autowired
+  private NotificationService notificationService;
+
+  @Autowired
+  private BroadcastService broadcastService;
+
+  @Autowired
+  private AudienceFanOutService audienceFanOutService;
+
+  @Autowired
+  private MessageService messageService;
+
+  @InitBinder
+  private void initBinder(WebDataBinder binder) {
+    binder.setValidator(broadcastValidator);
+  }
+
+  /**
+   * Send the same messages to many users. The messages are stored once for all recipients.
+   * Recipients that cannot receive notifications are skipped. If an audience is given instead of
+   * recipients, the broadcast is accepted right away and sent to users of the audience in the
+   * background.
+   *
+   * @param broadcastDto recipients or audience and details of the messages
+   * @return ID of the broadcast and recipients that have been skipped
+   */
+  @PostMapping("/broadcasts")
+  public ResponseEntity<BroadcastResultDto> sendBroadcast(
+      @RequestBody @Validated BroadcastDto broadcastDto, BindingResult bindingResult) {
+    XLOGGER.entry(broadcastDto);
+    Profiler profiler = new Profiler("SEND_BROADCAST");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("CHECK_PERMISSION");
+    permissionService.canSendNotification();
+
+    if (bindingResult.getErrorCount() > 0) {
+      FieldError fieldError = bindingResult.getFieldError();
+      throw new ValidationException(fieldError.getDefaultMessage(), fieldError.getField());
+    }
+
+    if (null != broadcastDto.getAudience()) {
+      profiler.start("SAVE_AUDIENCE_BROADCAST");
+      Broadcast broadcast = Broadcast.newInstance(broadcastDto);
+      audienceFanOutService.send(broadcast, broadcastDto.getAudience());
+
+      BroadcastResultDto result = new BroadcastResultDto(broadcast.getId(), 0,
+          Collections.emptyMap());
+
+      profiler.stop().log();
+      XLOGGER.exit(result);
+      return ResponseEntity.status(HttpStatus.ACCEPTED).body(result);
+    }
+
+    profiler.start("CHECK_RECIPIENTS");
+    Map<UUID, Message> invalidRecipients = notificationService
+        .findInvalidRecipients(broadcastDto.getRecipients());
+
+    List<UUID> recipients = broadcastDto
+        .getRecipients()
+        .stream()
+        .distinct()
+        .filter(recipient -> !invalidRecipients.containsKey(recipient))
+        .collect(Collectors.toList());
+
+    Map<UUID, LocalizedMessage> rejectedRecipients = invalidRecipients
+        .entrySet()
+        .stream()
+        .collect(Collectors.toMap(Map.Entry::getKey,
+            entry -> messageService.localize(entry.getValue())));
+
+    UUID id = null;
+
+    if (!recipients.isEmpty()) {
+      profiler.start("SAVE_BROADCAST");
+      Broadcast broadcast = Broadcast.newInstance(broadcastDto);
+      broadcastService.send(broadcast, recipients);
+      id = broadcast.getId();
+    }
+
+    BroadcastResultDto result = new BroadcastResultDto(id, recipients.size(),
+        rejectedRecipients);
+
+    profiler.stop().log();
+    XLOGGER.exit(result);
+    return ResponseEntity.ok(result);
+  }
+
+}
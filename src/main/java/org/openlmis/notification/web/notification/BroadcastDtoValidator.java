@@ -0,0 +1,67 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.web.notification;
+
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_BROADCAST_REQUEST_NULL;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_BROADCAST_REQUEST_RECIPIENTS_AND_AUDIENCE;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_BROADCAST_REQUEST_RECIPIENTS_EMPTY;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_NOTIFICATION_REQUEST_FIELD_REQUIRED;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_NOTIFICATION_REQUEST_MESSAGES_EMPTY;
+import static org.openlmis.notification.web.notification.NotificationDtoValidator.FIELD_NAME_MESSAGES;
+
+import org.openlmis.notification.web.BaseValidator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import org.springframework.validation.Errors;
+
+@Component
+public class BroadcastDtoValidator implements BaseValidator {
+
+  private static final String FIELD_NAME_RECIPIENTS = "recipients";
+
+  @Override
+  public boolean supports(Class<?> clazz) {
+    return BroadcastDto.class.equals(clazz);
+  }
+
+  @Override
+  public void validate(Object target, Errors errors) {
+    verifyArguments(target, errors, ERROR_BROADCAST_REQUEST_NULL);
+    BroadcastDto dto = (BroadcastDto) target;
+
+    if (null != dto.getAudience()) {
+      validateAudience(dto, errors);
+    } else if (CollectionUtils.isEmpty(dto.getRecipients())) {
+      rejectValue(errors, FIELD_NAME_RECIPIENTS, ERROR_BROADCAST_REQUEST_RECIPIENTS_EMPTY);
+    }
+
+    if (!errors.hasErrors()) {
+      if (CollectionUtils.isEmpty(dto.getMessageMap())) {
+        rejectValue(errors, FIELD_NAME_MESSAGES, ERROR_NOTIFICATION_REQUEST_MESSAGES_EMPTY);
+      } else {
+        NotificationDtoValidator.validateMessages(errors, dto.getMessageMap());
+      }
+    }
+  }
+
+  private void validateAudience(BroadcastDto dto, Errors errors) {
+    if (!CollectionUtils.isEmpty(dto.getRecipients())) {
+      rejectValue(errors, FIELD_NAME_RECIPIENTS, ERROR_BROADCAST_REQUEST_RECIPIENTS_AND_AUDIENCE);
+    } else if (null == dto.getAudience().getRightId()) {
+      rejectValue(errors, "audience.rightId", ERROR_NOTIFICATION_REQUEST_FIELD_REQUIRED);
+    }
+  }
+}
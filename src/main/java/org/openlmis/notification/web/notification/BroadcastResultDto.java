@@ -0,0 +1,41 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.web.notification;
+
+import java.util.Map;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.openlmis.notification.i18n.Message.LocalizedMessage;
+
+/**
+ * Result of a broadcast. The ID is not set if none of the recipients can receive notifications.
+ * Recipients that cannot receive notifications are returned with the reason. Broadcasts to an
+ * audience are sent in the background, so their result contains only the ID.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class BroadcastResultDto {
+
+  private UUID id;
+
+  private int recipientCount;
+
+  private Map<UUID, LocalizedMessage> rejectedRecipients;
+
+}
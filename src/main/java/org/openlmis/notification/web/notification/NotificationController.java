@@ -15,22 +15,35 @@
 
 package org.openlmis.notification.web.notification;
 
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_NOTIFICATION_NOT_FOUND;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_NOTIFICATION_REQUEST_NULL;
 import static org.openlmis.notification.i18n.MessageKeys.ERROR_USER_CONTACT_DETAILS_NOT_FOUND;
 import static org.openlmis.notification.i18n.MessageKeys.ERROR_USER_NOT_ACTIVE_OR_NOT_FOUND;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 import org.apache.commons.collections.MapUtils;
 import org.openlmis.notification.domain.Notification;
+import org.openlmis.notification.domain.NotificationIntake;
 import org.openlmis.notification.domain.PendingNotification;
 import org.openlmis.notification.domain.UserContactDetails;
+import org.openlmis.notification.i18n.Message;
+import org.openlmis.notification.i18n.MessageService;
+import org.openlmis.notification.repository.NotificationIntakeRepository;
 import org.openlmis.notification.repository.NotificationRepository;
 import org.openlmis.notification.repository.PendingNotificationRepository;
 import org.openlmis.notification.repository.UserContactDetailsRepository;
+import org.openlmis.notification.service.BroadcastService;
+import org.openlmis.notification.service.NotificationService;
 import org.openlmis.notification.service.PermissionService;
+import org.openlmis.notification.service.referencedata.UserCache;
 import org.openlmis.notification.service.referencedata.UserDto;
-import org.openlmis.notification.service.referencedata.UserReferenceDataService;
 import org.openlmis.notification.util.Pagination;
 import org.openlmis.notification.web.NotFoundException;
 import org.openlmis.notification.web.ValidationException;
@@ -41,13 +54,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.util.MultiValueMap;
+import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.InitBinder;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -68,7 +84,7 @@ public class NotificationController {
   private UserContactDetailsRepository userContactDetailsRepository;
 
   @Autowired
-  private UserReferenceDataService userReferenceDataService;
+  private UserCache userCache;
 
   @Autowired
   private PermissionService permissionService;
@@ -76,23 +92,40 @@ public class NotificationController {
   @Autowired
   private NotificationRepository notificationRepository;
 
+  @Autowired
+  private NotificationIntakeRepository notificationIntakeRepository;
+
   @Autowired
   private PendingNotificationRepository pendingNotificationRepository;
 
+  @Autowired
+  private NotificationService notificationService;
+
+  @Autowired
+  private MessageService messageService;
+
+  @Autowired
+  private BroadcastService broadcastService;
+
   @InitBinder
   private void initBinder(WebDataBinder binder) {
     binder.setValidator(notificationValidator);
   }
 
   /**
-   * Send an email notification.
+   * Send an email notification. When sent asynchronously, the notification is accepted right
+   * after it has been validated and saved, and its recipient is checked in the background.
+   * Notifications whose recipients cannot receive notifications are then rejected, which can be
+   * checked with {@link #getNotificationStatus(UUID)}.
    *
    * @param notificationDto details of the message
+   * @param async whether the recipient should be checked in the background
+   * @return ID of the accepted notification (only when sent asynchronously)
    */
   @PostMapping("/notifications")
-  @ResponseStatus(HttpStatus.OK)
-  public void sendNotification(@RequestBody @Validated NotificationDto notificationDto,
-      BindingResult bindingResult) {
+  public ResponseEntity<NotificationResultDto> sendNotification(
+      @RequestBody @Validated NotificationDto notificationDto, BindingResult bindingResult,
+      @RequestParam(name = "async", defaultValue = "false") boolean async) {
     XLOGGER.entry(notificationDto);
     Profiler profiler = new Profiler("SEND_NOTIFICATION");
     profiler.setLogger(XLOGGER);
@@ -105,13 +138,24 @@ public class NotificationController {
       throw new ValidationException(fieldError.getDefaultMessage(), fieldError.getField());
     }
 
+    if (async) {
+      profiler.start("ACCEPT_NOTIFICATION");
+      UUID id = notificationService.accept(Notification.newInstance(notificationDto));
+
+      profiler.stop().log();
+      XLOGGER.exit(id);
+      return ResponseEntity
+          .status(HttpStatus.ACCEPTED)
+          .body(NotificationResultDto.accepted(id));
+    }
+
     profiler.start("FIND_USER_CONTACT_DETAILS_BY_ID");
     UserContactDetails contactDetails = userContactDetailsRepository
         .findById(notificationDto.getUserId())
         .orElseThrow(() -> new NotFoundException(ERROR_USER_CONTACT_DETAILS_NOT_FOUND));
 
     profiler.start("FIND_USER_BY_ID");
-    UserDto user = userReferenceDataService.findOne(contactDetails.getReferenceDataUserId());
+    UserDto user = userCache.findOne(contactDetails.getReferenceDataUserId());
     if (null == user || !user.isActive()) {
       throw new ValidationException(ERROR_USER_NOT_ACTIVE_OR_NOT_FOUND);
     }
@@ -133,6 +177,73 @@ public class NotificationController {
 
     profiler.stop().log();
     XLOGGER.exit();
+    return ResponseEntity.ok().build();
+  }
+
+  /**
+   * Send many notifications at once. The permission is checked once and recipients of all
+   * notifications are checked together. Notifications that are invalid or whose recipients
+   * cannot receive notifications are rejected without affecting the other ones.
+   *
+   * @param notificationDtos details of the messages
+   * @return results of the notifications in the order of the request
+   */
+  @PostMapping("/notifications/batch")
+  @ResponseStatus(HttpStatus.OK)
+  public List<NotificationResultDto> sendNotifications(
+      @RequestBody List<NotificationDto> notificationDtos) {
+    XLOGGER.entry(notificationDtos);
+    Profiler profiler = new Profiler("SEND_NOTIFICATIONS");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("CHECK_PERMISSION");
+    permissionService.canSendNotification();
+
+    profiler.start("VALIDATE");
+    List<Message> errors = notificationDtos
+        .stream()
+        .map(this::validate)
+        .collect(Collectors.toList());
+
+    profiler.start("CHECK_RECIPIENTS");
+    Set<UUID> recipients = new HashSet<>();
+    for (int i = 0; i < notificationDtos.size(); ++i) {
+      if (null == errors.get(i)) {
+        recipients.add(notificationDtos.get(i).getUserId());
+      }
+    }
+
+    Map<UUID, Message> invalidRecipients = notificationService.findInvalidRecipients(recipients);
+
+    profiler.start("IMPORT_FROM_DTOS");
+    List<Notification> notifications = new ArrayList<>();
+    for (int i = 0; i < notificationDtos.size(); ++i) {
+      NotificationDto notificationDto = notificationDtos.get(i);
+
+      if (null == errors.get(i)) {
+        errors.set(i, invalidRecipients.get(notificationDto.getUserId()));
+      }
+
+      notifications.add(null == errors.get(i) ? Notification.newInstance(notificationDto) : null);
+    }
+
+    profiler.start("SAVE_NOTIFICATIONS");
+    notificationService.saveAll(notifications
+        .stream()
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList()));
+
+    profiler.start("CREATE_RESULTS");
+    List<NotificationResultDto> results = new ArrayList<>();
+    for (int i = 0; i < notificationDtos.size(); ++i) {
+      results.add(null == errors.get(i)
+          ? NotificationResultDto.accepted(notifications.get(i).getId())
+          : NotificationResultDto.rejected(messageService.localize(errors.get(i))));
+    }
+
+    profiler.stop().log();
+    XLOGGER.exit(results);
+    return results;
   }
 
   /**
@@ -148,9 +259,10 @@ public class NotificationController {
     profiler.setLogger(XLOGGER);
 
     profiler.start("FIND_ALL");
+    // notifications that have been accepted but not processed yet are skipped
     Page<Notification> page;
     if (MapUtils.isEmpty(queryParams)) {
-      page = notificationRepository.findAll(pageable);
+      page = notificationRepository.findAllByInIntakeFalse(pageable);
     } else {
       NotificationSearchParams searchParams = new NotificationSearchParams(queryParams);
       page = notificationRepository.search(searchParams, pageable);
@@ -172,9 +284,74 @@ public class NotificationController {
     return notificationDtosPage;
   }
 
+  /**
+   * Get the status of a notification that has been sent asynchronously. The notification is
+   * pending until its recipient has been checked. Then it is either accepted (its messages are
+   * added to the sending queue) or rejected because its recipient cannot receive notifications.
+   *
+   * @param id ID of the notification returned when it was accepted
+   * @return the status of the notification and the reason why it has been rejected (if it has)
+   */
+  @GetMapping("/notifications/{id}/status")
+  @ResponseStatus(HttpStatus.OK)
+  public NotificationStatusDto getNotificationStatus(@PathVariable("id") UUID id) {
+    XLOGGER.entry(id);
+    Profiler profiler = new Profiler("GET_NOTIFICATION_STATUS");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("CHECK_PERMISSION");
+    permissionService.canSendNotification();
+
+    profiler.start("FIND_INTAKE");
+    NotificationIntake intake = notificationIntakeRepository.findById(id).orElse(null);
+    NotificationStatusDto status;
+
+    if (null != intake) {
+      status = intake.isRejected()
+          ? NotificationStatusDto.rejected(id,
+              messageService.localize(intake.getRejectionReason()))
+          : NotificationStatusDto.pending(id);
+    } else {
+      profiler.start("CHECK_NOTIFICATION");
+      if (!notificationRepository.existsById(id)) {
+        profiler.stop().log();
+        throw new NotFoundException(ERROR_NOTIFICATION_NOT_FOUND);
+      }
+
+      status = NotificationStatusDto.accepted(id);
+    }
+
+    profiler.stop().log();
+    XLOGGER.exit(status);
+    return status;
+  }
+
+  private Message validate(NotificationDto notificationDto) {
+    if (null == notificationDto) {
+      return new Message(ERROR_NOTIFICATION_REQUEST_NULL);
+    }
+
+    BindingResult bindingResult = new BeanPropertyBindingResult(notificationDto,
+        "notificationDto");
+    notificationValidator.validate(notificationDto, bindingResult);
+
+    if (bindingResult.getErrorCount() > 0) {
+      FieldError fieldError = bindingResult.getFieldError();
+      return new Message(fieldError.getDefaultMessage(), fieldError.getField());
+    }
+
+    return null;
+  }
+
   private NotificationDto exportToDto(Notification notification) {
     NotificationDto dto = new NotificationDto();
     notification.export(dto);
+
+    if (notification.isBroadcast()) {
+      // messages of a broadcast are saved once for all its notifications
+      dto.setMessages(broadcastService.getMessages(notification.getBroadcastId()));
+    }
+
     return dto;
   }
 }
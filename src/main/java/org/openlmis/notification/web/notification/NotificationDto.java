@@ -49,6 +49,8 @@ public final class NotificationDto implements Notification.Exporter, Notificatio
   private Boolean important;
 
   private ZonedDateTime createdDate;
+
+  private UUID broadcastId;
   
   public void addMessage(String key, MessageDto message) {
     messageMap.put(key, message);
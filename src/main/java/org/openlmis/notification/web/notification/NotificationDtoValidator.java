@@ -31,7 +31,7 @@ import org.springframework.validation.Errors;
 @Component
 public class NotificationDtoValidator implements BaseValidator {
 
-  private static final String FIELD_NAME_MESSAGES = "messages";
+  static final String FIELD_NAME_MESSAGES = "messages";
   
   @Override
   public boolean supports(Class<?> clazz) {
@@ -49,13 +49,16 @@ public class NotificationDtoValidator implements BaseValidator {
       if (CollectionUtils.isEmpty(dto.getMessageMap())) {
         rejectValue(errors, FIELD_NAME_MESSAGES, ERROR_NOTIFICATION_REQUEST_MESSAGES_EMPTY);
       } else {
-        validateMessages(errors, dto);
+        validateMessages(errors, dto.getMessageMap());
       }
     }
   }
 
-  private void validateMessages(Errors errors, NotificationDto dto) {
-    for (Map.Entry<String, MessageDto> entry : dto.getMessageMap().entrySet()) {
+  /**
+   * Validates messages of a notification or a broadcast request.
+   */
+  static void validateMessages(Errors errors, Map<String, MessageDto> messages) {
+    for (Map.Entry<String, MessageDto> entry : messages.entrySet()) {
       String key = entry.getKey();
       MessageDto message = entry.getValue();
       if (null == NotificationChannel.fromString(key)) {
@@ -63,7 +66,8 @@ public class NotificationDtoValidator implements BaseValidator {
             new String[]{key}, ERROR_UNSUPPORTED_NOTIFICATION_CHANNEL);
       }
       if (isBlank(message.getBody())) {
-        rejectValue(errors, FIELD_NAME_MESSAGES, ERROR_NOTIFICATION_REQUEST_FIELD_REQUIRED);
+        errors.rejectValue(FIELD_NAME_MESSAGES, ERROR_NOTIFICATION_REQUEST_FIELD_REQUIRED,
+            ERROR_NOTIFICATION_REQUEST_FIELD_REQUIRED);
       }
     }
   }
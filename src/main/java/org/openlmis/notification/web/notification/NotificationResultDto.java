@@ -0,0 +1,45 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.web.notification;
+
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.openlmis.notification.i18n.Message.LocalizedMessage;
+
+/**
+ * Result of a single notification sent in a batch or sent asynchronously. Either the ID of the
+ * saved notification or the reason why the notification has been rejected is set.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class NotificationResultDto {
+
+  private UUID id;
+
+  private LocalizedMessage error;
+
+  static NotificationResultDto accepted(UUID id) {
+    return new NotificationResultDto(id, null);
+  }
+
+  static NotificationResultDto rejected(LocalizedMessage error) {
+    return new NotificationResultDto(null, error);
+  }
+
+}
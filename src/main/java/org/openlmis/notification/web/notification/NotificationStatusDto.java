@@ -0,0 +1,55 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.web.notification;
+
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.openlmis.notification.i18n.Message.LocalizedMessage;
+
+/**
+ * Status of a notification that has been sent asynchronously. The reason why the notification has
+ * been rejected is set only for rejected notifications.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class NotificationStatusDto {
+
+  private UUID id;
+
+  private Status status;
+
+  private LocalizedMessage error;
+
+  static NotificationStatusDto pending(UUID id) {
+    return new NotificationStatusDto(id, Status.PENDING, null);
+  }
+
+  static NotificationStatusDto accepted(UUID id) {
+    return new NotificationStatusDto(id, Status.ACCEPTED, null);
+  }
+
+  static NotificationStatusDto rejected(UUID id, LocalizedMessage error) {
+    return new NotificationStatusDto(id, Status.REJECTED, error);
+  }
+
+  public enum Status {
+    PENDING, ACCEPTED, REJECTED
+  }
+
+}
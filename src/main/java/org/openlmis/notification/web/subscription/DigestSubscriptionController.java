@@ -33,7 +33,7 @@ import org.openlmis.notification.domain.UserContactDetails;
 import org.openlmis.notification.repository.DigestConfigurationRepository;
 import org.openlmis.notification.repository.DigestSubscriptionRepository;
 import org.openlmis.notification.repository.UserContactDetailsRepository;
-import org.openlmis.notification.service.DigestionService;
+import org.openlmis.notification.service.DigestScheduler;
 import org.openlmis.notification.service.PermissionService;
 import org.openlmis.notification.web.BaseController;
 import org.openlmis.notification.web.NotFoundException;
@@ -69,7 +69,7 @@ public class DigestSubscriptionController extends BaseController {
   private PermissionService permissionService;
 
   @Autowired
-  private DigestionService digestionService;
+  private DigestScheduler digestScheduler;
 
   @Value("${service.url}")
   private String serviceUrl;
@@ -133,8 +133,8 @@ public class DigestSubscriptionController extends BaseController {
     profiler.start("SAVE_USER_SUBSCRIPTIONS");
     digestSubscriptions = digestSubscriptionRepository.saveAll(digestSubscriptions);
 
-    profiler.start("STOP_EXISTING_MESSAGE_SOURCES");
-    digestionService.dropExistingPollingAdapters(userId);
+    profiler.start("SCHEDULE_DIGESTS");
+    digestScheduler.schedule(digestSubscriptions);
 
     List<DigestSubscriptionDto> subscriptionDtos = toDto(digestSubscriptions, profiler);
     return stopProfilerAndReturnValue(profiler, subscriptionDtos);
@@ -0,0 +1,12 @@
+-- WHEN COMMITTING OR REVIEWING THIS FILE: Make sure that the timestamp in the file name (that serves as a version) is the latest timestamp, and that no new migration have been added in the meanwhile.
+-- Adding migrations out of order may cause this migration to never execute or behave in an unexpected way.
+-- Migrations should NOT BE EDITED. Add a new migration to apply changes.
+
+ALTER TABLE pending_notifications
+  ADD COLUMN claimedBy VARCHAR(255);
+
+ALTER TABLE pending_notifications
+  ADD COLUMN leaseUntil timestamptz;
+
+CREATE INDEX idx_pending_notifications_createddate
+  ON pending_notifications (createdDate);
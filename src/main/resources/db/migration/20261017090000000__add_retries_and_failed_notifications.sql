@@ -0,0 +1,26 @@
+-- WHEN COMMITTING OR REVIEWING THIS FILE: Make sure that the timestamp in the file name (that serves as a version) is the latest timestamp, and that no new migration have been added in the meanwhile.
+-- Adding migrations out of order may cause this migration to never execute or behave in an unexpected way.
+-- Migrations should NOT BE EDITED. Add a new migration to apply changes.
+
+ALTER TABLE pending_notifications
+  ADD COLUMN attemptCount INTEGER NOT NULL DEFAULT 0;
+
+ALTER TABLE pending_notifications
+  ADD COLUMN nextAttemptAt timestamptz;
+
+CREATE TABLE failed_notifications (
+  id UUID NOT NULL,
+  notificationId UUID NOT NULL,
+  channel VARCHAR(255) NOT NULL,
+  attemptCount INTEGER NOT NULL,
+  createdDate timestamptz NOT NULL,
+  failedDate timestamptz NOT NULL,
+  CONSTRAINT pKey_failed_notifications
+    PRIMARY KEY (id),
+  CONSTRAINT fKey_failed_notifications_notifications
+    FOREIGN KEY (notificationId)
+    REFERENCES notifications(id)
+);
+
+CREATE UNIQUE INDEX failed_notifications_unique_idx
+  ON failed_notifications (channel, notificationId);
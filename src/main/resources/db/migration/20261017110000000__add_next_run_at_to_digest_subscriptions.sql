@@ -0,0 +1,10 @@
+-- WHEN COMMITTING OR REVIEWING THIS FILE: Make sure that the timestamp in the file name (that serves as a version) is the latest timestamp, and that no new migration have been added in the meanwhile.
+-- Adding migrations out of order may cause this migration to never execute or behave in an unexpected way.
+-- Migrations should NOT BE EDITED. Add a new migration to apply changes.
+
+ALTER TABLE digest_subscriptions
+  ADD COLUMN nextRunAt timestamptz;
+
+CREATE INDEX digest_subscriptions_nextrunat_idx
+  ON digest_subscriptions (nextRunAt)
+  WHERE nextRunAt IS NOT NULL;
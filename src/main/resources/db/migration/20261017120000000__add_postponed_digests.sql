@@ -0,0 +1,25 @@
+-- WHEN COMMITTING OR REVIEWING THIS FILE: Make sure that the timestamp in the file name (that serves as a version) is the latest timestamp, and that no new migration have been added in the meanwhile.
+-- Adding migrations out of order may cause this migration to never execute or behave in an unexpected way.
+-- Migrations should NOT BE EDITED. Add a new migration to apply changes.
+
+CREATE TABLE postponed_digests (
+  id UUID PRIMARY KEY,
+  configurationId UUID NOT NULL,
+  userId UUID NOT NULL,
+  channel text NOT NULL,
+  count integer NOT NULL,
+  firstSubject text,
+  createdDate timestamp with time zone NOT NULL,
+  lastModifiedDate timestamp with time zone NOT NULL,
+  CONSTRAINT fKey_postponed_digests_digest_configurations
+    FOREIGN KEY (configurationId)
+    REFERENCES digest_configurations(id),
+  CONSTRAINT fKey_postponed_digests_user_contact_details
+    FOREIGN KEY (userId)
+    REFERENCES user_contact_details(referencedatauserid),
+  CONSTRAINT unq_postponed_digests_userid_configurationid_channel
+    UNIQUE (userId, configurationId, channel)
+);
+
+CREATE INDEX idx_postponed_digests_configurationid
+  ON postponed_digests (configurationId);
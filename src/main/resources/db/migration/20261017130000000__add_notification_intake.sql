@@ -0,0 +1,23 @@
+-- WHEN COMMITTING OR REVIEWING THIS FILE: Make sure that the timestamp in the file name (that serves as a version) is the latest timestamp, and that no new migration have been added in the meanwhile.
+-- Adding migrations out of order may cause this migration to never execute or behave in an unexpected way.
+-- Migrations should NOT BE EDITED. Add a new migration to apply changes.
+
+CREATE TABLE notification_intake (
+  notificationId UUID PRIMARY KEY,
+  createdDate timestamp with time zone NOT NULL,
+  claimedBy VARCHAR(255),
+  leaseUntil timestamp with time zone,
+  rejectedDate timestamp with time zone,
+  error TEXT,
+  CONSTRAINT fKey_notification_intake_notifications
+    FOREIGN KEY (notificationId)
+    REFERENCES notifications(id)
+    ON DELETE CASCADE
+);
+
+CREATE INDEX idx_notification_intake_createddate
+  ON notification_intake (createdDate)
+  WHERE rejectedDate IS NULL;
+
+ALTER TABLE notifications
+  ADD COLUMN inIntake BOOLEAN NOT NULL DEFAULT FALSE;
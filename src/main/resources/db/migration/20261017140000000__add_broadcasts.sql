@@ -0,0 +1,33 @@
+-- WHEN COMMITTING OR REVIEWING THIS FILE: Make sure that the timestamp in the file name (that serves as a version) is the latest timestamp, and that no new migration have been added in the meanwhile.
+-- Adding migrations out of order may cause this migration to never execute or behave in an unexpected way.
+-- Migrations should NOT BE EDITED. Add a new migration to apply changes.
+
+CREATE TABLE broadcasts (
+  id UUID PRIMARY KEY,
+  important BOOLEAN DEFAULT false,
+  createdDate timestamp with time zone NOT NULL
+);
+
+CREATE TABLE broadcast_messages (
+  id UUID PRIMARY KEY,
+  broadcastId UUID NOT NULL,
+  channel TEXT NOT NULL,
+  body TEXT NOT NULL,
+  subject TEXT,
+  tag VARCHAR(255),
+  CONSTRAINT fKey_broadcast_messages_broadcasts
+    FOREIGN KEY (broadcastId)
+    REFERENCES broadcasts(id)
+    ON DELETE CASCADE,
+  CONSTRAINT unq_broadcast_messages_broadcastid_channel
+    UNIQUE (broadcastId, channel)
+);
+
+ALTER TABLE notifications
+  ADD COLUMN broadcastId UUID,
+  ADD CONSTRAINT fKey_notifications_broadcasts
+    FOREIGN KEY (broadcastId)
+    REFERENCES broadcasts(id);
+
+CREATE INDEX idx_notifications_broadcastid
+  ON notifications (broadcastId);
@@ -0,0 +1,25 @@
+-- WHEN COMMITTING OR REVIEWING THIS FILE: Make sure that the timestamp in the file name (that serves as a version) is the latest timestamp, and that no new migration have been added in the meanwhile.
+-- Adding migrations out of order may cause this migration to never execute or behave in an unexpected way.
+-- Migrations should NOT BE EDITED. Add a new migration to apply changes.
+
+CREATE TABLE audience_fan_outs (
+  id UUID PRIMARY KEY,
+  broadcastId UUID NOT NULL,
+  rightId UUID NOT NULL,
+  programId UUID,
+  supervisoryNodeId UUID,
+  warehouseId UUID,
+  nextPage INTEGER NOT NULL DEFAULT 0,
+  recipientCount INTEGER NOT NULL DEFAULT 0,
+  createdDate timestamp with time zone NOT NULL,
+  finishedDate timestamp with time zone,
+  error TEXT,
+  CONSTRAINT fKey_audience_fan_outs_broadcasts
+    FOREIGN KEY (broadcastId)
+    REFERENCES broadcasts(id)
+    ON DELETE CASCADE
+);
+
+CREATE INDEX idx_audience_fan_outs_createddate
+  ON audience_fan_outs (createdDate)
+  WHERE finishedDate IS NULL;
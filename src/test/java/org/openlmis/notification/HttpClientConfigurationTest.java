@@ -0,0 +1,62 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.openlmis.notification.HttpClientConfiguration.CONNECTIONS_METRIC;
+import static org.openlmis.notification.HttpClientConfiguration.MAX_CONNECTIONS_METRIC;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HttpClientConfigurationTest {
+
+  private HttpClientConfiguration configuration = new HttpClientConfiguration();
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private PoolingHttpClientConnectionManager connectionManager;
+
+  @Before
+  public void setUp() {
+    connectionManager = configuration.httpConnectionManager(meterRegistry, 50, 10);
+  }
+
+  @After
+  public void tearDown() {
+    connectionManager.shutdown();
+  }
+
+  @Test
+  public void shouldLimitConnections() {
+    assertThat(connectionManager.getMaxTotal()).isEqualTo(50);
+    assertThat(connectionManager.getDefaultMaxPerRoute()).isEqualTo(10);
+  }
+
+  @Test
+  public void shouldRegisterMetricsOfPool() {
+    assertThat(meterRegistry.get(MAX_CONNECTIONS_METRIC).gauge().value()).isEqualTo(50);
+    assertThat(meterRegistry.get(CONNECTIONS_METRIC).tag("state", "leased").gauge().value())
+        .isZero();
+    assertThat(meterRegistry.get(CONNECTIONS_METRIC).tag("state", "available").gauge().value())
+        .isZero();
+    assertThat(meterRegistry.get(CONNECTIONS_METRIC).tag("state", "pending").gauge().value())
+        .isZero();
+  }
+
+}
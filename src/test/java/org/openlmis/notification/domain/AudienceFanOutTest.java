@@ -0,0 +1,115 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.Lists;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import nl.jqno.equalsverifier.EqualsVerifier;
+import org.junit.Test;
+import org.openlmis.notification.service.NotificationChannel;
+import org.openlmis.notification.web.notification.AudienceDto;
+
+public class AudienceFanOutTest {
+
+  private Broadcast broadcast = new Broadcast(Lists.newArrayList(
+      new BroadcastMessage(NotificationChannel.EMAIL, "body", "subject", null)), false);
+
+  private AudienceFanOut fanOut = new AudienceFanOut(broadcast,
+      new AudienceDto(UUID.randomUUID(), null, null, UUID.randomUUID()));
+
+  @Test
+  public void equalsContract() {
+    EqualsVerifier
+        .forClass(AudienceFanOut.class)
+        .withPrefabValues(Broadcast.class,
+            new Broadcast(Lists.newArrayList(), false),
+            new Broadcast(Lists.newArrayList(), true))
+        .withRedefinedSuperclass()
+        .withIgnoredFields("broadcast")
+        .verify();
+  }
+
+  @Test
+  public void shouldRecordSentPages() {
+    // when
+    fanOut.pageSent(10, false);
+    fanOut.pageSent(5, false);
+
+    // then
+    assertThat(fanOut.getNextPage()).isEqualTo(2);
+    assertThat(fanOut.getRecipientCount()).isEqualTo(15);
+    assertThat(fanOut.isFinished()).isFalse();
+  }
+
+  @Test
+  public void shouldFinishAfterLastPage() {
+    // when
+    fanOut.pageSent(10, false);
+    fanOut.pageSent(3, true);
+
+    // then
+    assertThat(fanOut.getNextPage()).isEqualTo(2);
+    assertThat(fanOut.getRecipientCount()).isEqualTo(13);
+    assertThat(fanOut.isFinished()).isTrue();
+    assertThat(fanOut.getError()).isNull();
+  }
+
+  @Test
+  public void shouldFinishWithErrorWhenAbandoned() {
+    // when
+    fanOut.pageSent(10, false);
+    fanOut.abandon("invalid right");
+
+    // then
+    assertThat(fanOut.getNextPage()).isEqualTo(1);
+    assertThat(fanOut.isFinished()).isTrue();
+    assertThat(fanOut.getError()).isEqualTo("invalid right");
+  }
+
+  @Test
+  public void shouldReleaseLeaseAndCountFailedAttempt() {
+    // given
+    fanOut.claim("owner", ZonedDateTime.now().plusMinutes(1));
+
+    // when
+    fanOut.registerFailedAttempt();
+
+    // then
+    assertThat(fanOut.getAttemptCount()).isEqualTo(1);
+    assertThat(fanOut.isClaimedBy("owner")).isFalse();
+    assertThat(fanOut.getLeaseUntil()).isNull();
+  }
+
+  @Test
+  public void shouldResetFailedAttemptsWhenPageIsSent() {
+    // given
+    fanOut.registerFailedAttempt();
+    fanOut.retryAt(ZonedDateTime.now().plusMinutes(1));
+    fanOut.claim("owner", ZonedDateTime.now().plusMinutes(1));
+
+    // when
+    fanOut.pageSent(10, false);
+
+    // then
+    assertThat(fanOut.getAttemptCount()).isZero();
+    assertThat(fanOut.getNextAttemptAt()).isNull();
+    assertThat(fanOut.isClaimedBy("owner")).isFalse();
+  }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.Lists;
+import nl.jqno.equalsverifier.EqualsVerifier;
+import org.junit.Test;
+import org.openlmis.notification.service.NotificationChannel;
+
+public class BroadcastMessageTest {
+
+  @Test
+  public void equalsContract() {
+    EqualsVerifier
+        .forClass(BroadcastMessage.class)
+        .withPrefabValues(Broadcast.class,
+            new Broadcast(Lists.newArrayList(), false),
+            new Broadcast(Lists.newArrayList(), true))
+        .withRedefinedSuperclass()
+        .withIgnoredFields("broadcast")
+        .verify();
+  }
+
+  @Test
+  public void shouldCreateNotificationMessage() {
+    // given
+    BroadcastMessage message = new BroadcastMessage(NotificationChannel.EMAIL, "body",
+        "subject", "tag");
+
+    // when
+    NotificationMessage notificationMessage = message.toNotificationMessage();
+
+    // then
+    assertThat(notificationMessage.getChannel()).isEqualTo(NotificationChannel.EMAIL);
+    assertThat(notificationMessage.getBody()).isEqualTo("body");
+    assertThat(notificationMessage.getSubject()).isEqualTo("subject");
+    assertThat(notificationMessage.getTag()).isEqualTo("tag");
+  }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.Lists;
+import java.util.UUID;
+import nl.jqno.equalsverifier.EqualsVerifier;
+import org.junit.Test;
+import org.openlmis.notification.service.NotificationChannel;
+
+public class BroadcastTest {
+
+  @Test
+  public void equalsContract() {
+    EqualsVerifier
+        .forClass(Broadcast.class)
+        .withPrefabValues(BroadcastMessage.class,
+            new BroadcastMessage(NotificationChannel.EMAIL, "body1", "subject1", null),
+            new BroadcastMessage(NotificationChannel.EMAIL, "body2", "subject2", null))
+        .withRedefinedSuperclass()
+        .verify();
+  }
+
+  @Test
+  public void shouldCreateNotificationsThatReferToBroadcast() {
+    // given
+    Broadcast broadcast = new Broadcast(Lists.newArrayList(
+        new BroadcastMessage(NotificationChannel.EMAIL, "body", "subject", null)), true);
+    broadcast.setId(UUID.randomUUID());
+    UUID recipient = UUID.randomUUID();
+
+    // when
+    Notification notification = new Notification(recipient, broadcast);
+
+    // then
+    assertThat(notification.getUserId()).isEqualTo(recipient);
+    assertThat(notification.getBroadcastId()).isEqualTo(broadcast.getId());
+    assertThat(notification.isBroadcast()).isTrue();
+    assertThat(notification.getImportant()).isTrue();
+    assertThat(notification.getMessages()).isEmpty();
+  }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.Maps;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import nl.jqno.equalsverifier.EqualsVerifier;
+import org.junit.Test;
+import org.openlmis.notification.service.NotificationChannel;
+import org.openlmis.notification.testutils.ToStringTestUtils;
+import org.openlmis.notification.util.NotificationDataBuilder;
+
+public class FailedNotificationTest {
+
+  private static final String ID = "id";
+  private static final String NOTIFICATION_ID = "notificationId";
+  private static final String USER_ID = "userId";
+  private static final String CHANNEL = "channel";
+  private static final String ATTEMPT_COUNT = "attemptCount";
+  private static final String CREATED_DATE = "createdDate";
+  private static final String FAILED_DATE = "failedDate";
+
+  private Notification notification = new NotificationDataBuilder()
+      .withEmptyMessage(NotificationChannel.EMAIL)
+      .build();
+
+  private PendingNotification pending =
+      new PendingNotification(notification, NotificationChannel.EMAIL);
+
+  @Test
+  public void shouldCreateInstanceBasedOnPendingNotification() {
+    // given
+    pending.registerFailedAttempt();
+    ZonedDateTime failedDate = ZonedDateTime.now();
+
+    // when
+    FailedNotification failed = new FailedNotification(pending, failedDate);
+
+    // then
+    assertThat(failed.getNotification()).isEqualTo(notification);
+    assertThat(failed.getChannel()).isEqualTo(NotificationChannel.EMAIL);
+    assertThat(failed.getAttemptCount()).isEqualTo(1);
+    assertThat(failed.getCreatedDate()).isEqualTo(pending.getCreatedDate());
+    assertThat(failed.getFailedDate()).isEqualTo(failedDate);
+  }
+
+  @Test
+  public void shouldRequeueAsNewPendingNotification() {
+    // given
+    pending.registerFailedAttempt();
+    FailedNotification failed = new FailedNotification(pending, ZonedDateTime.now());
+
+    // when
+    PendingNotification requeued = failed.requeue();
+
+    // then
+    assertThat(requeued.getNotification()).isEqualTo(notification);
+    assertThat(requeued.getChannel()).isEqualTo(NotificationChannel.EMAIL);
+    assertThat(requeued.getAttemptCount()).isZero();
+    assertThat(requeued.getNextAttemptAt()).isNull();
+  }
+
+  @Test
+  public void shouldExportData() {
+    Map<String, Object> map = Maps.newHashMap();
+    DummyExporter exporter = new DummyExporter(map);
+
+    FailedNotification failed = new FailedNotification(pending, ZonedDateTime.now());
+    failed.setId(UUID.randomUUID());
+    failed.export(exporter);
+
+    assertThat(map)
+        .containsEntry(ID, failed.getId())
+        .containsEntry(NOTIFICATION_ID, notification.getId())
+        .containsEntry(USER_ID, notification.getUserId())
+        .containsEntry(CHANNEL, failed.getChannel())
+        .containsEntry(ATTEMPT_COUNT, failed.getAttemptCount())
+        .containsEntry(CREATED_DATE, failed.getCreatedDate())
+        .containsEntry(FAILED_DATE, failed.getFailedDate());
+  }
+
+  @Test
+  public void equalsContract() {
+    EqualsVerifier
+        .forClass(FailedNotification.class)
+        .withPrefabValues(Notification.class,
+            new NotificationDataBuilder().buildAsNew(),
+            new NotificationDataBuilder().buildAsNew())
+        .withRedefinedSuperclass()
+        .verify();
+  }
+
+  @Test
+  public void shouldImplementToString() {
+    ToStringTestUtils.verify(FailedNotification.class, new FailedNotification(), "notification");
+  }
+
+  @AllArgsConstructor
+  private static final class DummyExporter implements FailedNotification.Exporter {
+
+    private Map<String, Object> map;
+
+    @Override
+    public void setId(UUID id) {
+      map.put(ID, id);
+    }
+
+    @Override
+    public void setNotificationId(UUID notificationId) {
+      map.put(NOTIFICATION_ID, notificationId);
+    }
+
+    @Override
+    public void setUserId(UUID userId) {
+      map.put(USER_ID, userId);
+    }
+
+    @Override
+    public void setChannel(NotificationChannel channel) {
+      map.put(CHANNEL, channel);
+    }
+
+    @Override
+    public void setAttemptCount(int attemptCount) {
+      map.put(ATTEMPT_COUNT, attemptCount);
+    }
+
+    @Override
+    public void setCreatedDate(ZonedDateTime createdDate) {
+      map.put(CREATED_DATE, createdDate);
+    }
+
+    @Override
+    public void setFailedDate(ZonedDateTime failedDate) {
+      map.put(FAILED_DATE, failedDate);
+    }
+  }
+
+}
@@ -15,12 +15,16 @@
 
 package org.openlmis.notification.security;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -33,6 +37,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter;
 import org.springframework.web.client.RestTemplate;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -88,4 +93,80 @@ public class CustomTokenServicesTest {
     this.customTokenServices.setRestTemplate(restTemplate);
     this.customTokenServices.loadAuthentication(ACCESS_TOKEN);
   }
+
+  @Test
+  public void shouldCheckValidTokenOnlyOnce() {
+    CustomTokenServices cachingTokenServices = createCachingTokenServices();
+    mockCheckTokenResponse(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 600);
+
+    OAuth2Authentication first = cachingTokenServices.loadAuthentication(ACCESS_TOKEN);
+    OAuth2Authentication second = cachingTokenServices.loadAuthentication(ACCESS_TOKEN);
+
+    assertThat(first).isNotSameAs(second);
+    assertThat(second.getOAuth2Request().getClientId()).isEqualTo(CLIENT_ID);
+    verify(restTemplate).exchange(
+        anyString(), Matchers.any(HttpMethod.class), Matchers.any(HttpEntity.class),
+        Matchers.any(Class.class));
+  }
+
+  @Test
+  public void shouldCheckTokenAgainIfItHasExpired() {
+    CustomTokenServices cachingTokenServices = createCachingTokenServices();
+    mockCheckTokenResponse(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) - 10);
+
+    cachingTokenServices.loadAuthentication(ACCESS_TOKEN);
+    cachingTokenServices.loadAuthentication(ACCESS_TOKEN);
+
+    verify(restTemplate, times(2)).exchange(
+        anyString(), Matchers.any(HttpMethod.class), Matchers.any(HttpEntity.class),
+        Matchers.any(Class.class));
+  }
+
+  @Test
+  public void shouldNotKeepInvalidTokens() {
+    CustomTokenServices cachingTokenServices = createCachingTokenServices();
+    Map responseAttributes = new HashMap();
+    responseAttributes.put("error", "no_active_token");
+
+    when(restTemplate.exchange(
+        anyString(), Matchers.any(HttpMethod.class), Matchers.any(HttpEntity.class),
+        Matchers.any(Class.class)
+    )).thenReturn(new ResponseEntity<>(responseAttributes, HttpStatus.OK));
+
+    for (int i = 0; i < 2; ++i) {
+      try {
+        cachingTokenServices.loadAuthentication(ACCESS_TOKEN);
+      } catch (InvalidTokenException exp) {
+        // expected
+      }
+    }
+
+    verify(restTemplate, times(2 * (INVALID_TOKEN_RETRY_LIMIT + 1))).exchange(
+        anyString(), Matchers.any(HttpMethod.class), Matchers.any(HttpEntity.class),
+        Matchers.any(Class.class));
+  }
+
+  private CustomTokenServices createCachingTokenServices() {
+    CustomTokenServices tokenServices = new CustomTokenServices(INVALID_TOKEN_RETRY_LIMIT, 10,
+        60);
+    tokenServices.setClientId(CLIENT_ID);
+    tokenServices.setClientSecret(CLIENT_SECRET);
+    tokenServices.setCheckTokenEndpointUrl(CLIENT_CHECK_TOKEN_ENDPOINT_URI);
+    tokenServices.setAccessTokenConverter(new DefaultAccessTokenConverter());
+    tokenServices.setRestTemplate(restTemplate);
+
+    return tokenServices;
+  }
+
+  private void mockCheckTokenResponse(long expiration) {
+    Map responseAttributes = new HashMap();
+    responseAttributes.put("active", true);
+    responseAttributes.put("client_id", CLIENT_ID);
+    responseAttributes.put("exp", expiration);
+
+    when(restTemplate.exchange(
+        anyString(), Matchers.any(HttpMethod.class), Matchers.any(HttpEntity.class),
+        Matchers.any(Class.class)
+    )).thenReturn(new ResponseEntity<>(responseAttributes, HttpStatus.OK));
+  }
 }
@@ -17,7 +17,9 @@ package org.openlmis.notification.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
+import java.util.Collections;
 import java.util.Optional;
 import java.util.UUID;
 import org.junit.Before;
@@ -25,11 +27,13 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.openlmis.notification.domain.UserContactDetails;
 import org.openlmis.notification.repository.UserContactDetailsRepository;
 import org.openlmis.notification.util.UserContactDetailsDataBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
 
 public class AllowNotifyFilterTest {
 
@@ -42,22 +46,28 @@ public class AllowNotifyFilterTest {
   @Mock
   private UserContactDetailsRepository userContactDetailsRepository;
 
+  @Spy
+  private DeliveryContextService deliveryContextService = new DeliveryContextService();
+
   @InjectMocks
   private AllowNotifyFilter filter;
 
   private UserContactDetails contactDetails = new UserContactDetailsDataBuilder().build();
   private UUID recipient = contactDetails.getId();
 
+  private DeliveryContext context =
+      new DeliveryContext(recipient, contactDetails, Collections.emptyList());
+
   @Before
   public void setUp() {
-    given(userContactDetailsRepository.findById(contactDetails.getId()))
-        .willReturn(Optional.of(contactDetails));
+    ReflectionTestUtils.setField(deliveryContextService, "userContactDetailsRepository",
+        userContactDetailsRepository);
   }
 
   @Test
   public void shouldAcceptImportantMessage() {
     // when
-    boolean accepted = filter.accept(recipient, IMPORTANT);
+    boolean accepted = filter.accept(recipient, IMPORTANT, context);
 
     // then
     assertThat(accepted).isTrue();
@@ -69,7 +79,7 @@ public class AllowNotifyFilterTest {
     contactDetails.setAllowNotify(true);
 
     // when
-    boolean accepted = filter.accept(recipient, UNIMPORTANT);
+    boolean accepted = filter.accept(recipient, UNIMPORTANT, context);
 
     // then
     assertThat(accepted).isTrue();
@@ -81,7 +91,7 @@ public class AllowNotifyFilterTest {
     contactDetails.setAllowNotify(false);
 
     // when
-    boolean accepted = filter.accept(recipient, UNIMPORTANT);
+    boolean accepted = filter.accept(recipient, UNIMPORTANT, context);
 
     // then
     assertThat(accepted).isFalse();
@@ -90,13 +100,34 @@ public class AllowNotifyFilterTest {
   @Test
   public void shouldDeclineStandardMessageWhenUserDoesNotExist() {
     // given
-    given(userContactDetailsRepository.findById(contactDetails.getId()))
-        .willReturn(Optional.empty());
+    context = new DeliveryContext(recipient, null, Collections.emptyList());
 
     // when
-    boolean accepted = filter.accept(recipient, UNIMPORTANT);
+    boolean accepted = filter.accept(recipient, UNIMPORTANT, context);
 
     // then
     assertThat(accepted).isFalse();
   }
+
+  @Test
+  public void shouldNotReadContactDetailsFromDatabaseIfContextIsAvailable() {
+    // when
+    filter.accept(recipient, UNIMPORTANT, context);
+
+    // then
+    verifyZeroInteractions(userContactDetailsRepository);
+  }
+
+  @Test
+  public void shouldReadContactDetailsFromDatabaseIfContextIsNotAvailable() {
+    // given
+    given(userContactDetailsRepository.findById(recipient))
+        .willReturn(Optional.of(contactDetails));
+
+    // when
+    boolean accepted = filter.accept(recipient, IMPORTANT, null);
+
+    // then
+    assertThat(accepted).isTrue();
+  }
 }
@@ -0,0 +1,124 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
+import org.assertj.core.util.Lists;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.notification.domain.AudienceFanOut;
+import org.openlmis.notification.domain.Broadcast;
+import org.openlmis.notification.domain.BroadcastMessage;
+import org.openlmis.notification.service.referencedata.UserDto;
+import org.openlmis.notification.web.notification.AudienceDto;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.http.HttpStatus;
+
+public class AudienceFanOutProcessorTest {
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private AudienceFanOutService audienceFanOutService;
+
+  @InjectMocks
+  private AudienceFanOutProcessor processor;
+
+  private Broadcast broadcast = new Broadcast(Lists.newArrayList(
+      new BroadcastMessage(NotificationChannel.EMAIL, "body", "subject", null)), false);
+
+  private AudienceFanOut fanOut;
+
+  private Page<UserDto> page = new PageImpl<>(Collections.emptyList());
+
+  @Before
+  public void setUp() {
+    broadcast.setId(UUID.randomUUID());
+    fanOut = new AudienceFanOut(broadcast, new AudienceDto(UUID.randomUUID(), null, null, null));
+    fanOut.setId(UUID.randomUUID());
+  }
+
+  @Test
+  public void shouldSendPagesUntilThereAreNoUnfinishedFanOuts() {
+    // given
+    given(audienceFanOutService.claim())
+        .willReturn(Optional.of(fanOut), Optional.of(fanOut), Optional.empty());
+    given(audienceFanOutService.findNextPage(fanOut)).willReturn(page);
+
+    // when
+    processor.process();
+
+    // then
+    verify(audienceFanOutService, times(3)).claim();
+    verify(audienceFanOutService, times(2)).sendPage(fanOut.getId(), page);
+  }
+
+  @Test
+  public void shouldRecordFailureAndContinueWithOtherFanOutsIfPageCannotBeRequested() {
+    // given
+    AudienceFanOut other = new AudienceFanOut(broadcast,
+        new AudienceDto(UUID.randomUUID(), null, null, null));
+    other.setId(UUID.randomUUID());
+    DataRetrievalException error =
+        new DataRetrievalException("User", HttpStatus.SERVICE_UNAVAILABLE, "");
+
+    given(audienceFanOutService.claim())
+        .willReturn(Optional.of(fanOut), Optional.of(other), Optional.empty());
+    given(audienceFanOutService.findNextPage(fanOut)).willThrow(error);
+    given(audienceFanOutService.findNextPage(other)).willReturn(page);
+
+    // when
+    processor.process();
+
+    // then
+    verify(audienceFanOutService).fail(fanOut.getId(), error);
+    verify(audienceFanOutService, never()).sendPage(eq(fanOut.getId()), any());
+    verify(audienceFanOutService).sendPage(other.getId(), page);
+  }
+
+  @Test
+  public void shouldStopSendingPagesIfPageCannotBeSaved() {
+    // given
+    given(audienceFanOutService.claim()).willReturn(Optional.of(fanOut));
+    given(audienceFanOutService.findNextPage(fanOut)).willReturn(page);
+    willThrow(new IllegalStateException("test"))
+        .given(audienceFanOutService).sendPage(fanOut.getId(), page);
+
+    // when
+    processor.process();
+
+    // then
+    verify(audienceFanOutService, times(1)).claim();
+  }
+
+}
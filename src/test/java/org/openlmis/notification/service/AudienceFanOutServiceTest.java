@@ -0,0 +1,354 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
+import org.assertj.core.util.Lists;
+import org.assertj.core.util.Sets;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.notification.domain.AudienceFanOut;
+import org.openlmis.notification.domain.Broadcast;
+import org.openlmis.notification.domain.BroadcastMessage;
+import org.openlmis.notification.repository.AudienceFanOutRepository;
+import org.openlmis.notification.repository.BroadcastRepository;
+import org.openlmis.notification.repository.NotificationRepository;
+import org.openlmis.notification.repository.UserContactDetailsRepository;
+import org.openlmis.notification.service.referencedata.UserDto;
+import org.openlmis.notification.service.referencedata.UserReferenceDataService;
+import org.openlmis.notification.testutils.UserDataBuilder;
+import org.openlmis.notification.util.UserContactDetailsDataBuilder;
+import org.openlmis.notification.web.notification.AudienceDto;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class AudienceFanOutServiceTest {
+
+  private static final int PAGE_SIZE = 3;
+  private static final int MAX_ATTEMPTS = 10;
+  private static final long INITIAL_DELAY_SECONDS = 30;
+  private static final long MAX_DELAY_SECONDS = 600;
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private AudienceFanOutRepository audienceFanOutRepository;
+
+  @Mock
+  private BroadcastRepository broadcastRepository;
+
+  @Mock
+  private NotificationRepository notificationRepository;
+
+  @Mock
+  private UserContactDetailsRepository userContactDetailsRepository;
+
+  @Mock
+  private UserReferenceDataService userReferenceDataService;
+
+  @Mock
+  private BroadcastService broadcastService;
+
+  @InjectMocks
+  private AudienceFanOutService audienceFanOutService;
+
+  @Captor
+  private ArgumentCaptor<Collection<UUID>> recipientsCaptor;
+
+  private Broadcast broadcast = new Broadcast(Lists.newArrayList(
+      new BroadcastMessage(NotificationChannel.EMAIL, "body", "subject", null)), false);
+
+  private AudienceDto audience = new AudienceDto(UUID.randomUUID(), UUID.randomUUID(),
+      UUID.randomUUID(), null);
+
+  private AudienceFanOut fanOut;
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(audienceFanOutService, "pageSize", PAGE_SIZE);
+    ReflectionTestUtils.setField(audienceFanOutService, "leaseSeconds", 60L);
+    ReflectionTestUtils.setField(audienceFanOutService, "maxAttempts", MAX_ATTEMPTS);
+    ReflectionTestUtils.setField(audienceFanOutService, "initialDelaySeconds",
+        INITIAL_DELAY_SECONDS);
+    ReflectionTestUtils.setField(audienceFanOutService, "maxDelaySeconds", MAX_DELAY_SECONDS);
+    broadcast.setId(UUID.randomUUID());
+    fanOut = new AudienceFanOut(broadcast, audience);
+    fanOut.setId(UUID.randomUUID());
+  }
+
+  @Test
+  public void shouldSaveBroadcastAndFanOut() {
+    // given
+    given(audienceFanOutRepository.save(any(AudienceFanOut.class)))
+        .willAnswer(invocation -> invocation.getArgument(0));
+
+    // when
+    AudienceFanOut saved = audienceFanOutService.send(broadcast, audience);
+
+    // then
+    verify(broadcastRepository).save(broadcast);
+    assertThat(saved.getBroadcast()).isEqualTo(broadcast);
+    assertThat(saved.getRightId()).isEqualTo(audience.getRightId());
+    assertThat(saved.getProgramId()).isEqualTo(audience.getProgramId());
+    assertThat(saved.getSupervisoryNodeId()).isEqualTo(audience.getSupervisoryNodeId());
+    assertThat(saved.getWarehouseId()).isNull();
+    assertThat(saved.isFinished()).isFalse();
+  }
+
+  @Test
+  public void shouldReturnEmptyOptionalIfThereAreNoUnfinishedFanOuts() {
+    // given
+    given(audienceFanOutRepository.claim(any(ZonedDateTime.class), eq(1)))
+        .willReturn(Collections.emptyList());
+
+    // when
+    Optional<AudienceFanOut> claimed = audienceFanOutService.claim();
+
+    // then
+    assertThat(claimed).isEmpty();
+  }
+
+  @Test
+  public void shouldLeaseClaimedFanOut() {
+    // given
+    given(audienceFanOutRepository.claim(any(ZonedDateTime.class), eq(1)))
+        .willReturn(Lists.newArrayList(fanOut));
+
+    // when
+    Optional<AudienceFanOut> claimed = audienceFanOutService.claim();
+
+    // then
+    assertThat(claimed).contains(fanOut);
+    assertThat(fanOut.isClaimedBy(getOwner())).isTrue();
+    assertThat(fanOut.getLeaseUntil()).isAfter(ZonedDateTime.now());
+  }
+
+  @Test
+  public void shouldRequestNextPageOfAudience() {
+    // given
+    fanOut.pageSent(PAGE_SIZE, false);
+    Page<UserDto> page = new PageImpl<>(Collections.emptyList(), PageRequest.of(1, PAGE_SIZE), 0);
+
+    given(userReferenceDataService.findByRight(audience.getRightId(), audience.getProgramId(),
+        audience.getSupervisoryNodeId(), null, PageRequest.of(1, PAGE_SIZE)))
+        .willReturn(page);
+
+    // when
+    Page<UserDto> found = audienceFanOutService.findNextPage(fanOut);
+
+    // then
+    assertThat(found).isSameAs(page);
+  }
+
+  @Test
+  public void shouldSendPageToActiveUsersWithContactDetailsThatWereNotNotified() {
+    // given
+    UserDto notified = new UserDataBuilder().build();
+    UserDto inactive = new UserDataBuilder().withActive(false).build();
+    UserDto withoutContactDetails = new UserDataBuilder().build();
+    UserDto recipient = new UserDataBuilder().build();
+    Page<UserDto> page = new PageImpl<>(
+        Lists.newArrayList(notified, inactive, withoutContactDetails, recipient),
+        PageRequest.of(0, PAGE_SIZE), 10);
+
+    claimFanOut();
+    given(userContactDetailsRepository.findAllById(any())).willReturn(Lists.newArrayList(
+        new UserContactDetailsDataBuilder().withReferenceDataUserId(notified.getId()).build(),
+        new UserContactDetailsDataBuilder().withReferenceDataUserId(recipient.getId()).build()));
+    given(notificationRepository.findBroadcastRecipients(eq(broadcast.getId()), any()))
+        .willReturn(Sets.newLinkedHashSet(notified.getId()));
+
+    // when
+    audienceFanOutService.sendPage(fanOut.getId(), page);
+
+    // then
+    verify(broadcastService).addRecipients(eq(broadcast), recipientsCaptor.capture());
+    assertThat(recipientsCaptor.getValue()).containsExactly(recipient.getId());
+
+    assertThat(fanOut.getNextPage()).isEqualTo(1);
+    assertThat(fanOut.getRecipientCount()).isEqualTo(1);
+    assertThat(fanOut.isFinished()).isFalse();
+    assertThat(fanOut.isClaimedBy(getOwner())).isFalse();
+  }
+
+  @Test
+  public void shouldFinishFanOutAfterLastPage() {
+    // given
+    UserDto recipient = new UserDataBuilder().build();
+    fanOut.pageSent(PAGE_SIZE, false);
+    Page<UserDto> page = new PageImpl<>(Lists.newArrayList(recipient),
+        PageRequest.of(1, PAGE_SIZE), PAGE_SIZE + 1);
+
+    claimFanOut();
+    given(userContactDetailsRepository.findAllById(any())).willReturn(Lists.newArrayList(
+        new UserContactDetailsDataBuilder().withReferenceDataUserId(recipient.getId()).build()));
+    given(notificationRepository.findBroadcastRecipients(eq(broadcast.getId()), any()))
+        .willReturn(Collections.emptySet());
+
+    // when
+    audienceFanOutService.sendPage(fanOut.getId(), page);
+
+    // then
+    assertThat(fanOut.getNextPage()).isEqualTo(2);
+    assertThat(fanOut.getRecipientCount()).isEqualTo(PAGE_SIZE + 1);
+    assertThat(fanOut.isFinished()).isTrue();
+  }
+
+  @Test
+  public void shouldFinishFanOutIfPageIsEmpty() {
+    // given
+    claimFanOut();
+
+    // when
+    audienceFanOutService.sendPage(fanOut.getId(),
+        new PageImpl<>(Collections.emptyList(), PageRequest.of(0, PAGE_SIZE), 0));
+
+    // then
+    verify(userContactDetailsRepository, never()).findAllById(any());
+    assertThat(fanOut.getRecipientCount()).isZero();
+    assertThat(fanOut.isFinished()).isTrue();
+  }
+
+  @Test
+  public void shouldNotSendPageIfLeaseHasBeenLost() {
+    // given
+    fanOut.claim("other", ZonedDateTime.now().plusMinutes(1));
+    given(audienceFanOutRepository.findById(fanOut.getId())).willReturn(Optional.of(fanOut));
+
+    // when
+    audienceFanOutService.sendPage(fanOut.getId(), new PageImpl<>(
+        Lists.newArrayList(new UserDataBuilder().build()), PageRequest.of(0, PAGE_SIZE), 10));
+
+    // then
+    verify(broadcastService, never()).addRecipients(any(), any());
+    assertThat(fanOut.getNextPage()).isZero();
+  }
+
+  @Test
+  public void shouldAbandonFanOutIfAudienceIsRejected() {
+    // given
+    claimFanOut();
+
+    // when
+    audienceFanOutService.fail(fanOut.getId(),
+        new DataRetrievalException("User", HttpStatus.BAD_REQUEST, "invalid right"));
+
+    // then
+    assertThat(fanOut.isFinished()).isTrue();
+    assertThat(fanOut.getError()).isNotNull();
+    assertThat(fanOut.isClaimedBy(getOwner())).isFalse();
+  }
+
+  @Test
+  public void shouldRetryFanOutLaterIfReferenceDataIsUnavailable() {
+    // given
+    claimFanOut();
+    ZonedDateTime before = ZonedDateTime.now();
+
+    // when
+    audienceFanOutService.fail(fanOut.getId(),
+        new DataRetrievalException("User", HttpStatus.SERVICE_UNAVAILABLE, ""));
+
+    // then
+    assertThat(fanOut.isFinished()).isFalse();
+    assertThat(fanOut.getAttemptCount()).isEqualTo(1);
+    assertThat(fanOut.getNextAttemptAt())
+        .isAfterOrEqualTo(before.plusSeconds(INITIAL_DELAY_SECONDS));
+    assertThat(fanOut.isClaimedBy(getOwner())).isFalse();
+  }
+
+  @Test
+  public void shouldDoubleRetryDelayUpToMaximum() {
+    // given
+    for (int i = 0; i < 5; ++i) {
+      fanOut.registerFailedAttempt();
+    }
+    claimFanOut();
+    ZonedDateTime before = ZonedDateTime.now();
+
+    // when
+    audienceFanOutService.fail(fanOut.getId(), new IllegalStateException("connection refused"));
+
+    // then
+    assertThat(fanOut.getAttemptCount()).isEqualTo(6);
+    assertThat(fanOut.getNextAttemptAt())
+        .isAfterOrEqualTo(before.plusSeconds(MAX_DELAY_SECONDS))
+        .isBefore(before.plusSeconds(MAX_DELAY_SECONDS + 60));
+  }
+
+  @Test
+  public void shouldAbandonFanOutAfterMaxAttempts() {
+    // given
+    for (int i = 0; i < MAX_ATTEMPTS - 1; ++i) {
+      fanOut.registerFailedAttempt();
+    }
+    claimFanOut();
+
+    // when
+    audienceFanOutService.fail(fanOut.getId(),
+        new DataRetrievalException("User", HttpStatus.SERVICE_UNAVAILABLE, "unavailable"));
+
+    // then
+    assertThat(fanOut.getAttemptCount()).isEqualTo(MAX_ATTEMPTS);
+    assertThat(fanOut.isFinished()).isTrue();
+    assertThat(fanOut.getError()).isNotNull();
+  }
+
+  @Test
+  public void shouldNotRecordFailureIfLeaseHasBeenLost() {
+    // given
+    given(audienceFanOutRepository.findById(fanOut.getId())).willReturn(Optional.of(fanOut));
+
+    // when
+    audienceFanOutService.fail(fanOut.getId(), new IllegalStateException("test"));
+
+    // then
+    assertThat(fanOut.getAttemptCount()).isZero();
+    assertThat(fanOut.getNextAttemptAt()).isNull();
+  }
+
+  private void claimFanOut() {
+    fanOut.claim(getOwner(), ZonedDateTime.now().plusMinutes(1));
+    given(audienceFanOutRepository.findById(fanOut.getId())).willReturn(Optional.of(fanOut));
+  }
+
+  private String getOwner() {
+    return (String) ReflectionTestUtils.getField(audienceFanOutService, "owner");
+  }
+
+}
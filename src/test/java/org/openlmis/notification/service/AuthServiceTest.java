@@ -22,10 +22,12 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
 import java.net.URI;
 import java.util.Map;
 import java.util.UUID;
@@ -38,6 +40,7 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.RestTemplate;
@@ -45,6 +48,7 @@ import org.springframework.web.client.RestTemplate;
 @RunWith(MockitoJUnitRunner.class)
 public class AuthServiceTest {
   private static final String TOKEN = UUID.randomUUID().toString();
+  private static final String NEW_TOKEN = UUID.randomUUID().toString();
   private static final String AUTHORIZATION_URL = "http://localhost/auth/oauth/token";
   private static final URI AUTHORIZATION_URI = URI.create(
       AUTHORIZATION_URL + "?grant_type=client_credentials"
@@ -66,6 +70,9 @@ public class AuthServiceTest {
     ReflectionTestUtils.setField(authService, "clientId", "trusted-client");
     ReflectionTestUtils.setField(authService, "clientSecret", "secret");
     ReflectionTestUtils.setField(authService, "authorizationUrl", AUTHORIZATION_URL);
+    ReflectionTestUtils.setField(authService, "refreshMarginSeconds", 60L);
+    ReflectionTestUtils.setField(authService, "executor",
+        MoreExecutors.newDirectExecutorService());
   }
 
   @Test
@@ -92,4 +99,95 @@ public class AuthServiceTest {
         contains("Basic dHJ1c3RlZC1jbGllbnQ6c2VjcmV0")
     );
   }
+
+  @Test
+  public void shouldReuseTokenUntilItShouldBeRefreshed() {
+    mockTokenResponses(tokenResponse(TOKEN, 3600));
+
+    String first = authService.obtainAccessToken();
+    String second = authService.obtainAccessToken();
+
+    assertThat(first, is(TOKEN));
+    assertThat(second, is(TOKEN));
+    verifyTokenRequests(1);
+  }
+
+  @Test
+  public void shouldRefreshTokenBeforeItExpires() {
+    mockTokenResponses(tokenResponse(TOKEN, 3600), tokenResponse(NEW_TOKEN, 3600));
+    authService.obtainAccessToken();
+    ReflectionTestUtils.setField(authService, "nextRefreshAt", 0L);
+
+    // the current token is returned while the new one is being obtained
+    String current = authService.obtainAccessToken();
+    String refreshed = authService.obtainAccessToken();
+
+    assertThat(current, is(TOKEN));
+    assertThat(refreshed, is(NEW_TOKEN));
+    verifyTokenRequests(2);
+  }
+
+  @Test
+  public void shouldUseCurrentTokenIfRefreshFailed() {
+    ResponseEntity<Object> response = tokenResponse(TOKEN, 3600);
+    when(restTemplate.exchange(
+        eq(AUTHORIZATION_URI), eq(HttpMethod.POST), any(HttpEntity.class), eq(Object.class)
+    )).thenReturn(response).thenThrow(new IllegalStateException("auth is not available"));
+
+    authService.obtainAccessToken();
+    ReflectionTestUtils.setField(authService, "nextRefreshAt", 0L);
+
+    String first = authService.obtainAccessToken();
+    String second = authService.obtainAccessToken();
+
+    assertThat(first, is(TOKEN));
+    assertThat(second, is(TOKEN));
+    verifyTokenRequests(2);
+  }
+
+  @Test
+  public void shouldObtainNewTokenIfCurrentOneHasExpired() {
+    mockTokenResponses(tokenResponse(TOKEN, 0), tokenResponse(NEW_TOKEN, 0));
+
+    String first = authService.obtainAccessToken();
+    String second = authService.obtainAccessToken();
+
+    assertThat(first, is(TOKEN));
+    assertThat(second, is(NEW_TOKEN));
+    verifyTokenRequests(2);
+  }
+
+  @Test
+  public void shouldObtainNewTokenAfterItHasBeenCleared() {
+    mockTokenResponses(tokenResponse(TOKEN, 3600), tokenResponse(NEW_TOKEN, 3600));
+    authService.obtainAccessToken();
+
+    authService.clearTokenCache();
+    String token = authService.obtainAccessToken();
+
+    assertThat(token, is(NEW_TOKEN));
+    verifyTokenRequests(2);
+  }
+
+  private ResponseEntity<Object> tokenResponse(String token, int expiresIn) {
+    return new ResponseEntity<>(ImmutableMap.of("access_token", token, "expires_in", expiresIn),
+        HttpStatus.OK);
+  }
+
+  private void mockTokenResponses(ResponseEntity<Object> first, ResponseEntity<Object> next) {
+    when(restTemplate.exchange(
+        eq(AUTHORIZATION_URI), eq(HttpMethod.POST), any(HttpEntity.class), eq(Object.class)
+    )).thenReturn(first, next);
+  }
+
+  private void mockTokenResponses(ResponseEntity<Object> response) {
+    when(restTemplate.exchange(
+        eq(AUTHORIZATION_URI), eq(HttpMethod.POST), any(HttpEntity.class), eq(Object.class)
+    )).thenReturn(response);
+  }
+
+  private void verifyTokenRequests(int count) {
+    verify(restTemplate, times(count)).exchange(
+        eq(AUTHORIZATION_URI), eq(HttpMethod.POST), any(HttpEntity.class), eq(Object.class));
+  }
 }
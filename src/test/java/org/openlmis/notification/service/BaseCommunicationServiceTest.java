@@ -40,6 +40,7 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openlmis.notification.service.request.RequestParameters;
+import org.openlmis.notification.service.request.SplitRequestExecutor;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -75,6 +76,8 @@ public abstract class BaseCommunicationServiceTest<T> {
 
   protected boolean checkAuth = true;
 
+  private SplitRequestExecutor splitRequestExecutor = new SplitRequestExecutor(2);
+
   @Before
   public void setUp() throws Exception {
     mockAuth();
@@ -138,6 +141,7 @@ public abstract class BaseCommunicationServiceTest<T> {
     ReflectionTestUtils.setField(service, "authService", authService);
 
     ReflectionTestUtils.setField(service, "maxUrlLength", 2000);
+    ReflectionTestUtils.setField(service, "splitRequestExecutor", splitRequestExecutor);
 
     return service;
   }
@@ -0,0 +1,183 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.assertj.core.util.Lists;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.notification.domain.Broadcast;
+import org.openlmis.notification.domain.BroadcastMessage;
+import org.openlmis.notification.domain.Notification;
+import org.openlmis.notification.domain.NotificationMessage;
+import org.openlmis.notification.domain.PendingNotification;
+import org.openlmis.notification.repository.BroadcastRepository;
+import org.openlmis.notification.repository.NotificationRepository;
+import org.openlmis.notification.repository.PendingNotificationRepository;
+
+public class BroadcastServiceTest {
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private BroadcastRepository broadcastRepository;
+
+  @Mock
+  private NotificationRepository notificationRepository;
+
+  @Mock
+  private PendingNotificationRepository pendingNotificationRepository;
+
+  @Captor
+  private ArgumentCaptor<List<PendingNotification>> pendingNotificationsCaptor;
+
+  private BroadcastService broadcastService;
+
+  private Broadcast broadcast = new Broadcast(Lists.newArrayList(
+      new BroadcastMessage(NotificationChannel.EMAIL, "email body", "subject", null),
+      new BroadcastMessage(NotificationChannel.SMS, "sms body", null, null)), false);
+
+  @Before
+  public void setUp() {
+    broadcastService = new BroadcastService(broadcastRepository, notificationRepository,
+        pendingNotificationRepository, 10);
+    broadcast.setId(UUID.randomUUID());
+  }
+
+  @Test
+  public void shouldSendBroadcastToAllRecipients() {
+    // given
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+
+    given(notificationRepository.saveAll(any())).willAnswer(invocation -> {
+      List<Notification> saved = invocation.getArgument(0);
+      saved.forEach(notification -> notification.setId(UUID.randomUUID()));
+      return saved;
+    });
+
+    // when
+    List<Notification> notifications = broadcastService
+        .send(broadcast, Lists.newArrayList(first, second));
+
+    // then
+    verify(broadcastRepository).save(broadcast);
+    verify(notificationRepository).saveAll(notifications);
+
+    assertThat(notifications)
+        .extracting(Notification::getUserId, Notification::getBroadcastId)
+        .containsExactly(tuple(first, broadcast.getId()), tuple(second, broadcast.getId()));
+
+    verify(pendingNotificationRepository).saveAll(pendingNotificationsCaptor.capture());
+    assertThat(pendingNotificationsCaptor.getValue())
+        .extracting(PendingNotification::getNotificationId, PendingNotification::getChannel)
+        .containsExactlyInAnyOrder(
+            tuple(notifications.get(0).getId(), NotificationChannel.EMAIL),
+            tuple(notifications.get(0).getId(), NotificationChannel.SMS),
+            tuple(notifications.get(1).getId(), NotificationChannel.EMAIL),
+            tuple(notifications.get(1).getId(), NotificationChannel.SMS));
+  }
+
+  @Test
+  public void shouldSendBroadcastOnceToDuplicatedRecipient() {
+    // given
+    UUID recipient = UUID.randomUUID();
+
+    given(notificationRepository.saveAll(any())).willAnswer(invocation -> {
+      List<Notification> saved = invocation.getArgument(0);
+      saved.forEach(notification -> notification.setId(UUID.randomUUID()));
+      return saved;
+    });
+
+    // when
+    List<Notification> notifications = broadcastService
+        .send(broadcast, Lists.newArrayList(recipient, recipient));
+
+    // then
+    assertThat(notifications)
+        .extracting(Notification::getUserId)
+        .containsExactly(recipient);
+
+    verify(pendingNotificationRepository).saveAll(pendingNotificationsCaptor.capture());
+    assertThat(pendingNotificationsCaptor.getValue()).hasSize(2);
+  }
+
+  @Test
+  public void shouldReturnAllMessagesOfBroadcast() {
+    // given
+    given(broadcastRepository.findById(broadcast.getId())).willReturn(Optional.of(broadcast));
+
+    // when
+    List<NotificationMessage> messages = broadcastService.getMessages(broadcast.getId());
+
+    // then
+    assertThat(messages)
+        .extracting(NotificationMessage::getChannel, NotificationMessage::getBody)
+        .containsExactlyInAnyOrder(
+            tuple(NotificationChannel.EMAIL, "email body"),
+            tuple(NotificationChannel.SMS, "sms body"));
+  }
+
+  @Test
+  public void shouldReadMessagesOfBroadcastOnlyOnce() {
+    // given
+    given(broadcastRepository.findById(broadcast.getId())).willReturn(Optional.of(broadcast));
+
+    // when
+    NotificationMessage email = broadcastService
+        .getMessage(broadcast.getId(), NotificationChannel.EMAIL);
+    NotificationMessage sms = broadcastService
+        .getMessage(broadcast.getId(), NotificationChannel.SMS);
+    broadcastService.getMessage(broadcast.getId(), NotificationChannel.EMAIL);
+
+    // then
+    assertThat(email.getBody()).isEqualTo("email body");
+    assertThat(email.getSubject()).isEqualTo("subject");
+    assertThat(sms.getBody()).isEqualTo("sms body");
+    verify(broadcastRepository, times(1)).findById(broadcast.getId());
+  }
+
+  @Test
+  public void shouldReturnNullIfBroadcastDoesNotExist() {
+    // given
+    UUID broadcastId = UUID.randomUUID();
+    given(broadcastRepository.findById(broadcastId)).willReturn(Optional.empty());
+
+    // when
+    NotificationMessage message = broadcastService
+        .getMessage(broadcastId, NotificationChannel.EMAIL);
+
+    // then
+    assertThat(message).isNull();
+  }
+
+}
@@ -17,21 +17,26 @@ package org.openlmis.notification.service;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openlmis.notification.domain.DigestSubscription;
 import org.openlmis.notification.repository.DigestSubscriptionRepository;
 import org.openlmis.notification.testutils.DigestConfigurationDataBuilder;
 import org.openlmis.notification.testutils.DigestSubscriptionDataBuilder;
 import org.openlmis.notification.util.UserContactDetailsDataBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ChannelFilterTest {
@@ -43,10 +48,15 @@ public class ChannelFilterTest {
   @Mock
   private DigestSubscriptionRepository repository;
 
+  @Spy
+  private DeliveryContextService deliveryContextService = new DeliveryContextService();
+
   @InjectMocks
   private ChannelFilter channelFilter;
 
   private UUID userId;
+  private List<DigestSubscription> subscriptions;
+  private DeliveryContext context;
 
   @Before
   public void setUp() {
@@ -80,29 +90,47 @@ public class ChannelFilterTest {
         )
         .build();
 
-    when(repository.getUserSubscriptions(userId))
-        .thenReturn(Arrays.asList(digestSubscriptionForEmailChannel,
-            digestSubscriptionForSmsChannel));
+    subscriptions = Arrays.asList(digestSubscriptionForEmailChannel,
+        digestSubscriptionForSmsChannel);
+    context = new DeliveryContext(userId, null, subscriptions);
+
+    ReflectionTestUtils.setField(deliveryContextService, "digestSubscriptionRepository",
+        repository);
   }
 
   @Test
   public void acceptShouldReturnTrueIfMessageUsesUserPreferredChannel() {
-    assertTrue(channelFilter.accept(userId, NotificationChannel.EMAIL, MESSAGE_TAG));
+    assertTrue(channelFilter.accept(userId, NotificationChannel.EMAIL, MESSAGE_TAG, context));
   }
 
   @Test
   public void acceptShouldReturnFalseIfMessageUsesNonUserPreferredChannel() {
-    assertFalse(channelFilter.accept(userId, NotificationChannel.SMS, MESSAGE_TAG));
+    assertFalse(channelFilter.accept(userId, NotificationChannel.SMS, MESSAGE_TAG, context));
   }
 
   @Test
   public void acceptShouldReturnTrueIfUserHasNotDigestSubscriptionAndChannelIsEmail() {
-    assertTrue(channelFilter.accept(userId, NotificationChannel.EMAIL, MESSAGE_TAG_THREE));
+    assertTrue(channelFilter
+        .accept(userId, NotificationChannel.EMAIL, MESSAGE_TAG_THREE, context));
   }
 
   @Test
   public void acceptShouldReturnTrueIfMessageHasNoTagAndUsesEmailChannel() {
-    assertTrue(channelFilter.accept(userId, NotificationChannel.EMAIL, null));
+    assertTrue(channelFilter.accept(userId, NotificationChannel.EMAIL, null, context));
+  }
+
+  @Test
+  public void acceptShouldReadSubscriptionsFromDatabaseIfContextIsNotAvailable() {
+    when(repository.getUserSubscriptions(userId)).thenReturn(subscriptions);
+
+    assertFalse(channelFilter.accept(userId, NotificationChannel.SMS, MESSAGE_TAG, null));
+    verify(repository).getUserSubscriptions(userId);
+  }
+
+  @Test
+  public void acceptShouldNotReadSubscriptionsFromDatabaseIfContextIsAvailable() {
+    channelFilter.accept(userId, NotificationChannel.SMS, MESSAGE_TAG, context);
+    verify(repository, never()).getUserSubscriptions(userId);
   }
 
 }
\ No newline at end of file
@@ -0,0 +1,128 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import org.assertj.core.util.Lists;
+import org.assertj.core.util.Sets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.notification.domain.DigestSubscription;
+import org.openlmis.notification.domain.UserContactDetails;
+import org.openlmis.notification.repository.DigestSubscriptionRepository;
+import org.openlmis.notification.repository.UserContactDetailsRepository;
+import org.openlmis.notification.testutils.DigestSubscriptionDataBuilder;
+import org.openlmis.notification.util.UserContactDetailsDataBuilder;
+
+public class DeliveryContextServiceTest {
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private UserContactDetailsRepository userContactDetailsRepository;
+
+  @Mock
+  private DigestSubscriptionRepository digestSubscriptionRepository;
+
+  @InjectMocks
+  private DeliveryContextService service;
+
+  private UserContactDetails contactDetails = new UserContactDetailsDataBuilder().build();
+
+  private UUID recipient = contactDetails.getReferenceDataUserId();
+
+  private DigestSubscription subscription = new DigestSubscriptionDataBuilder()
+      .withUserContactDetails(contactDetails)
+      .build();
+
+  @Test
+  public void shouldLoadContextsOfAllRecipients() {
+    // given
+    UUID otherRecipient = UUID.randomUUID();
+
+    given(userContactDetailsRepository.findAllById(any()))
+        .willReturn(Collections.singletonList(contactDetails));
+    given(digestSubscriptionRepository.getUsersSubscriptions(any()))
+        .willReturn(Collections.singletonList(subscription));
+
+    // when
+    Map<UUID, DeliveryContext> contexts = service
+        .load(Lists.newArrayList(recipient, otherRecipient, recipient));
+
+    // then
+    assertThat(contexts)
+        .hasSize(2)
+        .containsEntry(recipient, new DeliveryContext(recipient, contactDetails,
+            Collections.singletonList(subscription)))
+        .containsEntry(otherRecipient, new DeliveryContext(otherRecipient, null,
+            Collections.emptyList()));
+
+    verify(userContactDetailsRepository).findAllById(Sets.newLinkedHashSet(recipient,
+        otherRecipient));
+    verify(digestSubscriptionRepository).getUsersSubscriptions(Sets.newLinkedHashSet(recipient,
+        otherRecipient));
+  }
+
+  @Test
+  public void shouldNotQueryDatabaseIfThereAreNoRecipients() {
+    // when
+    Map<UUID, DeliveryContext> contexts = service.load(Collections.emptyList());
+
+    // then
+    assertThat(contexts).isEmpty();
+    verifyZeroInteractions(userContactDetailsRepository, digestSubscriptionRepository);
+  }
+
+  @Test
+  public void shouldReturnDataFromContext() {
+    // given
+    DeliveryContext context = new DeliveryContext(recipient, contactDetails,
+        Collections.singletonList(subscription));
+
+    // when & then
+    assertThat(service.getContactDetails(context, recipient)).isEqualTo(contactDetails);
+    assertThat(service.getSubscriptions(context, recipient)).containsExactly(subscription);
+    verifyZeroInteractions(userContactDetailsRepository, digestSubscriptionRepository);
+  }
+
+  @Test
+  public void shouldReadDataFromDatabaseIfContextIsNotAvailable() {
+    // given
+    given(userContactDetailsRepository.findById(recipient))
+        .willReturn(Optional.of(contactDetails));
+    given(digestSubscriptionRepository.getUserSubscriptions(recipient))
+        .willReturn(Collections.singletonList(subscription));
+
+    // when & then
+    assertThat(service.getContactDetails(null, recipient)).isEqualTo(contactDetails);
+    assertThat(service.getSubscriptions(null, recipient)).containsExactly(subscription);
+  }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.openlmis.notification.service.DigestConfigurationRegistry.MAX_MISSING_KEYS;
+
+import java.util.UUID;
+import org.assertj.core.util.Lists;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.notification.domain.DigestConfiguration;
+import org.openlmis.notification.repository.DigestConfigurationRepository;
+import org.openlmis.notification.testutils.DigestConfigurationDataBuilder;
+
+public class DigestConfigurationRegistryTest {
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private DigestConfigurationRepository digestConfigurationRepository;
+
+  @InjectMocks
+  private DigestConfigurationRegistry registry;
+
+  private DigestConfiguration configuration = new DigestConfigurationDataBuilder().build();
+  private DigestConfiguration newConfiguration = new DigestConfigurationDataBuilder().build();
+
+  @Test
+  public void shouldFindConfigurationsWithoutQueryingDatabase() {
+    // given
+    given(digestConfigurationRepository.findAll())
+        .willReturn(Lists.newArrayList(configuration));
+    registry.refresh();
+
+    // when
+    DigestConfiguration foundByTag = registry.findByTag(configuration.getTag());
+    DigestConfiguration foundById = registry.findById(configuration.getId());
+
+    // then
+    assertThat(foundByTag).isEqualTo(configuration);
+    assertThat(foundById).isEqualTo(configuration);
+
+    verify(digestConfigurationRepository).findAll();
+    verifyNoMoreInteractions(digestConfigurationRepository);
+  }
+
+  @Test
+  public void shouldReturnNullIfConfigurationDoesNotExist() {
+    // given
+    given(digestConfigurationRepository.findAll())
+        .willReturn(Lists.newArrayList(configuration));
+    registry.refresh();
+
+    // when
+    DigestConfiguration foundByTag = registry.findByTag(newConfiguration.getTag());
+    DigestConfiguration foundById = registry.findById(newConfiguration.getId());
+
+    // then
+    assertThat(foundByTag).isNull();
+    assertThat(foundById).isNull();
+
+    verify(digestConfigurationRepository).findAll();
+  }
+
+  @Test
+  public void shouldRememberMissingConfigurationsUntilRefresh() {
+    // given
+    given(digestConfigurationRepository.findAll())
+        .willReturn(Lists.newArrayList(configuration));
+    registry.refresh();
+
+    // when
+    registry.findByTag(newConfiguration.getTag());
+    registry.findByTag(newConfiguration.getTag());
+    registry.findById(newConfiguration.getId());
+    registry.findById(newConfiguration.getId());
+
+    // then
+    verify(digestConfigurationRepository).findByTag(newConfiguration.getTag());
+    verify(digestConfigurationRepository).existsById(newConfiguration.getId());
+  }
+
+  @Test
+  public void shouldLimitNumberOfRememberedMissingTags() {
+    // given
+    given(digestConfigurationRepository.findAll())
+        .willReturn(Lists.newArrayList(configuration));
+    registry.refresh();
+    registry.findByTag(newConfiguration.getTag());
+
+    // when
+    for (long i = 0; i < 2 * MAX_MISSING_KEYS; ++i) {
+      registry.findByTag("missing-" + i);
+    }
+    registry.findByTag(newConfiguration.getTag());
+
+    // then
+    verify(digestConfigurationRepository, times(2)).findByTag(newConfiguration.getTag());
+  }
+
+  @Test
+  public void shouldCheckMissingConfigurationsAgainAfterRefresh() {
+    // given
+    given(digestConfigurationRepository.findAll())
+        .willReturn(Lists.newArrayList(configuration));
+    registry.refresh();
+    registry.findByTag(newConfiguration.getTag());
+    registry.findById(newConfiguration.getId());
+
+    // when
+    registry.refresh();
+    registry.findByTag(newConfiguration.getTag());
+    registry.findById(newConfiguration.getId());
+
+    // then
+    verify(digestConfigurationRepository, times(2)).findByTag(newConfiguration.getTag());
+    verify(digestConfigurationRepository, times(2)).existsById(newConfiguration.getId());
+  }
+
+  @Test
+  public void shouldRefreshIfConfigurationWithTagHasBeenAdded() {
+    // given
+    given(digestConfigurationRepository.findAll())
+        .willReturn(Lists.newArrayList(configuration))
+        .willReturn(Lists.newArrayList(configuration, newConfiguration));
+    given(digestConfigurationRepository.findByTag(newConfiguration.getTag()))
+        .willReturn(newConfiguration);
+    registry.refresh();
+
+    // when
+    DigestConfiguration found = registry.findByTag(newConfiguration.getTag());
+
+    // then
+    assertThat(found).isEqualTo(newConfiguration);
+    verify(digestConfigurationRepository, times(2)).findAll();
+  }
+
+  @Test
+  public void shouldRefreshIfConfigurationWithIdHasBeenAdded() {
+    // given
+    UUID id = newConfiguration.getId();
+
+    given(digestConfigurationRepository.findAll())
+        .willReturn(Lists.newArrayList(configuration))
+        .willReturn(Lists.newArrayList(configuration, newConfiguration));
+    given(digestConfigurationRepository.existsById(id)).willReturn(true);
+    registry.refresh();
+
+    // when
+    DigestConfiguration found = registry.findById(id);
+
+    // then
+    assertThat(found).isEqualTo(newConfiguration);
+    verify(digestConfigurationRepository, times(2)).findAll();
+  }
+
+}
@@ -25,16 +25,16 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.openlmis.notification.domain.DigestConfiguration;
 import org.openlmis.notification.domain.DigestSubscription;
-import org.openlmis.notification.repository.DigestConfigurationRepository;
 import org.openlmis.notification.repository.DigestSubscriptionRepository;
-import org.openlmis.notification.service.referencedata.TogglzFeatureDto;
-import org.openlmis.notification.service.referencedata.TogglzReferenceDataService;
+import org.openlmis.notification.service.referencedata.TogglzFeatureCache;
 import org.openlmis.notification.testutils.DigestConfigurationDataBuilder;
 import org.openlmis.notification.testutils.DigestSubscriptionDataBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
 
 public class DigestFilterTest {
 
@@ -52,14 +52,14 @@ public class DigestFilterTest {
   public MockitoRule mockitoRule = MockitoJUnit.rule();
 
   @Mock
-  private TogglzReferenceDataService togglzReferenceDataService;
-
-  @Mock
-  private DigestConfigurationRepository digestConfigurationRepository;
+  private TogglzFeatureCache togglzFeatureCache;
 
   @Mock
   private DigestSubscriptionRepository digestSubscriptionRepository;
 
+  @Spy
+  private DeliveryContextService deliveryContextService = new DeliveryContextService();
+
   @InjectMocks
   private DigestFilter filter = new DigestFilter();
 
@@ -81,25 +81,20 @@ public class DigestFilterTest {
       .withUseDigest(false)
       .build();
 
-  private TogglzFeatureDto digestFeature =
-      new TogglzFeatureDto(DigestFilter.CONSOLIDATE_NOTIFICATIONS, true, null, null);
+  private DeliveryContext context = new DeliveryContext(RECIPIENT, null,
+      Lists.newArrayList(digestSubscription, nonDigestSubscription));
 
   @Before
   public void setUp() {
-    given(togglzReferenceDataService.findAll()).willReturn(Lists.newArrayList(digestFeature));
-    given(digestConfigurationRepository.findByTag(CORRECT_TAG)).willReturn(digestConfiguration);
-    given(digestConfigurationRepository.findByTag(CORRECT_NON_DIGEST_TAG))
-        .willReturn(nonDigestConfiguration);
-    given(digestSubscriptionRepository.findBy(RECIPIENT, digestConfiguration))
-        .willReturn(digestSubscription);
-    given(digestSubscriptionRepository.findBy(RECIPIENT, nonDigestConfiguration))
-        .willReturn(nonDigestSubscription);
+    given(togglzFeatureCache.isActive(DigestFilter.CONSOLIDATE_NOTIFICATIONS)).willReturn(true);
+    ReflectionTestUtils.setField(deliveryContextService, "digestSubscriptionRepository",
+        digestSubscriptionRepository);
   }
 
   @Test
   public void shouldReturnSendNowChannelIfImportantFlagIsSet() {
     // when
-    String channelName = filter.route(RECIPIENT, IMPORTANT, EMPTY_TAG);
+    String channelName = filter.route(RECIPIENT, IMPORTANT, EMPTY_TAG, context);
 
     // then
     assertThat(channelName).isEqualTo(DigestFilter.SEND_NOW_PREPARE_CHANNEL);
@@ -108,10 +103,10 @@ public class DigestFilterTest {
   @Test
   public void shouldReturnSendNowChannelIfDigestFeatureIsOff() {
     // given
-    digestFeature.setEnabled(false);
+    given(togglzFeatureCache.isActive(DigestFilter.CONSOLIDATE_NOTIFICATIONS)).willReturn(false);
 
     // when
-    String channelName = filter.route(RECIPIENT, UNIMPORTANT, CORRECT_TAG);
+    String channelName = filter.route(RECIPIENT, UNIMPORTANT, CORRECT_TAG, context);
 
     // then
     assertThat(channelName).isEqualTo(DigestFilter.SEND_NOW_PREPARE_CHANNEL);
@@ -120,7 +115,7 @@ public class DigestFilterTest {
   @Test
   public void shouldReturnSendNowChannelIfTagIsEmpty() {
     // when
-    String channelName = filter.route(RECIPIENT, UNIMPORTANT, EMPTY_TAG);
+    String channelName = filter.route(RECIPIENT, UNIMPORTANT, EMPTY_TAG, context);
 
     // then
     assertThat(channelName).isEqualTo(DigestFilter.SEND_NOW_PREPARE_CHANNEL);
@@ -129,7 +124,7 @@ public class DigestFilterTest {
   @Test
   public void shouldReturnSendNowChannelIfConfigurationNotExistForTag() {
     // when
-    String channelName = filter.route(RECIPIENT, UNIMPORTANT, INCORRECT_TAG);
+    String channelName = filter.route(RECIPIENT, UNIMPORTANT, INCORRECT_TAG, context);
 
     // then
     assertThat(channelName).isEqualTo(DigestFilter.SEND_NOW_PREPARE_CHANNEL);
@@ -138,12 +133,10 @@ public class DigestFilterTest {
   @Test
   public void shouldReturnSendNowChannelIfUserIsNotSubscribedForTag() {
     // given
-    given(digestSubscriptionRepository
-        .findBy(RECIPIENT, digestConfiguration))
-        .willReturn(null);
+    context = new DeliveryContext(RECIPIENT, null, Lists.newArrayList(nonDigestSubscription));
 
     // when
-    String channelName = filter.route(RECIPIENT, UNIMPORTANT, CORRECT_TAG);
+    String channelName = filter.route(RECIPIENT, UNIMPORTANT, CORRECT_TAG, context);
 
     // then
     assertThat(channelName).isEqualTo(DigestFilter.SEND_NOW_PREPARE_CHANNEL);
@@ -152,7 +145,7 @@ public class DigestFilterTest {
   @Test
   public void shouldReturnPostponeChannelIfUserIsSubscribedForTag() {
     // when
-    String channelName = filter.route(RECIPIENT, UNIMPORTANT, CORRECT_TAG);
+    String channelName = filter.route(RECIPIENT, UNIMPORTANT, CORRECT_TAG, context);
 
     // then
     assertThat(channelName).isEqualTo(DigestFilter.SEND_NOW_POSTPONE_CHANNEL);
@@ -161,10 +154,23 @@ public class DigestFilterTest {
   @Test
   public void shouldReturnSendNowChannelIfDigestSubscriptionDoesNotUseDigest() {
     // when
-    String channelName = filter.route(RECIPIENT, UNIMPORTANT, CORRECT_NON_DIGEST_TAG);
+    String channelName = filter.route(RECIPIENT, UNIMPORTANT, CORRECT_NON_DIGEST_TAG, context);
 
     // then
     assertThat(channelName).isEqualTo(DigestFilter.SEND_NOW_PREPARE_CHANNEL);
   }
 
+  @Test
+  public void shouldReadSubscriptionsFromDatabaseIfContextIsNotAvailable() {
+    // given
+    given(digestSubscriptionRepository.getUserSubscriptions(RECIPIENT))
+        .willReturn(Lists.newArrayList(digestSubscription));
+
+    // when
+    String channelName = filter.route(RECIPIENT, UNIMPORTANT, CORRECT_TAG, null);
+
+    // then
+    assertThat(channelName).isEqualTo(DigestFilter.SEND_NOW_POSTPONE_CHANNEL);
+  }
+
 }
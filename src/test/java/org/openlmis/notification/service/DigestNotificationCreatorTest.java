@@ -20,10 +20,7 @@ import static org.mockito.BDDMockito.given;
 import static org.openlmis.notification.service.NotificationToSendRetriever.RECIPIENT_HEADER;
 import static org.openlmis.notification.service.NotificationTransformer.CHANNEL_HEADER;
 
-import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
-import org.assertj.core.util.Lists;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -32,11 +29,8 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.openlmis.notification.domain.DigestConfiguration;
-import org.openlmis.notification.domain.PostponeMessage;
 import org.openlmis.notification.i18n.MessageService;
-import org.openlmis.notification.repository.DigestConfigurationRepository;
 import org.openlmis.notification.testutils.DigestConfigurationDataBuilder;
-import org.openlmis.notification.testutils.PostponeMessageDataBuilder;
 import org.springframework.messaging.Message;
 import org.springframework.test.util.ReflectionTestUtils;
 
@@ -51,7 +45,7 @@ public class DigestNotificationCreatorTest {
   public MockitoRule mockitoRule = MockitoJUnit.rule();
 
   @Mock
-  private DigestConfigurationRepository digestConfigurationRepository;
+  private DigestConfigurationRegistry digestConfigurationRegistry;
 
   @Mock
   private MessageService messageService;
@@ -62,9 +56,7 @@ public class DigestNotificationCreatorTest {
   private DigestConfiguration configuration = new DigestConfigurationDataBuilder()
       .withMessage(MSG_TEMPLATE)
       .build();
-  private List<PostponeMessage> postpones = Lists.newArrayList(
-      new PostponeMessageDataBuilder().build(),
-      new PostponeMessageDataBuilder().build());
+  private DigestSummary digest = new DigestSummary(2, "subject");
   private UUID recipient = UUID.randomUUID();
   private UUID configurationId = configuration.getId();
   private NotificationChannel channel = NotificationChannel.EMAIL;
@@ -74,8 +66,7 @@ public class DigestNotificationCreatorTest {
 
   @Before
   public void setUp() {
-    given(digestConfigurationRepository.findById(configurationId))
-        .willReturn(Optional.of(configuration));
+    given(digestConfigurationRegistry.findById(configurationId)).willReturn(configuration);
     given(messageService.localize(message)).willReturn(message.localMessage(MSG_TEMPLATE));
 
     ReflectionTestUtils.setField(creator, "serviceUrl", SERVICE_URL);
@@ -84,11 +75,11 @@ public class DigestNotificationCreatorTest {
   @Test
   public void shouldReturnNullIfConfigurationDoesNotExist() {
     // given
-    given(digestConfigurationRepository.findById(configurationId)).willReturn(Optional.empty());
+    given(digestConfigurationRegistry.findById(configurationId)).willReturn(null);
 
     // when
     Message message = creator
-        .createDigestNotification(postpones, recipient, configurationId, channel);
+        .createDigestNotification(digest, recipient, configurationId, channel);
 
     // then
     assertThat(message).isNull();
@@ -98,14 +89,14 @@ public class DigestNotificationCreatorTest {
   public void shouldCreateDigestNotification() {
     // when
     Message message = creator
-        .createDigestNotification(postpones, recipient, configurationId, channel);
+        .createDigestNotification(digest, recipient, configurationId, channel);
 
     // then
     assertThat(message).isNotNull();
     assertThat(message.getPayload())
         .hasFieldOrPropertyWithValue("channel", channel)
         .hasFieldOrPropertyWithValue("body", EXPECTED_MSG)
-        .hasFieldOrPropertyWithValue("subject", postpones.get(0).getSubject());
+        .hasFieldOrPropertyWithValue("subject", digest.getSubject());
     assertThat(message.getHeaders())
         .containsEntry(RECIPIENT_HEADER, recipient)
         .containsEntry(CHANNEL_HEADER, channel);
@@ -0,0 +1,210 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.notification.domain.DigestSubscription;
+import org.openlmis.notification.repository.DigestSubscriptionRepository;
+import org.openlmis.notification.testutils.DigestSubscriptionDataBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class DigestSchedulerTest {
+
+  // at the beginning of every hour
+  private static final String CRON_EXPRESSION = "0 0 * * * *";
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private DigestSubscriptionRepository digestSubscriptionRepository;
+
+  @Mock
+  private EntityManager entityManager;
+
+  @InjectMocks
+  private DigestScheduler scheduler;
+
+  @Captor
+  private ArgumentCaptor<ZonedDateTime> nextRunCaptor;
+
+  private DigestSubscription subscription = new DigestSubscriptionDataBuilder()
+      .withCronExpression(CRON_EXPRESSION)
+      .build();
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(scheduler, "timeZoneId", "UTC");
+  }
+
+  @Test
+  public void shouldScheduleDigestForNextTimeMatchingCronExpression() {
+    // given
+    given(digestSubscriptionRepository.scheduleDigest(eq(subscription.getId()), any()))
+        .willReturn(1);
+
+    // when
+    scheduler.schedule(subscription);
+
+    // then
+    verify(digestSubscriptionRepository)
+        .scheduleDigest(eq(subscription.getId()), nextRunCaptor.capture());
+    assertNextHour(nextRunCaptor.getValue());
+  }
+
+  @Test
+  public void shouldNotScheduleDigestIfSubscriptionHasNoCronExpression() {
+    // given
+    DigestSubscription withoutCron = new DigestSubscriptionDataBuilder()
+        .withCronExpression(null)
+        .build();
+
+    // when
+    scheduler.schedule(withoutCron);
+
+    // then
+    verifyZeroInteractions(digestSubscriptionRepository);
+  }
+
+  @Test
+  public void shouldMoveClaimedDigestToNextTimeMatchingCronExpression() {
+    // given
+    given(digestSubscriptionRepository.claimDueDigest(any())).willReturn(subscription);
+
+    // when
+    DigestSubscription claimed = scheduler.claim();
+
+    // then
+    assertThat(claimed).isEqualTo(subscription);
+
+    verify(digestSubscriptionRepository)
+        .updateNextRun(eq(subscription.getId()), nextRunCaptor.capture());
+    assertNextHour(nextRunCaptor.getValue());
+  }
+
+  @Test
+  public void shouldReturnNullIfThereAreNoDueDigests() {
+    // when
+    DigestSubscription claimed = scheduler.claim();
+
+    // then
+    assertThat(claimed).isNull();
+    verify(digestSubscriptionRepository, never()).updateNextRun(any(), any());
+  }
+
+  @Test
+  public void shouldScheduleMissingDigests() {
+    // given
+    given(digestSubscriptionRepository.streamUnscheduledWithPostponeMessages())
+        .willReturn(Stream.of(subscription));
+
+    // when
+    scheduler.scheduleMissingDigests();
+
+    // then
+    verify(digestSubscriptionRepository).scheduleDigest(eq(subscription.getId()), any());
+    verify(entityManager).detach(subscription);
+  }
+
+  @Test
+  public void shouldShiftDigestByOffsetOfUserWithinSpreadWindow() {
+    // given
+    ReflectionTestUtils.setField(scheduler, "spreadWindowSeconds", 3600L);
+    Duration offset = scheduler
+        .getOffset(subscription.getUserContactDetails().getReferenceDataUserId());
+
+    given(digestSubscriptionRepository.scheduleDigest(eq(subscription.getId()), any()))
+        .willReturn(1);
+
+    // when
+    scheduler.schedule(subscription);
+
+    // then
+    verify(digestSubscriptionRepository)
+        .scheduleDigest(eq(subscription.getId()), nextRunCaptor.capture());
+    ZonedDateTime nextRunAt = nextRunCaptor.getValue();
+    assertThat(nextRunAt).isAfter(ZonedDateTime.now());
+    assertThat(nextRunAt).isBefore(ZonedDateTime.now().plusHours(1).plusSeconds(1));
+    assertThat(nextRunAt.minus(offset).getMinute()).isZero();
+    assertThat(nextRunAt.minus(offset).getSecond()).isZero();
+  }
+
+  @Test
+  public void shouldSpreadOffsetsOfUsersWithinWindow() {
+    // given
+    ReflectionTestUtils.setField(scheduler, "spreadWindowSeconds", 600L);
+    UUID userId = UUID.randomUUID();
+
+    // when
+    Duration offset = scheduler.getOffset(userId);
+
+    // then
+    assertThat(offset).isEqualTo(scheduler.getOffset(userId));
+    assertThat(offset.getSeconds()).isBetween(0L, 599L);
+  }
+
+  @Test
+  public void shouldDeriveOffsetFromAllBitsOfUserId() {
+    // given
+    ReflectionTestUtils.setField(scheduler, "spreadWindowSeconds", 600L);
+
+    // when
+    Duration offset = scheduler.getOffset(new UUID(1234, 0));
+    Duration otherOffset = scheduler.getOffset(new UUID(1234, 1));
+
+    // then
+    assertThat(offset).isEqualTo(Duration.ofSeconds(1234 % 600));
+    assertThat(otherOffset).isEqualTo(Duration.ofSeconds(1235 % 600));
+  }
+
+  @Test
+  public void shouldNotShiftDigestsIfSpreadWindowIsNotSet() {
+    // when
+    Duration offset = scheduler.getOffset(UUID.randomUUID());
+
+    // then
+    assertThat(offset).isEqualTo(Duration.ZERO);
+  }
+
+  private void assertNextHour(ZonedDateTime nextRunAt) {
+    assertThat(nextRunAt).isAfter(ZonedDateTime.now());
+    assertThat(nextRunAt).isBefore(ZonedDateTime.now().plusHours(1).plusSeconds(1));
+    assertThat(nextRunAt.getMinute()).isZero();
+    assertThat(nextRunAt.getSecond()).isZero();
+  }
+
+}
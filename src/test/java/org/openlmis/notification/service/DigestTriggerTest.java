@@ -0,0 +1,140 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.notification.repository.DigestSubscriptionRepository;
+import org.springframework.scheduling.TriggerContext;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+
+public class DigestTriggerTest {
+
+  private static final long IDLE_INTERVAL_SECONDS = 60;
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private DigestSubscriptionRepository digestSubscriptionRepository;
+
+  private DigestTrigger trigger;
+
+  @Before
+  public void setUp() {
+    trigger = new DigestTrigger(digestSubscriptionRepository, IDLE_INTERVAL_SECONDS);
+  }
+
+  @Test
+  public void shouldExecuteFirstPollImmediately() {
+    // when
+    Date next = trigger.nextExecutionTime(new SimpleTriggerContext());
+
+    // then
+    assertThat(next.getTime()).isLessThanOrEqualTo(System.currentTimeMillis());
+  }
+
+  @Test
+  public void shouldExecuteNextPollImmediatelyIfDigestIsDue() {
+    // given
+    ZonedDateTime earliest = ZonedDateTime.now().minusMinutes(1);
+    given(digestSubscriptionRepository.findEarliestNextRun()).willReturn(Optional.of(earliest));
+
+    // when
+    Date next = trigger.nextExecutionTime(afterPoll());
+
+    // then
+    assertThat(next).isEqualTo(Date.from(earliest.toInstant()));
+  }
+
+  @Test
+  public void shouldExecuteNextPollWhenEarliestDigestIsDue() {
+    // given
+    ZonedDateTime earliest = ZonedDateTime.now().plusSeconds(10);
+    given(digestSubscriptionRepository.findEarliestNextRun()).willReturn(Optional.of(earliest));
+
+    // when
+    long start = System.currentTimeMillis();
+    Date next = trigger.nextExecutionTime(afterPoll());
+
+    // then
+    assertThat(System.currentTimeMillis() - start).isLessThan(500);
+    assertThat(next).isEqualTo(Date.from(earliest.toInstant()));
+  }
+
+  @Test
+  public void shouldExecuteNextPollAfterIdleIntervalIfEarliestDigestIsDueLater() {
+    // given
+    given(digestSubscriptionRepository.findEarliestNextRun())
+        .willReturn(Optional.of(ZonedDateTime.now().plusHours(1)));
+
+    // when
+    Date next = trigger.nextExecutionTime(afterPoll());
+
+    // then
+    assertAfterIdleInterval(next);
+  }
+
+  @Test
+  public void shouldExecuteNextPollAfterIdleIntervalIfThereAreNoScheduledDigests() {
+    // given
+    given(digestSubscriptionRepository.findEarliestNextRun()).willReturn(Optional.empty());
+
+    // when
+    Date next = trigger.nextExecutionTime(afterPoll());
+
+    // then
+    assertAfterIdleInterval(next);
+  }
+
+  @Test
+  public void shouldExecuteNextPollAfterIdleIntervalIfNextDigestCannotBeFound() {
+    // given
+    given(digestSubscriptionRepository.findEarliestNextRun())
+        .willThrow(new IllegalStateException("database is not available"));
+
+    // when
+    Date next = trigger.nextExecutionTime(afterPoll());
+
+    // then
+    assertAfterIdleInterval(next);
+  }
+
+  private void assertAfterIdleInterval(Date next) {
+    long idleIntervalMillis = TimeUnit.SECONDS.toMillis(IDLE_INTERVAL_SECONDS);
+
+    assertThat(next.getTime() - System.currentTimeMillis())
+        .isGreaterThan(idleIntervalMillis - 1000)
+        .isLessThanOrEqualTo(idleIntervalMillis);
+  }
+
+  private TriggerContext afterPoll() {
+    Date now = new Date();
+    return new SimpleTriggerContext(now, now, now);
+  }
+
+}
@@ -15,51 +15,37 @@
 
 package org.openlmis.notification.service;
 
-import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.BDDMockito.willAnswer;
-import static org.mockito.Matchers.any;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.openlmis.notification.service.NotificationChannel.EMAIL;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
 import java.util.UUID;
-import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.Spy;
-import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
-import org.mockito.stubbing.Answer;
 import org.openlmis.notification.domain.DigestConfiguration;
 import org.openlmis.notification.domain.DigestSubscription;
 import org.openlmis.notification.domain.NotificationMessage;
 import org.openlmis.notification.domain.PostponeMessage;
-import org.openlmis.notification.repository.DigestConfigurationRepository;
 import org.openlmis.notification.repository.DigestSubscriptionRepository;
 import org.openlmis.notification.repository.PostponeMessageRepository;
+import org.openlmis.notification.repository.PostponedDigestRepository;
 import org.openlmis.notification.testutils.DigestConfigurationDataBuilder;
 import org.openlmis.notification.testutils.DigestSubscriptionDataBuilder;
-import org.springframework.integration.endpoint.SourcePollingChannelAdapter;
+import org.springframework.test.util.ReflectionTestUtils;
 
 public class DigestionServiceTest {
 
-  private static final Table<UUID, String, SourcePollingChannelAdapter> ADAPTERS =
-      HashBasedTable.create();
-
   @Rule
   public MockitoRule mockitoRule = MockitoJUnit.rule();
 
   @Mock
-  private DigestConfigurationRepository digestConfigurationRepository;
+  private DigestConfigurationRegistry digestConfigurationRegistry;
 
   @Mock
   private DigestSubscriptionRepository digestSubscriptionRepository;
@@ -67,9 +53,14 @@ public class DigestionServiceTest {
   @Mock
   private PostponeMessageRepository postponeMessageRepository;
 
+  @Mock
+  private PostponedDigestRepository postponedDigestRepository;
+
+  @Mock
+  private DigestScheduler digestScheduler;
+
   @InjectMocks
-  @Spy
-  private DigestionService service = new DigestionService(ADAPTERS);
+  private DigestionService service;
 
   private DigestConfiguration configuration = new DigestConfigurationDataBuilder()
       .withMessage("This is digest configuration message: {count}")
@@ -84,30 +75,22 @@ public class DigestionServiceTest {
 
   @Before
   public void setUp() {
-    willAnswer(new MockSetPollingAdapter())
-        .given(service)
-        .setPollingAdapter(any(), any(), any(), any());
-
-    given(digestConfigurationRepository.findByTag(tag)).willReturn(configuration);
+    given(digestConfigurationRegistry.findByTag(tag)).willReturn(configuration);
 
     given(digestSubscriptionRepository.findBy(recipient, configuration)).willReturn(subscription);
   }
 
-  @After
-  public void tearDown() {
-    ADAPTERS.clear();
-  }
-
   @Test
   public void shouldDoNothingIfDigestConfigurationDoesNotExist() {
     // given
-    given(digestConfigurationRepository.findByTag(tag)).willReturn(null);
+    given(digestConfigurationRegistry.findByTag(tag)).willReturn(null);
 
     // when
     service.handleMessage(message, channel, recipient, tag);
 
     // then
-    verifyZeroInteractions(digestSubscriptionRepository, postponeMessageRepository);
+    verifyZeroInteractions(digestSubscriptionRepository, postponeMessageRepository,
+        digestScheduler);
   }
 
   @Test
@@ -119,66 +102,33 @@ public class DigestionServiceTest {
     service.handleMessage(message, channel, recipient, tag);
 
     // then
-    verifyZeroInteractions(postponeMessageRepository);
+    verifyZeroInteractions(postponeMessageRepository, digestScheduler);
   }
 
   @Test
-  public void shouldSetAdapterIfAllResourcesAreAvailable() {
+  public void shouldPostponeMessageAndScheduleDigest() {
     // when
     service.handleMessage(message, channel, recipient, tag);
 
     // then
     verify(postponeMessageRepository).saveAndFlush(postpone);
-    verify(service).setPollingAdapter(channel, configuration,
-        recipient, subscription.getCronExpression());
+    verify(digestScheduler).schedule(subscription);
+    verifyZeroInteractions(postponedDigestRepository);
   }
 
   @Test
-  public void shouldNotSetAnotherAdapterForSameSettings() {
+  public void shouldAccumulatePostponeMessageAndScheduleDigest() {
     // given
-    DigestConfiguration anotherConfiguration = new DigestConfigurationDataBuilder().build();
-    given(digestConfigurationRepository.findByTag(anotherConfiguration.getTag()))
-        .willReturn(anotherConfiguration);
-    given(digestSubscriptionRepository.findBy(recipient, anotherConfiguration))
-        .willReturn(subscription);
+    ReflectionTestUtils.setField(service, "accumulate", true);
 
     // when
     service.handleMessage(message, channel, recipient, tag);
-    service.handleMessage(message, channel, recipient, anotherConfiguration.getTag());
-    service.handleMessage(message, channel, recipient, tag);
 
     // then
-    verify(service, times(1))
-        .setPollingAdapter(channel, configuration, recipient, subscription.getCronExpression());
-    verify(service, times(1))
-        .setPollingAdapter(channel, anotherConfiguration,
-            recipient, subscription.getCronExpression());
-  }
-
-  @Test
-  public void shouldDropExistingPollingAdapters() {
-    // given
-    ADAPTERS.put(recipient, tag, new SourcePollingChannelAdapter());
-    ADAPTERS.put(recipient, "another-tag", new SourcePollingChannelAdapter());
-
-    // when
-    service.dropExistingPollingAdapters(recipient);
-
-    // then
-    assertThat(ADAPTERS.size()).isEqualTo(0);
+    verify(postponedDigestRepository)
+        .accumulate(recipient, configuration.getId(), channel, message.getSubject());
+    verify(digestScheduler).schedule(subscription);
+    verifyZeroInteractions(postponeMessageRepository);
   }
 
-  private static final class MockSetPollingAdapter implements Answer<Object> {
-
-    @Override
-    public Object answer(InvocationOnMock invocation) {
-      UUID recipient = invocation.getArgument(2, UUID.class);
-      DigestConfiguration configuration = invocation.getArgument(1, DigestConfiguration.class);
-      SourcePollingChannelAdapter adapter = mock(SourcePollingChannelAdapter.class);
-
-      ADAPTERS.put(recipient, configuration.getTag(), adapter);
-      return null;
-    }
-
-  }
 }
@@ -20,6 +20,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.openlmis.notification.service.NotificationChannel.EMAIL;
 
+import java.util.Collections;
 import java.util.Optional;
 import java.util.UUID;
 import org.junit.Before;
@@ -27,6 +28,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.openlmis.notification.domain.Notification;
@@ -35,6 +37,7 @@ import org.openlmis.notification.domain.UserContactDetails;
 import org.openlmis.notification.repository.UserContactDetailsRepository;
 import org.openlmis.notification.util.NotificationDataBuilder;
 import org.openlmis.notification.util.UserContactDetailsDataBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
 
 public class EmailNotificationChannelHandlerTest {
 
@@ -44,6 +47,9 @@ public class EmailNotificationChannelHandlerTest {
   @Mock
   private UserContactDetailsRepository userContactDetailsRepository;
 
+  @Spy
+  private DeliveryContextService deliveryContextService = new DeliveryContextService();
+
   @Mock
   private EmailSender emailSender;
 
@@ -63,12 +69,14 @@ public class EmailNotificationChannelHandlerTest {
   public void setUp() {
     given(userContactDetailsRepository.findById(recipient))
         .willReturn(Optional.of(contactDetails));
+    ReflectionTestUtils.setField(deliveryContextService, "userContactDetailsRepository",
+        userContactDetailsRepository);
   }
 
   @Test
   public void shouldSendMessage() {
     // when
-    handler.handle(message, recipient, false);
+    handler.handle(message, recipient, false, null);
 
     // then
     verify(emailSender)
@@ -82,7 +90,7 @@ public class EmailNotificationChannelHandlerTest {
     contactDetails.getEmailDetails().setEmail(null);
 
     // when
-    handler.handle(message, recipient, false);
+    handler.handle(message, recipient, false, null);
 
     // then
     verifyZeroInteractions(emailSender);
@@ -94,7 +102,7 @@ public class EmailNotificationChannelHandlerTest {
     contactDetails.getEmailDetails().setEmailVerified(false);
 
     // when
-    handler.handle(message, recipient, false);
+    handler.handle(message, recipient, false, null);
 
     // then
     verifyZeroInteractions(emailSender);
@@ -106,7 +114,7 @@ public class EmailNotificationChannelHandlerTest {
     contactDetails.getEmailDetails().setEmailVerified(false);
 
     // when
-    handler.handle(message, recipient, true);
+    handler.handle(message, recipient, true, null);
 
     // then
     verify(emailSender)
@@ -119,7 +127,7 @@ public class EmailNotificationChannelHandlerTest {
 
     message = notification.getMessages().get(1);
     // when
-    handler.handle(message, recipient, false);
+    handler.handle(message, recipient, false, null);
 
     // then
     verify(emailSender)
@@ -127,4 +135,22 @@ public class EmailNotificationChannelHandlerTest {
             true, null);
   }
 
+  @Test
+  public void shouldUseContactDetailsFromDeliveryContext() {
+    // given
+    UserContactDetails otherContactDetails = new UserContactDetailsDataBuilder()
+        .withReferenceDataUserId(recipient)
+        .build();
+    DeliveryContext context =
+        new DeliveryContext(recipient, otherContactDetails, Collections.emptyList());
+
+    // when
+    handler.handle(message, recipient, false, context);
+
+    // then
+    verify(emailSender)
+        .sendMail(otherContactDetails.getEmailAddress(), message.getSubject(), message.getBody(),
+            false, null);
+  }
+
 }
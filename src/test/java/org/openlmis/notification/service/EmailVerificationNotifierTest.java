@@ -37,8 +37,8 @@ import org.openlmis.notification.domain.EmailVerificationToken;
 import org.openlmis.notification.domain.UserContactDetails;
 import org.openlmis.notification.i18n.ExposedMessageSource;
 import org.openlmis.notification.repository.EmailVerificationTokenRepository;
+import org.openlmis.notification.service.referencedata.UserCache;
 import org.openlmis.notification.service.referencedata.UserDto;
-import org.openlmis.notification.service.referencedata.UserReferenceDataService;
 import org.openlmis.notification.testutils.SaveAnswer;
 import org.openlmis.notification.testutils.UserDataBuilder;
 import org.openlmis.notification.util.UserContactDetailsDataBuilder;
@@ -48,7 +48,7 @@ import org.springframework.context.i18n.LocaleContextHolder;
 public class EmailVerificationNotifierTest {
 
   @Mock
-  private UserReferenceDataService userReferenceDataService;
+  private UserCache userCache;
 
   @Mock
   private EmailSender emailSender;
@@ -73,7 +73,7 @@ public class EmailVerificationNotifierTest {
 
   @Before
   public void setUp() {
-    when(userReferenceDataService.findOne(any(UUID.class)))
+    when(userCache.findOne(any(UUID.class)))
         .thenReturn(user);
     when(messageSource.getMessage(anyString(), any(String[].class), any(Locale.class)))
         .thenAnswer(invocation -> invocation.getArgument(0, String.class));
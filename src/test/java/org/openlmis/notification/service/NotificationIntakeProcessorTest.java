@@ -0,0 +1,135 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static java.util.Collections.singleton;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_USER_CONTACT_DETAILS_NOT_FOUND;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.notification.domain.Notification;
+import org.openlmis.notification.i18n.Message;
+import org.openlmis.notification.util.NotificationDataBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class NotificationIntakeProcessorTest {
+
+  private static final int BATCH_SIZE = 10;
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private NotificationService notificationService;
+
+  @InjectMocks
+  private NotificationIntakeProcessor processor;
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(processor, "batchSize", BATCH_SIZE);
+  }
+
+  @Test
+  public void shouldCheckRecipientsOfClaimedNotifications() {
+    // given
+    Notification notification = new NotificationDataBuilder().build();
+    List<Notification> batch = Collections.singletonList(notification);
+    Map<UUID, Message> invalidRecipients = Collections.singletonMap(notification.getUserId(),
+        new Message(ERROR_USER_CONTACT_DETAILS_NOT_FOUND));
+
+    given(notificationService.claimIntake(BATCH_SIZE)).willReturn(batch);
+    given(notificationService.findInvalidRecipients(singleton(notification.getUserId())))
+        .willReturn(invalidRecipients);
+
+    // when
+    processor.process();
+
+    // then
+    InOrder inOrder = inOrder(notificationService);
+    inOrder.verify(notificationService).claimIntake(BATCH_SIZE);
+    inOrder.verify(notificationService).findInvalidRecipients(singleton(notification.getUserId()));
+    inOrder.verify(notificationService).completeIntake(batch, invalidRecipients);
+  }
+
+  @Test
+  public void shouldProcessIntakeUntilBatchIsNotFull() {
+    // given
+    given(notificationService.claimIntake(BATCH_SIZE))
+        .willReturn(notifications(BATCH_SIZE), notifications(BATCH_SIZE), notifications(3));
+
+    // when
+    processor.process();
+
+    // then
+    verify(notificationService, times(3)).claimIntake(BATCH_SIZE);
+    verify(notificationService, times(3)).completeIntake(any(), any());
+  }
+
+  @Test
+  public void shouldNotCompleteEmptyBatch() {
+    // given
+    given(notificationService.claimIntake(BATCH_SIZE)).willReturn(Collections.emptyList());
+
+    // when
+    processor.process();
+
+    // then
+    verify(notificationService, never()).findInvalidRecipients(any());
+    verify(notificationService, never()).completeIntake(any(), any());
+  }
+
+  @Test
+  public void shouldStopProcessingIntakeIfRecipientsCannotBeChecked() {
+    // given
+    given(notificationService.claimIntake(BATCH_SIZE)).willReturn(notifications(BATCH_SIZE));
+    given(notificationService.findInvalidRecipients(any()))
+        .willThrow(new IllegalStateException("test"));
+
+    // when
+    processor.process();
+
+    // then
+    verify(notificationService, times(1)).claimIntake(BATCH_SIZE);
+    verify(notificationService, never()).completeIntake(any(), any());
+  }
+
+  private List<Notification> notifications(int count) {
+    List<Notification> notifications = new ArrayList<>();
+    for (int i = 0; i < count; ++i) {
+      notifications.add(new NotificationDataBuilder().build());
+    }
+    return notifications;
+  }
+
+}
@@ -0,0 +1,298 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_USER_CONTACT_DETAILS_NOT_FOUND;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_USER_NOT_ACTIVE_OR_NOT_FOUND;
+
+import com.google.common.collect.ImmutableSet;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.assertj.core.util.Lists;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.notification.domain.Notification;
+import org.openlmis.notification.domain.NotificationIntake;
+import org.openlmis.notification.domain.PendingNotification;
+import org.openlmis.notification.domain.UserContactDetails;
+import org.openlmis.notification.i18n.Message;
+import org.openlmis.notification.repository.NotificationIntakeRepository;
+import org.openlmis.notification.repository.NotificationRepository;
+import org.openlmis.notification.repository.PendingNotificationRepository;
+import org.openlmis.notification.repository.UserContactDetailsRepository;
+import org.openlmis.notification.service.referencedata.UserReferenceDataService;
+import org.openlmis.notification.testutils.UserDataBuilder;
+import org.openlmis.notification.util.NotificationDataBuilder;
+import org.openlmis.notification.util.UserContactDetailsDataBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class NotificationServiceTest {
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private UserContactDetailsRepository userContactDetailsRepository;
+
+  @Mock
+  private UserReferenceDataService userReferenceDataService;
+
+  @Mock
+  private NotificationRepository notificationRepository;
+
+  @Mock
+  private PendingNotificationRepository pendingNotificationRepository;
+
+  @Mock
+  private NotificationIntakeRepository notificationIntakeRepository;
+
+  @InjectMocks
+  private NotificationService notificationService;
+
+  @Captor
+  private ArgumentCaptor<List<PendingNotification>> pendingNotificationsCaptor;
+
+  private UserContactDetails active = new UserContactDetailsDataBuilder().build();
+  private UserContactDetails inactive = new UserContactDetailsDataBuilder().build();
+  private UserContactDetails missingUser = new UserContactDetailsDataBuilder().build();
+  private UUID withoutContactDetails = UUID.randomUUID();
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(notificationService, "intakeLeaseSeconds", 60L);
+  }
+
+  @Test
+  public void shouldFindInvalidRecipients() {
+    // given
+    Set<UUID> recipients = ImmutableSet.of(active.getReferenceDataUserId(),
+        inactive.getReferenceDataUserId(), missingUser.getReferenceDataUserId(),
+        withoutContactDetails);
+
+    given(userContactDetailsRepository.findAllById(recipients))
+        .willReturn(Lists.newArrayList(active, inactive, missingUser));
+    given(userReferenceDataService.findByIds(ImmutableSet.of(active.getReferenceDataUserId(),
+        inactive.getReferenceDataUserId(), missingUser.getReferenceDataUserId())))
+        .willReturn(Lists.newArrayList(
+            new UserDataBuilder().withId(active.getReferenceDataUserId()).build(),
+            new UserDataBuilder()
+                .withId(inactive.getReferenceDataUserId())
+                .withActive(false)
+                .build()));
+
+    // when
+    Map<UUID, Message> errors = notificationService.findInvalidRecipients(recipients);
+
+    // then
+    assertThat(errors)
+        .hasSize(3)
+        .containsEntry(inactive.getReferenceDataUserId(),
+            new Message(ERROR_USER_NOT_ACTIVE_OR_NOT_FOUND))
+        .containsEntry(missingUser.getReferenceDataUserId(),
+            new Message(ERROR_USER_NOT_ACTIVE_OR_NOT_FOUND))
+        .containsEntry(withoutContactDetails, new Message(ERROR_USER_CONTACT_DETAILS_NOT_FOUND));
+  }
+
+  @Test
+  public void shouldNotReturnErrorsIfThereAreNoRecipients() {
+    // given
+    given(userContactDetailsRepository.findAllById(Collections.emptySet()))
+        .willReturn(Collections.emptyList());
+
+    // when
+    Map<UUID, Message> errors = notificationService
+        .findInvalidRecipients(Collections.emptySet());
+
+    // then
+    assertThat(errors).isEmpty();
+  }
+
+  @Test
+  public void shouldSaveNotificationsAndAddThemToSendingQueue() {
+    // given
+    Notification email = new NotificationDataBuilder()
+        .withMessage(NotificationChannel.EMAIL, "body")
+        .build();
+    Notification emailAndSms = new NotificationDataBuilder()
+        .withMessage(NotificationChannel.EMAIL, "body")
+        .withMessage(NotificationChannel.SMS, "body")
+        .build();
+    List<Notification> notifications = Lists.newArrayList(email, emailAndSms);
+
+    // when
+    notificationService.saveAll(notifications);
+
+    // then
+    verify(notificationRepository).saveAll(notifications);
+    verify(pendingNotificationRepository).saveAll(pendingNotificationsCaptor.capture());
+
+    assertThat(pendingNotificationsCaptor.getValue())
+        .extracting(PendingNotification::getNotificationId, PendingNotification::getChannel)
+        .containsExactlyInAnyOrder(
+            tuple(email.getId(), NotificationChannel.EMAIL),
+            tuple(emailAndSms.getId(), NotificationChannel.EMAIL),
+            tuple(emailAndSms.getId(), NotificationChannel.SMS));
+  }
+
+  @Test
+  public void shouldAcceptNotification() {
+    // given
+    Notification notification = new NotificationDataBuilder()
+        .withMessage(NotificationChannel.EMAIL, "body")
+        .build();
+
+    // when
+    UUID id = notificationService.accept(notification);
+
+    // then
+    assertThat(id).isEqualTo(notification.getId());
+    assertThat(notification.isInIntake()).isTrue();
+    verify(notificationRepository).saveAndFlush(notification);
+    verify(notificationIntakeRepository).add(eq(notification.getId()), any(ZonedDateTime.class));
+    verify(pendingNotificationRepository, never()).saveAll(any());
+  }
+
+  @Test
+  public void shouldClaimIntake() {
+    // given
+    Notification notification = new NotificationDataBuilder()
+        .withMessage(NotificationChannel.EMAIL, "body")
+        .build();
+    NotificationIntake entry = new NotificationIntake(notification.getId(), ZonedDateTime.now());
+
+    given(notificationIntakeRepository.claim(any(ZonedDateTime.class), eq(10)))
+        .willReturn(Lists.newArrayList(entry));
+    given(notificationRepository.findAllById(Lists.newArrayList(notification.getId())))
+        .willReturn(Lists.newArrayList(notification));
+
+    // when
+    List<Notification> claimed = notificationService.claimIntake(10);
+
+    // then
+    assertThat(claimed).containsExactly(notification);
+    assertThat(entry.isClaimedBy(getOwner())).isTrue();
+    assertThat(entry.getLeaseUntil()).isAfter(ZonedDateTime.now());
+  }
+
+  @Test
+  public void shouldNotClaimEmptyIntake() {
+    // given
+    given(notificationIntakeRepository.claim(any(ZonedDateTime.class), eq(10)))
+        .willReturn(Collections.emptyList());
+
+    // when
+    List<Notification> claimed = notificationService.claimIntake(10);
+
+    // then
+    assertThat(claimed).isEmpty();
+    verify(notificationRepository, never()).findAllById(any());
+  }
+
+  @Test
+  public void shouldCompleteIntake() {
+    // given
+    Notification valid = new NotificationDataBuilder()
+        .withUserId(active.getReferenceDataUserId())
+        .withMessage(NotificationChannel.EMAIL, "body")
+        .build();
+    Notification invalid = new NotificationDataBuilder()
+        .withUserId(withoutContactDetails)
+        .withMessage(NotificationChannel.EMAIL, "body")
+        .build();
+    valid.addToIntake();
+    invalid.addToIntake();
+    NotificationIntake validEntry = claimedIntake(valid);
+    NotificationIntake invalidEntry = claimedIntake(invalid);
+
+    given(notificationIntakeRepository.findAllById(
+        ImmutableSet.of(valid.getId(), invalid.getId())))
+        .willReturn(Lists.newArrayList(validEntry, invalidEntry));
+    given(notificationRepository.findAllById(Lists.newArrayList(valid.getId())))
+        .willReturn(Lists.newArrayList(valid));
+
+    // when
+    notificationService.completeIntake(Lists.newArrayList(valid, invalid),
+        Collections.singletonMap(withoutContactDetails,
+            new Message(ERROR_USER_CONTACT_DETAILS_NOT_FOUND)));
+
+    // then
+    verify(pendingNotificationRepository).saveAll(pendingNotificationsCaptor.capture());
+    assertThat(pendingNotificationsCaptor.getValue())
+        .extracting(PendingNotification::getNotificationId, PendingNotification::getChannel)
+        .containsExactly(tuple(valid.getId(), NotificationChannel.EMAIL));
+
+    verify(notificationIntakeRepository).deleteInBatch(Lists.newArrayList(validEntry));
+    verify(notificationRepository, never()).deleteAll(any());
+
+    assertThat(invalidEntry.isRejected()).isTrue();
+    assertThat(invalidEntry.getRejectionReason())
+        .isEqualTo(new Message(ERROR_USER_CONTACT_DETAILS_NOT_FOUND));
+    assertThat(invalidEntry.isClaimedBy(getOwner())).isFalse();
+    assertThat(valid.isInIntake()).isFalse();
+    assertThat(invalid.isInIntake()).isTrue();
+  }
+
+  @Test
+  public void shouldNotCompleteIntakeWhoseLeaseHasBeenLost() {
+    // given
+    Notification notification = new NotificationDataBuilder()
+        .withMessage(NotificationChannel.EMAIL, "body")
+        .build();
+    NotificationIntake entry = new NotificationIntake(notification.getId(), ZonedDateTime.now());
+    entry.claim("other", ZonedDateTime.now().plusMinutes(1));
+
+    given(notificationIntakeRepository.findAllById(ImmutableSet.of(notification.getId())))
+        .willReturn(Lists.newArrayList(entry));
+
+    // when
+    notificationService.completeIntake(Lists.newArrayList(notification),
+        Collections.emptyMap());
+
+    // then
+    verify(notificationIntakeRepository).deleteInBatch(Collections.emptyList());
+    assertThat(entry.isRejected()).isFalse();
+    assertThat(entry.isClaimedBy("other")).isTrue();
+  }
+
+  private NotificationIntake claimedIntake(Notification notification) {
+    NotificationIntake entry = new NotificationIntake(notification.getId(), ZonedDateTime.now());
+    entry.claim(getOwner(), ZonedDateTime.now().plusMinutes(1));
+    return entry;
+  }
+
+  private String getOwner() {
+    return (String) ReflectionTestUtils.getField(notificationService, "owner");
+  }
+
+}
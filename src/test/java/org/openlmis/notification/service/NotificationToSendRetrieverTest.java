@@ -17,10 +17,18 @@ package org.openlmis.notification.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.openlmis.notification.service.NotificationToSendRetriever.CHANNEL_TO_USE_HEADER;
+import static org.openlmis.notification.service.NotificationToSendRetriever.DELIVERY_CONTEXT_HEADER;
 import static org.openlmis.notification.service.NotificationToSendRetriever.IMPORTANT_HEADER;
+import static org.openlmis.notification.service.NotificationToSendRetriever.RECEIPT_HEADER;
 import static org.openlmis.notification.service.NotificationToSendRetriever.RECIPIENT_HEADER;
 
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import org.assertj.core.util.Lists;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -30,16 +38,23 @@ import org.mockito.junit.MockitoRule;
 import org.openlmis.notification.domain.Notification;
 import org.openlmis.notification.domain.PendingNotification;
 import org.openlmis.notification.util.NotificationDataBuilder;
-import org.springframework.integration.jpa.core.JpaExecutor;
 import org.springframework.messaging.Message;
 
 public class NotificationToSendRetrieverTest {
 
+  private static final int BATCH_SIZE = 2;
+
   @Rule
   public MockitoRule mockitoRule = MockitoJUnit.rule();
 
   @Mock
-  private JpaExecutor jpaExecutor;
+  private PendingNotificationService pendingNotificationService;
+
+  @Mock
+  private DeliveryContextService deliveryContextService;
+
+  @Mock
+  private PendingNotificationTrigger trigger;
 
   private NotificationToSendRetriever retriever;
 
@@ -52,13 +67,17 @@ public class NotificationToSendRetrieverTest {
 
   @Before
   public void setUp() {
-    retriever = new NotificationToSendRetriever(jpaExecutor);
+    retriever = new NotificationToSendRetriever(pendingNotificationService,
+        deliveryContextService, trigger, BATCH_SIZE);
+    pendingNotification.claim("owner", ZonedDateTime.now().plusMinutes(5));
+    given(trigger.isDue()).willReturn(true);
   }
 
   @Test
   public void shouldReturnFirstPendingNotificationReadyToSend() {
     // given
-    given(jpaExecutor.poll()).willReturn(pendingNotification);
+    given(pendingNotificationService.claim(BATCH_SIZE))
+        .willReturn(Collections.singletonList(pendingNotification));
 
     // when
     Message<Notification> message = retriever.retrieve();
@@ -72,10 +91,128 @@ public class NotificationToSendRetrieverTest {
         .containsEntry(CHANNEL_TO_USE_HEADER, pendingNotification.getChannel());
   }
 
+  @Test
+  public void shouldAddReceiptOfPendingNotification() {
+    // given
+    given(pendingNotificationService.claim(BATCH_SIZE))
+        .willReturn(Collections.singletonList(pendingNotification));
+
+    // when
+    Message<Notification> message = retriever.retrieve();
+
+    // then
+    PendingNotificationReceipt receipt = message
+        .getHeaders()
+        .get(RECEIPT_HEADER, PendingNotificationReceipt.class);
+
+    assertThat(receipt).isNotNull();
+    assertThat(receipt.getNotificationId()).isEqualTo(notification.getId());
+    assertThat(receipt.getChannel()).isEqualTo(pendingNotification.getChannel());
+    assertThat(receipt.isDeferred()).isFalse();
+  }
+
+  @Test
+  public void shouldLoadDeliveryContextsOfClaimedNotifications() {
+    // given
+    DeliveryContext context =
+        new DeliveryContext(notification.getUserId(), null, Collections.emptyList());
+
+    given(pendingNotificationService.claim(BATCH_SIZE))
+        .willReturn(Collections.singletonList(pendingNotification));
+    given(deliveryContextService.load(Collections.singleton(notification.getUserId())))
+        .willReturn(Collections.singletonMap(notification.getUserId(), context));
+
+    // when
+    Message<Notification> message = retriever.retrieve();
+
+    // then
+    assertThat(message.getHeaders()).containsEntry(DELIVERY_CONTEXT_HEADER, context);
+  }
+
+  @Test
+  public void shouldReturnAlreadyClaimedNotificationsBeforeClaimingNewOnes() {
+    // given
+    Notification other = new NotificationDataBuilder()
+        .withEmptyMessage(NotificationChannel.EMAIL)
+        .buildAsNew();
+    PendingNotification otherPending = new PendingNotification(other, NotificationChannel.EMAIL);
+    otherPending.claim("owner", ZonedDateTime.now().plusMinutes(5));
+
+    given(pendingNotificationService.claim(BATCH_SIZE))
+        .willReturn(Lists.newArrayList(pendingNotification, otherPending));
+
+    // when
+    Message<Notification> first = retriever.retrieve();
+    Message<Notification> second = retriever.retrieve();
+
+    // then
+    assertThat(first.getPayload()).isEqualTo(notification);
+    assertThat(second.getPayload()).isEqualTo(other);
+    verify(pendingNotificationService, times(1)).claim(BATCH_SIZE);
+  }
+
+  @Test
+  public void shouldWakeUpPollerIfFullBatchWasClaimed() {
+    // given
+    PendingNotification otherPending = new PendingNotification(new NotificationDataBuilder()
+        .withEmptyMessage(NotificationChannel.EMAIL)
+        .buildAsNew(), NotificationChannel.EMAIL);
+    otherPending.claim("owner", ZonedDateTime.now().plusMinutes(5));
+
+    given(pendingNotificationService.claim(BATCH_SIZE))
+        .willReturn(Lists.newArrayList(pendingNotification, otherPending));
+
+    // when
+    retriever.retrieve();
+
+    // then
+    verify(trigger).wakeUp();
+  }
+
+  @Test
+  public void shouldNotWakeUpPollerIfBatchWasNotFull() {
+    // given
+    given(pendingNotificationService.claim(BATCH_SIZE))
+        .willReturn(Collections.singletonList(pendingNotification));
+
+    // when
+    retriever.retrieve();
+
+    // then
+    verify(trigger, never()).wakeUp();
+  }
+
+  @Test
+  public void shouldNotClaimNotificationsIfPollIsNotDue() {
+    // given
+    given(trigger.isDue()).willReturn(false);
+
+    // when
+    Message<Notification> message = retriever.retrieve();
+
+    // then
+    assertThat(message).isNull();
+    verify(pendingNotificationService, never()).claim(BATCH_SIZE);
+  }
+
+  @Test
+  public void shouldNotReturnNotificationWithExpiredLease() {
+    // given
+    pendingNotification.claim("owner", ZonedDateTime.now().minusMinutes(1));
+    given(pendingNotificationService.claim(BATCH_SIZE))
+        .willReturn(Collections.singletonList(pendingNotification));
+
+    // when
+    Message<Notification> message = retriever.retrieve();
+
+    // then
+    assertThat(message).isNull();
+  }
+
   @Test
   public void shouldReturnNullValueIfThereIsNoPendingNotification() {
     // given
-    given(jpaExecutor.poll()).willReturn(null);
+    given(pendingNotificationService.claim(BATCH_SIZE)).willReturn(Collections.emptyList());
 
     // when
     Message<Notification> message = retriever.retrieve();
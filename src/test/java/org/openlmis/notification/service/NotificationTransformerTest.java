@@ -16,10 +16,19 @@
 package org.openlmis.notification.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
 import static org.openlmis.notification.service.NotificationToSendRetriever.CHANNEL_TO_USE_HEADER;
 import static org.openlmis.notification.service.NotificationTransformer.CHANNEL_HEADER;
 
+import java.util.Collections;
+import java.util.UUID;
+import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.notification.domain.Broadcast;
 import org.openlmis.notification.domain.Notification;
 import org.openlmis.notification.domain.NotificationMessage;
 import org.openlmis.notification.util.NotificationDataBuilder;
@@ -28,6 +37,13 @@ import org.springframework.messaging.Message;
 
 public class NotificationTransformerTest {
 
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private BroadcastService broadcastService;
+
+  @InjectMocks
   private NotificationTransformer transformer = new NotificationTransformer();
 
   private Notification notification = new NotificationDataBuilder()
@@ -68,4 +84,31 @@ public class NotificationTransformerTest {
     assertThat(newMessage).isNull();
 
   }
+
+  @Test
+  public void shouldExtractMessageOfBroadcast() {
+    // given
+    Broadcast broadcast = new Broadcast(Collections.emptyList(), false);
+    broadcast.setId(UUID.randomUUID());
+    Notification broadcastNotification = new Notification(UUID.randomUUID(), broadcast);
+    NotificationMessage broadcastMessage = new NotificationMessage(NotificationChannel.EMAIL,
+        "body", "subject");
+
+    given(broadcastService.getMessage(broadcast.getId(), NotificationChannel.EMAIL))
+        .willReturn(broadcastMessage);
+
+    message = MessageBuilder
+        .withPayload(broadcastNotification)
+        .setHeader(CHANNEL_TO_USE_HEADER, NotificationChannel.EMAIL)
+        .build();
+
+    // when
+    Message<?> newMessage = transformer.extractNotificationMessage(message);
+
+    // then
+    assertThat(newMessage.getPayload()).isEqualTo(broadcastMessage);
+    assertThat(newMessage.getHeaders())
+        .containsEntry(CHANNEL_HEADER, NotificationChannel.EMAIL)
+        .doesNotContainKey(CHANNEL_TO_USE_HEADER);
+  }
 }
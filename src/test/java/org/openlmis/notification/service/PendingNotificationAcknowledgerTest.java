@@ -0,0 +1,113 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.openlmis.notification.service.NotificationToSendRetriever.CHANNEL_TO_USE_HEADER;
+import static org.openlmis.notification.service.NotificationToSendRetriever.RECEIPT_HEADER;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.notification.domain.Notification;
+import org.openlmis.notification.util.NotificationDataBuilder;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.transaction.IntegrationResourceHolder;
+
+public class PendingNotificationAcknowledgerTest {
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private PendingNotificationService pendingNotificationService;
+
+  @InjectMocks
+  private PendingNotificationAcknowledger acknowledger;
+
+  private Notification notification = new NotificationDataBuilder()
+      .withEmptyMessage(NotificationChannel.EMAIL)
+      .build();
+
+  private IntegrationResourceHolder holder = new IntegrationResourceHolder();
+
+  @Test
+  public void shouldAcknowledgeNotificationAfterSuccessfulFlow() {
+    // given
+    holder.setMessage(MessageBuilder
+        .withPayload(notification)
+        .setHeader(CHANNEL_TO_USE_HEADER, NotificationChannel.EMAIL)
+        .build());
+
+    // when
+    acknowledger.processAfterCommit(holder);
+
+    // then
+    verify(pendingNotificationService)
+        .acknowledge(notification.getId(), NotificationChannel.EMAIL);
+  }
+
+  @Test
+  public void shouldRecordFailureAfterFailedFlow() {
+    // given
+    holder.setMessage(MessageBuilder
+        .withPayload(notification)
+        .setHeader(CHANNEL_TO_USE_HEADER, NotificationChannel.EMAIL)
+        .build());
+
+    // when
+    acknowledger.processAfterRollback(holder);
+
+    // then
+    verify(pendingNotificationService).fail(notification.getId(), NotificationChannel.EMAIL);
+  }
+
+  @Test
+  public void shouldNotCompleteNotificationIfReceiptHasBeenDeferred() {
+    // given
+    PendingNotificationReceipt receipt = new PendingNotificationReceipt(
+        notification.getId(), NotificationChannel.EMAIL);
+    receipt.defer();
+
+    holder.setMessage(MessageBuilder
+        .withPayload(notification)
+        .setHeader(CHANNEL_TO_USE_HEADER, NotificationChannel.EMAIL)
+        .setHeader(RECEIPT_HEADER, receipt)
+        .build());
+
+    // when
+    acknowledger.processAfterCommit(holder);
+    acknowledger.processAfterRollback(holder);
+
+    // then
+    verifyZeroInteractions(pendingNotificationService);
+  }
+
+  @Test
+  public void shouldDoNothingIfNothingWasPolled() {
+    // when
+    acknowledger.processAfterCommit(holder);
+    acknowledger.processAfterRollback(holder);
+
+    // then
+    verifyZeroInteractions(pendingNotificationService);
+  }
+
+}
@@ -0,0 +1,291 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.notification.domain.FailedNotification;
+import org.openlmis.notification.domain.Notification;
+import org.openlmis.notification.domain.PendingNotification;
+import org.openlmis.notification.repository.FailedNotificationRepository;
+import org.openlmis.notification.repository.PendingNotificationRepository;
+import org.openlmis.notification.util.NotificationDataBuilder;
+import org.openlmis.notification.web.NotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class PendingNotificationServiceTest {
+
+  private static final int LIMIT = 10;
+  private static final long LEASE_SECONDS = 60;
+  private static final int MAX_ATTEMPTS = 5;
+  private static final long INITIAL_DELAY_SECONDS = 30;
+  private static final long MAX_DELAY_SECONDS = 120;
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private PendingNotificationRepository pendingNotificationRepository;
+
+  @Mock
+  private FailedNotificationRepository failedNotificationRepository;
+
+  @InjectMocks
+  private PendingNotificationService service;
+
+  private Notification notification = new NotificationDataBuilder()
+      .withEmptyMessage(NotificationChannel.EMAIL)
+      .build();
+
+  private PendingNotification pendingNotification =
+      new PendingNotification(notification, NotificationChannel.EMAIL);
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(service, "leaseSeconds", LEASE_SECONDS);
+    ReflectionTestUtils.setField(service, "maxAttempts", MAX_ATTEMPTS);
+    ReflectionTestUtils.setField(service, "initialDelaySeconds", INITIAL_DELAY_SECONDS);
+    ReflectionTestUtils.setField(service, "maxDelaySeconds", MAX_DELAY_SECONDS);
+  }
+
+  @Test
+  public void shouldLeaseClaimedNotifications() {
+    // given
+    given(pendingNotificationRepository.claimPendingNotifications(any(), eq(LIMIT)))
+        .willReturn(Collections.singletonList(pendingNotification));
+
+    // when
+    List<PendingNotification> claimed = service.claim(LIMIT);
+
+    // then
+    assertThat(claimed).containsExactly(pendingNotification);
+    ZonedDateTime afterLease = ZonedDateTime.now().plusSeconds(LEASE_SECONDS + 1);
+    assertThat(pendingNotification.isLeaseExpired(ZonedDateTime.now())).isFalse();
+    assertThat(pendingNotification.isLeaseExpired(afterLease)).isTrue();
+  }
+
+  @Test
+  public void shouldCountExpiredLeaseAsFailedAttempt() {
+    // given
+    pendingNotification.claim("other-owner", ZonedDateTime.now().minusSeconds(1));
+    given(pendingNotificationRepository.claimPendingNotifications(any(), eq(LIMIT)))
+        .willReturn(Collections.singletonList(pendingNotification));
+
+    // when
+    List<PendingNotification> claimed = service.claim(LIMIT);
+
+    // then
+    assertThat(claimed).containsExactly(pendingNotification);
+    assertThat(pendingNotification.getAttemptCount()).isEqualTo(1);
+    verify(failedNotificationRepository, never()).save(any(FailedNotification.class));
+  }
+
+  @Test
+  public void shouldMoveNotificationToFailedNotificationsWhenLeaseExpiredTooManyTimes() {
+    // given
+    for (int i = 0; i < MAX_ATTEMPTS; ++i) {
+      pendingNotification.claim("other-owner", ZonedDateTime.now().minusSeconds(1));
+    }
+    given(pendingNotificationRepository.claimPendingNotifications(any(), eq(LIMIT)))
+        .willReturn(Collections.singletonList(pendingNotification));
+
+    // when
+    List<PendingNotification> claimed = service.claim(LIMIT);
+
+    // then
+    assertThat(claimed).isEmpty();
+
+    ArgumentCaptor<FailedNotification> captor = ArgumentCaptor.forClass(FailedNotification.class);
+    verify(failedNotificationRepository).save(captor.capture());
+    verify(pendingNotificationRepository).delete(pendingNotification);
+    assertThat(captor.getValue().getAttemptCount()).isEqualTo(MAX_ATTEMPTS);
+  }
+
+  @Test
+  public void shouldDeleteAcknowledgedNotification() {
+    // when
+    service.acknowledge(notification.getId(), NotificationChannel.EMAIL);
+
+    // then
+    verify(pendingNotificationRepository)
+        .deleteClaimed(eq(notification.getId()), eq(NotificationChannel.EMAIL), anyString());
+  }
+
+  @Test
+  public void shouldScheduleRetryWithBackoffAfterFailure() {
+    // given
+    claim();
+    pendingNotification.registerFailedAttempt();
+    claim();
+
+    // when
+    service.fail(notification.getId(), NotificationChannel.EMAIL);
+
+    // then
+    assertThat(pendingNotification.getAttemptCount()).isEqualTo(2);
+    assertThat(pendingNotification.getClaimedBy()).isNull();
+    assertThat(pendingNotification.getNextAttemptAt())
+        .isAfter(ZonedDateTime.now().plusSeconds(2 * INITIAL_DELAY_SECONDS - 1))
+        .isBefore(ZonedDateTime.now().plusSeconds(2 * INITIAL_DELAY_SECONDS + 1));
+    verify(failedNotificationRepository, never()).save(any(FailedNotification.class));
+  }
+
+  @Test
+  public void shouldLimitRetryDelay() {
+    // given
+    claim();
+    for (int i = 0; i < MAX_ATTEMPTS - 2; ++i) {
+      pendingNotification.registerFailedAttempt();
+    }
+    claim();
+
+    // when
+    service.fail(notification.getId(), NotificationChannel.EMAIL);
+
+    // then
+    assertThat(pendingNotification.getNextAttemptAt())
+        .isBefore(ZonedDateTime.now().plusSeconds(MAX_DELAY_SECONDS + 1));
+  }
+
+  @Test
+  public void shouldMoveNotificationToFailedNotificationsAfterLastAttempt() {
+    // given
+    claim();
+    for (int i = 0; i < MAX_ATTEMPTS - 1; ++i) {
+      pendingNotification.registerFailedAttempt();
+    }
+    claim();
+
+    // when
+    service.fail(notification.getId(), NotificationChannel.EMAIL);
+
+    // then
+    ArgumentCaptor<FailedNotification> captor = ArgumentCaptor.forClass(FailedNotification.class);
+    verify(failedNotificationRepository).save(captor.capture());
+    verify(pendingNotificationRepository).delete(pendingNotification);
+
+    FailedNotification failed = captor.getValue();
+    assertThat(failed.getNotification()).isEqualTo(notification);
+    assertThat(failed.getChannel()).isEqualTo(NotificationChannel.EMAIL);
+    assertThat(failed.getAttemptCount()).isEqualTo(MAX_ATTEMPTS);
+  }
+
+  @Test
+  public void shouldNotRecordFailureIfLeaseWasLost() {
+    // given
+    pendingNotification.claim("other-owner", ZonedDateTime.now().plusSeconds(LEASE_SECONDS));
+    given(pendingNotificationRepository.findById(pendingNotification.getId()))
+        .willReturn(Optional.of(pendingNotification));
+
+    // when
+    service.fail(notification.getId(), NotificationChannel.EMAIL);
+
+    // then
+    assertThat(pendingNotification.getAttemptCount()).isZero();
+    assertThat(pendingNotification.getNextAttemptAt()).isNull();
+  }
+
+  @Test
+  public void shouldPostponeNotificationWithoutCountingAttempt() {
+    // given
+    claim();
+    ZonedDateTime nextAttempt = ZonedDateTime.now().plusMinutes(1);
+
+    // when
+    service.postpone(notification.getId(), NotificationChannel.EMAIL, nextAttempt);
+
+    // then
+    assertThat(pendingNotification.getAttemptCount()).isZero();
+    assertThat(pendingNotification.getClaimedBy()).isNull();
+    assertThat(pendingNotification.getNextAttemptAt()).isEqualTo(nextAttempt);
+  }
+
+  @Test
+  public void shouldNotPostponeNotificationIfLeaseWasLost() {
+    // given
+    pendingNotification.claim("other-owner", ZonedDateTime.now().plusSeconds(LEASE_SECONDS));
+    given(pendingNotificationRepository.findById(pendingNotification.getId()))
+        .willReturn(Optional.of(pendingNotification));
+
+    // when
+    service.postpone(notification.getId(), NotificationChannel.EMAIL,
+        ZonedDateTime.now().plusMinutes(1));
+
+    // then
+    assertThat(pendingNotification.getClaimedBy()).isEqualTo("other-owner");
+    assertThat(pendingNotification.getNextAttemptAt()).isNull();
+  }
+
+  @Test
+  public void shouldRequeueFailedNotification() {
+    // given
+    FailedNotification failed = new FailedNotification(pendingNotification, ZonedDateTime.now());
+    failed.setId(UUID.randomUUID());
+    given(failedNotificationRepository.findById(failed.getId())).willReturn(Optional.of(failed));
+
+    // when
+    service.requeue(failed.getId());
+
+    // then
+    ArgumentCaptor<PendingNotification> captor =
+        ArgumentCaptor.forClass(PendingNotification.class);
+    verify(pendingNotificationRepository).save(captor.capture());
+    verify(failedNotificationRepository).delete(failed);
+
+    assertThat(captor.getValue().getNotification()).isEqualTo(notification);
+    assertThat(captor.getValue().getChannel()).isEqualTo(NotificationChannel.EMAIL);
+    assertThat(captor.getValue().getAttemptCount()).isZero();
+  }
+
+  @Test(expected = NotFoundException.class)
+  public void shouldThrowExceptionWhenRequeuingNonExistentFailedNotification() {
+    // given
+    UUID id = UUID.randomUUID();
+    given(failedNotificationRepository.findById(id)).willReturn(Optional.empty());
+
+    // when
+    service.requeue(id);
+  }
+
+  private void claim() {
+    given(pendingNotificationRepository.claimPendingNotifications(any(), eq(LIMIT)))
+        .willReturn(Collections.singletonList(pendingNotification));
+    given(pendingNotificationRepository.findById(pendingNotification.getId()))
+        .willReturn(Optional.of(pendingNotification));
+
+    service.claim(LIMIT);
+  }
+
+}
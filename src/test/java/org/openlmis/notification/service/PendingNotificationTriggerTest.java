@@ -0,0 +1,103 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.openlmis.notification.service.PendingNotificationTrigger.CHECK_INTERVAL_MILLIS;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+
+public class PendingNotificationTriggerTest {
+
+  private static final long IDLE_INTERVAL_SECONDS = 1;
+
+  private PendingNotificationTrigger trigger =
+      new PendingNotificationTrigger(IDLE_INTERVAL_SECONDS);
+
+  @Test
+  public void shouldExecuteFirstPollImmediately() {
+    // when
+    Date next = trigger.nextExecutionTime(new SimpleTriggerContext());
+
+    // then
+    assertThat(next.getTime()).isLessThanOrEqualTo(System.currentTimeMillis());
+  }
+
+  @Test
+  public void shouldExecuteNextPollAfterCheckIntervalWithoutBlocking() {
+    // given
+    Date lastCompletion = new Date();
+    SimpleTriggerContext context =
+        new SimpleTriggerContext(lastCompletion, lastCompletion, lastCompletion);
+
+    // when
+    long start = System.currentTimeMillis();
+    Date next = trigger.nextExecutionTime(context);
+
+    // then
+    assertThat(System.currentTimeMillis() - start).isLessThan(CHECK_INTERVAL_MILLIS);
+    assertThat(next).isEqualTo(new Date(lastCompletion.getTime() + CHECK_INTERVAL_MILLIS));
+  }
+
+  @Test
+  public void shouldClaimNotificationsInFirstPoll() {
+    // expect
+    assertThat(trigger.isDue()).isTrue();
+  }
+
+  @Test
+  public void shouldNotClaimNotificationsUntilIdleIntervalElapsesIfNotWokenUp()
+      throws Exception {
+    // given
+    trigger.isDue();
+
+    // expect
+    assertThat(trigger.isDue()).isFalse();
+
+    TimeUnit.SECONDS.sleep(IDLE_INTERVAL_SECONDS);
+    assertThat(trigger.isDue()).isTrue();
+  }
+
+  @Test
+  public void shouldClaimNotificationsAfterWakeUp() {
+    // given
+    trigger.isDue();
+
+    // when
+    trigger.wakeUp();
+
+    // then
+    assertThat(trigger.isDue()).isTrue();
+  }
+
+  @Test
+  public void shouldCoalesceWakeUpsIntoSingleClaim() {
+    // given
+    trigger.isDue();
+
+    // when
+    trigger.wakeUp();
+    trigger.wakeUp();
+
+    // then
+    assertThat(trigger.isDue()).isTrue();
+    assertThat(trigger.isDue()).isFalse();
+  }
+
+}
@@ -32,9 +32,9 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.notification.service.referencedata.RightCache;
 import org.openlmis.notification.service.referencedata.RightDto;
 import org.openlmis.notification.service.referencedata.UserDto;
-import org.openlmis.notification.service.referencedata.UserReferenceDataService;
 import org.openlmis.notification.testutils.OAuth2AuthenticationDataBuilder;
 import org.openlmis.notification.testutils.RightDataBuilder;
 import org.openlmis.notification.testutils.UserDataBuilder;
@@ -50,12 +50,13 @@ import org.springframework.test.util.ReflectionTestUtils;
 public class PermissionServiceTest {
 
   private static final String USERS_MANAGE = "USERS_MANAGE";
+  private static final String SYSTEM_SETTINGS_MANAGE = "SYSTEM_SETTINGS_MANAGE";
 
   @Rule
   public final ExpectedException exception = ExpectedException.none();
 
   @Mock
-  private UserReferenceDataService userReferenceDataService;
+  private RightCache rightCache;
 
   @Mock
   private AuthenticationHelper authenticationHelper;
@@ -93,8 +94,8 @@ public class PermissionServiceTest {
     when(securityContext.getAuthentication()).thenReturn(userAuthentication);
     when(authenticationHelper.getCurrentUser()).thenReturn(userDto);
     when(authenticationHelper.getRight(eq(USERS_MANAGE))).thenReturn(rightDto);
-    when(userReferenceDataService.hasRight(userDto.getId(), rightDto.getId(), null, null, null))
-        .thenReturn(new ResultDto<>(true));
+    when(rightCache.hasRight(userDto.getId(), rightDto.getId(), null, null, null))
+        .thenReturn(true);
 
     permissionService.canManageUserContactDetails(UUID.randomUUID());
   }
@@ -111,8 +112,8 @@ public class PermissionServiceTest {
     when(securityContext.getAuthentication()).thenReturn(userAuthentication);
     when(authenticationHelper.getCurrentUser()).thenReturn(userDto);
     when(authenticationHelper.getRight(eq(USERS_MANAGE))).thenReturn(rightDto);
-    when(userReferenceDataService.hasRight(userDto.getId(), rightDto.getId(), null, null, null))
-        .thenReturn(new ResultDto<>(false));
+    when(rightCache.hasRight(userDto.getId(), rightDto.getId(), null, null, null))
+        .thenReturn(false);
 
     expectException();
 
@@ -131,8 +132,8 @@ public class PermissionServiceTest {
     when(securityContext.getAuthentication()).thenReturn(userAuthentication);
     when(authenticationHelper.getCurrentUser()).thenReturn(userDto);
     when(authenticationHelper.getRight(eq(USERS_MANAGE))).thenReturn(rightDto);
-    when(userReferenceDataService.hasRight(userDto.getId(), rightDto.getId(), null, null, null))
-        .thenReturn(new ResultDto<>(true));
+    when(rightCache.hasRight(userDto.getId(), rightDto.getId(), null, null, null))
+        .thenReturn(true);
 
     permissionService.canManageUserSubscriptions(UUID.randomUUID());
   }
@@ -149,8 +150,8 @@ public class PermissionServiceTest {
     when(securityContext.getAuthentication()).thenReturn(userAuthentication);
     when(authenticationHelper.getCurrentUser()).thenReturn(userDto);
     when(authenticationHelper.getRight(eq(USERS_MANAGE))).thenReturn(rightDto);
-    when(userReferenceDataService.hasRight(userDto.getId(), rightDto.getId(), null, null, null))
-        .thenReturn(new ResultDto<>(false));
+    when(rightCache.hasRight(userDto.getId(), rightDto.getId(), null, null, null))
+        .thenReturn(false);
 
     expectException();
 
@@ -171,9 +172,44 @@ public class PermissionServiceTest {
     permissionService.canSendNotification();
   }
 
+  @Test
+  public void shouldAllowOtherServiceToManageFailedNotifications() {
+    when(securityContext.getAuthentication()).thenReturn(serviceAuthentication);
+
+    permissionService.canManageFailedNotifications();
+  }
+
+  @Test
+  public void shouldAllowUserWithSystemSettingsManageRightToManageFailedNotifications() {
+    when(securityContext.getAuthentication()).thenReturn(userAuthentication);
+    when(authenticationHelper.getCurrentUser()).thenReturn(userDto);
+    when(authenticationHelper.getRight(eq(SYSTEM_SETTINGS_MANAGE))).thenReturn(rightDto);
+    when(rightCache.hasRight(userDto.getId(), rightDto.getId(), null, null, null))
+        .thenReturn(true);
+
+    permissionService.canManageFailedNotifications();
+  }
+
+  @Test
+  public void shouldNotAllowUserWithoutSystemSettingsManageRightToManageFailedNotifications() {
+    when(securityContext.getAuthentication()).thenReturn(userAuthentication);
+    when(authenticationHelper.getCurrentUser()).thenReturn(userDto);
+    when(authenticationHelper.getRight(eq(SYSTEM_SETTINGS_MANAGE))).thenReturn(rightDto);
+    when(rightCache.hasRight(userDto.getId(), rightDto.getId(), null, null, null))
+        .thenReturn(false);
+
+    expectException(SYSTEM_SETTINGS_MANAGE);
+
+    permissionService.canManageFailedNotifications();
+  }
+
   private void expectException() {
+    expectException(USERS_MANAGE);
+  }
+
+  private void expectException(String rightName) {
     exception.expect(MissingPermissionException.class);
-    exception.expect(hasProperty("params", arrayContaining(USERS_MANAGE)));
+    exception.expect(hasProperty("params", arrayContaining(rightName)));
     exception.expectMessage(PERMISSION_MISSING);
   }
 
@@ -17,22 +17,28 @@ package org.openlmis.notification.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.openlmis.notification.service.NotificationToSendRetriever.RECIPIENT_HEADER;
 import static org.openlmis.notification.service.NotificationTransformer.CHANNEL_HEADER;
 import static org.openlmis.notification.service.PostponeMessageRetriever.CONFIGURATION_ID_HEADER;
 
-import java.util.List;
+import java.util.Collections;
 import java.util.UUID;
 import org.assertj.core.util.Lists;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
-import org.openlmis.notification.domain.PostponeMessage;
-import org.openlmis.notification.testutils.PostponeMessageDataBuilder;
-import org.springframework.integration.jpa.core.JpaExecutor;
+import org.openlmis.notification.domain.DigestSubscription;
+import org.openlmis.notification.repository.DigestSubscriptionRepository;
+import org.openlmis.notification.repository.PostponeMessageRepository;
+import org.openlmis.notification.repository.PostponedDigestRepository;
+import org.openlmis.notification.testutils.DigestSubscriptionDataBuilder;
 import org.springframework.messaging.Message;
 
 public class PostponeMessageRetrieverTest {
@@ -41,78 +47,193 @@ public class PostponeMessageRetrieverTest {
   public MockitoRule mockitoRule = MockitoJUnit.rule();
 
   @Mock
-  private JpaExecutor jpaExecutor;
+  private DigestScheduler digestScheduler;
 
+  @Mock
+  private DigestSubscriptionRepository digestSubscriptionRepository;
+
+  @Mock
+  private PostponeMessageRepository postponeMessageRepository;
+
+  @Mock
+  private PostponedDigestRepository postponedDigestRepository;
+
+  @InjectMocks
   private PostponeMessageRetriever retriever;
 
-  private NotificationChannel channel = NotificationChannel.EMAIL;
-  private UUID configurationId = UUID.randomUUID();
-  private UUID userId = UUID.randomUUID();
+  private DigestSubscription subscription = new DigestSubscriptionDataBuilder().build();
 
-  private PostponeMessage postpone = new PostponeMessageDataBuilder().build();
+  private UUID userId = subscription.getUserContactDetails().getReferenceDataUserId();
+  private UUID configurationId = subscription.getDigestConfiguration().getId();
+
+  private DigestSummary digest = new DigestSummary(3, "subject");
+  private DigestSummary emptyDigest = new DigestSummary(0, null);
 
   @Before
   public void setUp() {
-    retriever = new PostponeMessageRetriever(jpaExecutor, channel, configurationId, userId);
+    given(postponeMessageRepository.tryLockDigest(any(UUID.class), any(UUID.class)))
+        .willReturn(true);
+    given(postponeMessageRepository.drain(userId, configurationId, NotificationChannel.EMAIL))
+        .willReturn(digest);
+    given(postponedDigestRepository.drain(any(), any(), any())).willReturn(emptyDigest);
   }
 
   @Test
-  public void shouldHandleSinglePostponeNotifications() {
+  public void shouldRetrievePostponeMessagesOfDueDigest() {
     // given
-    given(jpaExecutor.poll()).willReturn(postpone);
+    given(digestScheduler.claim()).willReturn(subscription);
+    given(postponeMessageRepository.findChannels(userId, configurationId))
+        .willReturn(Lists.newArrayList(NotificationChannel.EMAIL));
 
     // when
-    Message<List<PostponeMessage>> message = retriever.receive();
+    Message<DigestSummary> message = retriever.retrieve();
 
     // then
     assertThat(message).isNotNull();
-    assertThat(message.getPayload())
-        .hasSize(1)
-        .contains(postpone);
+    assertThat(message.getPayload()).isEqualTo(digest);
     assertThat(message.getHeaders())
         .containsEntry(RECIPIENT_HEADER, userId)
         .containsEntry(CONFIGURATION_ID_HEADER, configurationId)
-        .containsEntry(CHANNEL_HEADER, channel);
+        .containsEntry(CHANNEL_HEADER, NotificationChannel.EMAIL);
+
+    verify(digestSubscriptionRepository).clearNextRun(subscription.getId());
+    verify(digestSubscriptionRepository, never()).scheduleDigest(any(), any());
   }
 
   @Test
-  public void shouldHandleListOfPostponeNotifications() {
+  public void shouldScheduleDigestAgainIfThereAreMessagesForOtherChannels() {
     // given
-    given(jpaExecutor.poll()).willReturn(Lists.newArrayList(postpone));
+    given(digestScheduler.claim()).willReturn(subscription);
+    given(postponeMessageRepository.findChannels(userId, configurationId))
+        .willReturn(Lists.newArrayList(NotificationChannel.EMAIL, NotificationChannel.SMS));
 
     // when
-    Message<List<PostponeMessage>> message = retriever.receive();
+    Message<DigestSummary> message = retriever.retrieve();
 
     // then
-    assertThat(message).isNotNull();
-    assertThat(message.getPayload())
-        .hasSize(1)
-        .contains(postpone);
-    assertThat(message.getHeaders())
-        .containsEntry(RECIPIENT_HEADER, userId)
-        .containsEntry(CONFIGURATION_ID_HEADER, configurationId)
-        .containsEntry(CHANNEL_HEADER, channel);
+    assertThat(message.getPayload()).isEqualTo(digest);
+    assertThat(message.getHeaders()).containsEntry(CHANNEL_HEADER, NotificationChannel.EMAIL);
+
+    verify(digestSubscriptionRepository).scheduleDigest(any(), any());
+    verify(postponeMessageRepository, never())
+        .drain(userId, configurationId, NotificationChannel.SMS);
   }
 
   @Test
-  public void shouldReturnNullValueIfThereIsNoPostponeNotification() {
+  public void shouldSkipDueDigestsWithoutPostponeMessages() {
     // given
-    given(jpaExecutor.poll()).willReturn(null);
+    DigestSubscription empty = new DigestSubscriptionDataBuilder().build();
+
+    given(digestScheduler.claim()).willReturn(empty, subscription);
+    given(postponeMessageRepository.findChannels(
+        empty.getUserContactDetails().getReferenceDataUserId(),
+        empty.getDigestConfiguration().getId()))
+        .willReturn(Collections.emptyList());
+    given(postponeMessageRepository.findChannels(userId, configurationId))
+        .willReturn(Lists.newArrayList(NotificationChannel.EMAIL));
 
     // when
-    Message<List<PostponeMessage>> message = retriever.receive();
+    Message<DigestSummary> message = retriever.retrieve();
 
     // then
-    assertThat(message).isNull();
+    assertThat(message.getPayload()).isEqualTo(digest);
+    verify(digestSubscriptionRepository).clearNextRun(empty.getId());
+  }
+
+  @Test
+  public void shouldSkipDueDigestsIfPostponeMessagesHaveBeenAlreadyRemoved() {
+    // given
+    DigestSubscription drained = new DigestSubscriptionDataBuilder().build();
+    UUID drainedUserId = drained.getUserContactDetails().getReferenceDataUserId();
+    UUID drainedConfigurationId = drained.getDigestConfiguration().getId();
+
+    given(digestScheduler.claim()).willReturn(drained, subscription);
+    given(postponeMessageRepository.findChannels(drainedUserId, drainedConfigurationId))
+        .willReturn(Lists.newArrayList(NotificationChannel.EMAIL));
+    given(postponeMessageRepository
+        .drain(drainedUserId, drainedConfigurationId, NotificationChannel.EMAIL))
+        .willReturn(emptyDigest);
+    given(postponeMessageRepository.findChannels(userId, configurationId))
+        .willReturn(Lists.newArrayList(NotificationChannel.EMAIL));
+
+    // when
+    Message<DigestSummary> message = retriever.retrieve();
+
+    // then
+    assertThat(message.getPayload()).isEqualTo(digest);
+  }
+
+  @Test
+  public void shouldRetrieveAccumulatedPostponeMessages() {
+    // given
+    given(digestScheduler.claim()).willReturn(subscription);
+    given(postponeMessageRepository.findChannels(userId, configurationId))
+        .willReturn(Collections.emptyList());
+    given(postponedDigestRepository.findChannels(userId, configurationId))
+        .willReturn(Lists.newArrayList(NotificationChannel.SMS));
+    given(postponeMessageRepository.drain(userId, configurationId, NotificationChannel.SMS))
+        .willReturn(emptyDigest);
+    given(postponedDigestRepository.drain(userId, configurationId, NotificationChannel.SMS))
+        .willReturn(digest);
+
+    // when
+    Message<DigestSummary> message = retriever.retrieve();
+
+    // then
+    assertThat(message.getPayload()).isEqualTo(digest);
+    assertThat(message.getHeaders()).containsEntry(CHANNEL_HEADER, NotificationChannel.SMS);
+  }
+
+  @Test
+  public void shouldCombineStoredAndAccumulatedPostponeMessages() {
+    // given
+    given(digestScheduler.claim()).willReturn(subscription);
+    given(postponeMessageRepository.findChannels(userId, configurationId))
+        .willReturn(Lists.newArrayList(NotificationChannel.EMAIL));
+    given(postponedDigestRepository.findChannels(userId, configurationId))
+        .willReturn(Lists.newArrayList(NotificationChannel.EMAIL));
+    given(postponedDigestRepository.drain(userId, configurationId, NotificationChannel.EMAIL))
+        .willReturn(new DigestSummary(2, "other"));
+
+    // when
+    Message<DigestSummary> message = retriever.retrieve();
+
+    // then
+    assertThat(message.getPayload()).isEqualTo(new DigestSummary(5, digest.getSubject()));
+    verify(digestSubscriptionRepository, never()).scheduleDigest(any(), any());
+  }
+
+  @Test
+  public void shouldSkipDigestsThatAreSentByAnotherInstance() {
+    // given
+    DigestSubscription locked = new DigestSubscriptionDataBuilder().build();
+
+    given(digestScheduler.claim()).willReturn(locked, subscription);
+    given(postponeMessageRepository.tryLockDigest(
+        locked.getUserContactDetails().getReferenceDataUserId(),
+        locked.getDigestConfiguration().getId()))
+        .willReturn(false);
+    given(postponeMessageRepository.findChannels(userId, configurationId))
+        .willReturn(Lists.newArrayList(NotificationChannel.EMAIL));
+
+    // when
+    Message<DigestSummary> message = retriever.retrieve();
+
+    // then
+    assertThat(message.getPayload()).isEqualTo(digest);
+    verify(digestSubscriptionRepository, never()).clearNextRun(locked.getId());
+    verify(postponeMessageRepository, never()).findChannels(
+        locked.getUserContactDetails().getReferenceDataUserId(),
+        locked.getDigestConfiguration().getId());
   }
 
   @Test
-  public void shouldReturnNullValueIfCreatedCollectionIsEmpty() {
+  public void shouldReturnNullValueIfThereAreNoDueDigests() {
     // given
-    given(jpaExecutor.poll()).willReturn(Lists.newArrayList());
+    given(digestScheduler.claim()).willReturn(null);
 
     // when
-    Message<List<PostponeMessage>> message = retriever.receive();
+    Message<DigestSummary> message = retriever.retrieve();
 
     // then
     assertThat(message).isNull();
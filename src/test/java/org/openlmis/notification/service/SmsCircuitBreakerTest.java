@@ -0,0 +1,144 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.openlmis.notification.service.SmsCircuitBreaker.CALLS_METRIC;
+import static org.openlmis.notification.service.SmsCircuitBreaker.STATE_METRIC;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+import org.openlmis.notification.service.SmsCircuitBreaker.State;
+
+public class SmsCircuitBreakerTest {
+
+  private static final int FAILURE_THRESHOLD = 3;
+  private static final long OPEN_SECONDS = 60;
+
+  private AtomicLong currentTimeMillis = new AtomicLong();
+  private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private SmsCircuitBreaker circuitBreaker = new SmsCircuitBreaker(meterRegistry,
+      FAILURE_THRESHOLD, OPEN_SECONDS, currentTimeMillis::get);
+
+  @Test
+  public void shouldAllowRequestsWhenClosed() {
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+    assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+  }
+
+  @Test
+  public void shouldOpenAfterConsecutiveFailures() {
+    // when
+    fail(FAILURE_THRESHOLD);
+
+    // then
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    assertThat(circuitBreaker.tryAcquire()).isFalse();
+    assertThat(circuitBreaker.getRetryDelay()).isEqualTo(Duration.ofSeconds(OPEN_SECONDS));
+  }
+
+  @Test
+  public void shouldResetFailuresAfterSuccess() {
+    // given
+    fail(FAILURE_THRESHOLD - 1);
+    circuitBreaker.onSuccess();
+
+    // when
+    fail(FAILURE_THRESHOLD - 1);
+
+    // then
+    assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+  }
+
+  @Test
+  public void shouldAllowSingleProbeAfterOpenInterval() {
+    // given
+    fail(FAILURE_THRESHOLD);
+    currentTimeMillis.addAndGet(TimeUnit.SECONDS.toMillis(OPEN_SECONDS));
+
+    // when
+    boolean probe = circuitBreaker.tryAcquire();
+    boolean other = circuitBreaker.tryAcquire();
+
+    // then
+    assertThat(probe).isTrue();
+    assertThat(other).isFalse();
+    assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+    assertThat(circuitBreaker.getRetryDelay()).isEqualTo(Duration.ofSeconds(OPEN_SECONDS));
+  }
+
+  @Test
+  public void shouldCloseWhenProbeSucceeds() {
+    // given
+    fail(FAILURE_THRESHOLD);
+    currentTimeMillis.addAndGet(TimeUnit.SECONDS.toMillis(OPEN_SECONDS));
+    circuitBreaker.tryAcquire();
+
+    // when
+    circuitBreaker.onSuccess();
+
+    // then
+    assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+  }
+
+  @Test
+  public void shouldOpenAgainWhenProbeFails() {
+    // given
+    fail(FAILURE_THRESHOLD);
+    currentTimeMillis.addAndGet(TimeUnit.SECONDS.toMillis(OPEN_SECONDS));
+    circuitBreaker.tryAcquire();
+
+    // when
+    circuitBreaker.onFailure();
+
+    // then
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    assertThat(circuitBreaker.tryAcquire()).isFalse();
+  }
+
+  @Test
+  public void shouldExposeStateAndCalls() {
+    // given
+    fail(FAILURE_THRESHOLD);
+
+    // when
+    circuitBreaker.tryAcquire();
+
+    // then
+    assertThat(meterRegistry.get(STATE_METRIC).tag("state", "open").gauge().value())
+        .isEqualTo(1);
+    assertThat(meterRegistry.get(STATE_METRIC).tag("state", "closed").gauge().value())
+        .isZero();
+    assertThat(meterRegistry.get(CALLS_METRIC).tag("result", "failure").counter().count())
+        .isEqualTo(FAILURE_THRESHOLD);
+    assertThat(meterRegistry.get(CALLS_METRIC).tag("result", "rejected").counter().count())
+        .isEqualTo(1);
+  }
+
+  private void fail(int times) {
+    for (int i = 0; i < times; ++i) {
+      assertThat(circuitBreaker.tryAcquire()).isTrue();
+      circuitBreaker.onFailure();
+    }
+  }
+
+}
@@ -0,0 +1,303 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.openlmis.notification.service.SmsCoalescer.BATCH_SIZE_METRIC;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+
+public class SmsCoalescerTest {
+
+  private static final String MESSAGE = "message";
+  private static final String PHONE_NUMBER = "12065551234";
+  private static final String OTHER_PHONE_NUMBER = "12065554321";
+  private static final long WINDOW_MILLIS = 500;
+  private static final int MAX_RECIPIENTS = 2;
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private SmsSender smsSender;
+
+  @Mock
+  private PendingNotificationService pendingNotificationService;
+
+  @Mock
+  private ScheduledExecutorService executor;
+
+  @Captor
+  private ArgumentCaptor<Runnable> scheduledCaptor;
+
+  @Captor
+  private ArgumentCaptor<ZonedDateTime> nextAttemptCaptor;
+
+  private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private PendingNotificationReceipt receipt = newReceipt();
+  private PendingNotificationReceipt otherReceipt = newReceipt();
+
+  private SmsCoalescer coalescer;
+
+  @Before
+  public void setUp() {
+    coalescer = newCoalescer(WINDOW_MILLIS);
+
+    willAnswer(invocation -> {
+      invocation.getArgument(0, Runnable.class).run();
+      return null;
+    }).given(executor).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void shouldSendMessageRightAwayIfItHasNoReceipt() {
+    // when
+    coalescer.send(PHONE_NUMBER, MESSAGE, null);
+
+    // then
+    verify(smsSender).sendMessage(PHONE_NUMBER, MESSAGE);
+    verifyZeroInteractions(executor, pendingNotificationService);
+  }
+
+  @Test
+  public void shouldSendMessageRightAwayIfCoalescingIsDisabled() {
+    // given
+    coalescer = newCoalescer(0);
+
+    // when
+    coalescer.send(PHONE_NUMBER, MESSAGE, receipt);
+
+    // then
+    verify(smsSender).sendMessage(PHONE_NUMBER, MESSAGE);
+    verifyZeroInteractions(executor, pendingNotificationService);
+    assertThat(receipt.isDeferred()).isFalse();
+  }
+
+  @Test
+  public void shouldSendMessagesWithSameTextTogetherWhenWindowElapses() {
+    // given
+    coalescer.send(PHONE_NUMBER, MESSAGE, receipt);
+    coalescer.send(OTHER_PHONE_NUMBER, MESSAGE, otherReceipt);
+
+    verify(executor)
+        .schedule(scheduledCaptor.capture(), eq(WINDOW_MILLIS), eq(TimeUnit.MILLISECONDS));
+    verify(smsSender, never()).sendMessage(anyList(), anyString());
+
+    // when
+    scheduledCaptor.getValue().run();
+
+    // then
+    verify(smsSender).sendMessage(Arrays.asList(PHONE_NUMBER, OTHER_PHONE_NUMBER), MESSAGE);
+    verify(pendingNotificationService)
+        .acknowledge(receipt.getNotificationId(), receipt.getChannel());
+    verify(pendingNotificationService)
+        .acknowledge(otherReceipt.getNotificationId(), otherReceipt.getChannel());
+
+    assertThat(receipt.isDeferred()).isTrue();
+    assertThat(otherReceipt.isDeferred()).isTrue();
+    assertThat(meterRegistry.get(BATCH_SIZE_METRIC).summary().totalAmount()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldSendMessagesWithDifferentTextsSeparately() {
+    // given
+    coalescer.send(PHONE_NUMBER, MESSAGE, receipt);
+    coalescer.send(OTHER_PHONE_NUMBER, "other message", otherReceipt);
+
+    verify(executor, times(2))
+        .schedule(scheduledCaptor.capture(), anyLong(), any(TimeUnit.class));
+
+    // when
+    scheduledCaptor.getAllValues().forEach(Runnable::run);
+
+    // then
+    verify(smsSender).sendMessage(Arrays.asList(PHONE_NUMBER), MESSAGE);
+    verify(smsSender).sendMessage(Arrays.asList(OTHER_PHONE_NUMBER), "other message");
+  }
+
+  @Test
+  public void shouldSendBatchRightAwayWhenItIsFull() {
+    // when
+    coalescer.send(PHONE_NUMBER, MESSAGE, receipt);
+    coalescer.send(OTHER_PHONE_NUMBER, MESSAGE, otherReceipt);
+
+    // then
+    verify(smsSender).sendMessage(Arrays.asList(PHONE_NUMBER, OTHER_PHONE_NUMBER), MESSAGE);
+
+    verify(executor)
+        .schedule(scheduledCaptor.capture(), anyLong(), any(TimeUnit.class));
+    scheduledCaptor.getValue().run();
+
+    verify(smsSender, times(1)).sendMessage(anyList(), anyString());
+  }
+
+  @Test
+  public void shouldStartNewBatchAfterPreviousOneHasBeenSent() {
+    // given
+    coalescer.send(PHONE_NUMBER, MESSAGE, receipt);
+    coalescer.send(OTHER_PHONE_NUMBER, MESSAGE, otherReceipt);
+
+    // when
+    coalescer.send(PHONE_NUMBER, MESSAGE, newReceipt());
+
+    // then
+    verify(executor, times(2))
+        .schedule(scheduledCaptor.capture(), anyLong(), any(TimeUnit.class));
+    scheduledCaptor.getAllValues().get(1).run();
+
+    verify(smsSender).sendMessage(Arrays.asList(PHONE_NUMBER), MESSAGE);
+  }
+
+  @Test
+  public void shouldFailEachNotificationIfBatchCouldNotBeSent() {
+    // given
+    willThrow(new ServerException(new IllegalStateException(), "error"))
+        .given(smsSender).sendMessage(anyList(), anyString());
+
+    // when
+    coalescer.send(PHONE_NUMBER, MESSAGE, receipt);
+    coalescer.send(OTHER_PHONE_NUMBER, MESSAGE, otherReceipt);
+
+    // then
+    verify(pendingNotificationService).fail(receipt.getNotificationId(), receipt.getChannel());
+    verify(pendingNotificationService)
+        .fail(otherReceipt.getNotificationId(), otherReceipt.getChannel());
+    verify(pendingNotificationService, never()).acknowledge(any(), any());
+  }
+
+  @Test
+  public void shouldFailOnlyNotificationOfRejectedRecipientIfBatchIsRejected() {
+    // given
+    HttpClientErrorException rejection = new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+    willThrow(new SmsRejectedException(rejection)).given(smsSender)
+        .sendMessage(Arrays.asList(PHONE_NUMBER, OTHER_PHONE_NUMBER), MESSAGE);
+    willThrow(new SmsRejectedException(rejection)).given(smsSender)
+        .sendMessage(Arrays.asList(OTHER_PHONE_NUMBER), MESSAGE);
+
+    // when
+    coalescer.send(PHONE_NUMBER, MESSAGE, receipt);
+    coalescer.send(OTHER_PHONE_NUMBER, MESSAGE, otherReceipt);
+
+    // then
+    verify(smsSender).sendMessage(Arrays.asList(PHONE_NUMBER), MESSAGE);
+    verify(smsSender).sendMessage(Arrays.asList(OTHER_PHONE_NUMBER), MESSAGE);
+    verify(pendingNotificationService)
+        .acknowledge(receipt.getNotificationId(), receipt.getChannel());
+    verify(pendingNotificationService)
+        .fail(otherReceipt.getNotificationId(), otherReceipt.getChannel());
+    verify(pendingNotificationService, never())
+        .fail(receipt.getNotificationId(), receipt.getChannel());
+    verify(pendingNotificationService, never())
+        .acknowledge(otherReceipt.getNotificationId(), otherReceipt.getChannel());
+  }
+
+  @Test
+  public void shouldPostponeEachNotificationIfSmsProviderIsUnavailable() {
+    // given
+    willThrow(new SmsUnavailableException(Duration.ofMinutes(1)))
+        .given(smsSender).sendMessage(anyList(), anyString());
+
+    // when
+    coalescer.send(PHONE_NUMBER, MESSAGE, receipt);
+    coalescer.send(OTHER_PHONE_NUMBER, MESSAGE, otherReceipt);
+
+    // then
+    verify(pendingNotificationService).postpone(eq(receipt.getNotificationId()),
+        eq(receipt.getChannel()), nextAttemptCaptor.capture());
+    verify(pendingNotificationService).postpone(eq(otherReceipt.getNotificationId()),
+        eq(otherReceipt.getChannel()), any(ZonedDateTime.class));
+    verify(pendingNotificationService, never()).fail(any(), any());
+
+    assertThat(nextAttemptCaptor.getValue())
+        .isAfter(ZonedDateTime.now().plusSeconds(59))
+        .isBefore(ZonedDateTime.now().plusSeconds(61));
+  }
+
+  @Test
+  public void shouldPostponeNotificationIfSmsProviderIsUnavailableAndCoalescingIsDisabled() {
+    // given
+    coalescer = newCoalescer(0);
+    willThrow(new SmsUnavailableException(Duration.ofMinutes(1)))
+        .given(smsSender).sendMessage(PHONE_NUMBER, MESSAGE);
+
+    // when
+    coalescer.send(PHONE_NUMBER, MESSAGE, receipt);
+
+    // then
+    verify(pendingNotificationService).postpone(eq(receipt.getNotificationId()),
+        eq(receipt.getChannel()), any(ZonedDateTime.class));
+    assertThat(receipt.isDeferred()).isTrue();
+  }
+
+  @Test
+  public void shouldCompleteOtherNotificationsIfOneCouldNotBeCompleted() {
+    // given
+    willThrow(new IllegalStateException())
+        .given(pendingNotificationService)
+        .acknowledge(receipt.getNotificationId(), receipt.getChannel());
+
+    // when
+    coalescer.send(PHONE_NUMBER, MESSAGE, receipt);
+    coalescer.send(OTHER_PHONE_NUMBER, MESSAGE, otherReceipt);
+
+    // then
+    verify(pendingNotificationService)
+        .acknowledge(otherReceipt.getNotificationId(), otherReceipt.getChannel());
+  }
+
+  private SmsCoalescer newCoalescer(long windowMillis) {
+    SmsCoalescer instance = new SmsCoalescer(smsSender, pendingNotificationService,
+        meterRegistry, windowMillis, MAX_RECIPIENTS, 1);
+    instance.shutdown();
+    ReflectionTestUtils.setField(instance, "executor", executor);
+
+    return instance;
+  }
+
+  private static PendingNotificationReceipt newReceipt() {
+    return new PendingNotificationReceipt(UUID.randomUUID(), NotificationChannel.SMS);
+  }
+
+}
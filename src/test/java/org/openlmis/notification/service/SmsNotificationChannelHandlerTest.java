@@ -27,6 +27,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openlmis.notification.domain.Notification;
 import org.openlmis.notification.domain.NotificationMessage;
@@ -34,6 +35,7 @@ import org.openlmis.notification.domain.UserContactDetails;
 import org.openlmis.notification.repository.UserContactDetailsRepository;
 import org.openlmis.notification.util.NotificationDataBuilder;
 import org.openlmis.notification.util.UserContactDetailsDataBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @RunWith(MockitoJUnitRunner.class)
 public class SmsNotificationChannelHandlerTest {
@@ -41,8 +43,11 @@ public class SmsNotificationChannelHandlerTest {
   @Mock
   private UserContactDetailsRepository userContactDetailsRepository;
 
+  @Spy
+  private DeliveryContextService deliveryContextService = new DeliveryContextService();
+
   @Mock
-  private SmsSender smsSender;
+  private SmsCoalescer smsCoalescer;
 
   @InjectMocks
   private SmsNotificationChannelHandler handler;
@@ -59,15 +64,30 @@ public class SmsNotificationChannelHandlerTest {
   public void setUp() {
     given(userContactDetailsRepository.findById(userId))
         .willReturn(Optional.of(contactDetails));
+    ReflectionTestUtils.setField(deliveryContextService, "userContactDetailsRepository",
+        userContactDetailsRepository);
   }
 
   @Test
   public void shouldSendMessage() {
     // when
-    handler.handle(message, userId);
+    handler.handle(message, userId, null, null);
+
+    // then
+    verify(smsCoalescer).send(contactDetails.getPhoneNumber(), message.getBody(), null);
+  }
+
+  @Test
+  public void shouldPassReceiptOfPendingNotification() {
+    // given
+    PendingNotificationReceipt receipt = new PendingNotificationReceipt(
+        notification.getId(), SMS);
+
+    // when
+    handler.handle(message, userId, null, receipt);
 
     // then
-    verify(smsSender).sendMessage(contactDetails.getPhoneNumber(), message.getBody());
+    verify(smsCoalescer).send(contactDetails.getPhoneNumber(), message.getBody(), receipt);
   }
 
   @Test
@@ -76,9 +96,9 @@ public class SmsNotificationChannelHandlerTest {
     contactDetails.setPhoneNumber(null);
 
     // when
-    handler.handle(message, userId);
+    handler.handle(message, userId, null, null);
 
     // then
-    verifyZeroInteractions(smsSender);
+    verifyZeroInteractions(smsCoalescer);
   }
 }
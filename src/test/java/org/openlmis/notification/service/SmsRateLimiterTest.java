@@ -0,0 +1,106 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.openlmis.notification.service.SmsRateLimiter.TOKENS_METRIC;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class SmsRateLimiterTest {
+
+  private static final double REQUESTS_PER_SECOND = 2;
+  private static final int BURST = 3;
+
+  private AtomicLong nanoTime = new AtomicLong();
+  private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private SmsRateLimiter rateLimiter = new SmsRateLimiter(meterRegistry,
+      REQUESTS_PER_SECOND, BURST, nanoTime::get);
+
+  @Test
+  public void shouldAllowBurstWithoutWaiting() {
+    for (int i = 0; i < BURST; ++i) {
+      assertThat(rateLimiter.reserve()).isZero();
+    }
+  }
+
+  @Test
+  public void shouldMakeCallersWaitForTokensAfterBurst() {
+    // given
+    for (int i = 0; i < BURST; ++i) {
+      rateLimiter.reserve();
+    }
+
+    // when
+    long first = rateLimiter.reserve();
+    long second = rateLimiter.reserve();
+
+    // then
+    assertThat(first).isCloseTo(TimeUnit.MILLISECONDS.toNanos(500), within(1L));
+    assertThat(second).isCloseTo(TimeUnit.MILLISECONDS.toNanos(1000), within(1L));
+  }
+
+  @Test
+  public void shouldRefillTokensAtConfiguredRate() {
+    // given
+    for (int i = 0; i < BURST; ++i) {
+      rateLimiter.reserve();
+    }
+
+    // when
+    nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+    // then
+    assertThat(rateLimiter.getAvailableTokens()).isCloseTo(2.0, within(0.001));
+    assertThat(rateLimiter.reserve()).isZero();
+  }
+
+  @Test
+  public void shouldNotKeepMoreTokensThanBurst() {
+    // when
+    nanoTime.addAndGet(TimeUnit.MINUTES.toNanos(1));
+
+    // then
+    assertThat(rateLimiter.getAvailableTokens()).isEqualTo(BURST);
+  }
+
+  @Test
+  public void shouldNotLimitRateIfItIsNotPositive() {
+    // given
+    rateLimiter = new SmsRateLimiter(new SimpleMeterRegistry(), 0, 1, nanoTime::get);
+
+    // when
+    rateLimiter.reserve();
+
+    // then
+    assertThat(rateLimiter.reserve()).isZero();
+  }
+
+  @Test
+  public void shouldExposeAvailableTokens() {
+    // when
+    rateLimiter.reserve();
+
+    // then
+    assertThat(meterRegistry.get(TOKENS_METRIC).gauge().value()).isEqualTo(BURST - 1);
+  }
+
+}
@@ -16,12 +16,18 @@
 package org.openlmis.notification.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.openlmis.notification.i18n.MessageKeys.ERROR_SEND_SMS_FAILURE;
 
+import java.time.Duration;
+import java.util.Arrays;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -29,6 +35,7 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -38,6 +45,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
@@ -55,6 +64,12 @@ public class SmsSenderTest {
   @Mock
   private RestTemplate restTemplate;
 
+  @Mock
+  private SmsRateLimiter rateLimiter;
+
+  @Mock
+  private SmsCircuitBreaker circuitBreaker;
+
   @InjectMocks
   private SmsSender sender;
   
@@ -72,6 +87,7 @@ public class SmsSenderTest {
     given(restTemplate.postForEntity(
         any(String.class), any(HttpEntity.class), eq(String.class)))
         .willReturn(new ResponseEntity<>("Successful", HttpStatus.CREATED));
+    given(circuitBreaker.tryAcquire()).willReturn(true);
   }
 
   @Test
@@ -97,6 +113,24 @@ public class SmsSenderTest {
     assertThat(requestBody.getUrns()).contains("tel:" + TO_PHONE_NUMBER);
   }
   
+  @Test
+  public void sendMessageShouldSendOneRequestToAllRecipients() {
+    // given
+    String otherPhoneNumber = "12065554321";
+
+    // when
+    sender.sendMessage(Arrays.asList(TO_PHONE_NUMBER, otherPhoneNumber), MESSAGE);
+
+    // then
+    verify(restTemplate).postForEntity(urlCaptor.capture(), requestCaptor.capture(),
+        eq(String.class));
+
+    SmsRequestDto requestBody = (SmsRequestDto) requestCaptor.getValue().getBody();
+    assertThat(requestBody.getText()).isEqualTo(MESSAGE);
+    assertThat(requestBody.getUrns())
+        .containsExactly("tel:" + TO_PHONE_NUMBER, "tel:" + otherPhoneNumber);
+  }
+
   @Test
   public void sendMessageShouldThrowExceptionIfServiceReturnsAnErrorCode() {
     // given
@@ -109,4 +143,120 @@ public class SmsSenderTest {
     // when
     sender.sendMessage(TO_PHONE_NUMBER, MESSAGE);
   }
+
+  @Test
+  public void sendMessageShouldWaitForRateLimitAndRecordSuccess() throws Exception {
+    // when
+    sender.sendMessage(TO_PHONE_NUMBER, MESSAGE);
+
+    // then
+    InOrder order = inOrder(rateLimiter, circuitBreaker, restTemplate);
+    order.verify(rateLimiter).acquire();
+    order.verify(circuitBreaker).tryAcquire();
+    order.verify(restTemplate).postForEntity(any(String.class), any(HttpEntity.class),
+        eq(String.class));
+    order.verify(circuitBreaker).onSuccess();
+  }
+
+  @Test
+  public void sendMessageShouldRecordFailureIfProviderIsUnavailable() {
+    // given
+    given(restTemplate.postForEntity(
+        any(String.class), any(HttpEntity.class), eq(String.class)))
+        .willThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+    // when
+    assertThatThrownBy(() -> sender.sendMessage(TO_PHONE_NUMBER, MESSAGE))
+        .isInstanceOf(ServerException.class);
+
+    // then
+    verify(circuitBreaker).onFailure();
+    verify(circuitBreaker, never()).onSuccess();
+  }
+
+  @Test
+  public void sendMessageShouldRecordFailureIfProviderThrottlesRequests() {
+    // given
+    given(restTemplate.postForEntity(
+        any(String.class), any(HttpEntity.class), eq(String.class)))
+        .willThrow(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS));
+
+    // when
+    assertThatThrownBy(() -> sender.sendMessage(TO_PHONE_NUMBER, MESSAGE))
+        .isInstanceOf(ServerException.class);
+
+    // then
+    verify(circuitBreaker).onFailure();
+  }
+
+  @Test
+  public void sendMessageShouldNotRecordFailureIfProviderRejectsRequest() {
+    // given
+    given(restTemplate.postForEntity(
+        any(String.class), any(HttpEntity.class), eq(String.class)))
+        .willThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+
+    // when
+    assertThatThrownBy(() -> sender.sendMessage(TO_PHONE_NUMBER, MESSAGE))
+        .isInstanceOf(SmsRejectedException.class);
+
+    // then
+    verify(circuitBreaker).onSuccess();
+    verify(circuitBreaker, never()).onFailure();
+  }
+
+  @Test
+  public void sendMessageShouldNotCallProviderWhenCircuitIsOpen() {
+    // given
+    sender.sendMessage(TO_PHONE_NUMBER, MESSAGE);
+
+    given(circuitBreaker.tryAcquire()).willReturn(false);
+    given(circuitBreaker.getRetryDelay()).willReturn(Duration.ofSeconds(30));
+
+    // when
+    assertThatThrownBy(() -> sender.sendMessage(TO_PHONE_NUMBER, MESSAGE))
+        .isInstanceOf(SmsUnavailableException.class)
+        .hasFieldOrPropertyWithValue("retryDelay", Duration.ofSeconds(30));
+
+    // then
+    verify(restTemplate, times(1)).postForEntity(any(String.class), any(HttpEntity.class),
+        eq(String.class));
+  }
+
+  @Test
+  public void sendMessageShouldCheckCircuitAfterWaitingForRateLimit() throws Exception {
+    // given
+    sender.sendMessage(TO_PHONE_NUMBER, MESSAGE);
+
+    given(circuitBreaker.tryAcquire()).willReturn(false);
+    given(circuitBreaker.getRetryDelay()).willReturn(Duration.ofSeconds(30));
+
+    // when
+    assertThatThrownBy(() -> sender.sendMessage(TO_PHONE_NUMBER, MESSAGE))
+        .isInstanceOf(SmsUnavailableException.class);
+
+    // then
+    InOrder order = inOrder(rateLimiter, circuitBreaker);
+    order.verify(rateLimiter).acquire();
+    order.verify(circuitBreaker).tryAcquire();
+    order.verify(rateLimiter).acquire();
+    order.verify(circuitBreaker).tryAcquire();
+  }
+
+  @Test
+  public void sendMessageShouldNotCheckCircuitIfWaitForRateLimitIsInterrupted()
+      throws Exception {
+    // given
+    willThrow(new InterruptedException()).given(rateLimiter).acquire();
+
+    // when
+    assertThatThrownBy(() -> sender.sendMessage(TO_PHONE_NUMBER, MESSAGE))
+        .isInstanceOf(ServerException.class);
+
+    // then
+    assertThat(Thread.interrupted()).isTrue();
+    verify(circuitBreaker, never()).tryAcquire();
+    verify(restTemplate, never()).postForEntity(any(String.class), any(HttpEntity.class),
+        eq(String.class));
+  }
 }
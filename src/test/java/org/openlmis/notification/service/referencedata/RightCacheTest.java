@@ -0,0 +1,189 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service.referencedata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.openlmis.notification.service.referencedata.RightCache.REQUESTS_METRIC;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.notification.service.ResultDto;
+import org.openlmis.notification.testutils.RightDataBuilder;
+
+public class RightCacheTest {
+
+  private static final String RIGHT_NAME = "USERS_MANAGE";
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private RightReferenceDataService rightReferenceDataService;
+
+  @Mock
+  private UserReferenceDataService userReferenceDataService;
+
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private RightCache cache;
+
+  private RightDto right = new RightDataBuilder().build();
+  private UUID userId = UUID.randomUUID();
+  private UUID programId = UUID.randomUUID();
+
+  @Before
+  public void setUp() {
+    cache = createCache(60);
+  }
+
+  @Test
+  public void shouldFindRightOnlyOnce() {
+    // given
+    given(rightReferenceDataService.findRight(RIGHT_NAME)).willReturn(right);
+
+    // when
+    RightDto first = cache.findRight(RIGHT_NAME);
+    RightDto second = cache.findRight(RIGHT_NAME);
+
+    // then
+    assertThat(first).isEqualTo(right);
+    assertThat(second).isEqualTo(right);
+    verify(rightReferenceDataService).findRight(RIGHT_NAME);
+    assertThat(getRequests("right", "miss")).isEqualTo(1);
+    assertThat(getRequests("right", "hit")).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldNotRememberRightThatDoesNotExist() {
+    // given
+    given(rightReferenceDataService.findRight(RIGHT_NAME))
+        .willReturn(null)
+        .willReturn(right);
+
+    // when
+    RightDto missing = cache.findRight(RIGHT_NAME);
+    RightDto found = cache.findRight(RIGHT_NAME);
+
+    // then
+    assertThat(missing).isNull();
+    assertThat(found).isEqualTo(right);
+  }
+
+  @Test
+  public void shouldCheckRightOnlyOnce() {
+    // given
+    given(userReferenceDataService.hasRight(userId, right.getId(), programId, null, null))
+        .willReturn(new ResultDto<>(true));
+
+    // when
+    boolean first = cache.hasRight(userId, right.getId(), programId, null, null);
+    boolean second = cache.hasRight(userId, right.getId(), programId, null, null);
+
+    // then
+    assertThat(first).isTrue();
+    assertThat(second).isTrue();
+    verify(userReferenceDataService).hasRight(userId, right.getId(), programId, null, null);
+    assertThat(getRequests("decision", "miss")).isEqualTo(1);
+    assertThat(getRequests("decision", "hit")).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldCheckRightSeparatelyForEachCriteria() {
+    // given
+    given(userReferenceDataService.hasRight(userId, right.getId(), programId, null, null))
+        .willReturn(new ResultDto<>(true));
+    given(userReferenceDataService.hasRight(userId, right.getId(), null, null, null))
+        .willReturn(new ResultDto<>(false));
+
+    // when
+    boolean withProgram = cache.hasRight(userId, right.getId(), programId, null, null);
+    boolean withoutProgram = cache.hasRight(userId, right.getId(), null, null, null);
+
+    // then
+    assertThat(withProgram).isTrue();
+    assertThat(withoutProgram).isFalse();
+    assertThat(getRequests("decision", "miss")).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldCheckRightAgainAfterTimeToLive() {
+    // given
+    cache = createCache(0);
+    given(userReferenceDataService.hasRight(userId, right.getId(), null, null, null))
+        .willReturn(new ResultDto<>(false))
+        .willReturn(new ResultDto<>(true));
+
+    // when
+    boolean revoked = cache.hasRight(userId, right.getId(), null, null, null);
+    boolean granted = cache.hasRight(userId, right.getId(), null, null, null);
+
+    // then
+    assertThat(revoked).isFalse();
+    assertThat(granted).isTrue();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldPassErrorsOfRightCheckToCaller() {
+    // given
+    given(userReferenceDataService.hasRight(userId, right.getId(), null, null, null))
+        .willThrow(new IllegalStateException("referencedata is not available"));
+
+    // when
+    cache.hasRight(userId, right.getId(), null, null, null);
+  }
+
+  @Test
+  public void shouldFindRightAndCheckRightAgainAfterInvalidation() {
+    // given
+    given(rightReferenceDataService.findRight(RIGHT_NAME)).willReturn(right);
+    given(userReferenceDataService.hasRight(userId, right.getId(), null, null, null))
+        .willReturn(new ResultDto<>(true));
+
+    cache.findRight(RIGHT_NAME);
+    cache.hasRight(userId, right.getId(), null, null, null);
+
+    // when
+    cache.invalidate();
+    cache.findRight(RIGHT_NAME);
+    cache.hasRight(userId, right.getId(), null, null, null);
+
+    // then
+    verify(rightReferenceDataService, times(2)).findRight(RIGHT_NAME);
+    verify(userReferenceDataService, times(2))
+        .hasRight(userId, right.getId(), null, null, null);
+  }
+
+  private RightCache createCache(long timeToLiveSeconds) {
+    return new RightCache(rightReferenceDataService, userReferenceDataService, meterRegistry,
+        100, timeToLiveSeconds);
+  }
+
+  private double getRequests(String type, String result) {
+    return meterRegistry.get(REQUESTS_METRIC).tags("type", type, "result", result)
+        .counter().count();
+  }
+
+}
@@ -0,0 +1,247 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service.referencedata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.openlmis.notification.service.referencedata.TogglzFeatureCache.AGE_METRIC;
+import static org.openlmis.notification.service.referencedata.TogglzFeatureCache.REFRESHES_METRIC;
+import static org.openlmis.notification.service.referencedata.TogglzFeatureCache.REQUESTS_METRIC;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import org.assertj.core.util.Lists;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class TogglzFeatureCacheTest {
+
+  private static final String FEATURE = "FEATURE";
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private TogglzReferenceDataService togglzReferenceDataService;
+
+  @Mock
+  private ExecutorService executor;
+
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private TogglzFeatureDto enabled = new TogglzFeatureDto(FEATURE, true, null, null);
+  private TogglzFeatureDto disabled = new TogglzFeatureDto(FEATURE, false, null, null);
+
+  @Test
+  public void shouldLoadFeaturesWhenApplicationIsReady() {
+    // given
+    TogglzFeatureCache cache = createCache(60);
+    given(togglzReferenceDataService.findAll()).willReturn(Lists.newArrayList(enabled));
+
+    // when
+    cache.warmUp();
+    boolean active = cache.isActive(FEATURE);
+
+    // then
+    assertThat(active).isTrue();
+    assertThat(getRequests("hit")).isEqualTo(1);
+    assertThat(getRefreshes("success")).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldTreatFeaturesAsDisabledAndLoadThemInBackgroundIfNotLoadedYet() {
+    // given
+    TogglzFeatureCache cache = createCache(60);
+    given(togglzReferenceDataService.findAll()).willReturn(Lists.newArrayList(enabled));
+    ReflectionTestUtils.setField(cache, "executor", executor);
+
+    // when
+    boolean active = cache.isActive(FEATURE);
+
+    // then
+    assertThat(active).isFalse();
+    assertThat(getRequests("miss")).isEqualTo(1);
+    verify(executor).execute(any(Runnable.class));
+    verifyZeroInteractions(togglzReferenceDataService);
+  }
+
+  @Test
+  public void shouldTreatUnknownFeatureAsDisabled() {
+    // given
+    TogglzFeatureCache cache = createCache(60);
+    given(togglzReferenceDataService.findAll()).willReturn(Collections.emptyList());
+    cache.warmUp();
+
+    // when
+    boolean active = cache.isActive(FEATURE);
+
+    // then
+    assertThat(active).isFalse();
+  }
+
+  @Test
+  public void shouldNotCallReferenceDataServiceIfFeaturesAreFresh() {
+    // given
+    TogglzFeatureCache cache = createCache(60);
+    given(togglzReferenceDataService.findAll()).willReturn(Lists.newArrayList(enabled));
+    cache.warmUp();
+
+    // when
+    cache.isActive(FEATURE);
+    cache.isActive(FEATURE);
+    cache.isActive(FEATURE);
+
+    // then
+    verify(togglzReferenceDataService).findAll();
+    assertThat(getRequests("hit")).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldReturnStaleValueAndRefreshFeaturesInBackground() {
+    // given
+    TogglzFeatureCache cache = createCache(0);
+    given(togglzReferenceDataService.findAll())
+        .willReturn(Lists.newArrayList(enabled))
+        .willReturn(Lists.newArrayList(disabled));
+
+    cache.warmUp();
+    waitForTimeToPass();
+
+    // when
+    boolean stale = cache.isActive(FEATURE);
+    waitForTimeToPass();
+    boolean refreshed = cache.isActive(FEATURE);
+
+    // then
+    assertThat(stale).isTrue();
+    assertThat(refreshed).isFalse();
+    assertThat(getRequests("stale")).isEqualTo(2);
+    assertThat(getRefreshes("success")).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldUseLastKnownValueIfRefreshFailed() {
+    // given
+    TogglzFeatureCache cache = createCache(0);
+    given(togglzReferenceDataService.findAll())
+        .willReturn(Lists.newArrayList(enabled))
+        .willThrow(new IllegalStateException("referencedata is not available"));
+
+    cache.warmUp();
+    waitForTimeToPass();
+
+    // when
+    boolean first = cache.isActive(FEATURE);
+    waitForTimeToPass();
+    boolean second = cache.isActive(FEATURE);
+
+    // then
+    assertThat(first).isTrue();
+    assertThat(second).isTrue();
+    assertThat(getRefreshes("failure")).isEqualTo(2);
+    assertThat(meterRegistry.get(AGE_METRIC).timeGauge().value()).isPositive();
+  }
+
+  @Test
+  public void shouldTreatFeaturesAsDisabledIfTheyCannotBeLoaded() {
+    // given
+    TogglzFeatureCache cache = createCache(60);
+    given(togglzReferenceDataService.findAll())
+        .willThrow(new IllegalStateException("referencedata is not available"));
+
+    // when
+    cache.warmUp();
+    boolean active = cache.isActive(FEATURE);
+
+    // then
+    assertThat(active).isFalse();
+    assertThat(getRefreshes("failure")).isEqualTo(1);
+    verify(togglzReferenceDataService).findAll();
+  }
+
+  @Test
+  public void shouldRefreshFeaturesInBackgroundAfterInvalidation() {
+    // given
+    TogglzFeatureCache cache = createCache(60);
+    given(togglzReferenceDataService.findAll())
+        .willReturn(Lists.newArrayList(enabled))
+        .willReturn(Lists.newArrayList(disabled));
+
+    cache.warmUp();
+
+    // when
+    cache.invalidate();
+    boolean active = cache.isActive(FEATURE);
+
+    // then
+    assertThat(active).isFalse();
+    verify(togglzReferenceDataService, times(2)).findAll();
+  }
+
+  @Test
+  public void shouldUseLoadedValuesUntilRefreshAfterInvalidationCompletes() {
+    // given
+    TogglzFeatureCache cache = createCache(60);
+    given(togglzReferenceDataService.findAll()).willReturn(Lists.newArrayList(enabled));
+
+    cache.warmUp();
+    ReflectionTestUtils.setField(cache, "executor", executor);
+
+    // when
+    cache.invalidate();
+    boolean active = cache.isActive(FEATURE);
+
+    // then
+    assertThat(active).isTrue();
+    verify(executor).execute(any(Runnable.class));
+  }
+
+  private TogglzFeatureCache createCache(long timeToLiveSeconds) {
+    TogglzFeatureCache cache = new TogglzFeatureCache(togglzReferenceDataService,
+        meterRegistry, timeToLiveSeconds);
+    ReflectionTestUtils.setField(cache, "executor", MoreExecutors.newDirectExecutorService());
+
+    return cache;
+  }
+
+  private double getRequests(String result) {
+    return meterRegistry.get(REQUESTS_METRIC).tag("result", result).counter().count();
+  }
+
+  private double getRefreshes(String result) {
+    return meterRegistry.get(REFRESHES_METRIC).tag("result", result).counter().count();
+  }
+
+  private void waitForTimeToPass() {
+    try {
+      Thread.sleep(5);
+    } catch (InterruptedException exp) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
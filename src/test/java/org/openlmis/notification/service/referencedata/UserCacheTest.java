@@ -0,0 +1,209 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service.referencedata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.openlmis.notification.service.referencedata.UserCache.LOADS_METRIC;
+import static org.openlmis.notification.service.referencedata.UserCache.REQUESTS_METRIC;
+import static org.openlmis.notification.service.referencedata.UserCache.SIZE_METRIC;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.notification.testutils.UserDataBuilder;
+
+public class UserCacheTest {
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private UserReferenceDataService userReferenceDataService;
+
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private UserDto user = new UserDataBuilder().build();
+
+  @Test
+  public void shouldRequestUserOnlyOnce() {
+    // given
+    UserCache cache = createCache(60);
+    given(userReferenceDataService.findOne(user.getId())).willReturn(user);
+
+    // when
+    UserDto first = cache.findOne(user.getId());
+    UserDto second = cache.findOne(user.getId());
+    UserDto third = cache.findOne(user.getId());
+
+    // then
+    assertThat(first).isEqualTo(user);
+    assertThat(second).isEqualTo(user);
+    assertThat(third).isEqualTo(user);
+    verify(userReferenceDataService).findOne(user.getId());
+    assertThat(getRequests("miss")).isEqualTo(1);
+    assertThat(getRequests("hit")).isEqualTo(2);
+    assertThat(getLoads("found")).isEqualTo(1);
+    assertThat(meterRegistry.get(SIZE_METRIC).gauge().value()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldRememberThatUserDoesNotExist() {
+    // given
+    UserCache cache = createCache(60);
+    UUID missing = UUID.randomUUID();
+
+    // when
+    UserDto first = cache.findOne(missing);
+    UserDto second = cache.findOne(missing);
+
+    // then
+    assertThat(first).isNull();
+    assertThat(second).isNull();
+    verify(userReferenceDataService).findOne(missing);
+    assertThat(getLoads("notFound")).isEqualTo(1);
+    assertThat(getRequests("hit")).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldRequestUserThatDidNotExistAgainAfterItsTimeToLive() {
+    // given
+    UserCache cache = createCache(0);
+    given(userReferenceDataService.findOne(user.getId()))
+        .willReturn(null)
+        .willReturn(user);
+
+    // when
+    UserDto missing = cache.findOne(user.getId());
+    waitForTimeToPass();
+    UserDto found = cache.findOne(user.getId());
+
+    // then
+    assertThat(missing).isNull();
+    assertThat(found).isEqualTo(user);
+    verify(userReferenceDataService, times(2)).findOne(user.getId());
+    assertThat(getRequests("miss")).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldNotCacheErrors() {
+    // given
+    UserCache cache = createCache(60);
+    given(userReferenceDataService.findOne(user.getId()))
+        .willThrow(new IllegalStateException("referencedata is not available"))
+        .willReturn(user);
+
+    // when
+    Throwable error = null;
+
+    try {
+      cache.findOne(user.getId());
+    } catch (IllegalStateException exp) {
+      error = exp;
+    }
+
+    UserDto found = cache.findOne(user.getId());
+
+    // then
+    assertThat(error).hasMessage("referencedata is not available");
+    assertThat(found).isEqualTo(user);
+    assertThat(getLoads("failure")).isEqualTo(1);
+    assertThat(getLoads("found")).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldRequestUserAgainAfterInvalidation() {
+    // given
+    UserCache cache = createCache(60);
+    given(userReferenceDataService.findOne(user.getId())).willReturn(user);
+    cache.findOne(user.getId());
+
+    // when
+    cache.invalidate(user.getId());
+    cache.findOne(user.getId());
+
+    // then
+    verify(userReferenceDataService, times(2)).findOne(user.getId());
+  }
+
+  @Test
+  public void shouldSendOneRequestForConcurrentLookUpsOfSameUser() throws Exception {
+    // given
+    UserCache cache = createCache(60);
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch loaded = new CountDownLatch(1);
+
+    given(userReferenceDataService.findOne(user.getId())).willAnswer(invocation -> {
+      loading.countDown();
+      loaded.await(5, TimeUnit.SECONDS);
+      return user;
+    });
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    try {
+      // when
+      Future<UserDto> first = executor.submit(() -> cache.findOne(user.getId()));
+      loading.await(5, TimeUnit.SECONDS);
+
+      Future<UserDto> second = executor.submit(() -> cache.findOne(user.getId()));
+      waitForTimeToPass();
+      loaded.countDown();
+
+      // then
+      assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(user);
+      assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(user);
+      verify(userReferenceDataService).findOne(user.getId());
+      assertThat(getLoads("found")).isEqualTo(1);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private UserCache createCache(long notFoundTimeToLiveSeconds) {
+    return new UserCache(userReferenceDataService, meterRegistry, 100, 60,
+        notFoundTimeToLiveSeconds);
+  }
+
+  private double getRequests(String result) {
+    return meterRegistry.get(REQUESTS_METRIC).tag("result", result).counter().count();
+  }
+
+  private double getLoads(String result) {
+    return meterRegistry.get(LOADS_METRIC).tag("result", result).counter().count();
+  }
+
+  private void waitForTimeToPass() {
+    try {
+      Thread.sleep(5);
+    } catch (InterruptedException exp) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
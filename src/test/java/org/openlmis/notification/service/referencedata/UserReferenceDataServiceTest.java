@@ -0,0 +1,111 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service.referencedata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import org.assertj.core.util.Lists;
+import org.junit.Test;
+import org.openlmis.notification.service.PageDto;
+import org.openlmis.notification.testutils.UserDataBuilder;
+import org.openlmis.notification.util.Pagination;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+
+public class UserReferenceDataServiceTest extends BaseReferenceDataServiceTest<UserDto> {
+
+  @Override
+  protected BaseReferenceDataService<UserDto> getService() {
+    return new UserReferenceDataService();
+  }
+
+  @Override
+  protected UserDto generateInstance() {
+    return new UserDataBuilder().build();
+  }
+
+  @Test
+  public void shouldFindUsersByIds() {
+    // given
+    UserReferenceDataService service = (UserReferenceDataService) prepareService();
+    UserDto user = generateInstance();
+    ResponseEntity<PageDto<UserDto>> response = mock(ResponseEntity.class);
+
+    when(response.getBody()).thenReturn(new PageDto<>(Pagination.getPage(
+        Lists.newArrayList(user), PageRequest.of(0, 1))));
+    when(restTemplate.exchange(any(URI.class), eq(HttpMethod.GET), any(HttpEntity.class),
+        any(ParameterizedTypeReference.class)))
+        .thenReturn(response);
+
+    // when
+    List<UserDto> users = service.findByIds(Collections.singleton(user.getId()));
+
+    // then
+    verify(restTemplate).exchange(uriCaptor.capture(), eq(HttpMethod.GET),
+        entityCaptor.capture(), any(ParameterizedTypeReference.class));
+
+    assertThat(users).containsExactly(user);
+    assertThat(uriCaptor.getValue().toString())
+        .isEqualTo(service.getServiceUrl() + service.getUrl() + "?id=" + user.getId() + "&size=1");
+    assertAuthHeader(entityCaptor.getValue());
+  }
+
+  @Test
+  public void shouldFindPageOfUsersByRight() {
+    // given
+    UserReferenceDataService service = (UserReferenceDataService) prepareService();
+    UserDto user = generateInstance();
+    UUID rightId = UUID.randomUUID();
+    UUID warehouseId = UUID.randomUUID();
+    ResponseEntity<PageDto<UserDto>> response = mock(ResponseEntity.class);
+
+    when(response.getBody()).thenReturn(new PageDto<>(new PageImpl<>(
+        Lists.newArrayList(user), PageRequest.of(2, 10), 21)));
+    when(restTemplate.exchange(any(URI.class), eq(HttpMethod.GET), any(HttpEntity.class),
+        any(ParameterizedTypeReference.class)))
+        .thenReturn(response);
+
+    // when
+    Page<UserDto> users = service
+        .findByRight(rightId, null, null, warehouseId, PageRequest.of(2, 10));
+
+    // then
+    verify(restTemplate).exchange(uriCaptor.capture(), eq(HttpMethod.GET),
+        entityCaptor.capture(), any(ParameterizedTypeReference.class));
+
+    assertThat(users.getContent()).containsExactly(user);
+    assertThat(users.isLast()).isTrue();
+    assertThat(uriCaptor.getValue().toString())
+        .isEqualTo(service.getServiceUrl() + service.getUrl() + "rightSearch?rightId=" + rightId
+            + "&warehouseId=" + warehouseId + "&page=2&size=10");
+    assertAuthHeader(entityCaptor.getValue());
+  }
+
+}
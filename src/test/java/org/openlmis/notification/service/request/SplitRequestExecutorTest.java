@@ -0,0 +1,108 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.service.request;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.collect.Lists;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.Test;
+
+public class SplitRequestExecutorTest {
+
+  private SplitRequestExecutor executor = new SplitRequestExecutor(2);
+
+  @After
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Test
+  public void shouldReturnResultsInOrderOfRequests() {
+    // given
+    CountDownLatch firstCanFinish = new CountDownLatch(1);
+    List<Supplier<String>> requests = Lists.newArrayList(
+        () -> {
+          await(firstCanFinish);
+          return "first";
+        },
+        () -> {
+          firstCanFinish.countDown();
+          return "second";
+        },
+        () -> "third");
+
+    // when
+    List<String> results = executor.executeAll(requests);
+
+    // then
+    assertThat(results).containsExactly("first", "second", "third");
+  }
+
+  @Test
+  public void shouldExecuteSingleRequestInCallingThread() {
+    // given
+    Thread caller = Thread.currentThread();
+    List<Supplier<Thread>> requests = Lists.newArrayList(Thread::currentThread);
+
+    // when
+    List<Thread> results = executor.executeAll(requests);
+
+    // then
+    assertThat(results).containsExactly(caller);
+  }
+
+  @Test
+  public void shouldPassErrorWithoutWaitingForOtherRequests() {
+    // given
+    CountDownLatch slowCanFinish = new CountDownLatch(1);
+    IllegalStateException error = new IllegalStateException("test");
+
+    List<Supplier<String>> requests = Lists.newArrayList(
+        () -> {
+          await(slowCanFinish);
+          return "slow";
+        },
+        () -> {
+          throw error;
+        });
+
+    // when
+    try {
+      assertThatThrownBy(() -> executor.executeAll(requests)).isSameAs(error);
+
+      // then
+      assertThat(slowCanFinish.getCount()).isEqualTo(1);
+    } finally {
+      slowCanFinish.countDown();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+    } catch (InterruptedException exp) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(exp);
+    }
+  }
+
+}
@@ -40,6 +40,11 @@ public class PostponeMessageDataBuilder {
     return this;
   }
 
+  public PostponeMessageDataBuilder withChannel(NotificationChannel channel) {
+    this.channel = channel;
+    return this;
+  }
+
   public PostponeMessage buildAsNew() {
     return new PostponeMessage(configuration, body, subject, userId, channel);
   }
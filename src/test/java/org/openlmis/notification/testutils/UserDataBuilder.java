@@ -41,6 +41,16 @@ public class UserDataBuilder {
     active = true;
   }
 
+  public UserDataBuilder withId(UUID id) {
+    this.id = id;
+    return this;
+  }
+
+  public UserDataBuilder withActive(boolean active) {
+    this.active = active;
+    return this;
+  }
+
   /**
    * Builds instance of {@link UserDto}.
    */
@@ -33,10 +33,10 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.notification.service.referencedata.RightCache;
 import org.openlmis.notification.service.referencedata.RightDto;
-import org.openlmis.notification.service.referencedata.RightReferenceDataService;
+import org.openlmis.notification.service.referencedata.UserCache;
 import org.openlmis.notification.service.referencedata.UserDto;
-import org.openlmis.notification.service.referencedata.UserReferenceDataService;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
@@ -45,10 +45,10 @@ import org.springframework.security.oauth2.provider.OAuth2Authentication;
 public class AuthenticationHelperTest {
 
   @Mock
-  private UserReferenceDataService userReferenceDataService;
+  private UserCache userCache;
 
   @Mock
-  private RightReferenceDataService rightReferenceDataService;
+  private RightCache rightCache;
 
   @InjectMocks
   private AuthenticationHelper authenticationHelper;
@@ -72,7 +72,7 @@ public class AuthenticationHelperTest {
     // given
     UserDto userMock = new UserDto();
     when(authentication.isClientOnly()).thenReturn(false);
-    when(userReferenceDataService.findOne(userId)).thenReturn(userMock);
+    when(userCache.findOne(userId)).thenReturn(userMock);
 
     // when
     UserDto user = authenticationHelper.getCurrentUser();
@@ -85,7 +85,7 @@ public class AuthenticationHelperTest {
   public void shouldThrowExceptionIfUserDoesNotExist() {
     // given
     when(authentication.isClientOnly()).thenReturn(false);
-    when(userReferenceDataService.findOne(any(UUID.class))).thenReturn(null);
+    when(userCache.findOne(any(UUID.class))).thenReturn(null);
 
     // when
     authenticationHelper.getCurrentUser();
@@ -108,7 +108,7 @@ public class AuthenticationHelperTest {
   public void shouldReturnRight() throws Exception {
     // given
     RightDto right = mock(RightDto.class);
-    when(rightReferenceDataService.findRight("rightName")).thenReturn(right);
+    when(rightCache.findRight("rightName")).thenReturn(right);
 
     // when
     RightDto dto = authenticationHelper.getRight("rightName");
@@ -121,7 +121,7 @@ public class AuthenticationHelperTest {
   @Test(expected = AuthenticationException.class)
   public void shouldThrowExceptionIfRightDoesNotExist() {
     // given
-    when(rightReferenceDataService.findRight(anyString())).thenReturn(null);
+    when(rightCache.findRight(anyString())).thenReturn(null);
 
     // when
     authenticationHelper.getRight("rightName");
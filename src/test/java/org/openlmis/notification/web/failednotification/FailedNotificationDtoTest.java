@@ -0,0 +1,72 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.web.failednotification;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import nl.jqno.equalsverifier.EqualsVerifier;
+import nl.jqno.equalsverifier.Warning;
+import org.junit.Test;
+import org.openlmis.notification.domain.FailedNotification;
+import org.openlmis.notification.domain.Notification;
+import org.openlmis.notification.domain.PendingNotification;
+import org.openlmis.notification.service.NotificationChannel;
+import org.openlmis.notification.testutils.ToStringTestUtils;
+import org.openlmis.notification.util.NotificationDataBuilder;
+
+public class FailedNotificationDtoTest {
+
+  @Test
+  public void shouldCreateInstanceBasedOnDomain() {
+    // given
+    Notification notification = new NotificationDataBuilder()
+        .withEmptyMessage(NotificationChannel.SMS)
+        .build();
+    FailedNotification domain = new FailedNotification(
+        new PendingNotification(notification, NotificationChannel.SMS), ZonedDateTime.now());
+    domain.setId(UUID.randomUUID());
+
+    // when
+    FailedNotificationDto dto = FailedNotificationDto.newInstance(domain);
+
+    // then
+    assertThat(dto).isNotNull();
+    assertThat(dto.getId()).isEqualTo(domain.getId());
+    assertThat(dto.getNotificationId()).isEqualTo(notification.getId());
+    assertThat(dto.getUserId()).isEqualTo(notification.getUserId());
+    assertThat(dto.getChannel()).isEqualTo(NotificationChannel.SMS);
+    assertThat(dto.getAttemptCount()).isEqualTo(domain.getAttemptCount());
+    assertThat(dto.getCreatedDate()).isEqualTo(domain.getCreatedDate());
+    assertThat(dto.getFailedDate()).isEqualTo(domain.getFailedDate());
+  }
+
+  @Test
+  public void equalsContract() {
+    EqualsVerifier
+        .forClass(FailedNotificationDto.class)
+        .withRedefinedSuperclass()
+        .suppress(Warning.NONFINAL_FIELDS)
+        .verify();
+  }
+
+  @Test
+  public void shouldImplementToString() {
+    ToStringTestUtils.verify(FailedNotificationDto.class, new FailedNotificationDto());
+  }
+
+}
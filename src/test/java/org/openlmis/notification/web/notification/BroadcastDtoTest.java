@@ -0,0 +1,54 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.web.notification;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import nl.jqno.equalsverifier.Warning;
+import org.junit.Test;
+import org.openlmis.notification.domain.BroadcastMessage;
+import org.openlmis.notification.service.NotificationChannel;
+import org.openlmis.notification.testutils.ToStringTestUtils;
+
+public class BroadcastDtoTest {
+
+  @Test
+  public void equalsContract() {
+    EqualsVerifier
+        .forClass(BroadcastDto.class)
+        .suppress(Warning.NONFINAL_FIELDS)
+        .verify();
+  }
+
+  @Test
+  public void shouldImplementToString() {
+    ToStringTestUtils.verify(BroadcastDto.class, new BroadcastDto());
+  }
+
+  @Test
+  public void shouldImportMessages() {
+    BroadcastDto dto = new BroadcastDto();
+    dto.addMessage("email", new MessageDto("subject", "body", "tag", null));
+
+    assertThat(dto.getMessages())
+        .extracting(BroadcastMessage::getChannel, BroadcastMessage::getBody,
+            BroadcastMessage::getSubject, BroadcastMessage::getTag)
+        .containsExactly(tuple(NotificationChannel.EMAIL, "body", "subject", "tag"));
+  }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.notification.web.notification;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_BROADCAST_REQUEST_RECIPIENTS_AND_AUDIENCE;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_BROADCAST_REQUEST_RECIPIENTS_EMPTY;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_NOTIFICATION_REQUEST_FIELD_REQUIRED;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_NOTIFICATION_REQUEST_MESSAGES_EMPTY;
+import static org.openlmis.notification.i18n.MessageKeys.ERROR_UNSUPPORTED_NOTIFICATION_CHANNEL;
+
+import java.util.Collections;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlmis.notification.web.BaseValidatorTest;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+
+public class BroadcastDtoValidatorTest extends BaseValidatorTest {
+  private BroadcastDtoValidator validator = new BroadcastDtoValidator();
+  private BroadcastDto request = new BroadcastDto();
+  private Errors errors;
+
+  @Before
+  public void setUp() {
+    request.getRecipients().add(UUID.randomUUID());
+    request.addMessage("email", new MessageDto("subject", "body", null, null));
+
+    errors = new BeanPropertyBindingResult(request, "request");
+  }
+
+  @Test
+  public void shouldValidate() {
+    validator.validate(request, errors);
+    assertThat(errors.getErrorCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldRejectIfRecipientsAreNotSet() {
+    request.setRecipients(Collections.emptySet());
+
+    validator.validate(request, errors);
+    assertErrorMessage(errors, "recipients", ERROR_BROADCAST_REQUEST_RECIPIENTS_EMPTY);
+  }
+
+  @Test
+  public void shouldValidateAudience() {
+    request.setRecipients(Collections.emptySet());
+    request.setAudience(new AudienceDto(UUID.randomUUID(), UUID.randomUUID(), null, null));
+
+    validator.validate(request, errors);
+    assertThat(errors.getErrorCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldRejectIfBothRecipientsAndAudienceAreSet() {
+    request.setAudience(new AudienceDto(UUID.randomUUID(), null, null, null));
+
+    validator.validate(request, errors);
+    assertErrorMessage(errors, "recipients", ERROR_BROADCAST_REQUEST_RECIPIENTS_AND_AUDIENCE);
+  }
+
+  @Test
+  public void shouldRejectIfRightOfAudienceIsNotSet() {
+    request.setRecipients(Collections.emptySet());
+    request.setAudience(new AudienceDto(null, UUID.randomUUID(), null, null));
+
+    validator.validate(request, errors);
+    assertErrorMessage(errors, "audience.rightId", ERROR_NOTIFICATION_REQUEST_FIELD_REQUIRED);
+  }
+
+  @Test
+  public void shouldRejectIfMessagesAreNotSet() {
+    request.setMessageMap(Collections.emptyMap());
+
+    validator.validate(request, errors);
+    assertErrorMessage(errors, "messages", ERROR_NOTIFICATION_REQUEST_MESSAGES_EMPTY);
+  }
+
+  @Test
+  public void shouldRejectIfMessageBodyIsEmpty() {
+    request.addMessage("sms", new MessageDto(null, "", null, null));
+
+    validator.validate(request, errors);
+    assertErrorMessage(errors, "messages", ERROR_NOTIFICATION_REQUEST_FIELD_REQUIRED);
+  }
+
+  @Test
+  public void shouldRejectIfChannelIsNotSupported() {
+    request.addMessage("ab", new MessageDto(null, "body", null, null));
+
+    validator.validate(request, errors);
+    assertErrorMessage(errors, "messages", ERROR_UNSUPPORTED_NOTIFICATION_CHANNEL);
+  }
+}
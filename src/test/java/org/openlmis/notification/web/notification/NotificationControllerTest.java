@@ -35,8 +35,8 @@ import org.openlmis.notification.repository.PendingNotificationRepository;
 import org.openlmis.notification.repository.UserContactDetailsRepository;
 import org.openlmis.notification.service.NotificationChannel;
 import org.openlmis.notification.service.PermissionService;
+import org.openlmis.notification.service.referencedata.UserCache;
 import org.openlmis.notification.service.referencedata.UserDto;
-import org.openlmis.notification.service.referencedata.UserReferenceDataService;
 import org.openlmis.notification.testutils.UserDataBuilder;
 import org.openlmis.notification.util.NotificationDataBuilder;
 import org.openlmis.notification.util.UserContactDetailsDataBuilder;
@@ -61,7 +61,7 @@ public class NotificationControllerTest {
   private UserContactDetailsRepository userContactDetailsRepository;
 
   @Mock
-  private UserReferenceDataService userReferenceDataService;
+  private UserCache userCache;
 
   @Mock
   private PermissionService permissionService;
@@ -93,7 +93,7 @@ public class NotificationControllerTest {
 
     given(userContactDetailsRepository.findById(notification.getUserId()))
         .willReturn(Optional.of(contactDetails));
-    given(userReferenceDataService.findOne(contactDetails.getReferenceDataUserId()))
+    given(userCache.findOne(contactDetails.getReferenceDataUserId()))
         .willReturn(userDto);
   }
 
@@ -119,7 +119,7 @@ public class NotificationControllerTest {
     exception.expect(ValidationException.class);
     exception.expectMessage(ERROR_USER_NOT_ACTIVE_OR_NOT_FOUND);
 
-    given(userReferenceDataService.findOne(contactDetails.getReferenceDataUserId()))
+    given(userCache.findOne(contactDetails.getReferenceDataUserId()))
         .willReturn(null);
 
     // when